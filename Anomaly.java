@@ -0,0 +1,85 @@
+package bms.building;
+
+import bms.sensors.TimedSensor;
+
+/**
+ * An anomaly found in the readings of a sensor by an AnomalyDetector.
+ */
+public class Anomaly {
+    private int sensorId;
+    private TimedSensor sensor;
+    private AnomalyType type;
+    private long tick;
+    private int reading;
+
+    /**
+     * Creates a new anomaly.
+     *
+     * @param sensorId id of the sensor within its detector
+     * @param sensor   sensor the anomaly was found in
+     * @param type     type of anomaly
+     * @param tick     number of the detector's tick the anomaly was found on
+     * @param reading  sensor's reading when the anomaly was found
+     */
+    public Anomaly(int sensorId, TimedSensor sensor, AnomalyType type,
+                   long tick, int reading) {
+        this.sensorId = sensorId;
+        this.sensor = sensor;
+        this.type = type;
+        this.tick = tick;
+        this.reading = reading;
+    }
+
+    /**
+     * Returns the id of the sensor within the detector that found the
+     * anomaly.
+     *
+     * @return sensor id
+     */
+    public int getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Returns the sensor the anomaly was found in.
+     *
+     * @return sensor
+     */
+    public TimedSensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * Returns the type of anomaly.
+     *
+     * @return anomaly type
+     */
+    public AnomalyType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of the detector's tick the anomaly was found on,
+     * counting from 1.
+     *
+     * @return tick number
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the sensor's reading when the anomaly was found.
+     *
+     * @return reading
+     */
+    public int getReading() {
+        return reading;
+    }
+
+    @Override
+    public String toString() {
+        return "Anomaly: sensor=" + sensorId + ", type=" + type + ", tick=" +
+                tick + ", reading=" + reading;
+    }
+}
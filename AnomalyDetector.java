@@ -0,0 +1,374 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Watches the readings of a set of sensors after every tick and reports
+ * sensors that are drifting or stuck.
+ *
+ * For each sensor the detector keeps an exponentially weighted moving
+ * average and variance of its readings, two-sided CUSUM sums of how far
+ * readings are from that average in standard deviations, and how many ticks
+ * the reading has not changed for. This is a fixed 29 bytes per sensor,
+ * held in one primitive array per field so that a tick streams through
+ * memory. Sensors are processed in parallel shards.
+ *
+ * A sensor is flagged as drifting when one of its CUSUM sums exceeds the
+ * threshold, after which the sum starts again from zero, and as stuck on the
+ * tick its reading has been unchanged for the stuck limit. Flagged sensors
+ * are put on a bounded queue; if the queue is full the anomaly is dropped
+ * and counted, so a slow consumer never holds up a tick.
+ *
+ * Sensors removed from the building, which stop changing, are no longer
+ * watched once the ChangeFeed reports their removal at the end of the tick,
+ * rather than being flagged as stuck. They keep their ids.
+ */
+public class AnomalyDetector implements TimedItem {
+    /* sensors per shard */
+    private static final int SHARD_SIZE = 16384;
+
+    private TimedSensor[] sensors;
+    private float[] means;
+    private float[] variances;
+    private float[] cusumHighs;
+    private float[] cusumLows;
+    private int[] lastReadings;
+    private int[] unchangedTicks;
+    private int[] ages;
+    private boolean[] removed;
+
+    private float smoothing;
+    private float cusumSlack;
+    private float cusumThreshold;
+    private int stuckLimit;
+    private int warmup;
+
+    private BlockingQueue<Anomaly> anomalies;
+    private AtomicLong flagged;
+    private AtomicLong dropped;
+    private long tick;
+    private Consumer<ChangeBatch> listener;
+
+    /**
+     * Creates a detector for every timed sensor in the given building,
+     * registers it with the timed item manager as a stage and subscribes it
+     * to the change feed.
+     *
+     * @param building      building whose sensors to watch
+     * @param queueCapacity maximum number of anomalies waiting to be taken
+     * @throws IllegalArgumentException if queueCapacity &lt; 1
+     */
+    public AnomalyDetector(Building building, int queueCapacity)
+            throws IllegalArgumentException {
+        this(timedSensors(building), queueCapacity);
+    }
+
+    /**
+     * Creates a detector for the given sensors, registers it with the timed
+     * item manager as a stage and subscribes it to the change feed. Each
+     * sensor's id is its position in the list.
+     *
+     * @param sensors       sensors to watch
+     * @param queueCapacity maximum number of anomalies waiting to be taken
+     * @throws IllegalArgumentException if queueCapacity &lt; 1
+     */
+    public AnomalyDetector(List<? extends TimedSensor> sensors,
+                           int queueCapacity)
+            throws IllegalArgumentException {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.sensors = sensors.toArray(new TimedSensor[0]);
+        int count = this.sensors.length;
+        means = new float[count];
+        variances = new float[count];
+        cusumHighs = new float[count];
+        cusumLows = new float[count];
+        lastReadings = new int[count];
+        unchangedTicks = new int[count];
+        ages = new int[count];
+        removed = new boolean[count];
+
+        smoothing = 0.05f;
+        cusumSlack = 0.5f;
+        cusumThreshold = 8;
+        stuckLimit = 30;
+        warmup = 20;
+
+        anomalies = new ArrayBlockingQueue<>(queueCapacity);
+        flagged = new AtomicLong();
+        dropped = new AtomicLong();
+        TimedItemManager.getInstance().registerStage(this);
+        listener = this::apply;
+        ChangeFeed.getInstance().subscribe(listener);
+    }
+
+    /**
+     * Sets how quickly the moving average follows new readings. Defaults to
+     * 0.05.
+     *
+     * @param smoothing weight of each new reading, between 0 and 1
+     * @throws IllegalArgumentException if smoothing is not between 0 and 1
+     */
+    public void setSmoothing(double smoothing)
+            throws IllegalArgumentException {
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException();
+        }
+        this.smoothing = (float) smoothing;
+    }
+
+    /**
+     * Sets the CUSUM parameters, in standard deviations. Deviations smaller
+     * than the slack are ignored; a sensor is flagged when its accumulated
+     * deviation passes the threshold. Default to 0.5 and 8.
+     *
+     * @param slack     deviation allowed per reading
+     * @param threshold accumulated deviation that flags a sensor
+     * @throws IllegalArgumentException if slack is negative or threshold is
+     *                                  not positive
+     */
+    public void setCusum(double slack, double threshold)
+            throws IllegalArgumentException {
+        if (!(slack >= 0 && threshold > 0)) {
+            throw new IllegalArgumentException();
+        }
+        cusumSlack = (float) slack;
+        cusumThreshold = (float) threshold;
+    }
+
+    /**
+     * Sets how many ticks a sensor's reading must stay the same before it is
+     * flagged as stuck. Defaults to 30.
+     *
+     * @param ticks number of unchanged ticks
+     * @throws IllegalArgumentException if ticks &lt; 1
+     */
+    public void setStuckLimit(int ticks) throws IllegalArgumentException {
+        if (ticks < 1) {
+            throw new IllegalArgumentException();
+        }
+        stuckLimit = ticks;
+    }
+
+    /**
+     * Sets how many readings a sensor must have before it can be flagged as
+     * drifting. Defaults to 20.
+     *
+     * @param readings number of readings
+     * @throws IllegalArgumentException if readings &lt; 1
+     */
+    public void setWarmup(int readings) throws IllegalArgumentException {
+        if (readings < 1) {
+            throw new IllegalArgumentException();
+        }
+        warmup = readings;
+    }
+
+    /**
+     * Returns the queue flagged sensors are put on.
+     *
+     * @return queue of anomalies, oldest first
+     */
+    public BlockingQueue<Anomaly> getAnomalies() {
+        return anomalies;
+    }
+
+    /**
+     * Returns the sensor with the given id.
+     *
+     * @param id sensor id
+     * @return sensor
+     * @throws IndexOutOfBoundsException if no sensor has the id
+     */
+    public TimedSensor getSensor(int id) {
+        return sensors[id];
+    }
+
+    /**
+     * Returns whether the sensor with the given id is still watched, that is
+     * it has not been removed from the building.
+     *
+     * @param id sensor id
+     * @return true if the sensor is watched
+     * @throws IndexOutOfBoundsException if no sensor has the id
+     */
+    public boolean isWatching(int id) {
+        return !removed[id];
+    }
+
+    /**
+     * Returns the number of sensors given to the detector, including any
+     * since removed.
+     *
+     * @return number of sensors
+     */
+    public int size() {
+        return sensors.length;
+    }
+
+    /**
+     * Returns the number of anomalies found, including those dropped.
+     *
+     * @return anomalies found
+     */
+    public long getFlagged() {
+        return flagged.get();
+    }
+
+    /**
+     * Returns the number of anomalies dropped because the queue was full.
+     *
+     * @return anomalies dropped
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops watching the sensors after every tick and unsubscribes the
+     * detector from the change feed.
+     */
+    public void close() {
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(this));
+        ChangeFeed.getInstance().unsubscribe(listener);
+    }
+
+    /**
+     * Updates the state of every sensor with its current reading and flags
+     * any anomalies found.
+     */
+    @Override
+    public void elapseOneMinute() {
+        tick++;
+        int shards = (sensors.length + SHARD_SIZE - 1) / SHARD_SIZE;
+        if (shards > 1) {
+            IntStream.range(0, shards).parallel().forEach(this::detect);
+        } else if (shards == 1) {
+            detect(0);
+        }
+    }
+
+    /**
+     * Updates the sensors in one shard.
+     */
+    private void detect(int shard) {
+        int end = Math.min(sensors.length, (shard + 1) * SHARD_SIZE);
+        float alpha = smoothing;
+        int warmup = this.warmup;
+        for (int i = shard * SHARD_SIZE; i < end; i++) {
+            if (removed[i]) {
+                continue;
+            }
+            int reading = sensors[i].getCurrentReading();
+            int age = ages[i];
+            if (age < Integer.MAX_VALUE) {
+                ages[i] = ++age;
+            }
+            if (age == 1) {
+                means[i] = reading;
+                lastReadings[i] = reading;
+                continue;
+            }
+
+            if (reading == lastReadings[i]) {
+                if (++unchangedTicks[i] == stuckLimit) {
+                    flag(i, AnomalyType.STUCK, reading);
+                }
+            } else {
+                unchangedTicks[i] = 0;
+                lastReadings[i] = reading;
+            }
+
+            // deviation measured against the average before this reading
+            float mean = means[i];
+            float variance = variances[i];
+            float difference = reading - mean;
+            float z = difference / Math.max(1f, (float) Math.sqrt(variance));
+            // a plain running average until warmed up, so the variance is
+            // a fair estimate by the time drift can be flagged
+            float weight = age > warmup ? alpha : Math.max(alpha, 1f / age);
+            float increment = weight * difference;
+            means[i] = mean + increment;
+            variances[i] = (1 - weight) * (variance + difference * increment);
+            if (age <= warmup) {
+                continue;
+            }
+
+            float high = Math.max(0, cusumHighs[i] + z - cusumSlack);
+            float low = Math.max(0, cusumLows[i] - z - cusumSlack);
+            if (high > cusumThreshold) {
+                flag(i, AnomalyType.DRIFT_HIGH, reading);
+                high = 0;
+                low = 0;
+            } else if (low > cusumThreshold) {
+                flag(i, AnomalyType.DRIFT_LOW, reading);
+                high = 0;
+                low = 0;
+            }
+            cusumHighs[i] = high;
+            cusumLows[i] = low;
+        }
+    }
+
+    /**
+     * Stops watching the sensors that left the building during a tick.
+     */
+    private void apply(ChangeBatch batch) {
+        if (!batch.isStructureChanged()) {
+            return;
+        }
+        Set<Sensor> departed = batch.getDepartedSensors();
+        if (departed.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < sensors.length; i++) {
+            if (departed.contains(sensors[i])) {
+                removed[i] = true;
+            }
+        }
+    }
+
+    private void flag(int id, AnomalyType type, int reading) {
+        flagged.incrementAndGet();
+        if (!anomalies.offer(new Anomaly(id, sensors[id], type, tick,
+                reading))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static List<TimedSensor> timedSensors(Building building) {
+        List<TimedSensor> result = new ArrayList<>();
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (sensor instanceof TimedSensor) {
+                        result.add((TimedSensor) sensor);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AnomalyDetector: sensors=" + sensors.length + ", flagged=" +
+                flagged.get() + ", dropped=" + dropped.get();
+    }
+}
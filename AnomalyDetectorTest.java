@@ -0,0 +1,247 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AnomalyDetectorTest {
+    private static final int[] NOISE = {0, 2, -1, 1};
+
+    private TimedItemManager manager;
+    private List<TimedSensor> sensors;
+    private AnomalyDetector detector;
+
+    @Before
+    public void setUp() {
+        manager = TimedItemManager.getInstance();
+        sensors = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        if (detector != null) {
+            detector.close();
+        }
+        manager.deregisterTimedItems(sensors);
+    }
+
+    /**
+     * Creates a sensor moving on to its next reading every minute, which is
+     * only ticked by tick().
+     */
+    private TimedSensor sensor(int[] readings) {
+        OccupancySensor sensor = new OccupancySensor(readings, 1, 1000);
+        manager.deregisterTimedItems(List.of(sensor));
+        sensors.add(sensor);
+        return sensor;
+    }
+
+    /**
+     * Returns noisy readings around before, stepping to around after at the
+     * given position.
+     */
+    private static int[] step(int before, int after, int at, int length) {
+        int[] readings = new int[length];
+        for (int i = 0; i < length; i++) {
+            readings[i] = (i < at ? before : after) + NOISE[i % NOISE.length];
+        }
+        return readings;
+    }
+
+    private void tick(int times) {
+        for (int i = 0; i < times; i++) {
+            for (TimedSensor sensor : sensors) {
+                sensor.elapseOneMinute();
+            }
+            detector.elapseOneMinute();
+        }
+    }
+
+    private List<Anomaly> taken() {
+        List<Anomaly> result = new ArrayList<>();
+        detector.getAnomalies().drainTo(result);
+        return result;
+    }
+
+    @Test
+    public void constantStreamStuckOnce() {
+        sensor(new int[]{5});
+        detector = new AnomalyDetector(sensors, 16);
+        // the first reading starts the count, so 30 more are unchanged
+        tick(30);
+        Assert.assertTrue(detector.getAnomalies().isEmpty());
+        tick(1);
+        List<Anomaly> anomalies = taken();
+        Assert.assertEquals(1, anomalies.size());
+        Anomaly anomaly = anomalies.get(0);
+        Assert.assertEquals(AnomalyType.STUCK, anomaly.getType());
+        Assert.assertEquals(0, anomaly.getSensorId());
+        Assert.assertSame(sensors.get(0), anomaly.getSensor());
+        Assert.assertEquals(5, anomaly.getReading());
+        Assert.assertEquals(31, anomaly.getTick());
+        tick(60);
+        Assert.assertTrue(detector.getAnomalies().isEmpty());
+        Assert.assertEquals(1, detector.getFlagged());
+    }
+
+    @Test
+    public void changeResetsStuckCount() {
+        int[] readings = new int[40];
+        readings[39] = 1;
+        sensor(readings);
+        detector = new AnomalyDetector(sensors, 16);
+        detector.setStuckLimit(50);
+        // 39 unchanged, then a change, then 39 unchanged again
+        tick(80);
+        Assert.assertTrue(detector.getAnomalies().isEmpty());
+    }
+
+    @Test
+    public void noisyStreamNotFlagged() {
+        sensor(step(10, 10, 0, 8));
+        detector = new AnomalyDetector(sensors, 16);
+        tick(200);
+        Assert.assertEquals(0, detector.getFlagged());
+    }
+
+    @Test
+    public void driftHigh() {
+        sensor(step(10, 20, 30, 60));
+        detector = new AnomalyDetector(sensors, 16);
+        // the first tick moves on to the second reading
+        tick(29);
+        Assert.assertEquals(0, detector.getFlagged());
+        tick(31);
+        List<Anomaly> anomalies = taken();
+        Assert.assertFalse(anomalies.isEmpty());
+        Anomaly first = anomalies.get(0);
+        Assert.assertEquals(AnomalyType.DRIFT_HIGH, first.getType());
+        Assert.assertTrue(first.getTick() >= 30 && first.getTick() <= 33);
+        // the sums start again after a flag, so flags are spaced out
+        for (int i = 1; i < anomalies.size(); i++) {
+            Assert.assertEquals(AnomalyType.DRIFT_HIGH,
+                    anomalies.get(i).getType());
+            Assert.assertTrue(anomalies.get(i).getTick() -
+                    anomalies.get(i - 1).getTick() > 1);
+        }
+    }
+
+    @Test
+    public void driftLow() {
+        sensor(step(40, 25, 30, 60));
+        detector = new AnomalyDetector(sensors, 16);
+        tick(60);
+        List<Anomaly> anomalies = taken();
+        Assert.assertFalse(anomalies.isEmpty());
+        Assert.assertEquals(AnomalyType.DRIFT_LOW, anomalies.get(0).getType());
+        Assert.assertTrue(anomalies.get(0).getTick() >= 30);
+    }
+
+    @Test
+    public void noDriftDuringWarmup() {
+        sensor(step(10, 50, 6, 40));
+        detector = new AnomalyDetector(sensors, 16);
+        detector.setWarmup(20);
+        tick(20);
+        Assert.assertEquals(0, detector.getFlagged());
+    }
+
+    @Test
+    public void driftAfterShortWarmup() {
+        sensor(step(10, 50, 6, 40));
+        detector = new AnomalyDetector(sensors, 16);
+        detector.setWarmup(5);
+        tick(6);
+        List<Anomaly> anomalies = taken();
+        Assert.assertEquals(1, anomalies.size());
+        Assert.assertEquals(AnomalyType.DRIFT_HIGH, anomalies.get(0).getType());
+        Assert.assertEquals(6, anomalies.get(0).getTick());
+    }
+
+    @Test
+    public void fullQueueDropsAnomalies() {
+        sensor(new int[]{1});
+        sensor(new int[]{2});
+        sensor(new int[]{3});
+        detector = new AnomalyDetector(sensors, 2);
+        detector.setStuckLimit(1);
+        tick(2);
+        Assert.assertEquals(3, detector.getFlagged());
+        Assert.assertEquals(1, detector.getDropped());
+        List<Anomaly> anomalies = taken();
+        Assert.assertEquals(2, anomalies.size());
+        Assert.assertEquals(0, anomalies.get(0).getSensorId());
+        Assert.assertEquals(1, anomalies.get(1).getSensorId());
+    }
+
+    @Test
+    public void everyShardProcessed() {
+        int count = 40000;
+        manager.deferRegistration();
+        try {
+            for (int i = 0; i < count; i++) {
+                sensors.add(new OccupancySensor(new int[]{i % 100}, 1, 100));
+            }
+        } finally {
+            manager.registerDeferred();
+        }
+        manager.deregisterTimedItems(sensors);
+        detector = new AnomalyDetector(sensors, count);
+        detector.setStuckLimit(1);
+        Assert.assertEquals(count, detector.size());
+        tick(2);
+        Assert.assertEquals(count, detector.getFlagged());
+        boolean[] seen = new boolean[count];
+        for (Anomaly anomaly : taken()) {
+            Assert.assertFalse(seen[anomaly.getSensorId()]);
+            seen[anomaly.getSensorId()] = true;
+            Assert.assertSame(detector.getSensor(anomaly.getSensorId()),
+                    anomaly.getSensor());
+        }
+        for (boolean flagged : seen) {
+            Assert.assertTrue(flagged);
+        }
+    }
+
+    @Test
+    public void removedSensorsNotStuck() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room kept = new Room(101, RoomType.OFFICE, 20);
+        Room removed = new Room(102, RoomType.OFFICE, 20);
+        floor.addRoom​(kept);
+        floor.addRoom​(removed);
+        OccupancySensor moving = new OccupancySensor(new int[]{1, 2}, 1, 10);
+        OccupancySensor frozen = new OccupancySensor(new int[]{1, 2}, 1, 10);
+        sensors.add(moving);
+        sensors.add(frozen);
+        kept.addSensor​(moving);
+        removed.addSensor​(frozen);
+        detector = new AnomalyDetector(building, 16);
+        detector.setStuckLimit(3);
+        manager.elapseOneMinute();
+        floor.removeRoom(102);
+        for (int i = 0; i < 10; i++) {
+            manager.elapseOneMinute();
+        }
+        Assert.assertTrue(detector.isWatching(0));
+        Assert.assertFalse(detector.isWatching(1));
+        Assert.assertEquals(0, detector.getFlagged());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyQueue() {
+        new AnomalyDetector(sensors, 0);
+    }
+}
@@ -0,0 +1,13 @@
+package bms.building;
+
+/**
+ * Enum to represent the type of anomaly found in a sensor's readings.
+ */
+public enum AnomalyType {
+    /** Readings have drifted above their recent average. */
+    DRIFT_HIGH,
+    /** Readings have drifted below their recent average. */
+    DRIFT_LOW,
+    /** The reading has not changed for longer than expected. */
+    STUCK
+}
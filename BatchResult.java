@@ -0,0 +1,71 @@
+package bms.util;
+
+/**
+ * The outcome of adding a batch of items in a single all-or-nothing
+ * operation.
+ *
+ * Each item in the batch is given a status in the same position as the item.
+ * The batch is only committed if every item has status OK.
+ */
+public class BatchResult {
+    private BatchStatus[] statuses;
+    private int failureCount;
+
+    /**
+     * Creates a result from the status of each item in a batch.
+     *
+     * @param statuses status of each item, in batch order
+     */
+    public BatchResult(BatchStatus[] statuses) {
+        this.statuses = statuses;
+        for (BatchStatus status : statuses) {
+            if (status != BatchStatus.OK) {
+                failureCount++;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the batch was committed, which is the case if and only
+     * if every item was valid.
+     *
+     * @return true if all items were added
+     */
+    public boolean isCommitted() {
+        return failureCount == 0;
+    }
+
+    /**
+     * Returns the number of items in the batch.
+     *
+     * @return batch size
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * Returns the number of items that were not valid.
+     *
+     * @return number of items with a status other than OK
+     */
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Returns the status of the item at the given position in the batch.
+     *
+     * @param index position of the item in the batch
+     * @return status of the item
+     */
+    public BatchStatus getStatus(int index) {
+        return statuses[index];
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult: size=" + statuses.length + ", failures=" +
+                failureCount + ", committed=" + isCommitted();
+    }
+}
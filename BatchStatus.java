@@ -0,0 +1,15 @@
+package bms.util;
+
+/**
+ * Enum to represent the outcome of a single item in a batch operation.
+ */
+public enum BatchStatus {
+    /** The item is valid. */
+    OK,
+    /** The item is null or has invalid values. */
+    INVALID,
+    /** The item clashes with an existing item or another item in the batch. */
+    DUPLICATE,
+    /** There is not enough space left for the item. */
+    INSUFFICIENT_SPACE
+}
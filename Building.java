@@ -3,9 +3,14 @@ package bms.building;
 import bms.exceptions.*;
 import bms.floor.Floor;
 import bms.room.*;
+import bms.sensors.Sensor;
+import bms.util.ChangeFeed;
 import bms.util.FireDrill;
-import java.util.ArrayList;
-import java.util.List;
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.*;
 
 /**
  * Represents a building of floors, which in turn, contain rooms.
@@ -14,6 +19,13 @@ import java.util.List;
  * building.
  */
 public class Building implements FireDrill {
+    private static final MetricTimer ADD_FLOOR_TIMER =
+            Metrics.timer("Building.addFloor");
+    private static final MetricTimer FIRE_DRILL_TIMER =
+            Metrics.timer("Building.fireDrill");
+    private static final MetricTimer CANCEL_FIRE_DRILL_TIMER =
+            Metrics.timer("Building.cancelFireDrill");
+
     private String name;
     private List<Floor> floors;
 
@@ -46,6 +58,17 @@ public class Building implements FireDrill {
         return new ArrayList<>(floors);
     }
 
+    /**
+     * Returns a read-only view of the floors in this building. Unlike
+     * getFloors(), no copy is made, so the view reflects any floors added
+     * later.
+     *
+     * @return unmodifiable view of the floors in the building
+     */
+    public List<Floor> getFloorsView() {
+        return Collections.unmodifiableList(floors);
+    }
+
     /**
      * Searches for the floor with the specified floor number and if it
      * exists, returns the floor, otherwise, returns null.
@@ -86,41 +109,200 @@ public class Building implements FireDrill {
                                                 DuplicateFloorException,
                                                 NoFloorBelowException,
                                                 FloorTooSmallException {
-        if (newFloor.getFloorNumber() == 0 ||
-                newFloor.getWidth() < Floor.getMinWidth() ||
-                newFloor.getLength() < Floor.getMinLength()) {
-            // if the floorNumber is 0 or too small
-            throw new IllegalArgumentException();
-        } else if (newFloor.getFloorNumber() != 1 &&
-                getFloorByNumber((newFloor.getFloorNumber() - 1)) == null) {
-            // if there is a floor below (not for floor 1)
+        long start = ADD_FLOOR_TIMER.start();
+        try {
+            if (newFloor.getFloorNumber() == 0 ||
+                    newFloor.getWidth() < Floor.getMinWidth() ||
+                    newFloor.getLength() < Floor.getMinLength()) {
+                // if the floorNumber is 0 or too small
+                throw new IllegalArgumentException();
+            } else if (newFloor.getFloorNumber() != 1 &&
+                    getFloorByNumber((newFloor.getFloorNumber() - 1))
+                            == null) {
+                // if there is a floor below (not for floor 1)
+                throw new NoFloorBelowException();
+            } else if (floors.contains(newFloor)) {
+                // if the floor already exits
+                throw new DuplicateFloorException();
+            } else if (newFloor.getFloorNumber() > 1 &&
+                    (getFloorByNumber((newFloor.getFloorNumber() - 1)))
+                            .calculateArea() < newFloor.calculateArea()) {
+                // if the floor below (if one exits) is large enough to
+                // support the new floor
+                throw new FloorTooSmallException();
+            } else {
+                floors.add(newFloor);
+                TimedItemManager.getInstance().topologyChanged();
+                ChangeFeed feed = ChangeFeed.getInstance();
+                if (feed.isRecording()) {
+                    feed.floorAdded(newFloor);
+                }
+            }
+        } finally {
+            ADD_FLOOR_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Adds a batch of floors to the building in a single pass.
+     *
+     * The floors may be given in any order. They are sorted by floor number
+     * and the whole stack is validated against the floors already in the
+     * building using the same rules as addFloor(Floor). If every floor is
+     * valid, all of them are added; otherwise none are.
+     *
+     * A floor which is rejected is treated as missing when validating the
+     * floors above it.
+     *
+     * @param newFloors floors to add, in any order
+     * @throws FloorStackException if any floor cannot be added; holds the
+     *                             exception addFloor(Floor) would have thrown
+     *                             for each rejected floor, keyed by its
+     *                             position in newFloors
+     */
+    public void addFloors(Collection<Floor> newFloors)
+            throws FloorStackException {
+        List<Floor> given = new ArrayList<>(newFloors);
+        Integer[] order = new Integer[given.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // stable, so of two floors with the same number the first is kept
+        Arrays.sort(order, Comparator.comparingInt(
+                i -> given.get(i).getFloorNumber()));
+        List<Floor> sorted = new ArrayList<>(order.length);
+        for (int index : order) {
+            sorted.add(given.get(index));
+        }
+
+        Map<Integer, Floor> stack = new HashMap<>();
+        Set<Floor> existing = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        for (Floor floor : floors) {
+            stack.put(floor.getFloorNumber(), floor);
+            existing.add(floor);
+        }
+
+        Map<Integer, Exception> failures = new LinkedHashMap<>();
+        for (int i = 0; i < order.length; i++) {
+            Floor newFloor = sorted.get(i);
+            int index = order[i];
+            int number = newFloor.getFloorNumber();
+            Floor below = stack.get(number - 1);
+            if (number <= 0 ||
+                    newFloor.getWidth() < Floor.getMinWidth() ||
+                    newFloor.getLength() < Floor.getMinLength()) {
+                failures.put(index, new IllegalArgumentException());
+            } else if (stack.containsKey(number) ||
+                    existing.contains(newFloor)) {
+                failures.put(index, new DuplicateFloorException());
+            } else if (number != 1 && below == null) {
+                failures.put(index, new NoFloorBelowException());
+            } else if (number != 1 &&
+                    below.calculateArea() < newFloor.calculateArea()) {
+                failures.put(index, new FloorTooSmallException());
+            } else {
+                stack.put(number, newFloor);
+            }
+        }
+
+        if (!failures.isEmpty()) {
+            throw new FloorStackException(failures);
+        }
+        floors.addAll(sorted);
+        TimedItemManager.getInstance().topologyChanged();
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (feed.isRecording()) {
+            for (Floor floor : sorted) {
+                feed.floorAdded(floor);
+            }
+        }
+    }
+
+    /**
+     * Removes the floor with the given number from the building, along with
+     * its rooms. Their timed sensors are no longer updated from the start of
+     * the next tick.
+     *
+     * @param floorNumber number of the floor to remove
+     * @return the floor removed; null if there is no floor with the number
+     * @throws NoFloorBelowException if there is a floor above, which would
+     *                               be left with no floor below it
+     */
+    public Floor removeFloor(int floorNumber) throws NoFloorBelowException {
+        Floor floor = getFloorByNumber(floorNumber);
+        if (floor == null) {
+            return null;
+        } else if (getFloorByNumber(floorNumber + 1) != null) {
             throw new NoFloorBelowException();
-        } else if (floors.contains(newFloor)) {
-            // if the floor already exits
-            throw new DuplicateFloorException();
-        } else if (newFloor.getFloorNumber() > 1 &&
-                (getFloorByNumber((newFloor.getFloorNumber() - 1)))
-                        .calculateArea() < newFloor.calculateArea()) {
-            // if the floor below (if one exits) is large enough to support the
-            // new floor
-            throw new FloorTooSmallException();
-        } else {
-            floors.add(newFloor);
+        }
+        floors.remove(floor);
+        detach(floor);
+        return floor;
+    }
+
+    /**
+     * Removes the floor with the given number and every floor above it from
+     * the building, along with their rooms, in a single pass over the
+     * floors. Their timed sensors are no longer updated from the start of
+     * the next tick.
+     *
+     * @param lowestFloorNumber number of the lowest floor to remove
+     * @return new list of the floors removed, in building order
+     */
+    public List<Floor> removeFloors(int lowestFloorNumber) {
+        List<Floor> removed = new ArrayList<>();
+        floors.removeIf(floor -> {
+            if (floor.getFloorNumber() >= lowestFloorNumber) {
+                removed.add(floor);
+                return true;
+            }
+            return false;
+        });
+        for (Floor floor : removed) {
+            detach(floor);
+        }
+        return removed;
+    }
+
+    /**
+     * Retires the sensors of a floor taken out of the building.
+     */
+    private void detach(Floor floor) {
+        List<TimedItem> items = new ArrayList<>();
+        for (Room room : floor.getRoomsView()) {
+            for (Sensor sensor : room.getSensorsView()) {
+                if (sensor instanceof TimedItem) {
+                    items.add((TimedItem) sensor);
+                }
+            }
+        }
+        if (!items.isEmpty()) {
+            TimedItemManager.getInstance().retireTimedItems(items);
+        }
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (feed.isRecording()) {
+            feed.floorRemoved(floor);
         }
     }
 
     @Override
     public void fireDrill(RoomType roomType) throws FireDrillException {
-        if (floors.isEmpty()) {
-            throw new FireDrillException();
-        } else {
-            for (Floor floor : floors) {
-                if (floor.getRooms().isEmpty()) {
-                    throw new FireDrillException();
-                } else {
-                    floor.fireDrill(roomType);
+        long start = FIRE_DRILL_TIMER.start();
+        try {
+            if (floors.isEmpty()) {
+                throw new FireDrillException();
+            } else {
+                for (Floor floor : floors) {
+                    if (floor.getRooms().isEmpty()) {
+                        throw new FireDrillException();
+                    } else {
+                        floor.fireDrill(roomType);
+                    }
                 }
             }
+        } finally {
+            FIRE_DRILL_TIMER.stop(start);
         }
     }
 
@@ -128,8 +310,13 @@ public class Building implements FireDrill {
      * Cancels any ongoing fire drill in the building.
      */
     public void cancelFireDrill() {
-        for (Floor floor : floors) {
-            floor.cancelFireDrill();
+        long start = CANCEL_FIRE_DRILL_TIMER.start();
+        try {
+            for (Floor floor : floors) {
+                floor.cancelFireDrill();
+            }
+        } finally {
+            CANCEL_FIRE_DRILL_TIMER.stop(start);
         }
     }
 
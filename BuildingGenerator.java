@@ -0,0 +1,244 @@
+package bms.building;
+
+import bms.exceptions.FloorStackException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+import bms.util.TimedItemManager;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates large, reproducible buildings for benchmarks and soak tests.
+ *
+ * Every floor is generated from its own random stream derived from the seed
+ * and the floor number, so floors can be built in parallel and the same seed
+ * always produces the same building regardless of thread scheduling. Each
+ * floor's sensors are registered with the TimedItemManager in one batch, so
+ * floor workers do not contend for the manager once per sensor.
+ */
+public class BuildingGenerator {
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+
+    private long seed;
+    private int floorCount;
+    private int roomsPerFloor;
+    private double floorWidth;
+    private double floorLength;
+    private int readingCount;
+    private double carbonDioxideChance;
+    private double noiseChance;
+    private double occupancyChance;
+    private double temperatureChance;
+
+    /**
+     * Creates a new generator for buildings of the given shape. By default
+     * every room receives one of each kind of sensor, each with 16 readings.
+     *
+     * @param seed          seed for all random choices made by the generator
+     * @param floorCount    number of floors in each generated building
+     * @param roomsPerFloor number of rooms on each generated floor
+     * @throws IllegalArgumentException if floorCount < 1 or roomsPerFloor < 1
+     */
+    public BuildingGenerator(long seed, int floorCount, int roomsPerFloor)
+            throws IllegalArgumentException {
+        if (floorCount < 1 || roomsPerFloor < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.seed = seed;
+        this.floorCount = floorCount;
+        this.roomsPerFloor = roomsPerFloor;
+        this.readingCount = 16;
+        this.carbonDioxideChance = 1;
+        this.noiseChance = 1;
+        this.occupancyChance = 1;
+        this.temperatureChance = 1;
+
+        // size every floor so each room gets twice the minimum room area
+        double side = Math.ceil(Math.sqrt(roomsPerFloor * Room.getMinArea()
+                * 2.0));
+        this.floorWidth = Math.max(side, Floor.getMinWidth());
+        this.floorLength = Math.max(side, Floor.getMinLength());
+    }
+
+    /**
+     * Sets the chance of each room receiving a sensor of each kind.
+     *
+     * @param carbonDioxide chance of a CarbonDioxideSensor, 0 to 1
+     * @param noise         chance of a NoiseSensor, 0 to 1
+     * @param occupancy     chance of an OccupancySensor, 0 to 1
+     * @param temperature   chance of a TemperatureSensor, 0 to 1
+     * @throws IllegalArgumentException if any chance is outside 0 to 1
+     */
+    public void setSensorMix(double carbonDioxide, double noise,
+                             double occupancy, double temperature)
+            throws IllegalArgumentException {
+        for (double chance : new double[]{carbonDioxide, noise, occupancy,
+                temperature}) {
+            if (!(chance >= 0 && chance <= 1)) {
+                throw new IllegalArgumentException();
+            }
+        }
+        this.carbonDioxideChance = carbonDioxide;
+        this.noiseChance = noise;
+        this.occupancyChance = occupancy;
+        this.temperatureChance = temperature;
+    }
+
+    /**
+     * Sets the number of readings given to each generated sensor.
+     *
+     * @param readingCount number of readings per sensor
+     * @throws IllegalArgumentException if readingCount < 1
+     */
+    public void setReadingCount(int readingCount)
+            throws IllegalArgumentException {
+        if (readingCount < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.readingCount = readingCount;
+    }
+
+    /**
+     * Sets the dimensions shared by every generated floor.
+     *
+     * @param width  width of each floor in metres
+     * @param length length of each floor in metres
+     * @throws IllegalArgumentException if the floor is smaller than the
+     *                                  minimum floor size, or too small to
+     *                                  hold the rooms at Room.getMinArea()
+     */
+    public void setFloorSize(double width, double length)
+            throws IllegalArgumentException {
+        if (width < Floor.getMinWidth() || length < Floor.getMinLength() ||
+                width * length * 0.999 < roomsPerFloor * Room.getMinArea()) {
+            throw new IllegalArgumentException();
+        }
+        this.floorWidth = width;
+        this.floorLength = length;
+    }
+
+    /**
+     * Generates a new building with the given name.
+     *
+     * Floors are generated in parallel and then added to the building in a
+     * single batch.
+     *
+     * @param name name of the generated building
+     * @return a fully populated building
+     */
+    public Building generate(String name) {
+        Floor[] floors = new Floor[floorCount];
+        IntStream.range(0, floorCount).parallel()
+                .forEach(i -> floors[i] = generateFloor(i + 1));
+
+        Building building = new Building(name);
+        try {
+            building.addFloors(Arrays.asList(floors));
+        } catch (FloorStackException e) {
+            // floors are numbered consecutively with identical sizes
+            throw new IllegalStateException(e);
+        }
+        return building;
+    }
+
+    /**
+     * Generates a single floor, including all of its rooms and sensors.
+     *
+     * @param floorNumber number of the floor to generate
+     * @return the generated floor
+     */
+    private Floor generateFloor(int floorNumber) {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        manager.deferRegistration();
+        try {
+            return generateRooms(floorNumber);
+        } finally {
+            manager.registerDeferred();
+        }
+    }
+
+    /**
+     * Generates a single floor's rooms and sensors.
+     */
+    private Floor generateRooms(int floorNumber) {
+        SplittableRandom random = new SplittableRandom(
+                seed ^ (floorNumber * 0x9E3779B97F4A7C15L));
+        Floor floor = new Floor(floorNumber, floorWidth, floorLength);
+        // leave a little slack, occupiedArea() is only accurate to a float
+        double roomArea = Math.floor(floor.calculateArea() * 0.999
+                / roomsPerFloor * 100) / 100;
+
+        Room[] rooms = new Room[roomsPerFloor];
+        Sensor[] sensors = new Sensor[4];
+        for (int i = 0; i < roomsPerFloor; i++) {
+            rooms[i] = new Room(floorNumber * 1000 + i + 1,
+                    ROOM_TYPES[random.nextInt(ROOM_TYPES.length)], roomArea);
+            int count = createSensors(sensors, random);
+            if (count > 0) {
+                rooms[i].addSensors(Arrays.copyOf(sensors, count));
+            }
+        }
+        // room numbers are unique and rooms are sized to fit
+        if (!floor.addRooms(rooms).isCommitted()) {
+            throw new IllegalStateException();
+        }
+        return floor;
+    }
+
+    /**
+     * Creates a randomly chosen mix of sensors, at most one of each kind.
+     *
+     * @param sensors array of length 4 to store the new sensors in
+     * @param random  random stream of the floor the sensors will be on
+     * @return number of sensors stored at the start of the array
+     */
+    private int createSensors(Sensor[] sensors, SplittableRandom random) {
+        int count = 0;
+        if (random.nextDouble() < carbonDioxideChance) {
+            // ambient CO2 drifting around a typical indoor level
+            sensors[count++] = new CarbonDioxideSensor(
+                    randomWalk(random, 400, 1500, 600, 40),
+                    1 + random.nextInt(5), 700, 150);
+        }
+        if (random.nextDouble() < noiseChance) {
+            sensors[count++] = new NoiseSensor(
+                    randomWalk(random, 30, 90, 50, 5), 1 + random.nextInt(5));
+        }
+        if (random.nextDouble() < occupancyChance) {
+            int capacity = 5 + random.nextInt(46);
+            sensors[count++] = new OccupancySensor(
+                    randomWalk(random, 0, capacity + 5, capacity / 2, 3),
+                    1 + random.nextInt(5), capacity);
+        }
+        if (random.nextDouble() < temperatureChance) {
+            sensors[count++] = new TemperatureSensor(
+                    randomWalk(random, 15, 35, 22, 1));
+        }
+        return count;
+    }
+
+    /**
+     * Creates a bounded random walk of readings.
+     *
+     * @param random random stream to draw steps from
+     * @param min    lowest allowed reading
+     * @param max    highest allowed reading
+     * @param start  typical starting reading
+     * @param step   largest change between consecutive readings
+     * @return new array of readingCount readings
+     */
+    private int[] randomWalk(SplittableRandom random, int min, int max,
+                             int start, int step) {
+        int[] readings = new int[readingCount];
+        int value = start;
+        for (int i = 0; i < readings.length; i++) {
+            value += random.nextInt(2 * step + 1) - step;
+            value = Math.max(min, Math.min(max, value));
+            readings[i] = value;
+        }
+        return readings;
+    }
+}
@@ -0,0 +1,65 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class BuildingGeneratorTest {
+
+    private static String describe(Building building) {
+        StringBuilder text = new StringBuilder();
+        for (Floor floor : building.getFloorsView()) {
+            text.append(floor).append('\n');
+            for (Room room : floor.getRoomsView()) {
+                text.append(room).append('\n');
+                for (Sensor sensor : room.getSensorsView()) {
+                    TimedSensor timed = (TimedSensor) sensor;
+                    text.append(sensor.getClass().getSimpleName())
+                            .append(timed.getUpdateFrequency())
+                            .append(Arrays.toString(
+                                    timed.getReadings().toArray()))
+                            .append('\n');
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    private static BuildingGenerator generator(long seed) {
+        BuildingGenerator generator = new BuildingGenerator(seed, 6, 20);
+        generator.setSensorMix(0.5, 0.5, 0.5, 0.5);
+        return generator;
+    }
+
+    @Test
+    public void sameSeedSameBuilding() {
+        Assert.assertEquals(describe(generator(42).generate("A")),
+                describe(generator(42).generate("A")));
+    }
+
+    @Test
+    public void differentSeedDifferentBuilding() {
+        Assert.assertFalse(describe(generator(42).generate("A")).equals(
+                describe(generator(43).generate("A"))));
+    }
+
+    @Test
+    public void sensorsRegistered() {
+        Building building = generator(7).generate("A");
+        TimedItemManager.getInstance().elapseOneMinute();
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    Assert.assertEquals(1,
+                            ((TimedSensor) sensor).getTimeElapsed());
+                }
+            }
+        }
+    }
+}
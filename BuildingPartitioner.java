@@ -0,0 +1,147 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.util.TickPartitioner;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.*;
+
+/**
+ * Singleton class which groups the timed items of partitioned buildings by
+ * floor, for the TimedItemManager to tick.
+ *
+ * Once a building has been partitioned with partition(Building), the timed
+ * items on each of its floors are held in a FloorPartition instead of being
+ * ticked in registration order, grouped room by room, and the floors are
+ * ticked in parallel, each followed at once by the rollup of that floor's
+ * derived state. Floors added to the building later are partitioned at the
+ * start of the next tick, when partitions whose floors have changed are
+ * also regrouped.
+ */
+public class BuildingPartitioner implements TickPartitioner {
+    private List<Building> buildings = new ArrayList<>();
+    private Map<Floor, FloorPartition> partitions = new LinkedHashMap<>();
+    private FloorPartition[] partitionArray = new FloorPartition[0];
+    private static BuildingPartitioner instance = null;
+
+    /**
+     * Returns the singleton instance of the partitioner, registering it with
+     * the timed item manager when it is first created.
+     *
+     * @return singleton instance
+     */
+    public static synchronized BuildingPartitioner getInstance() {
+        if (instance == null) {
+            instance = new BuildingPartitioner();
+            TimedItemManager.getInstance().registerPartitioner(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Groups the timed items of every floor of the given building into a
+     * FloorPartition, so that they are ticked floor by floor in parallel.
+     * Items owned by something else, such as a BuildingSimulation, are left
+     * alone.
+     *
+     * @param building building to partition
+     */
+    public void partition(Building building) {
+        synchronized (this) {
+            if (!buildings.contains(building)) {
+                buildings.add(building);
+            }
+        }
+        // not while holding this lock, as the manager calls back into it
+        TimedItemManager.getInstance().repartition();
+    }
+
+    /**
+     * Returns the partition holding the timed items of the given floor.
+     *
+     * @param floor floor to look up
+     * @return the floor's partition; null if its building has not been
+     *         partitioned
+     */
+    public synchronized FloorPartition getPartition(Floor floor) {
+        return partitions.get(floor);
+    }
+
+    /**
+     * Creates partitions for floors added to partitioned buildings, drops
+     * those of floors which have been removed and rebuilds those whose
+     * floors have changed. Items which have left a partitioned floor go back
+     * to the unpartitioned list, unless another partition takes them.
+     */
+    @Override
+    public synchronized void regroup(List<TimedItem> unpartitioned) {
+        Set<Floor> floors = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        for (Building building : buildings) {
+            floors.addAll(building.getFloorsView());
+        }
+        Iterator<FloorPartition> iterator = partitions.values().iterator();
+        while (iterator.hasNext()) {
+            FloorPartition partition = iterator.next();
+            if (!floors.contains(partition.getFloor())) {
+                unpartitioned.addAll(partition.getItems());
+                iterator.remove();
+            } else if (partition.isStale()) {
+                unpartitioned.addAll(partition.release());
+            }
+        }
+
+        Set<TimedItem> available = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        available.addAll(unpartitioned);
+        Set<TimedItem> taken = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloorsView()) {
+                FloorPartition partition = partitions.get(floor);
+                if (partition == null) {
+                    partition = new FloorPartition(floor, available);
+                    partitions.put(floor, partition);
+                    taken.addAll(partition.getItems());
+                } else if (partition.isStale()) {
+                    taken.addAll(partition.rebuild(available));
+                }
+            }
+        }
+        unpartitioned.removeIf(taken::contains);
+        partitionArray = partitions.values().toArray(new FloorPartition[0]);
+    }
+
+    @Override
+    public synchronized void remove(Set<TimedItem> removed) {
+        for (FloorPartition partition : partitionArray) {
+            partition.remove(removed);
+        }
+    }
+
+    @Override
+    public void tick() {
+        FloorPartition[] floors;
+        synchronized (this) {
+            floors = partitionArray;
+        }
+        if (floors.length > 1) {
+            Arrays.stream(floors).parallel().forEach(FloorPartition::tick);
+        } else if (floors.length == 1) {
+            floors[0].tick();
+        }
+    }
+
+    @Override
+    public synchronized void recompute() {
+        for (FloorPartition partition : partitionArray) {
+            partition.recompute();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BuildingPartitioner: buildings=" + buildings.size() +
+                ", partitions=" + partitionArray.length;
+    }
+}
@@ -0,0 +1,225 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.Sensor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A query for rooms in a building, built up from filters on floor number,
+ * room type, sensors and hazard level.
+ *
+ * Filters are applied from cheapest to most expensive: floors outside the
+ * floor range are skipped without looking at their rooms, floors with no
+ * rooms of the requested type are skipped using Floor.getRoomCount(RoomType),
+ * and sensors are only inspected for rooms that pass every other filter.
+ * The hierarchy is walked through read-only views, so nothing is copied.
+ * When the floors that pass the floor filters hold enough rooms between
+ * them, their rooms are split into runs of consecutive rooms which are
+ * scanned in parallel, so a few very large floors are spread across threads
+ * as well as many small ones.
+ *
+ * Example: laboratories on floors 3 to 10 with CO2 above the acceptable
+ * range.
+ * <pre>
+ * List&lt;Room&gt; rooms = new BuildingQuery()
+ *         .onFloors(3, 10)
+ *         .ofType(RoomType.LABORATORY)
+ *         .withSensor(CarbonDioxideSensor.class, sensor -&gt;
+ *                 sensor.getCurrentReading() &gt;
+ *                 sensor.getIdealValue() + sensor.getVariationLimit())
+ *         .findRooms(building);
+ * </pre>
+ */
+public class BuildingQuery {
+    /* number of rooms above which rooms are scanned in parallel */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    /* rooms scanned together by one parallel task */
+    private static final int CHUNK_SIZE = 1024;
+
+    private int lowestFloor;
+    private int highestFloor;
+    private RoomType roomType;
+    private List<SensorFilter<?>> sensorFilters;
+    private int minimumHazard;
+
+    /**
+     * Creates a new query which matches every room in a building.
+     */
+    public BuildingQuery() {
+        lowestFloor = Integer.MIN_VALUE;
+        highestFloor = Integer.MAX_VALUE;
+        sensorFilters = new ArrayList<>();
+        minimumHazard = -1;
+    }
+
+    /**
+     * Restricts the query to floors within the given range.
+     *
+     * @param lowest  lowest floor number to include
+     * @param highest highest floor number to include
+     * @return this query
+     */
+    public BuildingQuery onFloors(int lowest, int highest) {
+        lowestFloor = lowest;
+        highestFloor = highest;
+        return this;
+    }
+
+    /**
+     * Restricts the query to rooms of the given type.
+     *
+     * @param type type of room to include; null to include all types
+     * @return this query
+     */
+    public BuildingQuery ofType(RoomType type) {
+        roomType = type;
+        return this;
+    }
+
+    /**
+     * Restricts the query to rooms containing a sensor of the given class.
+     *
+     * @param sensorClass class of sensor the room must contain
+     * @return this query
+     */
+    public BuildingQuery withSensor(Class<? extends Sensor> sensorClass) {
+        return withSensor(sensorClass, sensor -> true);
+    }
+
+    /**
+     * Restricts the query to rooms containing a sensor of the given class
+     * which matches the given filter.
+     *
+     * @param sensorClass class of sensor the room must contain
+     * @param filter      condition the sensor must meet
+     * @param <T>         type of the sensor
+     * @return this query
+     */
+    public <T extends Sensor> BuildingQuery withSensor(Class<T> sensorClass,
+            Predicate<? super T> filter) {
+        sensorFilters.add(new SensorFilter<>(sensorClass, filter));
+        return this;
+    }
+
+    /**
+     * Restricts the query to rooms where at least one hazard sensor reports
+     * a hazard level of at least the given value.
+     *
+     * @param level lowest hazard level to include, 0 to 100
+     * @return this query
+     */
+    public BuildingQuery withHazardAtLeast(int level) {
+        minimumHazard = level;
+        return this;
+    }
+
+    /**
+     * Runs the query against the given building.
+     *
+     * @param building building to search
+     * @return new list of matching rooms, in floor then room order
+     */
+    public List<Room> findRooms(Building building) {
+        List<Floor> floors = new ArrayList<>();
+        int roomCount = 0;
+        for (Floor floor : building.getFloorsView()) {
+            if (matchesFloor(floor)) {
+                floors.add(floor);
+                roomCount += floor.getRoomsView().size();
+            }
+        }
+        if (roomCount > PARALLEL_THRESHOLD) {
+            List<List<Room>> chunks = new ArrayList<>();
+            for (Floor floor : floors) {
+                List<Room> rooms = floor.getRoomsView();
+                for (int i = 0; i < rooms.size(); i += CHUNK_SIZE) {
+                    chunks.add(rooms.subList(i,
+                            Math.min(rooms.size(), i + CHUNK_SIZE)));
+                }
+            }
+            return chunks.parallelStream()
+                    .flatMap(chunk -> chunk.stream().filter(this::matchesRoom))
+                    .collect(Collectors.toList());
+        }
+
+        List<Room> result = new ArrayList<>();
+        for (Floor floor : floors) {
+            for (Room room : floor.getRoomsView()) {
+                if (matchesRoom(room)) {
+                    result.add(room);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether any room on the given floor could match the query.
+     */
+    private boolean matchesFloor(Floor floor) {
+        return floor.getFloorNumber() >= lowestFloor &&
+                floor.getFloorNumber() <= highestFloor &&
+                (roomType == null || floor.getRoomCount(roomType) > 0);
+    }
+
+    /**
+     * Returns whether the given room matches the query.
+     */
+    private boolean matchesRoom(Room room) {
+        if (roomType != null && room.getType() != roomType) {
+            return false;
+        }
+        for (SensorFilter<?> filter : sensorFilters) {
+            if (!filter.matches(room)) {
+                return false;
+            }
+        }
+        return minimumHazard < 0 || matchesHazard(room);
+    }
+
+    /**
+     * Returns whether any hazard sensor in the room meets the minimum hazard
+     * level.
+     */
+    private boolean matchesHazard(Room room) {
+        for (Sensor sensor : room.getSensorsView()) {
+            if (sensor instanceof HazardSensor &&
+                    ((HazardSensor) sensor).getHazardLevel()
+                            >= minimumHazard) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A condition on the sensor of a particular class within a room.
+     *
+     * @param <T> type of the sensor
+     */
+    private static class SensorFilter<T extends Sensor> {
+        private final Class<T> sensorClass;
+        private final Predicate<? super T> filter;
+
+        private SensorFilter(Class<T> sensorClass,
+                             Predicate<? super T> filter) {
+            this.sensorClass = sensorClass;
+            this.filter = filter;
+        }
+
+        private boolean matches(Room room) {
+            for (Sensor sensor : room.getSensorsView()) {
+                if (sensor.getClass() == sensorClass) {
+                    return filter.test(sensorClass.cast(sensor));
+                }
+            }
+            return false;
+        }
+    }
+}
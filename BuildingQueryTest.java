@@ -0,0 +1,136 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BuildingQueryTest {
+    private Building building;
+    private List<TimedItem> owned;
+    /* rooms 101, 201, 301: labs; 102, 202, 302: offices */
+    private List<Room> labs;
+    private List<Room> offices;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        owned = new ArrayList<>();
+        labs = new ArrayList<>();
+        offices = new ArrayList<>();
+        for (int number = 1; number <= 3; number++) {
+            Floor floor = new Floor(number, 10, 10);
+            building.addFloor(floor);
+            Room lab = new Room(number * 100 + 1, RoomType.LABORATORY, 20);
+            Room office = new Room(number * 100 + 2, RoomType.OFFICE, 20);
+            floor.addRoom​(lab);
+            floor.addRoom​(office);
+            labs.add(lab);
+            offices.add(office);
+            // people in each office grow with the floor number
+            OccupancySensor occupancy = new OccupancySensor(
+                    new int[]{number * 4}, 1, 12);
+            office.addSensor​(occupancy);
+            owned.add(occupancy);
+        }
+        NoiseSensor noise = new NoiseSensor(new int[]{90}, 1);
+        labs.get(1).addSensor​(noise);
+        owned.add(noise);
+    }
+
+    @After
+    public void tearDown() {
+        TimedItemManager.getInstance().deregisterTimedItems(owned);
+    }
+
+    @Test
+    public void matchesEverything() {
+        List<Room> expected = List.of(labs.get(0), offices.get(0),
+                labs.get(1), offices.get(1), labs.get(2), offices.get(2));
+        Assert.assertEquals(expected, new BuildingQuery().findRooms(building));
+    }
+
+    @Test
+    public void floorRangeSkipsOtherFloors() {
+        List<Room> seen = new ArrayList<>();
+        List<Room> rooms = new BuildingQuery()
+                .onFloors(2, 3)
+                .withSensor(OccupancySensor.class, sensor -> {
+                    seen.add(offices.get(sensor.getCurrentReading() / 4 - 1));
+                    return true;
+                })
+                .findRooms(building);
+        Assert.assertEquals(List.of(offices.get(1), offices.get(2)), rooms);
+        // the sensor on floor 1 was never looked at
+        Assert.assertEquals(List.of(offices.get(1), offices.get(2)), seen);
+    }
+
+    @Test
+    public void typeFilter() {
+        Assert.assertEquals(labs, new BuildingQuery()
+                .ofType(RoomType.LABORATORY).findRooms(building));
+        Assert.assertTrue(new BuildingQuery().ofType(RoomType.STUDY)
+                .findRooms(building).isEmpty());
+    }
+
+    @Test
+    public void sensorPredicate() {
+        Assert.assertEquals(List.of(offices.get(2)), new BuildingQuery()
+                .withSensor(OccupancySensor.class,
+                        sensor -> sensor.getCurrentReading() > 10)
+                .findRooms(building));
+        Assert.assertEquals(List.of(labs.get(1)), new BuildingQuery()
+                .withSensor(NoiseSensor.class).findRooms(building));
+        // every sensor filter must hold
+        Assert.assertTrue(new BuildingQuery()
+                .withSensor(NoiseSensor.class)
+                .withSensor(OccupancySensor.class)
+                .findRooms(building).isEmpty());
+    }
+
+    @Test
+    public void hazardFilter() {
+        // 90 dB of noise and a full office are as hazardous as it gets
+        Assert.assertEquals(List.of(labs.get(1), offices.get(2)),
+                new BuildingQuery().withHazardAtLeast(100)
+                        .findRooms(building));
+        // offices on floors 1 and 2 are a third and two thirds full
+        Assert.assertEquals(List.of(labs.get(1), offices.get(1)),
+                new BuildingQuery().onFloors(1, 2).withHazardAtLeast(50)
+                        .findRooms(building));
+        Assert.assertEquals(List.of(offices.get(0)), new BuildingQuery()
+                .ofType(RoomType.OFFICE).onFloors(1, 1).withHazardAtLeast(0)
+                .findRooms(building));
+    }
+
+    @Test
+    public void largeFloorsScannedInParallel() throws Exception {
+        Building large = new Building("Large");
+        List<Room> expected = new ArrayList<>();
+        for (int number = 1; number <= 2; number++) {
+            Floor floor = new Floor(number, 200, 200);
+            large.addFloor(floor);
+            Room[] rooms = new Room[3000];
+            for (int i = 0; i < rooms.length; i++) {
+                rooms[i] = new Room(number * 10000 + i,
+                        i % 3 == 0 ? RoomType.STUDY : RoomType.OFFICE, 5);
+                if (i % 3 == 0) {
+                    expected.add(rooms[i]);
+                }
+            }
+            Assert.assertTrue(floor.addRooms(rooms).isCommitted());
+        }
+        Assert.assertEquals(expected, new BuildingQuery()
+                .ofType(RoomType.STUDY).findRooms(large));
+    }
+}
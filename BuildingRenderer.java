@@ -0,0 +1,114 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.SensorReadings;
+import bms.sensors.TimedSensor;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Writes a building and everything in it as an indented tree, one line per
+ * building, floor, room and sensor.
+ *
+ * Floors and rooms cache their own toString() output until they change, and
+ * the renderer caches each sensor's line until its readings change, so
+ * rendering a building that has not changed does no formatting at all. Text
+ * is gathered in a reused buffer and written out in large chunks.
+ *
+ * A renderer is not thread-safe; use one renderer per thread.
+ */
+public class BuildingRenderer {
+    /* buffered characters after which the buffer is written out */
+    private static final int FLUSH_THRESHOLD = 8192;
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private StringBuilder buffer;
+    private Map<Sensor, SensorLine> sensorLines;
+
+    /**
+     * Creates a new renderer with an empty cache.
+     */
+    public BuildingRenderer() {
+        buffer = new StringBuilder(FLUSH_THRESHOLD * 2);
+        sensorLines = new WeakHashMap<>();
+    }
+
+    /**
+     * Renders the given building to a string.
+     *
+     * @param building building to render
+     * @return the building as an indented tree
+     */
+    public String render(Building building) {
+        StringBuilder out = new StringBuilder();
+        render(building, out);
+        return out.toString();
+    }
+
+    /**
+     * Renders the given building to the given output.
+     *
+     * @param building building to render
+     * @param out      output to write to
+     * @throws UncheckedIOException if writing to the output fails
+     */
+    public void render(Building building, Appendable out) {
+        buffer.setLength(0);
+        try {
+            buffer.append(building.toString()).append(NEW_LINE);
+            for (Floor floor : building.getFloorsView()) {
+                buffer.append('\t').append(floor.toString()).append(NEW_LINE);
+                for (Room room : floor.getRoomsView()) {
+                    buffer.append("\t\t").append(room.toString())
+                            .append(NEW_LINE);
+                    for (Sensor sensor : room.getSortedSensorsView()) {
+                        buffer.append("\t\t\t").append(lineOf(sensor))
+                                .append(NEW_LINE);
+                    }
+                    if (buffer.length() >= FLUSH_THRESHOLD) {
+                        out.append(buffer);
+                        buffer.setLength(0);
+                    }
+                }
+            }
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Returns the cached line for the given sensor, rendering it again if
+     * its readings have changed since it was cached.
+     */
+    private String lineOf(Sensor sensor) {
+        SensorReadings readings = sensor instanceof TimedSensor
+                ? ((TimedSensor) sensor).getReadings() : null;
+        SensorLine line = sensorLines.get(sensor);
+        if (line == null || line.readings != readings) {
+            line = new SensorLine(readings, sensor.toString());
+            sensorLines.put(sensor, line);
+        }
+        return line.text;
+    }
+
+    /**
+     * The rendered line of a sensor and the readings it was rendered from.
+     */
+    private static class SensorLine {
+        private final SensorReadings readings;
+        private final String text;
+
+        private SensorLine(SensorReadings readings, String text) {
+            this.readings = readings;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.building.BuildingGenerator;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildingRendererTest {
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private Building building;
+    private Floor floor;
+    private Room room;
+    private TemperatureSensor temperature;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        temperature = new TemperatureSensor(new int[]{20, 21});
+        room.addSensor​(temperature);
+    }
+
+    /**
+     * Renders the building the way SimpleDisplay did before the renderer.
+     */
+    private static String renderDirectly(Building building) {
+        StringBuilder out = new StringBuilder();
+        out.append(building).append(NEW_LINE);
+        for (Floor floor : building.getFloors()) {
+            out.append('\t').append(floor).append(NEW_LINE);
+            for (Room room : floor.getRooms()) {
+                out.append("\t\t").append(room).append(NEW_LINE);
+                for (Sensor sensor : room.getSensors()) {
+                    out.append("\t\t\t").append(sensor).append(NEW_LINE);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void sameAsDirectRendering() {
+        Assert.assertEquals(renderDirectly(building),
+                new BuildingRenderer().render(building));
+    }
+
+    @Test
+    public void largeBuildingStreamed() {
+        Building large = new BuildingGenerator(5, 4, 50).generate("Large");
+        StringBuilder out = new StringBuilder();
+        new BuildingRenderer().render(large, out);
+        Assert.assertTrue(out.length() > 8192);
+        Assert.assertEquals(renderDirectly(large), out.toString());
+    }
+
+    @Test
+    public void cachesFollowChanges() throws Exception {
+        BuildingRenderer renderer = new BuildingRenderer();
+        renderer.render(building);
+
+        room.addSensor​(new NoiseSensor(new int[]{55}, 1));
+        Assert.assertTrue(room.toString().endsWith("sensors=2"));
+        floor.addRoom​(new Room(2, RoomType.STUDY, 10));
+        Assert.assertTrue(floor.toString().endsWith("rooms=2"));
+        temperature.replaceReadings(new int[]{30, 31});
+        Assert.assertEquals(renderDirectly(building),
+                renderer.render(building));
+
+        room.removeSensor(temperature);
+        floor.removeRoom(2);
+        Assert.assertTrue(room.toString().endsWith("sensors=1"));
+        Assert.assertTrue(floor.toString().endsWith("rooms=1"));
+        Assert.assertEquals(renderDirectly(building),
+                renderer.render(building));
+    }
+}
@@ -0,0 +1,174 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.util.MetricsExporter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A read-only HTTP server which serves the state of a building as JSON.
+ *
+ * The server only listens on the loopback address. Paths served:
+ * <ul>
+ *     <li>/building - the building's name and a summary of each floor</li>
+ *     <li>/floors/{floorNumber} - a floor and all of its rooms</li>
+ *     <li>/floors/{floorNumber}/rooms/{roomNumber} - a room, its fire drill
+ *     status, and the current reading and hazard level of each sensor</li>
+ *     <li>/metrics - the timers in Metrics</li>
+ * </ul>
+ * Responses are served from a JsonFragments cache, so repeated requests for
+ * unchanged parts of the building cost no more than copying the cached
+ * bytes to the connection. Requests are handled on a fixed pool of threads
+ * by the JDK's NIO based HTTP server.
+ *
+ * The JDK's server writes the headers and body of a response separately, so
+ * without TCP_NODELAY each response can wait on the client's delayed ACK.
+ * For low latency, launch the JVM with -Dsun.net.httpserver.nodelay=true;
+ * the server does not set this JVM-wide property itself.
+ */
+public class BuildingServer {
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private JsonFragments fragments;
+
+    /**
+     * Creates a server for the given building, bound to the given port on
+     * the loopback address. The server does not accept requests until it is
+     * started.
+     *
+     * @param building building to serve
+     * @param port     port to listen on; 0 to pick any free port
+     * @param threads  number of threads handling requests
+     * @throws IOException if the port cannot be bound
+     * @throws IllegalArgumentException if threads &lt; 1
+     */
+    public BuildingServer(Building building, int port, int threads)
+            throws IOException, IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException();
+        }
+        server = HttpServer.create(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port), 1024);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        fragments = new JsonFragments(building);
+    }
+
+    /**
+     * Creates a server for the given building on the given port, with one
+     * request thread per available processor.
+     *
+     * @param building building to serve
+     * @param port     port to listen on; 0 to pick any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public BuildingServer(Building building, int port) throws IOException {
+        this(building, port, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return port number
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting up to a second for requests in progress to
+     * finish, and releases its threads and cache.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        fragments.close();
+    }
+
+    /**
+     * Handles a single request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, error("method not allowed"));
+                return;
+            }
+            byte[] body = route(exchange.getRequestURI().getPath());
+            if (body == null) {
+                send(exchange, 404, error("not found"));
+            } else {
+                send(exchange, 200, body);
+            }
+        } catch (RuntimeException e) {
+            send(exchange, 500, error("internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the response for the given path, or null if nothing is found
+     * at the path.
+     */
+    private byte[] route(String path) {
+        String[] parts = path.split("/");
+        // a leading slash gives an empty first part
+        if (parts.length == 2 && parts[1].equals("building")) {
+            return fragments.getBuilding();
+        } else if (parts.length == 2 && parts[1].equals("metrics")) {
+            return MetricsExporter.toJson().getBytes(StandardCharsets.UTF_8);
+        } else if (parts.length < 3 || !parts[1].equals("floors")) {
+            return null;
+        }
+
+        try {
+            int floorNumber = Integer.parseInt(parts[2]);
+            if (parts.length == 3) {
+                return fragments.getFloor(floorNumber);
+            } else if (parts.length == 5 && parts[3].equals("rooms")) {
+                return fragments.getRoom(floorNumber,
+                        Integer.parseInt(parts[4]));
+            }
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] error(String message) {
+        return ("{\"error\":\"" + message + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "BuildingServer: port=" + getPort();
+    }
+}
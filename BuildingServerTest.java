@@ -0,0 +1,115 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class BuildingServerTest {
+    private BuildingServer server;
+    private Room room;
+    private TemperatureSensor sensor;
+
+    @Before
+    public void setUp() throws Exception {
+        Building building = new Building("Test \"One\"");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        sensor = new TemperatureSensor(new int[]{20, 25});
+        room.addSensor​(sensor);
+        server = new BuildingServer(building, 0, 2);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(sensor));
+    }
+
+    private String get(String path, int status) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection)
+                url.openConnection();
+        try {
+            Assert.assertEquals(status, connection.getResponseCode());
+            InputStream in = status == 200 ? connection.getInputStream()
+                    : connection.getErrorStream();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void getBuilding() throws Exception {
+        Assert.assertEquals("{\"name\":\"Test \\\"One\\\"\",\"floors\":" +
+                        "[{\"floorNumber\":1,\"width\":10.0,\"length\":10.0," +
+                        "\"rooms\":1}]}", get("/building", 200));
+    }
+
+    @Test
+    public void getFloorAndRoom() throws Exception {
+        String roomJson = "{\"roomNumber\":1,\"type\":\"OFFICE\"," +
+                "\"area\":20.0,\"fireDrill\":false,\"sensors\":[" +
+                "{\"type\":\"TemperatureSensor\",\"reading\":20," +
+                "\"updateFrequency\":1,\"hazardLevel\":0}]}";
+        Assert.assertEquals(roomJson, get("/floors/1/rooms/1", 200));
+        Assert.assertEquals("{\"floorNumber\":1,\"width\":10.0," +
+                "\"length\":10.0,\"rooms\":[" + roomJson + "]}",
+                get("/floors/1", 200));
+    }
+
+    @Test
+    public void untypedRoom() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Building building = new Building("Untyped");
+        building.addFloor(floor);
+        floor.addRoom​(new Room(2, null, 20));
+        JsonFragments fragments = new JsonFragments(building);
+        try {
+            Assert.assertEquals("{\"roomNumber\":2,\"type\":null," +
+                            "\"area\":20.0,\"fireDrill\":false," +
+                            "\"sensors\":[]}",
+                    new String(fragments.getRoom(1, 2),
+                            StandardCharsets.UTF_8));
+        } finally {
+            fragments.close();
+        }
+    }
+
+    @Test
+    public void changesServed() throws Exception {
+        Assert.assertTrue(get("/floors/1/rooms/1", 200)
+                .contains("\"reading\":20"));
+        TimedItemManager.getInstance().elapseOneMinute();
+        Assert.assertTrue(get("/floors/1/rooms/1", 200)
+                .contains("\"reading\":25"));
+        room.setFireDrill​(true);
+        Assert.assertTrue(get("/floors/1/rooms/1", 200)
+                .contains("\"fireDrill\":true"));
+    }
+
+    @Test
+    public void notFound() throws Exception {
+        get("/floors/2", 404);
+        get("/floors/1/rooms/2", 404);
+        get("/floors/x", 404);
+        get("/nothing", 404);
+    }
+}
@@ -0,0 +1,243 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickEpoch;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulates a single building independently of every other building.
+ *
+ * A simulation takes ownership of the timed items in its building: they are
+ * removed from the global TimedItemManager and are only updated when the
+ * simulation ticks. Each tick updates the building's sensors, then works out
+ * the hazard level of every room and, if a drill threshold has been set,
+ * starts a fire drill in any room at or above it. Rooms and sensors added
+ * to or removed from the building are picked up at the start of the next
+ * tick.
+ *
+ * Simulations are ticked together by a SimulationCoordinator, but can be
+ * paused and resumed individually.
+ */
+public class BuildingSimulation implements TimedItem {
+    private Building building;
+    private List<TimedItem> timedItems;
+    private List<Room> rooms;
+    /* floors, their modification counts and the summed counts of their
+       rooms as of the last refresh */
+    private List<Floor> floors;
+    private int[] floorModCounts;
+    private long roomModCount;
+    private TickEpoch tickEpoch;
+    private volatile boolean paused;
+    private int drillThreshold;
+    private int maxHazardLevel;
+    private long ticks;
+
+    /**
+     * Creates a new simulation of the given building and takes ownership of
+     * the timed items in it.
+     *
+     * @param building building to simulate
+     */
+    public BuildingSimulation(Building building) {
+        this.building = building;
+        timedItems = new ArrayList<>();
+        rooms = new ArrayList<>();
+        floors = new ArrayList<>();
+        tickEpoch = new TickEpoch();
+        paused = false;
+        drillThreshold = Integer.MAX_VALUE;
+        refresh();
+    }
+
+    /**
+     * Returns the building being simulated.
+     *
+     * @return simulated building
+     */
+    public Building getBuilding() {
+        return building;
+    }
+
+    /**
+     * Takes ownership of any timed items added to the building since the
+     * simulation was created or last refreshed, and stops updating those
+     * removed from it. Called automatically when a tick finds the building
+     * has changed.
+     */
+    public synchronized void refresh() {
+        List<TimedItem> newItems = new ArrayList<>();
+        List<Room> newRooms = new ArrayList<>();
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                newRooms.add(room);
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (sensor instanceof TimedItem) {
+                        newItems.add((TimedItem) sensor);
+                    }
+                    if (sensor instanceof TimedSensor) {
+                        ((TimedSensor) sensor).setTickEpoch(tickEpoch);
+                    }
+                }
+            }
+        }
+        TimedItemManager.getInstance().deregisterTimedItems(newItems);
+        timedItems = newItems;
+        rooms = newRooms;
+        floors = new ArrayList<>(building.getFloorsView());
+        floorModCounts = new int[floors.size()];
+        for (int i = 0; i < floorModCounts.length; i++) {
+            floorModCounts[i] = floors.get(i).getModCount();
+        }
+        roomModCount = roomModCount();
+    }
+
+    /**
+     * Returns whether floors, rooms or sensors have been added to or removed
+     * from the building since it was last refreshed.
+     */
+    private boolean isStale() {
+        List<Floor> current = building.getFloorsView();
+        if (current.size() != floors.size()) {
+            return true;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i) != floors.get(i) ||
+                    current.get(i).getModCount() != floorModCounts[i]) {
+                return true;
+            }
+        }
+        return roomModCount() != roomModCount;
+    }
+
+    /**
+     * Sums the modification counts of the building's rooms. While the rooms
+     * stay the same the counts only ever go up, so the sum changes if any
+     * of them does.
+     */
+    private long roomModCount() {
+        long sum = 0;
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                sum += room.getModCount();
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the epoch that publishes this building's ticks, so readers can
+     * take whole-tick consistent readings of its sensors.
+     *
+     * @return the building's tick epoch
+     */
+    public TickEpoch getTickEpoch() {
+        return tickEpoch;
+    }
+
+    /**
+     * Stops the building from being updated on future ticks.
+     */
+    public void pause() {
+        paused = true;
+    }
+
+    /**
+     * Resumes updating the building on future ticks.
+     */
+    public void resume() {
+        paused = false;
+    }
+
+    /**
+     * Returns whether the simulation is paused.
+     *
+     * @return true if paused
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Sets the hazard level at which a fire drill is started automatically
+     * in a room.
+     *
+     * @param threshold hazard level from 0 to 100; greater than 100 to never
+     *                  start drills automatically
+     */
+    public synchronized void setDrillThreshold(int threshold) {
+        drillThreshold = threshold;
+    }
+
+    /**
+     * Returns the highest hazard level of any room as of the last tick.
+     *
+     * @return hazard level from 0 to 100
+     */
+    public synchronized int getMaxHazardLevel() {
+        return maxHazardLevel;
+    }
+
+    /**
+     * Returns the number of ticks the building has been simulated for,
+     * excluding ticks skipped while paused.
+     *
+     * @return number of ticks
+     */
+    public synchronized long getTickCount() {
+        return ticks;
+    }
+
+    /**
+     * Updates every timed item in the building, then evaluates hazards and
+     * drills. Does nothing while the simulation is paused.
+     */
+    @Override
+    public synchronized void elapseOneMinute() {
+        if (paused) {
+            return;
+        }
+        if (isStale()) {
+            refresh();
+        }
+        tickEpoch.beginTick();
+        try {
+            for (TimedItem timedItem : timedItems) {
+                timedItem.elapseOneMinute();
+            }
+        } finally {
+            tickEpoch.publish();
+        }
+
+        int max = 0;
+        for (Room room : rooms) {
+            int hazard = 0;
+            for (Sensor sensor : room.getSensorsView()) {
+                if (sensor instanceof HazardSensor) {
+                    hazard = Math.max(hazard,
+                            ((HazardSensor) sensor).getHazardLevel());
+                }
+            }
+            if (hazard >= drillThreshold && !room.fireDrillOngoing()) {
+                room.setFireDrill(true);
+            }
+            max = Math.max(max, hazard);
+        }
+        maxHazardLevel = max;
+        ticks++;
+    }
+
+    @Override
+    public String toString() {
+        return "BuildingSimulation: building=" + building.getName() +
+                ", items=" + timedItems.size() + ", paused=" + paused +
+                ", ticks=" + ticks;
+    }
+}
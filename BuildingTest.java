@@ -0,0 +1,127 @@
+package bms.building;
+
+import bms.exceptions.*;
+import bms.floor.Floor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BuildingTest {
+    private Building building;
+    private Floor floor1;
+    private Floor floor2;
+    private Floor floor3;
+
+    private List<Floor> expected;
+
+    @Before
+    public void setUp() {
+        building = new Building("Test");
+        floor1 = new Floor(1, 10, 10);
+        floor2 = new Floor(2, 10, 8);
+        floor3 = new Floor(3, 8, 8);
+
+        expected = new ArrayList<>();
+    }
+
+    @Test
+    public void addFloorsUnordered() throws FloorStackException {
+        building.addFloors(Arrays.asList(floor3, floor1, floor2));
+
+        expected.add(floor1);
+        expected.add(floor2);
+        expected.add(floor3);
+        Assert.assertEquals(expected, building.getFloors());
+    }
+
+    @Test
+    public void addFloorsOnExisting() throws Exception {
+        building.addFloor(floor1);
+        building.addFloors(Arrays.asList(floor3, floor2));
+
+        expected.add(floor1);
+        expected.add(floor2);
+        expected.add(floor3);
+        Assert.assertEquals(expected, building.getFloors());
+    }
+
+    @Test
+    public void addFloorsFailuresPerFloor() {
+        Floor duplicate = new Floor(1, 10, 10);
+        Floor large = new Floor(2, 20, 20);
+        Floor gap = new Floor(5, 5, 5);
+        try {
+            building.addFloors(Arrays.asList(floor1, duplicate, large, gap));
+            Assert.fail();
+        } catch (FloorStackException e) {
+            Assert.assertEquals(3, e.getFailures().size());
+            Assert.assertTrue(e.getFailures().get(1)
+                    instanceof DuplicateFloorException);
+            Assert.assertTrue(e.getFailures().get(2)
+                    instanceof FloorTooSmallException);
+            Assert.assertTrue(e.getFailures().get(3)
+                    instanceof NoFloorBelowException);
+        }
+    }
+
+    @Test
+    public void addFloorsFailuresSameNumber() {
+        Floor gap = new Floor(7, 5, 5);
+        Floor negative = new Floor(-7, 10, 10);
+        Floor otherGap = new Floor(7, 9, 9);
+        try {
+            building.addFloors(Arrays.asList(gap, floor1, negative,
+                    otherGap));
+            Assert.fail();
+        } catch (FloorStackException e) {
+            Assert.assertEquals(3, e.getFailures().size());
+            Assert.assertTrue(e.getFailures().get(0)
+                    instanceof NoFloorBelowException);
+            Assert.assertTrue(e.getFailures().get(2)
+                    instanceof IllegalArgumentException);
+            Assert.assertTrue(e.getFailures().get(3)
+                    instanceof NoFloorBelowException);
+        }
+    }
+
+    @Test
+    public void addFloorsAtomic() {
+        try {
+            building.addFloors(Arrays.asList(floor1, floor3));
+            Assert.fail();
+        } catch (FloorStackException e) {
+            Assert.assertEquals(expected, building.getFloors());
+        }
+    }
+
+    @Test
+    public void removeFloor() throws Exception {
+        building.addFloors(Arrays.asList(floor1, floor2, floor3));
+        Assert.assertSame(floor3, building.removeFloor(3));
+        Assert.assertNull(building.getFloorByNumber(3));
+        Assert.assertNull(building.removeFloor(3));
+        expected.add(floor1);
+        expected.add(floor2);
+        Assert.assertEquals(expected, building.getFloors());
+    }
+
+    @Test(expected = NoFloorBelowException.class)
+    public void removeFloorWithFloorAbove() throws Exception {
+        building.addFloors(Arrays.asList(floor1, floor2, floor3));
+        building.removeFloor(2);
+    }
+
+    @Test
+    public void removeFloors() throws Exception {
+        building.addFloors(Arrays.asList(floor1, floor2, floor3));
+        Assert.assertEquals(Arrays.asList(floor2, floor3),
+                building.removeFloors(2));
+        expected.add(floor1);
+        Assert.assertEquals(expected, building.getFloors());
+        Assert.assertTrue(building.removeFloors(5).isEmpty());
+    }
+}
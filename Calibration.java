@@ -0,0 +1,422 @@
+package bms.sensors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A correction applied to raw sensor readings, such as for a device's offset
+ * and gain error, or to convert its readings from one unit to another.
+ *
+ * Three kinds of correction are supported, and can be chained with
+ * then(Calibration):
+ * <ul>
+ *     <li>linear, multiplying each reading by a gain and adding an
+ *     offset;</li>
+ *     <li>piecewise linear, interpolating between pairs of raw and corrected
+ *     readings;</li>
+ *     <li>unit conversions, which are linear corrections between two units
+ *     of the same kind of sensor.</li>
+ * </ul>
+ * Corrected readings are rounded to the nearest whole number, and any that
+ * would be below zero are set to zero, so a corrected sequence is always a
+ * valid sequence of sensor readings.
+ *
+ * Calibrations are meant to be applied to whole sequences of readings when
+ * they are loaded into a sensor, such as by a SensorCalibrator, so that
+ * reading a sensor stays a plain array access. apply(int[], int, int)
+ * corrects a range with simple loops over primitive arrays that the JIT can
+ * unroll and vectorise: linear corrections of readings below 2^20 are worked
+ * out in fixed point, and piecewise corrections of readings up to 65535 are
+ * looked up in a table. A piecewise calibration only works out its table
+ * once it has corrected as many readings as the table holds, so one that
+ * corrects a few short sequences never pays for it. Calibrations are
+ * immutable.
+ */
+public abstract class Calibration {
+    /* largest raw reading of a piecewise correction given a lookup table */
+    private static final int TABLE_LIMIT = 65535;
+
+    private static final Calibration IDENTITY = new Linear(1, 0);
+
+    private Calibration() {
+    }
+
+    /**
+     * Returns the correction that leaves every reading unchanged.
+     *
+     * @return identity calibration
+     */
+    public static Calibration identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Returns a correction that multiplies each reading by the given gain
+     * and then adds the given offset.
+     *
+     * @param gain   amount to multiply each reading by
+     * @param offset amount to add to each reading after multiplying it
+     * @return linear calibration
+     * @throws IllegalArgumentException if gain or offset is not a finite
+     *                                  number
+     */
+    public static Calibration linear(double gain, double offset)
+            throws IllegalArgumentException {
+        if (!Double.isFinite(gain) || !Double.isFinite(offset)) {
+            throw new IllegalArgumentException();
+        }
+        return new Linear(gain, offset);
+    }
+
+    /**
+     * Returns a correction that maps each raw reading in the given array to
+     * the corrected reading at the same position, and interpolates linearly
+     * between them. Readings below the first raw reading or above the last
+     * follow the first or last segment respectively.
+     *
+     * @param raw       raw readings, in strictly increasing order
+     * @param corrected corrected reading of each raw reading
+     * @return piecewise linear calibration
+     * @throws IllegalArgumentException if either array is null; if the
+     *                                  arrays are not the same length; if
+     *                                  there are fewer than two readings; if
+     *                                  raw is not strictly increasing; or if
+     *                                  any value in either array is less than
+     *                                  zero
+     */
+    public static Calibration piecewise(int[] raw, int[] corrected)
+            throws IllegalArgumentException {
+        if (raw == null || corrected == null ||
+                raw.length != corrected.length || raw.length < 2) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] < 0 || corrected[i] < 0 ||
+                    (i > 0 && raw[i] <= raw[i - 1])) {
+                throw new IllegalArgumentException();
+            }
+        }
+        return new Piecewise(raw.clone(), corrected.clone());
+    }
+
+    /**
+     * Returns a correction that converts readings in one unit to another.
+     *
+     * @param from unit of the readings
+     * @param to   unit to convert the readings to
+     * @return unit conversion
+     * @throws IllegalArgumentException if either unit is null, or if the
+     *                                  units are not for the same kind of
+     *                                  sensor
+     */
+    public static Calibration convert(ReadingUnit from, ReadingUnit to)
+            throws IllegalArgumentException {
+        if (from == null || to == null || from.getKind() != to.getKind()) {
+            throw new IllegalArgumentException();
+        }
+        if (from == to) {
+            return IDENTITY;
+        }
+        return new Linear(from.getScale() / to.getScale(),
+                (from.getOffset() - to.getOffset()) / to.getScale());
+    }
+
+    /**
+     * Returns a correction that applies this correction and then the given
+     * one. Two linear corrections in a row are combined into one, so the
+     * intermediate reading is not rounded.
+     *
+     * @param next correction to apply after this one
+     * @return combined calibration
+     * @throws IllegalArgumentException if next is null
+     */
+    public Calibration then(Calibration next) throws IllegalArgumentException {
+        if (next == null) {
+            throw new IllegalArgumentException();
+        }
+        if (this == IDENTITY) {
+            return next;
+        }
+        if (next == IDENTITY) {
+            return this;
+        }
+        if (this instanceof Linear && next instanceof Linear) {
+            Linear first = (Linear) this;
+            Linear second = (Linear) next;
+            return new Linear(first.gain * second.gain,
+                    first.offset * second.gain + second.offset);
+        }
+        List<Calibration> stages = new ArrayList<>();
+        for (Calibration calibration : List.of(this, next)) {
+            if (calibration instanceof Chain) {
+                stages.addAll(Arrays.asList(((Chain) calibration).stages));
+            } else {
+                stages.add(calibration);
+            }
+        }
+        return new Chain(stages.toArray(new Calibration[0]));
+    }
+
+    /**
+     * Returns the corrected value of a single reading.
+     *
+     * @param reading raw reading
+     * @return corrected reading, zero or more
+     */
+    public abstract int apply(int reading);
+
+    /**
+     * Corrects a range of readings in place.
+     *
+     * @param readings array of raw readings
+     * @param offset   position of the first reading to correct
+     * @param count    number of readings to correct
+     * @throws IndexOutOfBoundsException if the range is not within readings
+     */
+    public abstract void apply(int[] readings, int offset, int count)
+            throws IndexOutOfBoundsException;
+
+    /**
+     * Returns a corrected copy of the given readings.
+     *
+     * @param readings raw readings
+     * @return new array of corrected readings
+     */
+    public int[] corrected(int[] readings) {
+        int[] copy = readings.clone();
+        apply(copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Rounds a corrected reading to the nearest whole number of at least
+     * zero.
+     */
+    private static int toReading(double value) {
+        return Math.max(0, (int) (value + 0.5));
+    }
+
+    private static void checkRange(int[] readings, int offset, int count)
+            throws IndexOutOfBoundsException {
+        if (offset < 0 || count < 0 || offset > readings.length - count) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * A gain followed by an offset.
+     */
+    private static class Linear extends Calibration {
+        /* fractional bits of the fixed point gain and offset */
+        private static final int FRACTION_BITS = 32;
+        /* largest corrected magnitude worked out in fixed point */
+        private static final double FIXED_LIMIT = 1 << 30;
+        /* above this the rounded gain can be out by a thousandth */
+        private static final long FIXED_READINGS = 1 << 20;
+
+        private final double gain;
+        private final double offset;
+        /* gain and offset plus a half, in 32.32 fixed point */
+        private final long fixedGain;
+        private final long fixedOffset;
+        private final boolean fixed;
+
+        private Linear(double gain, double offset) {
+            this.gain = gain;
+            this.offset = offset;
+            fixed = Math.abs(gain) < FIXED_LIMIT &&
+                    Math.abs(offset) < FIXED_LIMIT;
+            fixedGain = fixed ? Math.round(Math.scalb(gain, FRACTION_BITS))
+                    : 0;
+            fixedOffset = fixed
+                    ? Math.round(Math.scalb(offset + 0.5, FRACTION_BITS)) : 0;
+        }
+
+        @Override
+        public int apply(int reading) {
+            if (inFixedRange(Math.abs((long) reading))) {
+                return Math.max(0, (int) ((reading * fixedGain + fixedOffset)
+                        >> FRACTION_BITS));
+            }
+            return toReading(reading * gain + offset);
+        }
+
+        @Override
+        public void apply(int[] readings, int offset, int count)
+                throws IndexOutOfBoundsException {
+            checkRange(readings, offset, count);
+            if (this == IDENTITY) {
+                return;
+            }
+            int end = offset + count;
+            // at least the largest reading, and negative if any reading is
+            int bits = 0;
+            for (int i = offset; i < end; i++) {
+                bits |= readings[i];
+            }
+            // integer arithmetic vectorises where converting doubles may not
+            if (bits >= 0 && inFixedRange(bits)) {
+                long gain = fixedGain;
+                long shifted = fixedOffset;
+                for (int i = offset; i < end; i++) {
+                    readings[i] = Math.max(0,
+                            (int) ((readings[i] * gain + shifted)
+                                    >> FRACTION_BITS));
+                }
+            } else {
+                double gain = this.gain;
+                double shifted = this.offset + 0.5;
+                for (int i = offset; i < end; i++) {
+                    readings[i] = Math.max(0,
+                            (int) (readings[i] * gain + shifted));
+                }
+            }
+        }
+
+        /**
+         * Returns whether readings of up to the given magnitude can be
+         * corrected in fixed point without overflowing.
+         */
+        private boolean inFixedRange(long magnitude) {
+            return fixed && magnitude < FIXED_READINGS &&
+                    magnitude * Math.abs(gain) + Math.abs(offset)
+                            < FIXED_LIMIT;
+        }
+
+        @Override
+        public String toString() {
+            return "Calibration: linear, gain=" + gain + ", offset=" + offset;
+        }
+    }
+
+    /**
+     * Linear interpolation between calibration points.
+     */
+    private static class Piecewise extends Calibration {
+        private final int[] raw;
+        private final int[] corrected;
+        /* length of the table; 0 if the last point is too large for one */
+        private final int tableLength;
+        /* corrected reading of every raw reading up to the last point, once
+           worked out */
+        private volatile int[] table;
+        /* readings corrected before the table was worked out; only a
+           heuristic, so updates may be lost between threads */
+        private long untabled;
+
+        private Piecewise(int[] raw, int[] corrected) {
+            this.raw = raw;
+            this.corrected = corrected;
+            int last = raw[raw.length - 1];
+            tableLength = last <= TABLE_LIMIT ? last + 1 : 0;
+        }
+
+        @Override
+        public int apply(int reading) {
+            int[] table = this.table;
+            if (table != null && reading >= 0 && reading < table.length) {
+                return table[reading];
+            }
+            int index = Arrays.binarySearch(raw, reading);
+            int segment = index >= 0 ? index : -index - 2;
+            return interpolate(
+                    Math.max(0, Math.min(segment, raw.length - 2)), reading);
+        }
+
+        @Override
+        public void apply(int[] readings, int offset, int count)
+                throws IndexOutOfBoundsException {
+            checkRange(readings, offset, count);
+            int[] table = table(count);
+            int end = offset + count;
+            if (table == null) {
+                for (int i = offset; i < end; i++) {
+                    readings[i] = apply(readings[i]);
+                }
+                return;
+            }
+            for (int i = offset; i < end; i++) {
+                int reading = readings[i];
+                readings[i] = reading >= 0 && reading < table.length
+                        ? table[reading] : apply(reading);
+            }
+        }
+
+        /**
+         * Returns the table, working it out first if the readings corrected
+         * so far, including the given number about to be, would have filled
+         * it; otherwise null.
+         */
+        private int[] table(int count) {
+            int[] table = this.table;
+            if (table != null || tableLength == 0) {
+                return table;
+            }
+            untabled += count;
+            if (untabled < tableLength) {
+                return null;
+            }
+            // two threads may both work it out, to the same values
+            table = new int[tableLength];
+            int segment = 0;
+            for (int reading = 0; reading < tableLength; reading++) {
+                while (segment < raw.length - 2 &&
+                        reading > raw[segment + 1]) {
+                    segment++;
+                }
+                table[reading] = interpolate(segment, reading);
+            }
+            this.table = table;
+            return table;
+        }
+
+        /**
+         * Returns the corrected reading along the given segment.
+         */
+        private int interpolate(int segment, int reading) {
+            double slope = (double) (corrected[segment + 1]
+                    - corrected[segment]) / (raw[segment + 1] - raw[segment]);
+            return toReading(corrected[segment]
+                    + (reading - (long) raw[segment]) * slope);
+        }
+
+        @Override
+        public String toString() {
+            return "Calibration: piecewise, points=" + raw.length;
+        }
+    }
+
+    /**
+     * Corrections applied one after another.
+     */
+    private static class Chain extends Calibration {
+        private final Calibration[] stages;
+
+        private Chain(Calibration[] stages) {
+            this.stages = stages;
+        }
+
+        @Override
+        public int apply(int reading) {
+            for (Calibration stage : stages) {
+                reading = stage.apply(reading);
+            }
+            return reading;
+        }
+
+        @Override
+        public void apply(int[] readings, int offset, int count)
+                throws IndexOutOfBoundsException {
+            // a whole pass per stage keeps each loop simple
+            for (Calibration stage : stages) {
+                stage.apply(readings, offset, count);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Calibration: chain, stages=" + stages.length;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package bms.sensors;
+
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+public class CalibrationTest {
+
+    @Test
+    public void linear() {
+        Calibration calibration = Calibration.linear(1.5, -10);
+        Assert.assertArrayEquals(new int[]{0, 5, 20, 140},
+                calibration.corrected(new int[]{0, 10, 20, 100}));
+        Assert.assertEquals(140, calibration.apply(100));
+    }
+
+    @Test
+    public void convert() {
+        Calibration calibration = Calibration.convert(ReadingUnit.FAHRENHEIT,
+                ReadingUnit.CELSIUS);
+        Assert.assertArrayEquals(new int[]{0, 21, 100},
+                calibration.corrected(new int[]{32, 70, 212}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertOtherKind() {
+        Calibration.convert(ReadingUnit.DECIBELS, ReadingUnit.CELSIUS);
+    }
+
+    @Test
+    public void piecewise() {
+        Calibration calibration = Calibration.piecewise(
+                new int[]{100, 200, 300}, new int[]{110, 190, 300});
+        Assert.assertArrayEquals(new int[]{30, 110, 150, 190, 300, 410},
+                calibration.corrected(new int[]{0, 100, 150, 200, 300, 400}));
+    }
+
+    @Test
+    public void calibrateKeepsPosition() {
+        TemperatureSensor sensor = new TemperatureSensor(
+                new int[]{50, 68, 86, 104});
+        sensor.elapseOneMinute();
+        SensorCalibrator calibrator = new SensorCalibrator();
+        calibrator.setCalibration(sensor, Calibration.convert(
+                ReadingUnit.FAHRENHEIT, ReadingUnit.CELSIUS));
+
+        Assert.assertTrue(calibrator.calibrate(sensor));
+        Assert.assertFalse(calibrator.calibrate(sensor));
+        Assert.assertEquals(20, sensor.getCurrentReading());
+        Assert.assertEquals(1, sensor.getTimeElapsed());
+        sensor.elapseOneMinute();
+        Assert.assertEquals(30, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void piecewiseTableMatchesInterpolation() {
+        Calibration calibration = Calibration.piecewise(
+                new int[]{0, 1000, 60000}, new int[]{10, 900, 65000});
+        int[] raw = new int[70000];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = i;
+        }
+        // short sequences are interpolated, long ones looked up
+        int[] expected = new int[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            expected[i] = calibration.apply(raw[i]);
+        }
+        Assert.assertArrayEquals(new int[]{10, 900, 65000},
+                calibration.corrected(new int[]{0, 1000, 60000}));
+        Assert.assertArrayEquals(expected, calibration.corrected(raw));
+        Assert.assertArrayEquals(expected, calibration.corrected(raw));
+        Assert.assertEquals(expected[12345], calibration.apply(12345));
+    }
+
+    @Test
+    public void calibratorDropsUnusedSensors() throws Exception {
+        SensorCalibrator calibrator = new SensorCalibrator();
+        WeakReference<TemperatureSensor> reference = calibrate(calibrator);
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull(reference.get());
+        Assert.assertEquals("SensorCalibrator: sensors=0",
+                calibrator.toString());
+    }
+
+    private static WeakReference<TemperatureSensor> calibrate(
+            SensorCalibrator calibrator) {
+        TemperatureSensor sensor = new TemperatureSensor(new int[]{50, 68});
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(sensor));
+        calibrator.setCalibration(sensor, Calibration.linear(2, 0));
+        Assert.assertTrue(calibrator.calibrate(sensor));
+        Assert.assertEquals("SensorCalibrator: sensors=1",
+                calibrator.toString());
+        return new WeakReference<>(sensor);
+    }
+}
@@ -1,12 +1,18 @@
 package bms.sensors;
 
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+
 /**
  * A sensor that measures levels of carbon dioxide (CO2) in the air, in parts
  * per million (ppm).
  */
 public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
+    private static final MetricTimer HAZARD_LEVEL_TIMER =
+            Metrics.timer("getHazardLevel");
     private int idealValue;
     private int variationLimit;
+    private HazardBands hazardBands;
 
     /**
      * Creates a new carbon dioxide sensor with the given sensor readings,
@@ -28,11 +34,52 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
         super(sensorReadings, updateFrequency);
         this.idealValue = idealValue;
         this.variationLimit = variationLimit;
+        this.hazardBands = HazardBands.CARBON_DIOXIDE;
+        if (idealValue <= 0 || variationLimit <= 0) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor which reads directly from the
+     * given sequence of readings.
+     */
+    private CarbonDioxideSensor(SensorReadings sensorReadings,
+                                int updateFrequency, int idealValue,
+                                int variationLimit)
+            throws IllegalArgumentException {
+        super(sensorReadings, updateFrequency);
+        this.idealValue = idealValue;
+        this.variationLimit = variationLimit;
+        this.hazardBands = HazardBands.CARBON_DIOXIDE;
         if (idealValue <= 0 || variationLimit <= 0) {
             throw new IllegalArgumentException();
         }
     }
 
+    /**
+     * Creates a new carbon dioxide sensor which reads directly from the
+     * given sequence of readings, such as an EncodedReadings, without
+     * copying it into an array.
+     *
+     * @param sensorReadings  sequence of CO2 sensor readings in ppm
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue      ideal CO2 value in ppm
+     * @param variationLimit  acceptable range above and below ideal value
+     *                        in ppm
+     * @return the new sensor
+     * @throws IllegalArgumentException if idealValue <= 0; or if
+     *                                  variationLimit <= 0
+     */
+    public static CarbonDioxideSensor of(SensorReadings sensorReadings,
+                                         int updateFrequency, int idealValue,
+                                         int variationLimit)
+            throws IllegalArgumentException {
+        return new CarbonDioxideSensor(sensorReadings, updateFrequency,
+                idealValue, variationLimit);
+    }
+
     /**
      * Returns the sensor's CO2 variation limit.
      *
@@ -51,21 +98,53 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor {
         return idealValue;
     }
 
+    /**
+     * Returns the bands used to work out this sensor's hazard level.
+     * Defaults to HazardBands.CARBON_DIOXIDE.
+     *
+     * @return the sensor's hazard bands
+     */
+    public HazardBands getHazardBands() {
+        return hazardBands;
+    }
+
+    /**
+     * Sets the bands used to work out this sensor's hazard level, e.g.
+     * HazardBands.fromIdeal(getIdealValue(), getVariationLimit()) to base
+     * the hazard level on the sensor's own ideal value.
+     *
+     * @param hazardBands bands to use
+     * @throws IllegalArgumentException if hazardBands is null
+     */
+    public void setHazardBands(HazardBands hazardBands)
+            throws IllegalArgumentException {
+        if (hazardBands == null) {
+            throw new IllegalArgumentException();
+        }
+        this.hazardBands = hazardBands;
+    }
+
+    /**
+     * Returns the hazard level of the current reading, using the sensor's
+     * hazard bands.
+     *
+     * @return level of hazard at sensor location, 0 to 100
+     */
     @Override
     public int getHazardLevel() {
-        if (getCurrentReading() >= 0 && getCurrentReading() <= 999) {
-            return 0;
-        } else if (getCurrentReading() >= 1000 &&
-                getCurrentReading() <= 1999) {
-            return 25;
-        } else if (getCurrentReading() >= 2000 &&
-                getCurrentReading() <= 4999) {
-            return 50;
-        } else {
-            return 100;
+        long start = HAZARD_LEVEL_TIMER.start();
+        try {
+            return getHazardLevel(getCurrentReading());
+        } finally {
+            HAZARD_LEVEL_TIMER.stop(start);
         }
     }
 
+    @Override
+    public int getHazardLevel(int reading) {
+        return hazardBands.getLevel(reading);
+    }
+
     @Override
     public String toString() {
         return super.toString() + ", type=CarbonDioxideSensor, " + "idealPPM" +
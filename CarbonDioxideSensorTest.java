@@ -60,6 +60,19 @@ public class CarbonDioxideSensorTest {
         Assert.assertEquals(100, sensor4.getHazardLevel());
     }
 
+    @Test
+    public void getHazardLevelFromIdeal() {
+        HazardBands bands = HazardBands.fromIdeal(700, 150);
+        sensor2.setHazardBands(bands);
+        sensor3.setHazardBands(bands);
+        Assert.assertEquals(25, sensor2.getHazardLevel());
+        Assert.assertEquals(100, sensor3.getHazardLevel());
+        Assert.assertEquals(0, bands.getLevel(850));
+        Assert.assertEquals(25, bands.getLevel(851));
+        Assert.assertEquals(50, bands.getLevel(1300));
+        Assert.assertEquals(100, bands.getLevel(1301));
+    }
+
 
     @Test
     public void testToString() {
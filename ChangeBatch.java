@@ -0,0 +1,202 @@
+package bms.util;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Everything in the building model that changed during a single tick.
+ *
+ * Each item appears at most once per batch, however many times it changed.
+ */
+public class ChangeBatch {
+    private long tick;
+    private List<Sensor> advancedSensors;
+    private List<Room> drillChangedRooms;
+    private List<Sensor> addedSensors;
+    private List<Room> addedRooms;
+    private List<Floor> addedFloors;
+    private List<Sensor> removedSensors;
+    private List<Room> removedRooms;
+    private List<Floor> removedFloors;
+
+    /**
+     * Creates a new batch of changes.
+     *
+     * @param tick              number of the tick the changes belong to
+     * @param advancedSensors   sensors whose current reading moved on
+     * @param drillChangedRooms rooms whose fire drill status changed
+     * @param addedSensors      sensors added to a room
+     * @param addedRooms        rooms added to a floor
+     * @param addedFloors       floors added to a building
+     * @param removedSensors    sensors removed from a room
+     * @param removedRooms      rooms removed from a floor
+     * @param removedFloors     floors removed from a building
+     */
+    public ChangeBatch(long tick, List<Sensor> advancedSensors,
+                       List<Room> drillChangedRooms,
+                       List<Sensor> addedSensors, List<Room> addedRooms,
+                       List<Floor> addedFloors, List<Sensor> removedSensors,
+                       List<Room> removedRooms, List<Floor> removedFloors) {
+        this.tick = tick;
+        this.advancedSensors = Collections.unmodifiableList(advancedSensors);
+        this.drillChangedRooms =
+                Collections.unmodifiableList(drillChangedRooms);
+        this.addedSensors = Collections.unmodifiableList(addedSensors);
+        this.addedRooms = Collections.unmodifiableList(addedRooms);
+        this.addedFloors = Collections.unmodifiableList(addedFloors);
+        this.removedSensors = Collections.unmodifiableList(removedSensors);
+        this.removedRooms = Collections.unmodifiableList(removedRooms);
+        this.removedFloors = Collections.unmodifiableList(removedFloors);
+    }
+
+    /**
+     * Returns the number of the tick these changes belong to, counting from
+     * 1 for the first tick after the feed was created.
+     *
+     * @return tick number
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns the sensors whose current reading moved on during the tick.
+     *
+     * @return unmodifiable list of sensors
+     */
+    public List<Sensor> getAdvancedSensors() {
+        return advancedSensors;
+    }
+
+    /**
+     * Returns the rooms where a fire drill started or was cancelled.
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getDrillChangedRooms() {
+        return drillChangedRooms;
+    }
+
+    /**
+     * Returns the sensors added to a room.
+     *
+     * @return unmodifiable list of sensors
+     */
+    public List<Sensor> getAddedSensors() {
+        return addedSensors;
+    }
+
+    /**
+     * Returns the rooms added to a floor.
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getAddedRooms() {
+        return addedRooms;
+    }
+
+    /**
+     * Returns the floors added to a building.
+     *
+     * @return unmodifiable list of floors
+     */
+    public List<Floor> getAddedFloors() {
+        return addedFloors;
+    }
+
+    /**
+     * Returns the sensors removed from a room.
+     *
+     * @return unmodifiable list of sensors
+     */
+    public List<Sensor> getRemovedSensors() {
+        return removedSensors;
+    }
+
+    /**
+     * Returns the rooms removed from a floor, including those moved to
+     * another floor, which also appear in getAddedRooms().
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getRemovedRooms() {
+        return removedRooms;
+    }
+
+    /**
+     * Returns the floors removed from a building.
+     *
+     * @return unmodifiable list of floors
+     */
+    public List<Floor> getRemovedFloors() {
+        return removedFloors;
+    }
+
+    /**
+     * Returns the sensors which left the building model during the tick:
+     * those removed from a room, and those in rooms or floors removed from
+     * the building. Rooms moved to another floor keep their sensors.
+     *
+     * @return new set of sensors, compared by identity
+     */
+    public Set<Sensor> getDepartedSensors() {
+        Set<Sensor> departed = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        departed.addAll(removedSensors);
+        if (!removedRooms.isEmpty()) {
+            Set<Room> moved = Collections.newSetFromMap(
+                    new IdentityHashMap<>());
+            moved.addAll(addedRooms);
+            for (Room room : removedRooms) {
+                if (!moved.contains(room)) {
+                    departed.addAll(room.getSensorsView());
+                }
+            }
+        }
+        for (Floor floor : removedFloors) {
+            for (Room room : floor.getRoomsView()) {
+                departed.addAll(room.getSensorsView());
+            }
+        }
+        return departed;
+    }
+
+    /**
+     * Returns whether the floors, rooms or sensors of the building changed
+     * during the tick, so that anything derived from its layout should be
+     * worked out again.
+     *
+     * @return true if a floor, room or sensor was added or removed
+     */
+    public boolean isStructureChanged() {
+        return !addedSensors.isEmpty() || !addedRooms.isEmpty() ||
+                !addedFloors.isEmpty() || !removedSensors.isEmpty() ||
+                !removedRooms.isEmpty() || !removedFloors.isEmpty();
+    }
+
+    /**
+     * Returns whether nothing changed during the tick.
+     *
+     * @return true if every list is empty
+     */
+    public boolean isEmpty() {
+        return advancedSensors.isEmpty() && drillChangedRooms.isEmpty() &&
+                !isStructureChanged();
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeBatch: tick=" + tick + ", sensors=" +
+                advancedSensors.size() + ", drills=" +
+                drillChangedRooms.size() + ", added=" +
+                (addedSensors.size() + addedRooms.size() +
+                        addedFloors.size()) + ", removed=" +
+                (removedSensors.size() + removedRooms.size() +
+                        removedFloors.size());
+    }
+}
@@ -0,0 +1,251 @@
+package bms.util;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Singleton class which collects what changed in the building model during
+ * each tick and hands the changes to subscribers as a single ChangeBatch.
+ *
+ * Changes are only recorded while there is at least one subscriber, so the
+ * model pays a single volatile read per change otherwise. Each changed item
+ * is recorded once per tick, however often it changes.
+ *
+ * Sensors advance on every tick, possibly on several threads at once, so
+ * they are recorded in one of a number of separately locked stripes chosen
+ * by the sensor's identity rather than under the feed's own lock. The
+ * stripes are merged when the tick is published.
+ */
+public class ChangeFeed {
+    /* created eagerly, the model looks it up on every change */
+    private static final ChangeFeed instance = new ChangeFeed();
+    /* number of sensor stripes, a power of two */
+    private static final int STRIPES = 16;
+
+    private volatile boolean recording = false;
+    private List<Consumer<ChangeBatch>> subscribers =
+            new CopyOnWriteArrayList<>();
+    private long tick = 0;
+
+    /* each sensor always lands in the same stripe, so none repeat */
+    private final Stripe[] advancedSensors = new Stripe[STRIPES];
+    private Set<Room> drillChangedRooms = identitySet();
+    private List<Sensor> addedSensors = new ArrayList<>();
+    private List<Room> addedRooms = new ArrayList<>();
+    private List<Floor> addedFloors = new ArrayList<>();
+    private List<Sensor> removedSensors = new ArrayList<>();
+    private List<Room> removedRooms = new ArrayList<>();
+    private List<Floor> removedFloors = new ArrayList<>();
+
+    /**
+     * Returns the singleton instance of the change feed.
+     *
+     * @return singleton instance
+     */
+    public static ChangeFeed getInstance() {
+        return instance;
+    }
+
+    private ChangeFeed() {
+        for (int i = 0; i < STRIPES; i++) {
+            advancedSensors[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Returns whether changes are currently being recorded.
+     *
+     * @return true if there is at least one subscriber
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Registers a consumer to be given the changes of every tick from now
+     * on. Batches are delivered on the thread that runs the tick.
+     *
+     * @param subscriber consumer of change batches
+     */
+    public synchronized void subscribe(Consumer<ChangeBatch> subscriber) {
+        subscribers.add(subscriber);
+        recording = true;
+    }
+
+    /**
+     * Stops giving changes to the given consumer.
+     *
+     * @param subscriber consumer to remove
+     */
+    public synchronized void unsubscribe(Consumer<ChangeBatch> subscriber) {
+        subscribers.remove(subscriber);
+        if (subscribers.isEmpty()) {
+            recording = false;
+            clear();
+        }
+    }
+
+    /**
+     * Records that the current reading of a sensor moved on.
+     * Callers on hot paths should check isRecording() first.
+     *
+     * @param sensor sensor that advanced
+     */
+    public void sensorAdvanced(Sensor sensor) {
+        if (recording) {
+            Stripe stripe = advancedSensors[
+                    System.identityHashCode(sensor) & (STRIPES - 1)];
+            synchronized (stripe) {
+                stripe.sensors.add(sensor);
+            }
+        }
+    }
+
+    /**
+     * Records that a fire drill started or was cancelled in a room.
+     *
+     * @param room room whose fire drill status changed
+     */
+    public synchronized void drillChanged(Room room) {
+        if (recording) {
+            drillChangedRooms.add(room);
+        }
+    }
+
+    /**
+     * Records that a sensor was added to a room.
+     *
+     * @param sensor sensor that was added
+     */
+    public synchronized void sensorAdded(Sensor sensor) {
+        if (recording) {
+            addedSensors.add(sensor);
+        }
+    }
+
+    /**
+     * Records that a room was added to a floor.
+     *
+     * @param room room that was added
+     */
+    public synchronized void roomAdded(Room room) {
+        if (recording) {
+            addedRooms.add(room);
+        }
+    }
+
+    /**
+     * Records that a floor was added to a building.
+     *
+     * @param floor floor that was added
+     */
+    public synchronized void floorAdded(Floor floor) {
+        if (recording) {
+            addedFloors.add(floor);
+        }
+    }
+
+    /**
+     * Records that a sensor was removed from a room.
+     *
+     * @param sensor sensor that was removed
+     */
+    public synchronized void sensorRemoved(Sensor sensor) {
+        if (recording) {
+            removedSensors.add(sensor);
+        }
+    }
+
+    /**
+     * Records that a room was removed from a floor. A room moved to another
+     * floor is recorded as removed and then added.
+     *
+     * @param room room that was removed
+     */
+    public synchronized void roomRemoved(Room room) {
+        if (recording) {
+            removedRooms.add(room);
+        }
+    }
+
+    /**
+     * Records that a floor was removed from a building.
+     *
+     * @param floor floor that was removed
+     */
+    public synchronized void floorRemoved(Floor floor) {
+        if (recording) {
+            removedFloors.add(floor);
+        }
+    }
+
+    /**
+     * Ends the current tick: the changes recorded since the previous tick
+     * are given to every subscriber as one batch and recording starts afresh.
+     * Called by TimedItemManager after every tick.
+     */
+    public void publish() {
+        if (!recording) {
+            return;
+        }
+        List<Sensor> advanced = drainAdvanced();
+        ChangeBatch batch;
+        synchronized (this) {
+            tick++;
+            batch = new ChangeBatch(tick, advanced,
+                    new ArrayList<>(drillChangedRooms), addedSensors,
+                    addedRooms, addedFloors, removedSensors, removedRooms,
+                    removedFloors);
+            drillChangedRooms.clear();
+            addedSensors = new ArrayList<>();
+            addedRooms = new ArrayList<>();
+            addedFloors = new ArrayList<>();
+            removedSensors = new ArrayList<>();
+            removedRooms = new ArrayList<>();
+            removedFloors = new ArrayList<>();
+        }
+        for (Consumer<ChangeBatch> subscriber : subscribers) {
+            subscriber.accept(batch);
+        }
+    }
+
+    /**
+     * Takes the sensors recorded in every stripe, emptying the stripes.
+     */
+    private List<Sensor> drainAdvanced() {
+        List<Sensor> advanced = new ArrayList<>();
+        for (Stripe stripe : advancedSensors) {
+            synchronized (stripe) {
+                advanced.addAll(stripe.sensors);
+                stripe.sensors.clear();
+            }
+        }
+        return advanced;
+    }
+
+    private void clear() {
+        drainAdvanced();
+        drillChangedRooms.clear();
+        addedSensors.clear();
+        addedRooms.clear();
+        addedFloors.clear();
+        removedSensors.clear();
+        removedRooms.clear();
+        removedFloors.clear();
+    }
+
+    private static <T> Set<T> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Sensors that advanced this tick whose identities share a stripe.
+     */
+    private static class Stripe {
+        private final Set<Sensor> sensors = identitySet();
+    }
+}
@@ -0,0 +1,123 @@
+package bms.util;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.Sensor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class ChangeFeedTest {
+    private ChangeFeed feed;
+    private List<ChangeBatch> batches;
+    private Consumer<ChangeBatch> subscriber;
+
+    @Before
+    public void setUp() {
+        feed = ChangeFeed.getInstance();
+        batches = new ArrayList<>();
+        subscriber = batches::add;
+    }
+
+    @After
+    public void tearDown() {
+        feed.unsubscribe(subscriber);
+    }
+
+    @Test
+    public void notRecordingWithoutSubscribers() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        room.setFireDrill​(true);
+        Assert.assertFalse(feed.isRecording());
+
+        feed.subscribe(subscriber);
+        feed.publish();
+        Assert.assertEquals(1, batches.size());
+        Assert.assertTrue(batches.get(0).isEmpty());
+    }
+
+    @Test
+    public void recordsStructureAndDrills() throws Exception {
+        feed.subscribe(subscriber);
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        room.setFireDrill​(true);
+        // unchanged status is not a change
+        room.setFireDrill​(true);
+        feed.publish();
+
+        ChangeBatch batch = batches.get(0);
+        Assert.assertEquals(List.of(room), batch.getAddedRooms());
+        Assert.assertEquals(List.of(room), batch.getDrillChangedRooms());
+        Assert.assertTrue(batch.isStructureChanged());
+
+        feed.publish();
+        Assert.assertTrue(batches.get(1).isEmpty());
+    }
+
+    @Test
+    public void sensorsRecordedOnceAcrossThreads() throws Exception {
+        feed.subscribe(subscriber);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sensors.add(new NoiseSensor(new int[]{50}, 1));
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int repeat = 0; repeat < 10; repeat++) {
+                    for (Sensor sensor : sensors) {
+                        feed.sensorAdvanced(sensor);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        feed.publish();
+
+        List<Sensor> advanced = batches.get(0).getAdvancedSensors();
+        Assert.assertEquals(sensors.size(), advanced.size());
+        for (Sensor sensor : sensors) {
+            Assert.assertTrue(advanced.contains(sensor));
+        }
+    }
+
+    @Test
+    public void recordsAddedSensors() throws Exception {
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        Sensor noise = new NoiseSensor(new int[]{50}, 1);
+        feed.subscribe(subscriber);
+        room.addSensor​(noise);
+        feed.publish();
+
+        ChangeBatch batch = batches.get(0);
+        Assert.assertEquals(List.of(noise), batch.getAddedSensors());
+        Assert.assertTrue(batch.isStructureChanged());
+
+        Sensor other = new CarbonDioxideSensor(new int[]{600}, 1, 700, 50);
+        room.addSensors(new Sensor[]{other});
+        feed.publish();
+        Assert.assertEquals(List.of(other), batches.get(1).getAddedSensors());
+
+        // a batch that is not committed adds nothing
+        room.addSensors(new Sensor[]{new NoiseSensor(new int[]{50}, 1)});
+        feed.publish();
+        Assert.assertTrue(batches.get(2).isEmpty());
+    }
+}
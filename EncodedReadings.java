@@ -0,0 +1,441 @@
+package bms.sensors;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A sequence of sensor readings compressed for long, repetitive traces.
+ *
+ * Three encodings are supported:
+ * <ul>
+ *     <li>run-length, for traces that hold the same value for many readings;
+ *     </li>
+ *     <li>delta, for slowly drifting traces, storing the bit-packed
+ *     difference between consecutive readings;</li>
+ *     <li>frame-of-reference, storing each reading bit-packed as its
+ *     distance above the smallest reading.</li>
+ * </ul>
+ * Reading through the sequence in order, as a sensor does, costs O(1) per
+ * reading for every encoding. decode(int, int[], int, int) unpacks a whole
+ * range in a single pass over the packed words, reading each word once
+ * rather than working out where every reading lies as get(int) does, and
+ * then adds the minimum or the steps back with plain loops over int arrays.
+ */
+public abstract class EncodedReadings extends SensorReadings {
+    private int minimum;
+
+    /**
+     * Creates a new encoded sequence whose smallest reading is given.
+     *
+     * @param minimum smallest reading in the sequence
+     */
+    private EncodedReadings(int minimum) {
+        this.minimum = minimum;
+    }
+
+    /**
+     * Returns the smallest reading in the sequence.
+     *
+     * @return smallest reading
+     */
+    public int getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Copies a range of readings into the given array.
+     *
+     * @param from   position of the first reading to copy
+     * @param dest   array to copy the readings into
+     * @param offset position in dest of the first copied reading
+     * @param count  number of readings to copy
+     * @throws IndexOutOfBoundsException if either range is out of bounds
+     */
+    public abstract void decode(int from, int[] dest, int offset, int count);
+
+    @Override
+    public int[] toArray() {
+        int[] readings = new int[length()];
+        decode(0, readings, 0, readings.length);
+        return readings;
+    }
+
+    /**
+     * Encodes the given readings using run-length encoding.
+     *
+     * @param readings readings to encode
+     * @return new encoded sequence
+     */
+    public static EncodedReadings runLength(int[] readings) {
+        return new RunLength(readings);
+    }
+
+    /**
+     * Encodes the given readings as bit-packed differences between
+     * consecutive readings.
+     *
+     * @param readings readings to encode
+     * @return new encoded sequence
+     */
+    public static EncodedReadings delta(int[] readings) {
+        return new Delta(readings);
+    }
+
+    /**
+     * Encodes the given readings bit-packed relative to the smallest
+     * reading.
+     *
+     * @param readings readings to encode
+     * @return new encoded sequence
+     */
+    public static EncodedReadings frameOfReference(int[] readings) {
+        return new FrameOfReference(readings);
+    }
+
+    /**
+     * Encodes the given readings using whichever encoding is smallest.
+     *
+     * @param readings readings to encode
+     * @return new encoded sequence
+     */
+    public static EncodedReadings encode(int[] readings) {
+        EncodedReadings best = frameOfReference(readings);
+        for (EncodedReadings candidate : new EncodedReadings[]{
+                runLength(readings), delta(readings)}) {
+            if (candidate.estimateBytes() < best.estimateBytes()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static int minimumOf(int[] readings) {
+        int min = Integer.MAX_VALUE;
+        for (int reading : readings) {
+            min = Math.min(min, reading);
+        }
+        return readings.length == 0 ? 0 : min;
+    }
+
+    private static void checkRange(int length, int from, int[] dest,
+                                   int offset, int count) {
+        if (from < 0 || count < 0 || from + count > length || offset < 0 ||
+                offset + count > dest.length) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    /**
+     * Readings stored as runs of equal values. The run holding the most
+     * recently read position is remembered, so reading in order only ever
+     * steps to the next run.
+     */
+    private static class RunLength extends EncodedReadings {
+        private final int[] values;
+        /* position just past the end of each run */
+        private final int[] ends;
+        private int lastRun;
+
+        private RunLength(int[] readings) {
+            super(minimumOf(readings));
+            int runs = 0;
+            for (int i = 0; i < readings.length; i++) {
+                if (i == 0 || readings[i] != readings[i - 1]) {
+                    runs++;
+                }
+            }
+            values = new int[runs];
+            ends = new int[runs];
+            int run = -1;
+            for (int i = 0; i < readings.length; i++) {
+                if (i == 0 || readings[i] != readings[i - 1]) {
+                    run++;
+                    values[run] = readings[i];
+                }
+                ends[run] = i + 1;
+            }
+        }
+
+        @Override
+        public int length() {
+            return ends.length == 0 ? 0 : ends[ends.length - 1];
+        }
+
+        @Override
+        public int get(int index) {
+            int run = runOf(index);
+            // several threads may read; a stale hint is only a slower lookup
+            lastRun = run;
+            return values[run];
+        }
+
+        @Override
+        public void decode(int from, int[] dest, int offset, int count) {
+            checkRange(length(), from, dest, offset, count);
+            int run = count == 0 ? 0 : runOf(from);
+            int position = from;
+            while (position < from + count) {
+                int end = Math.min(ends[run], from + count);
+                Arrays.fill(dest, offset + position - from,
+                        offset + end - from, values[run]);
+                position = end;
+                run++;
+            }
+        }
+
+        @Override
+        public long estimateBytes() {
+            return 24 + arrayBytes(4L * values.length) +
+                    arrayBytes(4L * ends.length);
+        }
+
+        private int runOf(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException();
+            }
+            int run = lastRun;
+            int start = run == 0 ? 0 : ends[run - 1];
+            if (index >= start && index < ends[run]) {
+                return run;
+            }
+            if (index >= ends[run] && run + 1 < ends.length &&
+                    index < ends[run + 1]) {
+                return run + 1;
+            }
+            int found = Arrays.binarySearch(ends, index + 1);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+
+    /**
+     * Readings bit-packed as their distance above the smallest reading.
+     */
+    private static class FrameOfReference extends EncodedReadings {
+        private final BitPacking packed;
+
+        private FrameOfReference(int[] readings) {
+            super(minimumOf(readings));
+            int[] offsets = new int[readings.length];
+            for (int i = 0; i < readings.length; i++) {
+                offsets[i] = readings[i] - getMinimum();
+            }
+            packed = new BitPacking(offsets);
+        }
+
+        @Override
+        public int length() {
+            return packed.length();
+        }
+
+        @Override
+        public int get(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException();
+            }
+            return getMinimum() + packed.get(index);
+        }
+
+        @Override
+        public void decode(int from, int[] dest, int offset, int count) {
+            checkRange(length(), from, dest, offset, count);
+            packed.unpack(from, dest, offset, count);
+            int min = getMinimum();
+            for (int i = offset; i < offset + count; i++) {
+                dest[i] += min;
+            }
+        }
+
+        @Override
+        public long estimateBytes() {
+            return 24 + packed.estimateBytes();
+        }
+    }
+
+    /**
+     * Readings stored as bit-packed differences between consecutive
+     * readings, with the full reading kept every CHECKPOINT readings so that
+     * any position can be found without decoding from the start.
+     */
+    private static class Delta extends EncodedReadings {
+        private static final int CHECKPOINT = 64;
+        /* opaque access, so a read or write of the long is never torn */
+        private static final VarHandle LAST_READ;
+
+        static {
+            try {
+                LAST_READ = MethodHandles.lookup().findVarHandle(
+                        Delta.class, "lastRead", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final int[] checkpoints;
+        /* zig-zag encoded so that small negative steps pack small */
+        private final BitPacking steps;
+        /* last position read in the high half, its reading in the low half */
+        private long lastRead;
+
+        private Delta(int[] readings) {
+            super(minimumOf(readings));
+            checkpoints = new int[(readings.length + CHECKPOINT - 1)
+                    / CHECKPOINT];
+            int[] zigZag = new int[readings.length];
+            for (int i = 0; i < readings.length; i++) {
+                if (i % CHECKPOINT == 0) {
+                    checkpoints[i / CHECKPOINT] = readings[i];
+                } else {
+                    int step = readings[i] - readings[i - 1];
+                    zigZag[i] = (step << 1) ^ (step >> 31);
+                }
+            }
+            steps = new BitPacking(zigZag);
+            lastRead = -1L << 32;
+        }
+
+        @Override
+        public int length() {
+            return steps.length();
+        }
+
+        @Override
+        public int get(int index) {
+            if (index < 0 || index >= length()) {
+                throw new IndexOutOfBoundsException();
+            }
+            long last = (long) LAST_READ.getOpaque(this);
+            int lastIndex = (int) (last >> 32);
+            int value;
+            if (index % CHECKPOINT == 0) {
+                value = checkpoints[index / CHECKPOINT];
+            } else if (index == lastIndex + 1) {
+                value = (int) last + step(index);
+            } else {
+                value = checkpoints[index / CHECKPOINT];
+                for (int i = index - index % CHECKPOINT + 1; i <= index; i++) {
+                    value += step(i);
+                }
+            }
+            // a single untorn write, so readers on other threads see a
+            // valid pair, if not always the latest one
+            LAST_READ.setOpaque(this,
+                    ((long) index << 32) | (value & 0xFFFFFFFFL));
+            return value;
+        }
+
+        @Override
+        public void decode(int from, int[] dest, int offset, int count) {
+            checkRange(length(), from, dest, offset, count);
+            if (count == 0) {
+                return;
+            }
+            steps.unpack(from, dest, offset, count);
+            int value = get(from);
+            dest[offset] = value;
+            for (int i = 1; i < count; i++) {
+                int position = from + i;
+                if (position % CHECKPOINT == 0) {
+                    value = checkpoints[position / CHECKPOINT];
+                } else {
+                    int zigZag = dest[offset + i];
+                    value += (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+                dest[offset + i] = value;
+            }
+        }
+
+        @Override
+        public long estimateBytes() {
+            return 32 + arrayBytes(4L * checkpoints.length) +
+                    steps.estimateBytes();
+        }
+
+        private int step(int index) {
+            int zigZag = steps.get(index);
+            return (zigZag >>> 1) ^ -(zigZag & 1);
+        }
+    }
+
+    /**
+     * Non-negative ints packed into a long array using the fewest bits that
+     * hold the largest value.
+     */
+    private static class BitPacking {
+        private final int length;
+        private final int bits;
+        private final long mask;
+        private final long[] words;
+
+        private BitPacking(int[] values) {
+            int max = 0;
+            for (int value : values) {
+                max |= value;
+            }
+            length = values.length;
+            bits = 32 - Integer.numberOfLeadingZeros(max);
+            mask = (1L << bits) - 1;
+            words = new long[(int) (((long) length * bits + 63) / 64)];
+            for (int i = 0; i < values.length && bits > 0; i++) {
+                long bit = (long) i * bits;
+                int word = (int) (bit >>> 6);
+                int shift = (int) (bit & 63);
+                words[word] |= (values[i] & mask) << shift;
+                if (shift + bits > 64) {
+                    words[word + 1] |= (values[i] & mask) >>> (64 - shift);
+                }
+            }
+        }
+
+        private int length() {
+            return length;
+        }
+
+        private int get(int index) {
+            if (bits == 0) {
+                return 0;
+            }
+            long bit = (long) index * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long value = words[word] >>> shift;
+            if (shift + bits > 64) {
+                value |= words[word + 1] << (64 - shift);
+            }
+            return (int) (value & mask);
+        }
+
+        /**
+         * Unpacks a range of values, walking the words in order and reading
+         * each one once.
+         */
+        private void unpack(int from, int[] dest, int offset, int count) {
+            if (bits == 0 || count == 0) {
+                Arrays.fill(dest, offset, offset + count, 0);
+                return;
+            }
+            long bit = (long) from * bits;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long current = words[word];
+            for (int i = offset, end = offset + count; i < end; i++) {
+                long value = current >>> shift;
+                shift += bits;
+                if (shift >= 64) {
+                    // the rest of the value, if any, starts the next word
+                    shift -= 64;
+                    word++;
+                    current = word < words.length ? words[word] : 0;
+                    if (shift > 0) {
+                        value |= current << (bits - shift);
+                    }
+                }
+                dest[i] = (int) (value & mask);
+            }
+        }
+
+        private long estimateBytes() {
+            return 32 + arrayBytes(8L * words.length);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class EncodedReadingsTest {
+    private int[] readings;
+
+    @Before
+    public void setUp() {
+        readings = new int[200];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 400 + (i / 10) % 7 * 3;
+        }
+    }
+
+    private void assertSameReadings(EncodedReadings encoded) {
+        Assert.assertEquals(readings.length, encoded.length());
+        for (int i = 0; i < readings.length; i++) {
+            Assert.assertEquals(readings[i], encoded.get(i));
+        }
+        Assert.assertArrayEquals(readings, encoded.toArray());
+    }
+
+    @Test
+    public void runLength() {
+        assertSameReadings(EncodedReadings.runLength(readings));
+    }
+
+    @Test
+    public void delta() {
+        assertSameReadings(EncodedReadings.delta(readings));
+    }
+
+    @Test
+    public void frameOfReference() {
+        assertSameReadings(EncodedReadings.frameOfReference(readings));
+    }
+
+    @Test
+    public void decodeRange() {
+        int[] dest = new int[52];
+        EncodedReadings.delta(readings).decode(70, dest, 1, 50);
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(readings[70 + i], dest[i + 1]);
+        }
+    }
+
+    @Test
+    public void getMinimum() {
+        Assert.assertEquals(400,
+                EncodedReadings.encode(readings).getMinimum());
+    }
+
+    @Test
+    public void sensorFromEncoded() {
+        NoiseSensor sensor = NoiseSensor.of(
+                EncodedReadings.runLength(new int[]{40, 40, 90}), 1);
+        sensor.elapseOneMinute();
+        sensor.elapseOneMinute();
+        Assert.assertEquals(90, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void decodeEveryWidth() {
+        Random random = new Random(3);
+        for (int bits = 0; bits < 31; bits++) {
+            int[] values = new int[300];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = bits == 0 ? 7 : 7 + random.nextInt(1 << bits);
+            }
+            EncodedReadings[] encodings = {
+                    EncodedReadings.frameOfReference(values),
+                    EncodedReadings.delta(values)};
+            for (EncodedReadings encoded : encodings) {
+                Assert.assertArrayEquals(values, encoded.toArray());
+                for (int from : new int[]{0, 1, 63, 64, 65, 299}) {
+                    int count = Math.min(97, values.length - from);
+                    int[] dest = new int[count + 2];
+                    encoded.decode(from, dest, 2, count);
+                    for (int i = 0; i < count; i++) {
+                        Assert.assertEquals(values[from + i], dest[2 + i]);
+                        Assert.assertEquals(values[from + i],
+                                encoded.get(from + i));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package bms.building;
+
+/**
+ * An estimate of how long it would take to evacuate a building, or the rooms
+ * of one type within it, given the occupancy at the time of the estimate.
+ *
+ * All times are in seconds from the start of the evacuation.
+ */
+public class EvacuationEstimate {
+    private int[] floorNumbers;
+    private long[] headcounts;
+    private double[] egressTimes;
+    private int[] bottlenecks;
+
+    /**
+     * Creates a new estimate.
+     *
+     * @param floorNumbers floor numbers, lowest floor first
+     * @param headcounts   number of people evacuating from each floor
+     * @param egressTimes  time for the last person on each floor to leave the
+     *                     building
+     * @param bottlenecks  floor number of the stair or exit limiting each
+     *                     floor, see getBottleneck(int)
+     */
+    public EvacuationEstimate(int[] floorNumbers, long[] headcounts,
+                              double[] egressTimes, int[] bottlenecks) {
+        this.floorNumbers = floorNumbers;
+        this.headcounts = headcounts;
+        this.egressTimes = egressTimes;
+        this.bottlenecks = bottlenecks;
+    }
+
+    /**
+     * Returns the total number of people evacuating.
+     *
+     * @return headcount across all floors
+     */
+    public long getHeadcount() {
+        long total = 0;
+        for (long headcount : headcounts) {
+            total += headcount;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of people evacuating from the given floor.
+     *
+     * @param floorNumber floor to look up
+     * @return headcount; 0 if the floor is not in the estimate
+     */
+    public long getHeadcount(int floorNumber) {
+        int index = indexOf(floorNumber);
+        return index < 0 ? 0 : headcounts[index];
+    }
+
+    /**
+     * Returns the time for the last person on the given floor to leave the
+     * building.
+     *
+     * @param floorNumber floor to look up
+     * @return egress time in seconds; 0 if nobody is evacuating from the
+     *         floor or the floor is not in the estimate
+     */
+    public double getEgressTime(int floorNumber) {
+        int index = indexOf(floorNumber);
+        return index < 0 ? 0 : egressTimes[index];
+    }
+
+    /**
+     * Returns the floor number of the stair or exit that people on the given
+     * floor spend longest queuing for. The stair from a floor leads down to
+     * the floor below it; the exit is on the lowest floor, so the lowest
+     * floor's number means the exit.
+     *
+     * @param floorNumber floor to look up
+     * @return floor number of the bottleneck; 0 if nobody is evacuating from
+     *         the floor or the floor is not in the estimate
+     */
+    public int getBottleneck(int floorNumber) {
+        int index = indexOf(floorNumber);
+        return index < 0 ? 0 : bottlenecks[index];
+    }
+
+    /**
+     * Returns the time for the last person in the building to leave.
+     *
+     * @return total evacuation time in seconds
+     */
+    public double getTotalTime() {
+        double max = 0;
+        for (double time : egressTimes) {
+            max = Math.max(max, time);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the floor number of the slowest floor to evacuate.
+     *
+     * @return floor number; 0 if nobody is evacuating
+     */
+    public int getSlowestFloor() {
+        int slowest = 0;
+        double max = 0;
+        for (int i = 0; i < egressTimes.length; i++) {
+            if (egressTimes[i] > max) {
+                max = egressTimes[i];
+                slowest = floorNumbers[i];
+            }
+        }
+        return slowest;
+    }
+
+    private int indexOf(int floorNumber) {
+        for (int i = 0; i < floorNumbers.length; i++) {
+            if (floorNumbers[i] == floorNumber) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        int slowest = getSlowestFloor();
+        return String.format("EvacuationEstimate: headcount=%d, " +
+                        "totalTime=%.1fs, slowestFloor=%d, bottleneck=%d",
+                getHeadcount(), getTotalTime(), slowest,
+                getBottleneck(slowest));
+    }
+}
@@ -0,0 +1,50 @@
+package bms.building;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvacuationEstimateTest {
+    private EvacuationEstimate estimate() {
+        return new EvacuationEstimate(new int[]{1, 2, 3},
+                new long[]{4, 0, 6}, new double[]{10.5, 0, 42.25},
+                new int[]{1, 0, 2});
+    }
+
+    @Test
+    public void headcounts() {
+        EvacuationEstimate estimate = estimate();
+        Assert.assertEquals(10, estimate.getHeadcount());
+        Assert.assertEquals(4, estimate.getHeadcount(1));
+        Assert.assertEquals(0, estimate.getHeadcount(2));
+        Assert.assertEquals(6, estimate.getHeadcount(3));
+        Assert.assertEquals(0, estimate.getHeadcount(7));
+    }
+
+    @Test
+    public void slowestFloor() {
+        EvacuationEstimate estimate = estimate();
+        Assert.assertEquals(42.25, estimate.getTotalTime(), 1e-9);
+        Assert.assertEquals(3, estimate.getSlowestFloor());
+        Assert.assertEquals(2, estimate.getBottleneck(3));
+        Assert.assertEquals(10.5, estimate.getEgressTime(1), 1e-9);
+    }
+
+    @Test
+    public void unknownFloors() {
+        EvacuationEstimate estimate = estimate();
+        Assert.assertEquals(0, estimate.getEgressTime(7), 1e-9);
+        Assert.assertEquals(0, estimate.getBottleneck(7));
+    }
+
+    @Test
+    public void emptyEstimate() {
+        EvacuationEstimate estimate = new EvacuationEstimate(new int[0],
+                new long[0], new double[0], new int[0]);
+        Assert.assertEquals(0, estimate.getHeadcount());
+        Assert.assertEquals(0, estimate.getTotalTime(), 1e-9);
+        Assert.assertEquals(0, estimate.getSlowestFloor());
+        Assert.assertEquals("EvacuationEstimate: headcount=0, " +
+                "totalTime=0.0s, slowestFloor=0, bottleneck=0",
+                estimate.toString());
+    }
+}
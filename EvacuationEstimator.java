@@ -0,0 +1,323 @@
+package bms.building;
+
+import bms.exceptions.FireDrillException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps a running estimate of how long it would take to evacuate a building,
+ * based on the readings of the occupancy sensors in its rooms.
+ *
+ * The model is deliberately simple. Everyone on a floor walks to the stair,
+ * at a speed that drops as their rooms get more crowded, then descends one
+ * floor at a time to the exit on the lowest floor. Each stair and the exit
+ * let through a fixed number of people per second, so people queue wherever
+ * more arrive than can pass. People from lower floors are assumed to reach
+ * each stair first, so a floor only queues behind the floors beneath it.
+ *
+ * Headcounts are tracked per floor and room type, with rooms that have no
+ * type kept apart so that they only count towards whole-building estimates,
+ * as only a drill of every room evacuates them. They are updated from the
+ * ChangeFeed as occupancy readings change, so an estimate is always ready
+ * when a fire drill starts. Floors are scanned in parallel when the
+ * estimator is built or refreshed.
+ */
+public class EvacuationEstimator {
+    /* one slot per room type, then one for untyped rooms */
+    private static final int UNTYPED = RoomType.values().length;
+    private static final int TYPES = UNTYPED + 1;
+
+    /* walking speed on open floor, metres per second */
+    private static final double MAX_SPEED = 1.19;
+    /* density above which nobody can move, people per square metre */
+    private static final double MAX_DENSITY = 3.8;
+
+    private Building building;
+    private Consumer<ChangeBatch> listener;
+
+    private double stairFlow;
+    private double exitFlow;
+    private double descentTime;
+
+    /* per floor, lowest floor first */
+    private int[] floorNumbers;
+    private double[] distances;
+    /* per floor and room type, indexed by floor * TYPES + type */
+    private long[] headcounts;
+    private double[] areas;
+
+    /* per tracked occupancy sensor */
+    private Map<Sensor, Integer> sensorIndexes;
+    private int[] sensorFloors;
+    private int[] sensorTypes;
+    private int[] sensorReadings;
+
+    private volatile EvacuationEstimate current;
+
+    /**
+     * Creates an estimator for the given building and subscribes it to the
+     * change feed.
+     *
+     * @param building building to estimate evacuation times for
+     */
+    public EvacuationEstimator(Building building) {
+        this.building = building;
+        stairFlow = 1.1;
+        exitFlow = 2.2;
+        descentTime = 16;
+        refresh();
+        listener = this::apply;
+        ChangeFeed.getInstance().subscribe(listener);
+    }
+
+    /**
+     * Sets how many people per second can pass down the stair between two
+     * floors. Defaults to 1.1, about one metre of stair width.
+     *
+     * @param peoplePerSecond stair flow rate
+     * @throws IllegalArgumentException if peoplePerSecond is not positive
+     */
+    public synchronized void setStairFlow(double peoplePerSecond)
+            throws IllegalArgumentException {
+        if (!(peoplePerSecond > 0)) {
+            throw new IllegalArgumentException();
+        }
+        stairFlow = peoplePerSecond;
+        current = compute(-1);
+    }
+
+    /**
+     * Sets how many people per second can leave through the exit on the
+     * lowest floor. Defaults to 2.2.
+     *
+     * @param peoplePerSecond exit flow rate
+     * @throws IllegalArgumentException if peoplePerSecond is not positive
+     */
+    public synchronized void setExitFlow(double peoplePerSecond)
+            throws IllegalArgumentException {
+        if (!(peoplePerSecond > 0)) {
+            throw new IllegalArgumentException();
+        }
+        exitFlow = peoplePerSecond;
+        current = compute(-1);
+    }
+
+    /**
+     * Sets how long it takes to walk down the stair between two floors.
+     * Defaults to 16 seconds.
+     *
+     * @param seconds time to descend one floor
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public synchronized void setDescentTime(double seconds)
+            throws IllegalArgumentException {
+        if (!(seconds >= 0)) {
+            throw new IllegalArgumentException();
+        }
+        descentTime = seconds;
+        current = compute(-1);
+    }
+
+    /**
+     * Rebuilds the estimator from the building, picking up any floors, rooms
+     * or occupancy sensors added since it was last built. Called
+     * automatically when the change feed reports new floors or rooms.
+     */
+    public synchronized void refresh() {
+        List<Floor> floors = building.getFloorsView();
+        int floorCount = floors.size();
+        floorNumbers = new int[floorCount];
+        distances = new double[floorCount];
+        headcounts = new long[floorCount * TYPES];
+        areas = new double[floorCount * TYPES];
+
+        // each floor only writes its own slots
+        List<List<Room>> occupancyRooms = new ArrayList<>();
+        for (int i = 0; i < floorCount; i++) {
+            occupancyRooms.add(new ArrayList<>());
+        }
+        IntStream.range(0, floorCount).parallel().forEach(i -> {
+            Floor floor = floors.get(i);
+            floorNumbers[i] = floor.getFloorNumber();
+            // the farthest point of an open floor is about this far from
+            // a central stair
+            distances[i] = (floor.getWidth() + floor.getLength()) / 2;
+            for (Room room : floor.getRoomsView()) {
+                areas[i * TYPES + typeIndex(room)] += room.getArea();
+                if (room.getSensor("OccupancySensor") != null) {
+                    occupancyRooms.get(i).add(room);
+                }
+            }
+        });
+
+        sensorIndexes = new IdentityHashMap<>();
+        List<Integer> sensorFloorList = new ArrayList<>();
+        List<Integer> sensorTypeList = new ArrayList<>();
+        List<Integer> readingList = new ArrayList<>();
+        for (int i = 0; i < floorCount; i++) {
+            for (Room room : occupancyRooms.get(i)) {
+                Sensor sensor = room.getSensor("OccupancySensor");
+                int reading = sensor.getCurrentReading();
+                headcounts[i * TYPES + typeIndex(room)] += reading;
+                sensorIndexes.put(sensor, sensorFloorList.size());
+                sensorFloorList.add(i);
+                sensorTypeList.add(typeIndex(room));
+                readingList.add(reading);
+            }
+        }
+        sensorFloors = toArray(sensorFloorList);
+        sensorTypes = toArray(sensorTypeList);
+        sensorReadings = toArray(readingList);
+        current = compute(-1);
+    }
+
+    /**
+     * Returns the latest estimate for evacuating the whole building. Takes
+     * O(1) time.
+     *
+     * @return current estimate
+     */
+    public EvacuationEstimate estimate() {
+        return current;
+    }
+
+    /**
+     * Returns the latest estimate for evacuating the rooms of the given type,
+     * as a fire drill of that type would. Takes O(floors) time.
+     *
+     * @param roomType type of room to evacuate; null for every room
+     * @return current estimate
+     */
+    public synchronized EvacuationEstimate estimate(RoomType roomType) {
+        return roomType == null ? current : compute(roomType.ordinal());
+    }
+
+    /**
+     * Starts a fire drill in the building and returns the estimate for it.
+     *
+     * @param roomType type of room to evacuate; null for every room
+     * @return estimate for the rooms being evacuated
+     * @throws FireDrillException if the building has no floors, or a floor
+     *                            has no rooms
+     */
+    public EvacuationEstimate fireDrill(RoomType roomType)
+            throws FireDrillException {
+        EvacuationEstimate estimate = estimate(roomType);
+        building.fireDrill(roomType);
+        return estimate;
+    }
+
+    /**
+     * Unsubscribes the estimator from the change feed. The last estimate is
+     * still available but is no longer updated.
+     */
+    public void close() {
+        ChangeFeed.getInstance().unsubscribe(listener);
+    }
+
+    /**
+     * Applies the occupancy changes of one tick.
+     */
+    private synchronized void apply(ChangeBatch batch) {
+        if (batch.isStructureChanged()) {
+            refresh();
+            return;
+        }
+        boolean changed = false;
+        for (Sensor sensor : batch.getAdvancedSensors()) {
+            Integer index = sensorIndexes.get(sensor);
+            if (index != null) {
+                int reading = sensor.getCurrentReading();
+                headcounts[sensorFloors[index] * TYPES + sensorTypes[index]]
+                        += reading - sensorReadings[index];
+                sensorReadings[index] = reading;
+                changed = true;
+            }
+        }
+        if (changed) {
+            current = compute(-1);
+        }
+    }
+
+    /**
+     * Works out the estimate for one room type, or for every type if type
+     * is negative.
+     *
+     * The last person on floor i leaves after walking to the stair,
+     * descending i floors and waiting at the slowest point on the way. The
+     * busiest stair is the lowest one, which carries everyone from floors
+     * 1 to i, while the exit also carries everyone on floor 0.
+     */
+    private EvacuationEstimate compute(int type) {
+        int floorCount = floorNumbers.length;
+        long[] floorHeadcounts = new long[floorCount];
+        double[] egressTimes = new double[floorCount];
+        int[] bottlenecks = new int[floorCount];
+
+        long below = 0;
+        for (int i = 0; i < floorCount; i++) {
+            long headcount = 0;
+            double area = 0;
+            for (int t = 0; t < TYPES; t++) {
+                if (type < 0 || t == type) {
+                    headcount += headcounts[i * TYPES + t];
+                    area += areas[i * TYPES + t];
+                }
+            }
+            floorHeadcounts[i] = headcount;
+            below += headcount;
+            if (headcount == 0) {
+                continue;
+            }
+
+            double exitQueue = below / exitFlow;
+            double stairQueue = i == 0 ? 0 :
+                    (below - floorHeadcounts[0]) / stairFlow;
+            egressTimes[i] = distances[i] / walkingSpeed(headcount, area) +
+                    i * descentTime + Math.max(exitQueue, stairQueue);
+            bottlenecks[i] = stairQueue > exitQueue ? floorNumbers[1]
+                    : floorNumbers[0];
+        }
+        return new EvacuationEstimate(floorNumbers, floorHeadcounts,
+                egressTimes, bottlenecks);
+    }
+
+    /**
+     * Returns the walking speed of people leaving rooms with the given total
+     * headcount and area, slowing linearly from MAX_SPEED once there is less
+     * than about two square metres each.
+     */
+    private static double walkingSpeed(long headcount, double area) {
+        double density = area > 0 ? headcount / area : MAX_DENSITY;
+        double speed = 1.4 * (1 - 0.266 * Math.min(density, MAX_DENSITY));
+        // never fully stopped, people do eventually get out
+        return Math.max(0.1, Math.min(MAX_SPEED, speed));
+    }
+
+    private static int typeIndex(Room room) {
+        RoomType type = room.getType();
+        return type == null ? UNTYPED : type.ordinal();
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "EvacuationEstimator: building=" + building.getName() +
+                ", floors=" + floorNumbers.length + ", sensors=" +
+                sensorReadings.length;
+    }
+}
@@ -0,0 +1,171 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.OccupancySensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class EvacuationEstimatorTest {
+    /* walking time to the stair of a 10 by 10 floor at full speed */
+    private static final double WALK = 10 / 1.19;
+
+    private Building building;
+    private Room office;
+    private Room lab;
+    private Room upstairs;
+    private OccupancySensor officeSensor;
+    private OccupancySensor labSensor;
+    private OccupancySensor upstairsSensor;
+    private EvacuationEstimator estimator;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        Floor ground = new Floor(1, 10, 10);
+        Floor first = new Floor(2, 10, 10);
+        building.addFloor(ground);
+        building.addFloor(first);
+        office = new Room(101, RoomType.OFFICE, 40);
+        lab = new Room(102, RoomType.LABORATORY, 40);
+        upstairs = new Room(201, RoomType.OFFICE, 80);
+        ground.addRoom​(office);
+        ground.addRoom​(lab);
+        first.addRoom​(upstairs);
+        officeSensor = new OccupancySensor(new int[]{6, 2}, 1, 50);
+        labSensor = new OccupancySensor(new int[]{4}, 1, 50);
+        upstairsSensor = new OccupancySensor(new int[]{22, 11}, 1, 50);
+        office.addSensor​(officeSensor);
+        lab.addSensor​(labSensor);
+        upstairs.addSensor​(upstairsSensor);
+        estimator = new EvacuationEstimator(building);
+    }
+
+    @After
+    public void tearDown() {
+        estimator.close();
+        TimedItemManager.getInstance().deregisterTimedItems(
+                List.of(officeSensor, labSensor, upstairsSensor));
+    }
+
+    @Test
+    public void queuesAtExitAndStair() {
+        EvacuationEstimate estimate = estimator.estimate();
+        Assert.assertEquals(32, estimate.getHeadcount());
+        Assert.assertEquals(10, estimate.getHeadcount(1));
+        // ground floor people only queue at the exit
+        Assert.assertEquals(WALK + 10 / 2.2, estimate.getEgressTime(1),
+                1e-9);
+        Assert.assertEquals(1, estimate.getBottleneck(1));
+        // 22 through the stair is slower than 32 through the exit
+        Assert.assertEquals(WALK + 16 + 22 / 1.1, estimate.getEgressTime(2),
+                1e-9);
+        Assert.assertEquals(2, estimate.getBottleneck(2));
+        Assert.assertEquals(2, estimate.getSlowestFloor());
+    }
+
+    @Test
+    public void exitBottleneckWithFasterStair() {
+        estimator.setStairFlow(10);
+        estimator.setDescentTime(0);
+        EvacuationEstimate estimate = estimator.estimate();
+        Assert.assertEquals(WALK + 32 / 2.2, estimate.getEgressTime(2),
+                1e-9);
+        Assert.assertEquals(1, estimate.getBottleneck(2));
+    }
+
+    @Test
+    public void crowdingSlowsWalking() throws Exception {
+        Room cupboard = new Room(202, RoomType.STUDY, Room.getMinArea());
+        building.getFloorByNumber(2).addRoom​(cupboard);
+        OccupancySensor sensor = new OccupancySensor(new int[]{40}, 1, 50);
+        cupboard.addSensor​(sensor);
+        try {
+            estimator.refresh();
+            EvacuationEstimate study = estimator.estimate(RoomType.STUDY);
+            Assert.assertEquals(40, study.getHeadcount());
+            // far above the density at which nobody moves
+            Assert.assertEquals(10 / 0.1 + 16 + 40 / 1.1,
+                    study.getEgressTime(2), 1e-9);
+        } finally {
+            TimedItemManager.getInstance().deregisterTimedItems(
+                    List.of(sensor));
+        }
+    }
+
+    @Test
+    public void updatesFromFeed() {
+        TimedItemManager.getInstance().elapseOneMinute();
+        EvacuationEstimate estimate = estimator.estimate();
+        Assert.assertEquals(17, estimate.getHeadcount());
+        Assert.assertEquals(6, estimate.getHeadcount(1));
+        Assert.assertEquals(11, estimate.getHeadcount(2));
+        Assert.assertEquals(WALK + 16 + 11 / 1.1, estimate.getEgressTime(2),
+                1e-9);
+    }
+
+    @Test
+    public void picksUpNewRooms() throws Exception {
+        Room study = new Room(203, RoomType.STUDY, 20);
+        building.getFloorByNumber(2).addRoom​(study);
+        OccupancySensor sensor = new OccupancySensor(new int[]{5}, 1, 50);
+        study.addSensor​(sensor);
+        try {
+            TimedItemManager.getInstance().elapseOneMinute();
+            Assert.assertEquals(22, estimator.estimate().getHeadcount());
+            Assert.assertEquals(5,
+                    estimator.estimate(RoomType.STUDY).getHeadcount());
+        } finally {
+            TimedItemManager.getInstance().deregisterTimedItems(
+                    List.of(sensor));
+        }
+    }
+
+    @Test
+    public void estimatesByType() {
+        EvacuationEstimate labs = estimator.estimate(RoomType.LABORATORY);
+        Assert.assertEquals(4, labs.getHeadcount());
+        Assert.assertEquals(0, labs.getHeadcount(2));
+        Assert.assertEquals(WALK + 4 / 2.2, labs.getEgressTime(1), 1e-9);
+        Assert.assertEquals(28,
+                estimator.estimate(RoomType.OFFICE).getHeadcount());
+        Assert.assertSame(estimator.estimate(), estimator.estimate(null));
+    }
+
+    @Test
+    public void untypedRoomsOnlyCountForWholeBuilding() throws Exception {
+        Room corridor = new Room(103, null, 10);
+        building.getFloorByNumber(1).addRoom​(corridor);
+        OccupancySensor sensor = new OccupancySensor(new int[]{3}, 1, 50);
+        corridor.addSensor​(sensor);
+        try {
+            estimator.refresh();
+            Assert.assertEquals(35, estimator.estimate().getHeadcount());
+            Assert.assertEquals(6,
+                    estimator.estimate(RoomType.OFFICE).getHeadcount(1));
+        } finally {
+            TimedItemManager.getInstance().deregisterTimedItems(
+                    List.of(sensor));
+        }
+    }
+
+    @Test
+    public void fireDrillOfType() throws Exception {
+        EvacuationEstimate estimate = estimator.fireDrill(RoomType.OFFICE);
+        Assert.assertEquals(28, estimate.getHeadcount());
+        Assert.assertTrue(office.fireDrillOngoing());
+        Assert.assertTrue(upstairs.fireDrillOngoing());
+        Assert.assertFalse(lab.fireDrillOngoing());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroFlow() {
+        estimator.setExitFlow(0);
+    }
+}
@@ -2,18 +2,41 @@ package bms.floor;
 
 import bms.exceptions.*;
 import bms.room.*;
-import bms.util.FireDrill;
-import java.util.ArrayList;
-import java.util.List;
+import bms.sensors.Sensor;
+import bms.util.BatchResult;
+import bms.util.BatchStatus;
+import bms.util.ChangeFeed;
+import bms.util.IndexedList;
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.*;
 
 /**
  * Represents a floor of a building.
  */
-public class Floor implements FireDrill {
+public class Floor implements FloorInfo {
+    private static final MetricTimer ADD_ROOM_TIMER =
+            Metrics.timer("Floor.addRoom");
+    private static final MetricTimer ADD_ROOMS_TIMER =
+            Metrics.timer("Floor.addRooms");
+    private static final MetricTimer FIRE_DRILL_TIMER =
+            Metrics.timer("Floor.fireDrill");
+    private static final MetricTimer CANCEL_FIRE_DRILL_TIMER =
+            Metrics.timer("Floor.cancelFireDrill");
+
     private int floorNumber;
     private double width;
     private double length;
-    private List<Room> rooms;
+    private IndexedList<Room> rooms;
+    private Map<Integer, Room> roomIndex;
+    private FloorLayout layout;
+    private int[] roomTypeCounts;
+    /* total area of the rooms on the floor */
+    private double occupiedArea;
+    private String description;
+    private int modCount;
 
     /**
      * Creates a new floor with the given floor number.
@@ -27,7 +50,9 @@ public class Floor implements FireDrill {
         this.floorNumber = floorNumber;
         this.width = width;
         this.length = length;
-        rooms = new ArrayList<>();
+        rooms = new IndexedList<>();
+        roomIndex = new HashMap<>();
+        roomTypeCounts = new int[RoomType.values().length];
     }
 
     /**
@@ -66,6 +91,27 @@ public class Floor implements FireDrill {
         return new ArrayList<>(rooms);
     }
 
+    /**
+     * Returns a read-only view of the rooms on this floor. Unlike getRooms(),
+     * no copy is made, so the view reflects any rooms added later.
+     *
+     * @return unmodifiable view of the rooms on the floor
+     */
+    public List<Room> getRoomsView() {
+        return Collections.unmodifiableList(rooms);
+    }
+
+    /**
+     * Returns the number of rooms of the given type on this floor. Rooms
+     * created with no type are not counted.
+     *
+     * @param type type of room to count
+     * @return number of rooms of that type
+     */
+    public int getRoomCount(RoomType type) {
+        return roomTypeCounts[type.ordinal()];
+    }
+
     /**
      * Returns width of the floor.
      *
@@ -91,12 +137,7 @@ public class Floor implements FireDrill {
      * @return room with the given number if found; null if not found
      */
     public Room getRoomByNumber​(int roomNumber) {
-        for (Room room : rooms) {
-            if (room.getRoomNumber() == roomNumber) {
-                return room;
-            }
-        }
-        return null;
+        return roomIndex.get(roomNumber);
     }
 
     /**
@@ -110,21 +151,21 @@ public class Floor implements FireDrill {
 
     /**
      * Calculates the area of the floor which is currently occupied by all
-     * the rooms on the floor.
+     * the rooms on the floor. The total is kept as rooms are added, removed
+     * and moved, so takes O(1) time.
      *
      * @return area of floor that is currently occupied, in square metres
      */
     public float occupiedArea() {
-        double total = 0;
-        for (Room room : rooms) {
-            total += room.getArea();
-        }
-        return (float) total;
+        return (float) occupiedArea;
     }
 
     /**
      * Adds a room to the floor.
      *
+     * If placement is enabled, the room is also given a rectangle on the
+     * floor and is only added if such a rectangle can be found.
+     *
      * @param newRoom object representing the new room
      * @throws IllegalArgumentException   if area is less than Room.getMinArea()
      * @throws DuplicateRoomException     if the room number on this floor is
@@ -135,28 +176,384 @@ public class Floor implements FireDrill {
      */
     public void addRoom​(Room newRoom) throws DuplicateRoomException,
                                               InsufficientSpaceException {
-        if (newRoom.getArea() < Room.getMinArea()) {
-            // if the room is too small
+        long start = ADD_ROOM_TIMER.start();
+        try {
+            if (newRoom.getArea() < Room.getMinArea()) {
+                // if the room is too small
+                throw new IllegalArgumentException();
+            } else if (getRoomByNumber​(newRoom.getRoomNumber()) != null) {
+                // if the room already exists
+                throw new DuplicateRoomException();
+            } else if ((calculateArea() - occupiedArea())
+                    < newRoom.getArea()) {
+                // if there is not enough space left on the floor to fit the
+                // room
+                throw new InsufficientSpaceException();
+            } else if (layout != null && layout.place(newRoom) == null) {
+                // if no free rectangle on the floor can hold the room
+                throw new InsufficientSpaceException();
+            } else {
+                rooms.add(newRoom);
+                roomIndex.put(newRoom.getRoomNumber(), newRoom);
+                countType(newRoom, 1);
+                description = null;
+                modCount++;
+                TimedItemManager.getInstance().topologyChanged();
+                ChangeFeed feed = ChangeFeed.getInstance();
+                if (feed.isRecording()) {
+                    feed.roomAdded(newRoom);
+                }
+            }
+        } finally {
+            ADD_ROOM_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Adds a batch of rooms to the floor, either all of them or none.
+     *
+     * Rooms are validated against the same rules as addRoom(Room), but
+     * instead of throwing, each room is given a status in the returned
+     * result: INVALID if it is null or smaller than Room.getMinArea(),
+     * DUPLICATE if its number is already taken on the floor or earlier in
+     * the batch, and INSUFFICIENT_SPACE if the floor fills up before it (or,
+     * in placement mode, if no rectangle can be found for it).
+     *
+     * @param newRooms rooms to add
+     * @return status of each room; committed only if every room is OK
+     */
+    public BatchResult addRooms(Room[] newRooms) {
+        long start = ADD_ROOMS_TIMER.start();
+        try {
+            return addRoomBatch(newRooms);
+        } finally {
+            ADD_ROOMS_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Validates and adds a batch of rooms, as described by addRooms(Room[]).
+     */
+    private BatchResult addRoomBatch(Room[] newRooms) {
+        BatchStatus[] statuses = new BatchStatus[newRooms.length];
+        Set<Integer> taken = new HashSet<>(roomIndex.keySet());
+        double free = calculateArea() - occupiedArea();
+        double added = 0;
+        boolean valid = true;
+
+        for (int i = 0; i < newRooms.length; i++) {
+            Room room = newRooms[i];
+            if (room == null || room.getArea() < Room.getMinArea()) {
+                statuses[i] = BatchStatus.INVALID;
+            } else if (!taken.add(room.getRoomNumber())) {
+                statuses[i] = BatchStatus.DUPLICATE;
+            } else if (free - added < room.getArea()) {
+                statuses[i] = BatchStatus.INSUFFICIENT_SPACE;
+            } else {
+                added += room.getArea();
+                statuses[i] = BatchStatus.OK;
+                continue;
+            }
+            valid = false;
+        }
+
+        if (valid && layout != null) {
+            List<Room> unplaced = layout.placeAll(Arrays.asList(newRooms));
+            Set<Room> unplacedSet = Collections.newSetFromMap(
+                    new IdentityHashMap<>());
+            unplacedSet.addAll(unplaced);
+            for (int i = 0; i < newRooms.length; i++) {
+                if (unplacedSet.contains(newRooms[i])) {
+                    statuses[i] = BatchStatus.INSUFFICIENT_SPACE;
+                    valid = false;
+                }
+            }
+        }
+        if (valid) {
+            rooms.addAll(Arrays.asList(newRooms));
+            ChangeFeed feed = ChangeFeed.getInstance();
+            boolean recording = feed.isRecording();
+            for (Room room : newRooms) {
+                roomIndex.put(room.getRoomNumber(), room);
+                countType(room, 1);
+                if (recording) {
+                    feed.roomAdded(room);
+                }
+            }
+            description = null;
+            modCount++;
+            TimedItemManager.getInstance().topologyChanged();
+        }
+        return new BatchResult(statuses);
+    }
+
+    /**
+     * Removes the room with the given number from the floor. Its timed
+     * sensors are no longer updated from the start of the next tick.
+     *
+     * The room is found through an index of room numbers, and taken out of
+     * the floor's list of rooms in O(log n) time, keeping the order of the
+     * rest.
+     *
+     * @param roomNumber number of the room to remove
+     * @return the room removed; null if there is no room with the number
+     */
+    public Room removeRoom(int roomNumber) {
+        Room room = roomIndex.get(roomNumber);
+        if (room != null) {
+            rooms.remove(room);
+            detach(room);
+            retireSensors(List.of(room));
+        }
+        return room;
+    }
+
+    /**
+     * Removes every room with one of the given numbers from the floor, in a
+     * single pass over the floor's rooms. Numbers with no room are ignored.
+     *
+     * @param roomNumbers numbers of the rooms to remove
+     * @return new list of the rooms removed, in floor order
+     */
+    public List<Room> removeRooms(Collection<Integer> roomNumbers) {
+        Set<Room> removed = identitySet(roomNumbers);
+        List<Room> result = new ArrayList<>(removed.size());
+        rooms.removeIf(room -> {
+            if (removed.contains(room)) {
+                result.add(room);
+                return true;
+            }
+            return false;
+        });
+        for (Room room : result) {
+            detach(room);
+        }
+        retireSensors(result);
+        return result;
+    }
+
+    /**
+     * Moves the room with the given number to another floor, along with its
+     * sensors and fire drill status. The room is checked against the same
+     * rules as destination.addRoom(Room); if it cannot be added there,
+     * neither floor is changed.
+     *
+     * @param roomNumber  number of the room to move
+     * @param destination floor to move the room to
+     * @throws IllegalArgumentException   if there is no room with the number
+     *                                    on this floor, or destination is
+     *                                    this floor
+     * @throws DuplicateRoomException     if the room number is already taken
+     *                                    on the destination floor
+     * @throws InsufficientSpaceException if there is not enough space on the
+     *                                    destination floor for the room
+     */
+    public void moveRoom(int roomNumber, Floor destination)
+            throws DuplicateRoomException, InsufficientSpaceException {
+        Room room = roomIndex.get(roomNumber);
+        if (room == null || destination == this) {
             throw new IllegalArgumentException();
-        } else if (getRoomByNumber​(newRoom.getRoomNumber()) != null) {
-            // if the room already exists
-            throw new DuplicateRoomException();
-        } else if ((calculateArea() - occupiedArea()) < newRoom.getArea()) {
-            // if there is not enough space left on the floor to fit the room
+        }
+        destination.addRoom​(room);
+        rooms.remove(room);
+        detach(room);
+        TimedItemManager.getInstance().topologyChanged();
+    }
+
+    /**
+     * Moves the rooms with the given numbers to another floor, either all of
+     * them or none, as with moveRoom(int, Floor).
+     *
+     * The rooms are added to the destination with
+     * destination.addRooms(Room[]), and are given the same statuses, except
+     * that a number with no room on this floor is INVALID.
+     *
+     * @param roomNumbers numbers of the rooms to move
+     * @param destination floor to move the rooms to
+     * @return status of each room; committed only if every room is OK
+     * @throws IllegalArgumentException if destination is this floor
+     */
+    public BatchResult moveRooms(int[] roomNumbers, Floor destination) {
+        if (destination == this) {
+            throw new IllegalArgumentException();
+        }
+        Room[] moving = new Room[roomNumbers.length];
+        for (int i = 0; i < roomNumbers.length; i++) {
+            moving[i] = roomIndex.get(roomNumbers[i]);
+        }
+        BatchResult result = destination.addRooms(moving);
+        if (result.isCommitted()) {
+            Set<Room> moved = Collections.newSetFromMap(
+                    new IdentityHashMap<>());
+            moved.addAll(Arrays.asList(moving));
+            rooms.removeIf(moved::contains);
+            for (Room room : moving) {
+                detach(room);
+            }
+            TimedItemManager.getInstance().topologyChanged();
+        }
+        return result;
+    }
+
+    /**
+     * Places every room on the floor again, largest first, so that space
+     * freed by removed rooms is merged back together. Rooms may be given
+     * different rectangles.
+     *
+     * Has no effect if placement is disabled.
+     *
+     * @return true if the rooms were repacked; false if placement is
+     *         disabled or the rooms could not all be placed again, in which
+     *         case every room keeps its rectangle
+     */
+    public boolean compactLayout() {
+        if (layout == null) {
+            return false;
+        }
+        FloorLayout newLayout = new FloorLayout(width, length);
+        if (!newLayout.placeAll(rooms).isEmpty()) {
+            return false;
+        }
+        layout = newLayout;
+        return true;
+    }
+
+    /**
+     * Returns the number of times rooms have been added to, removed from or
+     * moved off the floor, so that anything derived from its rooms can tell
+     * whether it is out of date.
+     *
+     * @return modification count of the floor
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Adds delta to the count of rooms of the given room's type, and the
+     * room's area delta times to the occupied area. Rooms with no type are
+     * not counted under any type.
+     */
+    private void countType(Room room, int delta) {
+        if (room.getType() != null) {
+            roomTypeCounts[room.getType().ordinal()] += delta;
+        }
+        // starts again from exactly zero so rounding never builds up
+        occupiedArea = rooms.isEmpty() ? 0
+                : occupiedArea + delta * room.getArea();
+    }
+
+    /**
+     * Updates the floor's indexes for a room which has been taken out of
+     * its list of rooms.
+     */
+    private void detach(Room room) {
+        roomIndex.remove(room.getRoomNumber());
+        countType(room, -1);
+        if (layout != null) {
+            layout.remove(room.getRoomNumber());
+        }
+        description = null;
+        modCount++;
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (feed.isRecording()) {
+            feed.roomRemoved(room);
+        }
+    }
+
+    /**
+     * Returns a new set of the rooms with the given numbers, compared by
+     * identity.
+     */
+    private Set<Room> identitySet(Collection<Integer> roomNumbers) {
+        Set<Room> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Integer roomNumber : roomNumbers) {
+            Room room = roomIndex.get(roomNumber);
+            if (room != null) {
+                set.add(room);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Retires the timed sensors of the given rooms, which have been removed
+     * from the building.
+     *
+     * @param removed rooms removed from the floor
+     */
+    private static void retireSensors(Collection<Room> removed) {
+        List<TimedItem> items = new ArrayList<>();
+        for (Room room : removed) {
+            for (Sensor sensor : room.getSensorsView()) {
+                if (sensor instanceof TimedItem) {
+                    items.add((TimedItem) sensor);
+                }
+            }
+        }
+        if (!items.isEmpty()) {
+            TimedItemManager.getInstance().retireTimedItems(items);
+        }
+    }
+
+    /**
+     * Enables placement mode, where every room is given a rectangle within
+     * the bounds of the floor. Rooms already on the floor are placed
+     * immediately, largest first.
+     *
+     * Has no effect if placement is already enabled.
+     *
+     * @throws InsufficientSpaceException if the rooms already on the floor
+     *                                    cannot all be placed, in which case
+     *                                    placement remains disabled
+     */
+    public void enablePlacement() throws InsufficientSpaceException {
+        if (layout != null) {
+            return;
+        }
+        FloorLayout newLayout = new FloorLayout(width, length);
+        if (!newLayout.placeAll(rooms).isEmpty()) {
             throw new InsufficientSpaceException();
-        } else {
-            rooms.add(newRoom);
         }
+        layout = newLayout;
+    }
+
+    /**
+     * Returns whether placement mode is enabled for this floor.
+     *
+     * @return true if rooms are given rectangles on the floor
+     */
+    public boolean isPlacementEnabled() {
+        return layout != null;
+    }
+
+    /**
+     * Returns the rectangle occupied by the room with the given number.
+     *
+     * @param roomNumber number of the room to look up
+     * @return placement of the room; null if placement is disabled or there
+     *         is no such room
+     */
+    public RoomPlacement getPlacement(int roomNumber) {
+        if (layout == null) {
+            return null;
+        }
+        return layout.getPlacement(roomNumber);
     }
 
     @Override
     public void fireDrill(RoomType roomType) {
-        for (Room room : rooms) {
-            if (roomType == null) {
-                room.setFireDrill​(true);
-            } else if (room.getType() == roomType) {
-                room.setFireDrill​(true);
+        long start = FIRE_DRILL_TIMER.start();
+        try {
+            for (Room room : rooms) {
+                if (roomType == null) {
+                    room.setFireDrill​(true);
+                } else if (room.getType() == roomType) {
+                    room.setFireDrill​(true);
+                }
             }
+        } finally {
+            FIRE_DRILL_TIMER.stop(start);
         }
     }
 
@@ -164,19 +561,29 @@ public class Floor implements FireDrill {
      * Cancels any ongoing fire drill in rooms on the floor.
      */
     public void cancelFireDrill() {
-        for (Room room : rooms) {
-            if (room.fireDrillOngoing()) {
-                room.setFireDrill​(false);
-            } else {
-                return;
+        long start = CANCEL_FIRE_DRILL_TIMER.start();
+        try {
+            for (Room room : rooms) {
+                if (room.fireDrillOngoing()) {
+                    room.setFireDrill​(false);
+                } else {
+                    return;
+                }
             }
+        } finally {
+            CANCEL_FIRE_DRILL_TIMER.stop(start);
         }
     }
 
     @Override
     public String toString() {
-        return "Floor #" + floorNumber + ": width=" +
-                String.format("%.2f", width) + "m, " + "length" + "=" +
-                String.format("%.2f", length) + "m, rooms=" + rooms.size();
+        if (description == null) {
+            // cached until a room is added or removed
+            description = "Floor #" + floorNumber + ": width=" +
+                    String.format("%.2f", width) + "m, " + "length" + "=" +
+                    String.format("%.2f", length) + "m, rooms=" +
+                    rooms.size();
+        }
+        return description;
     }
 }
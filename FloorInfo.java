@@ -0,0 +1,69 @@
+package bms.floor;
+
+import bms.room.RoomInfo;
+import bms.room.RoomType;
+import bms.util.FireDrill;
+import java.util.List;
+
+/**
+ * The read-only view of a floor shared by Floor and by floors held outside
+ * the heap in a TopologyStore, along with fire drills on its rooms.
+ */
+public interface FloorInfo extends FireDrill {
+
+    /**
+     * Returns the floor number of this floor.
+     *
+     * @return floor number
+     */
+    int getFloorNumber();
+
+    /**
+     * Returns the width of the floor.
+     *
+     * @return floor width in metres
+     */
+    double getWidth();
+
+    /**
+     * Returns the length of the floor.
+     *
+     * @return floor length in metres
+     */
+    double getLength();
+
+    /**
+     * Calculates the area of the floor in square metres.
+     *
+     * @return area of floor in square metres
+     */
+    double calculateArea();
+
+    /**
+     * Calculates the area of the floor which is currently occupied by all
+     * the rooms on the floor.
+     *
+     * @return area of floor that is currently occupied, in square metres
+     */
+    float occupiedArea();
+
+    /**
+     * Returns the number of rooms of the given type on the floor.
+     *
+     * @param type type of room to count
+     * @return number of rooms of that type
+     */
+    int getRoomCount(RoomType type);
+
+    /**
+     * Returns the rooms on the floor, in the order they were added.
+     *
+     * @return unmodifiable list of rooms
+     */
+    List<? extends RoomInfo> getRoomsView();
+
+    /**
+     * Cancels any ongoing fire drill in rooms on the floor.
+     */
+    void cancelFireDrill();
+}
@@ -0,0 +1,223 @@
+package bms.floor;
+
+import bms.room.Room;
+import java.util.*;
+
+/**
+ * Assigns each room on a floor a rectangle within the floor's bounds.
+ *
+ * Free space is kept as a set of disjoint rectangles ordered by area. A room
+ * is placed into the smallest free rectangle that can hold it and the rest of
+ * that rectangle is split in two (guillotine packing). No room is placed,
+ * and no free rectangle kept, with a side shorter than that of the smallest
+ * allowed square room, so leftover strips too narrow to use are given up
+ * rather than filled with slivers. Rooms have no fixed shape, so with every
+ * side that long a free rectangle can hold any room with an area no larger
+ * than its own, which lets "can this room fit" be answered in logarithmic
+ * time.
+ */
+public class FloorLayout {
+    /* tolerance used when comparing areas and lengths */
+    private static final double EPSILON = 1e-9;
+    /* shortest side of the smallest allowed (square) room */
+    private static final double MIN_SIDE = Math.sqrt(Room.getMinArea());
+
+    private double width;
+    private double length;
+    private TreeSet<FreeRectangle> freeSpace;
+    private Map<Integer, RoomPlacement> placements;
+    private long nextId;
+
+    /**
+     * Creates a new empty layout for a floor of the given size.
+     *
+     * @param width  width of the floor in metres
+     * @param length length of the floor in metres
+     */
+    public FloorLayout(double width, double length) {
+        this.width = width;
+        this.length = length;
+        freeSpace = new TreeSet<>();
+        placements = new HashMap<>();
+        freeSpace.add(new FreeRectangle(0, 0, width, length, nextId++));
+    }
+
+    /**
+     * Creates a copy of the given layout which can be changed without
+     * affecting the original.
+     *
+     * @param other layout to copy
+     */
+    public FloorLayout(FloorLayout other) {
+        width = other.width;
+        length = other.length;
+        freeSpace = new TreeSet<>(other.freeSpace);
+        placements = new HashMap<>(other.placements);
+        nextId = other.nextId;
+    }
+
+    /**
+     * Returns whether a room of the given area can currently be placed.
+     *
+     * @param area area of the room in square metres
+     * @return true if there is a free rectangle large enough for the room
+     */
+    public boolean canFit(double area) {
+        return findSpace(area) != null;
+    }
+
+    /**
+     * Returns the placement of the room with the given number.
+     *
+     * @param roomNumber number of the room to look up
+     * @return placement of the room; null if the room has not been placed
+     */
+    public RoomPlacement getPlacement(int roomNumber) {
+        return placements.get(roomNumber);
+    }
+
+    /**
+     * Places a single room into the smallest free rectangle that can hold it.
+     *
+     * @param room room to place
+     * @return placement given to the room; null if it does not fit, in which
+     *         case the layout is unchanged
+     */
+    public RoomPlacement place(Room room) {
+        FreeRectangle space = findSpace(room.getArea());
+        if (space == null) {
+            return null;
+        }
+        freeSpace.remove(space);
+
+        double area = room.getArea();
+        // as close to square as the free rectangle allows, unless that would
+        // leave a strip too narrow to ever hold another room
+        double roomWidth = Math.min(space.width,
+                Math.max(Math.sqrt(area), area / space.length));
+        if (space.width - roomWidth < MIN_SIDE) {
+            roomWidth = space.width;
+        } else if (space.length - area / roomWidth < MIN_SIDE) {
+            roomWidth = Math.min(space.width, area / space.length);
+        }
+        // but never so narrow or so long that either side is below MIN_SIDE
+        roomWidth = Math.max(roomWidth, Math.max(MIN_SIDE,
+                area / space.length));
+        roomWidth = Math.min(roomWidth, Math.min(space.width,
+                area / MIN_SIDE));
+        double roomLength = Math.min(space.length, area / roomWidth);
+        RoomPlacement placement = new RoomPlacement(space.x, space.y,
+                roomWidth, roomLength);
+        placements.put(room.getRoomNumber(), placement);
+
+        double rightWidth = space.width - roomWidth;
+        double belowLength = space.length - roomLength;
+        // split so that the larger leftover rectangle is as big as possible
+        if (rightWidth * space.length >= space.width * belowLength) {
+            addFreeSpace(space.x + roomWidth, space.y, rightWidth,
+                    space.length);
+            addFreeSpace(space.x, space.y + roomLength, roomWidth,
+                    belowLength);
+        } else {
+            addFreeSpace(space.x + roomWidth, space.y, rightWidth,
+                    roomLength);
+            addFreeSpace(space.x, space.y + roomLength, space.width,
+                    belowLength);
+        }
+        return placement;
+    }
+
+    /**
+     * Removes the placement of the room with the given number, returning
+     * its rectangle to the free space. Freed rectangles are not merged with
+     * their neighbours, so a floor that has had many rooms removed may be
+     * worth repacking with placeAll(Collection) on a new layout.
+     *
+     * @param roomNumber number of the room to remove
+     * @return placement the room had; null if it had not been placed
+     */
+    public RoomPlacement remove(int roomNumber) {
+        RoomPlacement placement = placements.remove(roomNumber);
+        if (placement != null) {
+            addFreeSpace(placement.getX(), placement.getY(),
+                    placement.getWidth(), placement.getLength());
+        }
+        return placement;
+    }
+
+    /**
+     * Places all of the given rooms, largest first, or none of them.
+     *
+     * @param rooms rooms to place
+     * @return new list of the rooms that did not fit; empty if every room was
+     *         placed, otherwise the layout is unchanged
+     */
+    public List<Room> placeAll(Collection<Room> rooms) {
+        List<Room> ordered = new ArrayList<>(rooms);
+        ordered.sort(Comparator.comparingDouble(Room::getArea).reversed());
+
+        FloorLayout trial = new FloorLayout(this);
+        List<Room> unplaced = new ArrayList<>();
+        for (Room room : ordered) {
+            if (trial.place(room) == null) {
+                unplaced.add(room);
+            }
+        }
+        if (unplaced.isEmpty()) {
+            freeSpace = trial.freeSpace;
+            placements = trial.placements;
+            nextId = trial.nextId;
+        }
+        return unplaced;
+    }
+
+    /**
+     * Returns the smallest free rectangle that can hold the given area.
+     *
+     * @param area area to find space for
+     * @return free rectangle; null if none is large enough
+     */
+    private FreeRectangle findSpace(double area) {
+        return freeSpace.ceiling(new FreeRectangle(0, 0, area - EPSILON, 1,
+                Long.MIN_VALUE));
+    }
+
+    /**
+     * Adds a rectangle of free space if it is wide and long enough to ever
+     * hold a room.
+     */
+    private void addFreeSpace(double x, double y, double width,
+                              double length) {
+        if (width >= MIN_SIDE - EPSILON && length >= MIN_SIDE - EPSILON) {
+            freeSpace.add(new FreeRectangle(x, y, width, length, nextId++));
+        }
+    }
+
+    /**
+     * A rectangle of unoccupied floor space, ordered by area.
+     */
+    private static class FreeRectangle implements Comparable<FreeRectangle> {
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double length;
+        private final double area;
+        private final long id;
+
+        private FreeRectangle(double x, double y, double width, double length,
+                              long id) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.length = length;
+            this.area = width * length;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(FreeRectangle other) {
+            int byArea = Double.compare(area, other.area);
+            return byArea != 0 ? byArea : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package bms.floor;
+
+import bms.room.Room;
+import bms.room.RoomType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FloorLayoutTest {
+    private static final double MIN_SIDE = Math.sqrt(Room.getMinArea());
+    private static final double EPSILON = 1e-6;
+
+    private static void assertSound(List<RoomPlacement> placed,
+                                    double width, double length) {
+        for (int i = 0; i < placed.size(); i++) {
+            RoomPlacement a = placed.get(i);
+            Assert.assertTrue(a.getWidth() >= MIN_SIDE - EPSILON);
+            Assert.assertTrue(a.getLength() >= MIN_SIDE - EPSILON);
+            Assert.assertTrue(a.getX() >= -EPSILON && a.getY() >= -EPSILON);
+            Assert.assertTrue(a.getX() + a.getWidth() <= width + EPSILON);
+            Assert.assertTrue(a.getY() + a.getLength() <= length + EPSILON);
+            for (int j = i + 1; j < placed.size(); j++) {
+                RoomPlacement b = placed.get(j);
+                boolean apart = a.getX() + a.getWidth() <= b.getX() + EPSILON
+                        || b.getX() + b.getWidth() <= a.getX() + EPSILON
+                        || a.getY() + a.getLength() <= b.getY() + EPSILON
+                        || b.getY() + b.getLength() <= a.getY() + EPSILON;
+                Assert.assertTrue(apart);
+            }
+        }
+    }
+
+    @Test
+    public void placementsInBoundsAndDisjoint() {
+        Random random = new Random(3);
+        FloorLayout layout = new FloorLayout(30, 20);
+        List<RoomPlacement> placed = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Room room = new Room(i + 1, RoomType.OFFICE,
+                    5 + random.nextInt(60));
+            RoomPlacement placement = layout.place(room);
+            if (placement != null) {
+                Assert.assertEquals(room.getArea(),
+                        placement.getWidth() * placement.getLength(), 1e-6);
+                placed.add(placement);
+            }
+        }
+        Assert.assertFalse(placed.isEmpty());
+        assertSound(placed, 30, 20);
+    }
+
+    @Test
+    public void narrowStripNotUsed() {
+        // a 100 x 0.05 strip is left below the first room
+        FloorLayout layout = new FloorLayout(100, 10.05);
+        Assert.assertNotNull(layout.place(new Room(1, RoomType.OFFICE,
+                1000)));
+        Assert.assertFalse(layout.canFit(Room.getMinArea()));
+        Assert.assertNull(layout.place(new Room(2, RoomType.OFFICE,
+                Room.getMinArea())));
+    }
+
+    @Test
+    public void smallRoomInNarrowSpaceKeepsMinimumSide() {
+        FloorLayout layout = new FloorLayout(4.4, 30);
+        RoomPlacement placement = layout.place(new Room(1, RoomType.STUDY,
+                Room.getMinArea()));
+        Assert.assertTrue(placement.getWidth() >= MIN_SIDE - EPSILON);
+        Assert.assertTrue(placement.getLength() >= MIN_SIDE - EPSILON);
+    }
+
+    @Test
+    public void removeFreesSpace() {
+        FloorLayout layout = new FloorLayout(10, 10);
+        Assert.assertNotNull(layout.place(new Room(1, RoomType.OFFICE, 100)));
+        Assert.assertFalse(layout.canFit(Room.getMinArea()));
+        Assert.assertNotNull(layout.remove(1));
+        Assert.assertTrue(layout.canFit(100));
+        Assert.assertNull(layout.getPlacement(1));
+    }
+
+    @Test
+    public void placeAllOrNothing() {
+        FloorLayout layout = new FloorLayout(10, 10);
+        List<Room> rooms = new ArrayList<>();
+        rooms.add(new Room(1, RoomType.OFFICE, 60));
+        rooms.add(new Room(2, RoomType.OFFICE, 60));
+        Assert.assertEquals(1, layout.placeAll(rooms).size());
+        Assert.assertNull(layout.getPlacement(1));
+        Assert.assertTrue(layout.canFit(100));
+    }
+}
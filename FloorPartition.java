@@ -0,0 +1,289 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickEpoch;
+import bms.util.TimedItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The timed items of one floor, grouped room by room, together with state
+ * derived from them: the highest hazard level on the floor and the number
+ * of people on it.
+ *
+ * A partition ticks its items and works out the derived state in the same
+ * pass, so each sensor is classified while it is still in cache. Derived
+ * state is kept for the even and odd ticks of the sensors' epoch and is
+ * published with the sensors' readings, so the two always agree.
+ *
+ * Partitions are created and ticked by the BuildingPartitioner.
+ */
+public class FloorPartition {
+    private Floor floor;
+    private TickEpoch epoch;
+
+    /* the floor's timed items, in room order */
+    private TimedItem[] items;
+    /* for each item, the room it is in */
+    private Room[] itemRooms;
+    /* modification counts of the floor and, summed, its rooms when built */
+    private int floorModCount;
+    private long roomModCount;
+
+    /* derived state of the even and odd ticks */
+    private int[] maxHazardLevels;
+    private Room[] maxHazardRooms;
+    private long[] headcounts;
+
+    /**
+     * Creates a partition holding the timed sensors of the given floor that
+     * are in the given set of available items.
+     *
+     * @param floor     floor to partition
+     * @param available items which may be taken into the partition
+     */
+    FloorPartition(Floor floor, Set<TimedItem> available) {
+        this.floor = floor;
+        epoch = TickEpoch.global();
+        maxHazardLevels = new int[2];
+        maxHazardRooms = new Room[2];
+        headcounts = new long[2];
+        items = new TimedItem[0];
+        rebuild(available);
+        update(false);
+    }
+
+    /**
+     * Regroups the floor's timed items, keeping the items this partition
+     * already holds and taking any of the given available items that are now
+     * on the floor.
+     *
+     * @param available items which may be taken into the partition
+     * @return the items taken from the available set
+     */
+    List<TimedItem> rebuild(Set<TimedItem> available) {
+        Set<TimedItem> owned = identitySet();
+        owned.addAll(Arrays.asList(items));
+        List<TimedItem> taken = new ArrayList<>();
+        List<TimedItem> itemList = new ArrayList<>();
+        List<Room> roomList = new ArrayList<>();
+        List<Room> rooms = floor.getRoomsView();
+        long roomMods = 0;
+        for (Room room : rooms) {
+            roomMods += room.getModCount();
+            for (Sensor sensor : room.getSensorsView()) {
+                if (!(sensor instanceof TimedItem)) {
+                    continue;
+                }
+                TimedItem item = (TimedItem) sensor;
+                if (available.contains(item)) {
+                    taken.add(item);
+                } else if (!owned.contains(item)) {
+                    continue;
+                }
+                itemList.add(item);
+                roomList.add(room);
+            }
+        }
+        items = itemList.toArray(new TimedItem[0]);
+        itemRooms = roomList.toArray(new Room[0]);
+        floorModCount = floor.getModCount();
+        roomModCount = roomMods;
+        return taken;
+    }
+
+    /**
+     * Returns whether rooms or sensors have been added to, removed from or
+     * moved off the floor since the partition was last built.
+     *
+     * @return true if the partition should be rebuilt
+     */
+    boolean isStale() {
+        if (floor.getModCount() != floorModCount) {
+            return true;
+        }
+        // counts only ever go up, so the sum changes if any of them does
+        long roomMods = 0;
+        for (Room room : floor.getRoomsView()) {
+            roomMods += room.getModCount();
+        }
+        return roomMods != roomModCount;
+    }
+
+    /**
+     * Removes the items which are no longer in a room on the floor, such as
+     * the sensors of a room moved to another floor.
+     *
+     * @return the items removed
+     */
+    List<TimedItem> release() {
+        Set<TimedItem> remaining = identitySet();
+        for (Room room : floor.getRoomsView()) {
+            for (Sensor sensor : room.getSensorsView()) {
+                if (sensor instanceof TimedItem) {
+                    remaining.add((TimedItem) sensor);
+                }
+            }
+        }
+        Set<TimedItem> released = identitySet();
+        for (TimedItem item : items) {
+            if (!remaining.contains(item)) {
+                released.add(item);
+            }
+        }
+        remove(released);
+        return new ArrayList<>(released);
+    }
+
+    /**
+     * Removes any of the given items from the partition.
+     *
+     * @param removed items to remove
+     */
+    void remove(Set<TimedItem> removed) {
+        List<TimedItem> itemList = new ArrayList<>();
+        List<Room> roomList = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            if (!removed.contains(items[i])) {
+                itemList.add(items[i]);
+                roomList.add(itemRooms[i]);
+            }
+        }
+        items = itemList.toArray(new TimedItem[0]);
+        itemRooms = roomList.toArray(new Room[0]);
+    }
+
+    /**
+     * Returns the timed items held by the partition, in room order.
+     *
+     * @return unmodifiable list of items
+     */
+    List<TimedItem> getItems() {
+        return Collections.unmodifiableList(Arrays.asList(items));
+    }
+
+    /**
+     * Ticks every item on the floor and works out the floor's derived state
+     * from the readings of the tick in progress.
+     */
+    void tick() {
+        update(true);
+    }
+
+    /**
+     * Works out the floor's derived state again from the current readings,
+     * without ticking, such as after the sensors were restored.
+     */
+    void recompute() {
+        update(false);
+    }
+
+    /**
+     * Works out the floor's derived state, first ticking each item if
+     * elapse is true. Outside of a tick the state is written to both
+     * copies.
+     */
+    private void update(boolean elapse) {
+        boolean ticking = epoch.isTicking();
+        long next = ticking ? epoch.getPublished() + 1 : epoch.getPublished();
+        int maxHazardLevel = 0;
+        Room maxHazardRoom = null;
+        long headcount = 0;
+        for (int i = 0; i < items.length; i++) {
+            TimedItem item = items[i];
+            if (elapse) {
+                item.elapseOneMinute();
+            }
+            if (!(item instanceof TimedSensor)) {
+                continue;
+            }
+            int reading = ((TimedSensor) item).getReadingAt(next);
+            if (item instanceof HazardSensor) {
+                int level = ((HazardSensor) item).getHazardLevel(reading);
+                if (level > maxHazardLevel || maxHazardRoom == null) {
+                    maxHazardLevel = level;
+                    maxHazardRoom = itemRooms[i];
+                }
+            }
+            if (item instanceof OccupancySensor) {
+                headcount += reading;
+            }
+        }
+        for (int slot = 0; slot < 2; slot++) {
+            if (!ticking || slot == (int) (next & 1)) {
+                maxHazardLevels[slot] = maxHazardLevel;
+                maxHazardRooms[slot] = maxHazardRoom;
+                headcounts[slot] = headcount;
+            }
+        }
+    }
+
+    /**
+     * Returns the floor this partition holds the items of.
+     *
+     * @return partitioned floor
+     */
+    public Floor getFloor() {
+        return floor;
+    }
+
+    /**
+     * Returns the number of timed items in the partition.
+     *
+     * @return number of items
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Returns the highest hazard level reported by any hazard sensor on the
+     * floor as of the last tick.
+     *
+     * @return hazard level, 0 to 100
+     */
+    public int getMaxHazardLevel() {
+        return maxHazardLevels[(int) (epoch.getPublished() & 1)];
+    }
+
+    /**
+     * Returns the room with the highest hazard level on the floor as of the
+     * last tick.
+     *
+     * @return room; null if the floor has no hazard sensors or has not been
+     *         ticked since it was partitioned
+     */
+    public Room getMaxHazardRoom() {
+        return maxHazardRooms[(int) (epoch.getPublished() & 1)];
+    }
+
+    /**
+     * Returns the number of people on the floor, according to its occupancy
+     * sensors, as of the last tick.
+     *
+     * @return headcount
+     */
+    public long getHeadcount() {
+        return headcounts[(int) (epoch.getPublished() & 1)];
+    }
+
+    private static Set<TimedItem> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    @Override
+    public String toString() {
+        return "FloorPartition: floor=" + floor.getFloorNumber() +
+                ", items=" + items.length + ", maxHazard=" +
+                getMaxHazardLevel() + ", headcount=" + getHeadcount();
+    }
+}
@@ -0,0 +1,94 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.OccupancySensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FloorPartitionTest {
+    private TimedItemManager manager;
+    private BuildingPartitioner partitioner;
+    private Building building;
+    private Floor floor;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = TimedItemManager.getInstance();
+        partitioner = BuildingPartitioner.getInstance();
+        building = new Building("Test");
+        floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        partitioner.partition(building);
+    }
+
+    @After
+    public void tearDown() {
+        // retires the floor's sensors and drops its partition
+        building.removeFloors(1);
+        manager.elapseOneMinute();
+    }
+
+    @Test
+    public void roomAddedAfterPartitioning() throws Exception {
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        CarbonDioxideSensor sensor =
+                new CarbonDioxideSensor(new int[]{5000}, 1, 600, 200);
+        room.addSensor​(sensor);
+        manager.elapseOneMinute();
+        floor.addRoom​(room);
+        manager.elapseOneMinute();
+
+        FloorPartition partition = partitioner.getPartition(floor);
+        Assert.assertEquals(1, partition.size());
+        Assert.assertEquals(sensor.getHazardLevel(),
+                partition.getMaxHazardLevel());
+        Assert.assertEquals(100, partition.getMaxHazardLevel());
+        Assert.assertSame(room, partition.getMaxHazardRoom());
+    }
+
+    @Test
+    public void sensorAddedAfterPartitioning() throws Exception {
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        OccupancySensor sensor = new OccupancySensor(new int[]{4, 6}, 1, 10);
+        manager.elapseOneMinute();
+        room.addSensors(new OccupancySensor[]{sensor});
+        manager.elapseOneMinute();
+
+        FloorPartition partition = partitioner.getPartition(floor);
+        Assert.assertEquals(1, partition.size());
+        Assert.assertEquals(sensor.getCurrentReading(),
+                partition.getHeadcount());
+    }
+
+    @Test
+    public void floorAddedAfterPartitioning() throws Exception {
+        Floor second = new Floor(2, 10, 10);
+        building.addFloor(second);
+        manager.elapseOneMinute();
+        Assert.assertNotNull(partitioner.getPartition(second));
+    }
+
+    @Test
+    public void defaultHazardLevelOfReading() {
+        HazardSensor sensor = new HazardSensor() {
+            @Override
+            public int getHazardLevel() {
+                return 30;
+            }
+
+            @Override
+            public int getCurrentReading() {
+                return 7;
+            }
+        };
+        Assert.assertEquals(30, sensor.getHazardLevel(99));
+    }
+}
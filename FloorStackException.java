@@ -0,0 +1,59 @@
+package bms.exceptions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exception thrown when a batch of floors is added to a building but one or
+ * more of the floors cannot be stacked. Holds the reason each rejected floor
+ * could not be added, keyed by the floor's position in the batch, so that
+ * rejected floors with the same number are each reported.
+ */
+public class FloorStackException extends Exception {
+    private Map<Integer, Exception> failures;
+
+    /**
+     * Constructs a normal FloorStackException with no error message, cause
+     * or failures.
+     */
+    public FloorStackException() {
+        failures = Collections.emptyMap();
+    }
+
+    /**
+     * Constructs a FloorStackException that contains a helpful message
+     * detailing why the exception occurred.
+     *
+     * @param message detail message
+     */
+    public FloorStackException(String message) {
+        super(message);
+        failures = Collections.emptyMap();
+    }
+
+    /**
+     * Constructs a FloorStackException holding the reason each rejected
+     * floor could not be added.
+     *
+     * @param failures exceptions that adding each floor on its own would
+     *                 have thrown, keyed by the floor's position in the
+     *                 batch
+     */
+    public FloorStackException(Map<Integer, Exception> failures) {
+        super(failures.size() + " floor(s) could not be added");
+        this.failures = new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * Returns the reason each rejected floor could not be added.
+     *
+     * @return unmodifiable map of each rejected floor's position in the
+     *         batch, counting from 0 in the batch's iteration order, to the
+     *         exception adding that floor would have thrown, in ascending
+     *         floor order
+     */
+    public Map<Integer, Exception> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+}
@@ -3,6 +3,10 @@ package bms.floor;
 import bms.exceptions.DuplicateRoomException;
 import bms.exceptions.InsufficientSpaceException;
 import bms.room.*;
+import bms.sensors.TemperatureSensor;
+import bms.util.BatchResult;
+import bms.util.BatchStatus;
+import bms.util.TimedItemManager;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -134,6 +138,25 @@ public class FloorTest {
         Assert.assertEquals(50.2, floorMany.occupiedArea(), 0.001);
     }
 
+    @Test
+    public void occupiedAreaFollowsChanges() throws Exception {
+        Floor other = new Floor(2, 10, 10);
+        Floor target = new Floor(3, 10, 10);
+        other.addRoom​(new Room(7, RoomType.OFFICE, 20.5));
+        other.addRooms(new Room[]{new Room(8, RoomType.STUDY, 12),
+                new Room(9, null, 8)});
+        Assert.assertEquals(40.5, other.occupiedArea(), 0.001);
+        other.removeRoom(8);
+        Assert.assertEquals(28.5, other.occupiedArea(), 0.001);
+        other.moveRoom(7, target);
+        Assert.assertEquals(8, other.occupiedArea(), 0.001);
+        Assert.assertEquals(20.5, target.occupiedArea(), 0.001);
+        target.moveRooms(new int[]{7}, other);
+        Assert.assertEquals(0, target.occupiedArea(), 0);
+        other.removeRooms(List.of(7, 9));
+        Assert.assertEquals(0, other.occupiedArea(), 0);
+    }
+
     @Test
     public void addRoom​() throws InsufficientSpaceException,
                                   DuplicateRoomException {
@@ -210,6 +233,111 @@ public class FloorTest {
         Assert.assertEquals(expected, OnFireDrill);
     }
 
+    @Test
+    public void removeRoom() {
+        Assert.assertSame(room2, floorMany.removeRoom(2));
+        Assert.assertNull(floorMany.getRoomByNumber​(2));
+        Assert.assertEquals(1, floorMany.getRoomCount(RoomType.OFFICE));
+        Assert.assertEquals(20.2, floorMany.occupiedArea(), 0.01);
+        Assert.assertNull(floorMany.removeRoom(2));
+    }
+
+    @Test
+    public void removeRoomKeepsOrder() throws Exception {
+        for (int number = 10; number < 40; number++) {
+            floorEmpty.addRoom​(new Room(number, RoomType.STUDY, 5));
+        }
+        for (int number = 10; number < 40; number += 3) {
+            floorEmpty.removeRoom(number);
+        }
+        expected.clear();
+        for (int number = 10; number < 40; number++) {
+            if ((number - 10) % 3 != 0) {
+                expected.add(floorEmpty.getRoomByNumber​(number));
+            }
+        }
+        Assert.assertEquals(expected, floorEmpty.getRooms());
+        Assert.assertEquals(20, floorEmpty.getRoomsView().size());
+        Assert.assertSame(expected.get(19), floorEmpty.getRoomsView().get(19));
+    }
+
+    @Test
+    public void removedRoomKeepsReadings() throws Exception {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        TemperatureSensor sensor = new TemperatureSensor(new int[]{1, 2, 3});
+        room2.addSensor​(sensor);
+        manager.elapseOneMinute();
+        Assert.assertEquals(2, sensor.getCurrentReading());
+        floorMany.removeRoom(2);
+        for (int i = 0; i < 3; i++) {
+            manager.elapseOneMinute();
+            Assert.assertEquals(2, sensor.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void moveRoom() throws Exception {
+        floorMany.moveRoom(2, floorEmpty);
+        Assert.assertNull(floorMany.getRoomByNumber​(2));
+        Assert.assertSame(room2, floorEmpty.getRoomByNumber​(2));
+        Assert.assertTrue(room2.fireDrillOngoing());
+    }
+
+    @Test(expected = DuplicateRoomException.class)
+    public void moveRoomDuplicate() throws Exception {
+        floorMany.moveRoom(1, floorFireDrillNull);
+    }
+
+    @Test
+    public void addRoomsCommitted() {
+        Room[] rooms = {new Room(10, RoomType.STUDY, 20),
+                new Room(11, RoomType.OFFICE, 30)};
+        BatchResult result = floorEmpty.addRooms(rooms);
+        Assert.assertTrue(result.isCommitted());
+        Assert.assertEquals(BatchStatus.OK, result.getStatus(1));
+        Assert.assertSame(rooms[1], floorEmpty.getRoomByNumber​(11));
+        Assert.assertEquals(50, floorEmpty.occupiedArea(), 0.01);
+    }
+
+    @Test
+    public void addRoomsAllOrNothing() {
+        Room[] rooms = {new Room(10, RoomType.STUDY, 20), null,
+                new Room(10, RoomType.OFFICE, 10),
+                new Room(12, RoomType.OFFICE, 3),
+                new Room(13, RoomType.OFFICE, 150)};
+        BatchResult result = floorEmpty.addRooms(rooms);
+        Assert.assertFalse(result.isCommitted());
+        Assert.assertEquals(4, result.getFailureCount());
+        Assert.assertEquals(BatchStatus.OK, result.getStatus(0));
+        Assert.assertEquals(BatchStatus.INVALID, result.getStatus(1));
+        Assert.assertEquals(BatchStatus.DUPLICATE, result.getStatus(2));
+        Assert.assertEquals(BatchStatus.INVALID, result.getStatus(3));
+        Assert.assertEquals(BatchStatus.INSUFFICIENT_SPACE,
+                result.getStatus(4));
+        Assert.assertTrue(floorEmpty.getRooms().isEmpty());
+        Assert.assertNull(floorEmpty.getRoomByNumber​(10));
+    }
+
+    @Test
+    public void addRoomsDuplicateOnFloor() {
+        BatchResult result = floorMany.addRooms(
+                new Room[]{new Room(2, RoomType.STUDY, 5)});
+        Assert.assertEquals(BatchStatus.DUPLICATE, result.getStatus(0));
+        Assert.assertEquals(3, floorMany.getRooms().size());
+    }
+
+    @Test
+    public void addRoomNullType() throws Exception {
+        Room untyped = new Room(20, null, 10);
+        floorEmpty.addRoom​(untyped);
+        Assert.assertSame(untyped, floorEmpty.getRoomByNumber​(20));
+        Assert.assertTrue(floorEmpty.addRooms(
+                new Room[]{new Room(21, null, 10)}).isCommitted());
+        Assert.assertEquals(0, floorEmpty.getRoomCount(RoomType.OFFICE));
+        Assert.assertSame(untyped, floorEmpty.removeRoom(20));
+        Assert.assertEquals(1, floorEmpty.getRooms().size());
+    }
+
     @Test
     public void testToString() {
         Assert.assertEquals("Floor #1: width=10.00m, length=10.00m, "
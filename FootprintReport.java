@@ -0,0 +1,77 @@
+package bms.display;
+
+import bms.building.Building;
+import bms.building.BuildingGenerator;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.ReadingPool;
+import bms.sensors.Sensor;
+import bms.sensors.SensorReadings;
+import bms.sensors.TimedSensor;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Reports the estimated heap space used for sensor readings per sensor, with
+ * compact storage disabled and then enabled.
+ *
+ * Sizes are estimated from the layout of a 64-bit JVM with compressed
+ * references rather than measured, so that no extra libraries are needed.
+ * Readings shared between sensors are only counted once.
+ */
+public class FootprintReport {
+
+    /**
+     * Generates the same building twice, once per storage mode, and prints
+     * the estimated bytes of readings per sensor for each.
+     *
+     * @param args optional floor count, rooms per floor and readings per
+     *             sensor (defaults 100, 100 and 16)
+     */
+    public static void main(String[] args) {
+        int floors = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int readings = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        for (boolean compact : new boolean[]{false, true}) {
+            TimedSensor.setCompactStorage(compact);
+            BuildingGenerator generator = new BuildingGenerator(1, floors,
+                    rooms);
+            generator.setReadingCount(readings);
+            report(compact ? "compact" : "plain",
+                    generator.generate("Footprint"));
+        }
+        TimedSensor.setCompactStorage(false);
+        ReadingPool.getInstance().clear();
+    }
+
+    /**
+     * Prints the estimated readings footprint of the given building.
+     *
+     * @param label    name of the storage mode
+     * @param building building to measure
+     */
+    private static void report(String label, Building building) {
+        Set<SensorReadings> seen = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        long sensors = 0;
+        long bytes = 0;
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    sensors++;
+                    SensorReadings readings =
+                            ((TimedSensor) sensor).getReadings();
+                    if (seen.add(readings)) {
+                        bytes += readings.estimateBytes();
+                    }
+                }
+            }
+        }
+        System.out.println(label + ": sensors=" + sensors + ", distinct=" +
+                seen.size() + ", readingBytes=" + bytes + ", bytesPerSensor=" +
+                String.format("%.2f", sensors == 0 ? 0.0 :
+                        (double) bytes / sensors));
+    }
+}
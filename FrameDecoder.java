@@ -0,0 +1,159 @@
+package bms.server;
+
+import bms.exceptions.MalformedFrameException;
+import bms.sensors.TimedSensor;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes frames of the binary reading protocol.
+ *
+ * A frame is laid out as follows, with every value big-endian:
+ * <pre>
+ * int    length of the rest of the frame, in bytes
+ * short  building id
+ * short  number of updates
+ * then for each update:
+ *   short  floor number
+ *   int    room number
+ *   byte   sensor kind id, see SensorKind
+ *   byte   reserved, 0
+ *   short  number of readings, at least 1
+ *   int[]  the readings, none less than zero
+ * </pre>
+ * The reply to each frame is two ints: the number of updates accepted and
+ * the number rejected because no sensor has the address or the readings
+ * are invalid.
+ *
+ * Frames are read in place from the buffer they arrived in, usually a
+ * direct buffer filled by a channel: the only copy made is of each update's
+ * readings into the array given to the sensor.
+ */
+public class FrameDecoder {
+    /** Bytes in the length prefix of a frame. */
+    public static final int LENGTH_BYTES = 4;
+    /** Bytes in a frame header, after the length prefix. */
+    public static final int HEADER_BYTES = 4;
+    /** Bytes in an update header, before its readings. */
+    public static final int UPDATE_HEADER_BYTES = 10;
+    /** Largest frame accepted, including the length prefix. */
+    public static final int MAX_FRAME_BYTES = 1 << 20;
+
+    private SensorDirectory directory;
+    private int accepted;
+    private int rejected;
+
+    /**
+     * Creates a decoder which finds sensors in the given directory.
+     *
+     * @param directory directory of addressable sensors
+     */
+    public FrameDecoder(SensorDirectory directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the total length of the frame starting at the buffer's
+     * position, if the whole frame is between the position and the limit.
+     *
+     * @param buffer buffer holding received bytes
+     * @return frame length including the length prefix; -1 if more bytes
+     *         are needed
+     * @throws MalformedFrameException if the frame's length is out of range
+     */
+    public static int frameLength(ByteBuffer buffer)
+            throws MalformedFrameException {
+        if (buffer.remaining() < LENGTH_BYTES) {
+            return -1;
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length < HEADER_BYTES ||
+                length > MAX_FRAME_BYTES - LENGTH_BYTES) {
+            throw new MalformedFrameException("frame length " + length);
+        }
+        return buffer.remaining() < LENGTH_BYTES + length ? -1
+                : LENGTH_BYTES + length;
+    }
+
+    /**
+     * Decodes the complete frame starting at the buffer's position and
+     * gives each accepted update to the sink. The buffer's position is moved
+     * past the frame. Updates are only given to the sink once the whole
+     * frame has been checked.
+     *
+     * @param buffer buffer holding a complete frame at its position
+     * @param sink   where to send the accepted updates
+     * @throws MalformedFrameException if the frame is incomplete or its
+     *                                 contents do not match its length
+     */
+    public void decode(ByteBuffer buffer, SensorUpdateSink sink)
+            throws MalformedFrameException {
+        int length = frameLength(buffer);
+        if (length < 0) {
+            throw new MalformedFrameException("incomplete frame");
+        }
+        int start = buffer.position();
+        int end = start + length;
+        int buildingId = buffer.getShort(start + 4) & 0xFFFF;
+        int count = buffer.getShort(start + 6) & 0xFFFF;
+
+        TimedSensor[] sensors = new TimedSensor[count];
+        int[][] readings = new int[count][];
+        int position = start + LENGTH_BYTES + HEADER_BYTES;
+        accepted = 0;
+        rejected = 0;
+        for (int i = 0; i < count; i++) {
+            if (position + UPDATE_HEADER_BYTES > end) {
+                throw new MalformedFrameException("update past frame end");
+            }
+            int floorNumber = buffer.getShort(position) & 0xFFFF;
+            int roomNumber = buffer.getInt(position + 2);
+            int kindId = buffer.get(position + 6) & 0xFF;
+            int readingCount = buffer.getShort(position + 8) & 0xFFFF;
+            position += UPDATE_HEADER_BYTES;
+            if (position + 4L * readingCount > end) {
+                throw new MalformedFrameException("readings past frame end");
+            }
+
+            TimedSensor sensor = directory.get(SensorDirectory.key(
+                    buildingId, floorNumber, roomNumber, kindId));
+            int[] values = new int[readingCount];
+            int min = readingCount == 0 ? -1 : 0;
+            for (int j = 0; j < readingCount; j++) {
+                values[j] = buffer.getInt(position + 4 * j);
+                min |= values[j];
+            }
+            position += 4 * readingCount;
+            // min is negative if there were no readings or any was negative
+            if (sensor == null || min < 0) {
+                rejected++;
+            } else {
+                sensors[accepted] = sensor;
+                readings[accepted] = values;
+                accepted++;
+            }
+        }
+        if (position != end) {
+            throw new MalformedFrameException("frame length mismatch");
+        }
+        buffer.position(end);
+        sink.offer(sensors, readings, accepted);
+    }
+
+    /**
+     * Returns the number of updates accepted from the last frame decoded.
+     *
+     * @return accepted updates
+     */
+    public int getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the number of updates rejected from the last frame decoded.
+     *
+     * @return rejected updates
+     */
+    public int getRejected() {
+        return rejected;
+    }
+}
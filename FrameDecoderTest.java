@@ -0,0 +1,95 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.exceptions.MalformedFrameException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.SensorKind;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class FrameDecoderTest {
+    private NoiseSensor sensor;
+    private SensorUpdateSink sink;
+    private FrameDecoder decoder;
+    private FrameEncoder encoder;
+
+    @Before
+    public void setUp() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        sensor = new NoiseSensor(new int[]{40}, 1);
+        room.addSensor​(sensor);
+
+        SensorDirectory directory = new SensorDirectory();
+        Assert.assertEquals(1, directory.register(7, building));
+        sink = new SensorUpdateSink();
+        decoder = new FrameDecoder(directory);
+        encoder = new FrameEncoder(1024);
+    }
+
+    @After
+    public void tearDown() {
+        TimedItemManager.getInstance().deregisterTimedItems(
+                List.of(sink, sensor));
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        Assert.assertTrue(encoder.beginFrame(7));
+        Assert.assertTrue(encoder.addUpdate(1, 101, SensorKind.NOISE,
+                new int[]{0, 50, 60, 0}, 1, 2));
+        // no such room
+        Assert.assertTrue(encoder.addUpdate(1, 102, SensorKind.NOISE,
+                new int[]{50}, 0, 1));
+        encoder.endFrame();
+        Assert.assertEquals(1, encoder.getFrameCount());
+
+        ByteBuffer frames = encoder.getFrames();
+        Assert.assertEquals(frames.remaining(),
+                FrameDecoder.frameLength(frames));
+        decoder.decode(frames, sink);
+        Assert.assertEquals(0, frames.remaining());
+        Assert.assertEquals(1, decoder.getAccepted());
+        Assert.assertEquals(1, decoder.getRejected());
+
+        Assert.assertEquals(1, sink.drain());
+        Assert.assertEquals(50, sensor.getCurrentReading());
+        sensor.elapseOneMinute();
+        Assert.assertEquals(60, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void incompleteFrame() throws Exception {
+        encoder.beginFrame(7);
+        encoder.addUpdate(1, 101, SensorKind.NOISE, new int[]{50}, 0, 1);
+        encoder.endFrame();
+        ByteBuffer frames = encoder.getFrames();
+        frames.limit(frames.limit() - 1);
+        Assert.assertEquals(-1, FrameDecoder.frameLength(frames));
+    }
+
+    @Test(expected = MalformedFrameException.class)
+    public void lengthMismatch() throws Exception {
+        encoder.beginFrame(7);
+        encoder.addUpdate(1, 101, SensorKind.NOISE, new int[]{50}, 0, 1);
+        encoder.endFrame();
+        ByteBuffer frames = ByteBuffer.allocate(encoder.getFrames()
+                .remaining() + 4);
+        frames.put(encoder.getFrames()).putInt(0).flip();
+        // claim the trailing padding as part of the frame
+        frames.putInt(0, frames.getInt(0) + 4);
+        decoder.decode(frames, sink);
+    }
+}
@@ -0,0 +1,139 @@
+package bms.server;
+
+import bms.sensors.SensorKind;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes frames of the binary reading protocol into a direct buffer, ready
+ * to be written to a channel. See FrameDecoder for the layout of a frame.
+ *
+ * Several frames can be written into the buffer before it is sent:
+ * <pre>
+ * encoder.beginFrame(buildingId);
+ * encoder.addUpdate(3, 3002, SensorKind.NOISE, readings, 0, 16);
+ * encoder.endFrame();
+ * client.send(encoder);
+ * </pre>
+ */
+public class FrameEncoder {
+    private ByteBuffer buffer;
+    private int frameStart;
+    private int updateCount;
+    private int frameCount;
+
+    /**
+     * Creates an encoder with a buffer of the given size.
+     *
+     * @param capacity buffer size in bytes
+     */
+    public FrameEncoder(int capacity) {
+        buffer = ByteBuffer.allocateDirect(capacity);
+        frameStart = -1;
+    }
+
+    /**
+     * Starts a new frame of updates for the given building.
+     *
+     * @param buildingId id of the building the updates are for
+     * @return true if the frame was started; false if the buffer is full
+     * @throws IllegalStateException if a frame has been started but not
+     *                               ended
+     */
+    public boolean beginFrame(int buildingId) throws IllegalStateException {
+        if (frameStart >= 0) {
+            throw new IllegalStateException();
+        }
+        if (buffer.remaining() < FrameDecoder.LENGTH_BYTES +
+                FrameDecoder.HEADER_BYTES) {
+            return false;
+        }
+        frameStart = buffer.position();
+        updateCount = 0;
+        buffer.putInt(0).putShort((short) buildingId).putShort((short) 0);
+        return true;
+    }
+
+    /**
+     * Adds an update to the current frame.
+     *
+     * @param floorNumber floor number of the sensor's room
+     * @param roomNumber  room number of the sensor's room
+     * @param kind        kind of sensor
+     * @param readings    array holding the new readings
+     * @param offset      position of the first reading in the array
+     * @param count       number of readings, 1 to 65535
+     * @return true if the update was added; false if the frame or buffer
+     *         has no room for it
+     * @throws IllegalStateException if no frame has been started
+     */
+    public boolean addUpdate(int floorNumber, int roomNumber,
+                             SensorKind kind, int[] readings, int offset,
+                             int count) throws IllegalStateException {
+        if (frameStart < 0) {
+            throw new IllegalStateException();
+        }
+        int bytes = FrameDecoder.UPDATE_HEADER_BYTES + 4 * count;
+        if (updateCount == 0xFFFF || count > 0xFFFF ||
+                buffer.remaining() < bytes || buffer.position() + bytes -
+                frameStart > FrameDecoder.MAX_FRAME_BYTES) {
+            return false;
+        }
+        buffer.putShort((short) floorNumber).putInt(roomNumber)
+                .put((byte) kind.getId()).put((byte) 0)
+                .putShort((short) count);
+        for (int i = offset; i < offset + count; i++) {
+            buffer.putInt(readings[i]);
+        }
+        updateCount++;
+        return true;
+    }
+
+    /**
+     * Ends the current frame, filling in its length and number of updates.
+     *
+     * @throws IllegalStateException if no frame has been started
+     */
+    public void endFrame() throws IllegalStateException {
+        if (frameStart < 0) {
+            throw new IllegalStateException();
+        }
+        buffer.putInt(frameStart, buffer.position() - frameStart -
+                FrameDecoder.LENGTH_BYTES);
+        buffer.putShort(frameStart + 6, (short) updateCount);
+        frameStart = -1;
+        frameCount++;
+    }
+
+    /**
+     * Returns the number of frames ended since the encoder was last cleared.
+     *
+     * @return number of complete frames
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the encoded frames, ready to be written to a channel. The
+     * returned buffer shares the encoder's contents.
+     *
+     * @return read-only view of the complete frames
+     */
+    public ByteBuffer getFrames() {
+        ByteBuffer frames = buffer.duplicate();
+        frames.flip();
+        if (frameStart >= 0) {
+            frames.limit(frameStart);
+        }
+        return frames.asReadOnlyBuffer();
+    }
+
+    /**
+     * Discards every frame, ready to encode more.
+     */
+    public void clear() {
+        buffer.clear();
+        frameStart = -1;
+        frameCount = 0;
+    }
+}
@@ -0,0 +1,207 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardBands;
+import bms.sensors.Sensor;
+import java.util.*;
+
+/**
+ * Works out the hazard level of every carbon dioxide sensor in a building in
+ * one pass.
+ *
+ * Sensors are grouped by the hazard bands they use, and each group is
+ * classified with HazardBands.getLevels(int[], int, int, int[]) over a flat
+ * array of current readings, instead of one getHazardLevel() call per sensor.
+ * Hazard bands can be set per sensor, with
+ * CarbonDioxideSensor.setHazardBands(HazardBands), or for every room of a
+ * type with applyProfile(RoomType, HazardBands).
+ *
+ * Sensors added to the building after the evaluator was created are picked
+ * up by calling refresh(), which also gives them the profile of their room's
+ * type, if one has been applied.
+ */
+public class HazardBandEvaluator {
+    private Building building;
+    private Map<RoomType, HazardBands> profiles;
+    /* sensors seen by the last refresh, which already have their profile */
+    private Set<CarbonDioxideSensor> known;
+
+    /* grouped so that sensors sharing bands are next to each other */
+    private CarbonDioxideSensor[] sensors;
+    private Room[] rooms;
+    private HazardBands[] groupBands;
+    /* position just past the end of each group */
+    private int[] groupEnds;
+
+    /**
+     * Creates an evaluator for the carbon dioxide sensors in the given
+     * building.
+     *
+     * @param building building to evaluate
+     */
+    public HazardBandEvaluator(Building building) {
+        this.building = building;
+        profiles = new EnumMap<>(RoomType.class);
+        known = Collections.newSetFromMap(new IdentityHashMap<>());
+        refresh();
+    }
+
+    /**
+     * Sets the hazard bands of every carbon dioxide sensor in rooms of the
+     * given type, and of those picked up by later refreshes. Bands set on
+     * individual sensors afterwards take precedence.
+     *
+     * @param roomType type of room to apply the bands to
+     * @param bands    bands to use
+     * @throws IllegalArgumentException if roomType or bands is null
+     */
+    public void applyProfile(RoomType roomType, HazardBands bands)
+            throws IllegalArgumentException {
+        if (roomType == null || bands == null) {
+            throw new IllegalArgumentException();
+        }
+        profiles.put(roomType, bands);
+        for (Floor floor : building.getFloorsView()) {
+            if (floor.getRoomCount(roomType) == 0) {
+                continue;
+            }
+            for (Room room : floor.getRoomsView()) {
+                Sensor sensor = room.getSensor("CarbonDioxideSensor");
+                if (room.getType() == roomType && sensor != null) {
+                    ((CarbonDioxideSensor) sensor).setHazardBands(bands);
+                }
+            }
+        }
+        refresh();
+    }
+
+    /**
+     * Returns the profile applied to rooms of the given type.
+     *
+     * @param roomType type of room
+     * @return bands applied with applyProfile(RoomType, HazardBands); null
+     *         if none have been
+     */
+    public HazardBands getProfile(RoomType roomType) {
+        return roomType == null ? null : profiles.get(roomType);
+    }
+
+    /**
+     * Rebuilds the groups of sensors from the building, picking up any
+     * sensors added or bands changed since the evaluator was last built.
+     * Newly found sensors in rooms with a profile are given its bands.
+     */
+    public void refresh() {
+        Map<HazardBands, List<Room>> groups = new LinkedHashMap<>();
+        Set<CarbonDioxideSensor> found =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                Sensor sensor = room.getSensor("CarbonDioxideSensor");
+                if (sensor == null) {
+                    continue;
+                }
+                CarbonDioxideSensor co2 = (CarbonDioxideSensor) sensor;
+                HazardBands profile = getProfile(room.getType());
+                if (profile != null && !known.contains(co2)) {
+                    co2.setHazardBands(profile);
+                }
+                found.add(co2);
+                groups.computeIfAbsent(co2.getHazardBands(),
+                        bands -> new ArrayList<>()).add(room);
+            }
+        }
+        known = found;
+
+        List<Room> roomList = new ArrayList<>();
+        groupBands = new HazardBands[groups.size()];
+        groupEnds = new int[groups.size()];
+        int group = 0;
+        for (Map.Entry<HazardBands, List<Room>> entry : groups.entrySet()) {
+            roomList.addAll(entry.getValue());
+            groupBands[group] = entry.getKey();
+            groupEnds[group] = roomList.size();
+            group++;
+        }
+        rooms = roomList.toArray(new Room[0]);
+        sensors = new CarbonDioxideSensor[rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            sensors[i] = (CarbonDioxideSensor)
+                    rooms[i].getSensor("CarbonDioxideSensor");
+        }
+    }
+
+    /**
+     * Returns the sensors being evaluated, in the order used by evaluate().
+     *
+     * @return unmodifiable list of sensors
+     */
+    public List<CarbonDioxideSensor> getSensors() {
+        return Collections.unmodifiableList(Arrays.asList(sensors));
+    }
+
+    /**
+     * Returns the room containing each sensor, in the order used by
+     * evaluate().
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(Arrays.asList(rooms));
+    }
+
+    /**
+     * Returns the current hazard level of every sensor, in the same order as
+     * getSensors().
+     *
+     * @return new array of hazard levels, 0 to 100
+     */
+    public int[] evaluate() {
+        int[] readings = new int[sensors.length];
+        int[] levels = new int[sensors.length];
+        List<Integer> moved = new ArrayList<>();
+        int start = 0;
+        for (int group = 0; group < groupBands.length; group++) {
+            for (int i = start; i < groupEnds[group]; i++) {
+                readings[i] = sensors[i].getCurrentReading();
+                HazardBands bands = sensors[i].getHazardBands();
+                if (bands != groupBands[group] &&
+                        !bands.equals(groupBands[group])) {
+                    moved.add(i);
+                }
+            }
+            groupBands[group].getLevels(readings, start,
+                    groupEnds[group] - start, levels);
+            start = groupEnds[group];
+        }
+        // bands changed since the last refresh
+        for (int i : moved) {
+            levels[i] = sensors[i].getHazardBands().getLevel(readings[i]);
+        }
+        return levels;
+    }
+
+    /**
+     * Returns the highest current hazard level of any carbon dioxide sensor
+     * in the building.
+     *
+     * @return highest hazard level; 0 if there are no sensors
+     */
+    public int getMaxHazardLevel() {
+        int max = 0;
+        for (int level : evaluate()) {
+            max = Math.max(max, level);
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "HazardBandEvaluator: building=" + building.getName() +
+                ", sensors=" + sensors.length + ", groups=" +
+                groupBands.length;
+    }
+}
@@ -0,0 +1,139 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardBands;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HazardBandEvaluatorTest {
+    private static final HazardBands STRICT = new HazardBands(
+            new int[]{800}, new int[]{0, 100});
+
+    private Building building;
+    private Floor floor;
+    private List<CarbonDioxideSensor> created;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        floor = new Floor(1, 20, 20);
+        building.addFloor(floor);
+        created = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        TimedItemManager.getInstance().deregisterTimedItems(created);
+    }
+
+    private CarbonDioxideSensor addRoom(int number, RoomType type,
+                                        int reading) throws Exception {
+        Room room = new Room(number, type, 20);
+        floor.addRoom​(room);
+        CarbonDioxideSensor sensor = new CarbonDioxideSensor(
+                new int[]{reading}, 1, 600, 100);
+        created.add(sensor);
+        room.addSensor​(sensor);
+        return sensor;
+    }
+
+    private int levelOf(HazardBandEvaluator evaluator,
+                        CarbonDioxideSensor sensor) {
+        return evaluator.evaluate()[evaluator.getSensors().indexOf(sensor)];
+    }
+
+    @Test
+    public void defaultBands() throws Exception {
+        addRoom(101, RoomType.OFFICE, 900);
+        addRoom(102, RoomType.STUDY, 1500);
+        addRoom(103, null, 6000);
+        floor.addRoom​(new Room(104, RoomType.OFFICE, 20));
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        Assert.assertEquals(3, evaluator.getSensors().size());
+        Assert.assertEquals(3, evaluator.getRooms().size());
+        int[] levels = evaluator.evaluate();
+        for (int i = 0; i < levels.length; i++) {
+            CarbonDioxideSensor sensor = evaluator.getSensors().get(i);
+            Assert.assertEquals(sensor.getHazardLevel(), levels[i]);
+        }
+        Assert.assertEquals(100, evaluator.getMaxHazardLevel());
+    }
+
+    @Test
+    public void groupsByBands() throws Exception {
+        CarbonDioxideSensor first = addRoom(101, RoomType.OFFICE, 900);
+        CarbonDioxideSensor second = addRoom(102, RoomType.OFFICE, 900);
+        CarbonDioxideSensor third = addRoom(103, RoomType.OFFICE, 900);
+        second.setHazardBands(STRICT);
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        Assert.assertTrue(evaluator.toString().endsWith("groups=2"));
+        Assert.assertEquals(0, levelOf(evaluator, first));
+        Assert.assertEquals(100, levelOf(evaluator, second));
+        Assert.assertEquals(0, levelOf(evaluator, third));
+    }
+
+    @Test
+    public void bandsChangedSinceRefresh() throws Exception {
+        CarbonDioxideSensor sensor = addRoom(101, RoomType.OFFICE, 900);
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        sensor.setHazardBands(STRICT);
+        Assert.assertEquals(100, levelOf(evaluator, sensor));
+    }
+
+    @Test
+    public void profileAppliesToRoomsOfType() throws Exception {
+        CarbonDioxideSensor office = addRoom(101, RoomType.OFFICE, 900);
+        CarbonDioxideSensor lab = addRoom(102, RoomType.LABORATORY, 900);
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        evaluator.applyProfile(RoomType.OFFICE, STRICT);
+        Assert.assertSame(STRICT, evaluator.getProfile(RoomType.OFFICE));
+        Assert.assertNull(evaluator.getProfile(RoomType.LABORATORY));
+        Assert.assertSame(STRICT, office.getHazardBands());
+        Assert.assertSame(HazardBands.CARBON_DIOXIDE, lab.getHazardBands());
+        Assert.assertEquals(100, levelOf(evaluator, office));
+        Assert.assertEquals(0, levelOf(evaluator, lab));
+    }
+
+    @Test
+    public void profileAppliesToSensorsFoundByRefresh() throws Exception {
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        evaluator.applyProfile(RoomType.OFFICE, STRICT);
+        CarbonDioxideSensor office = addRoom(101, RoomType.OFFICE, 900);
+        CarbonDioxideSensor untyped = addRoom(102, null, 900);
+        evaluator.refresh();
+        Assert.assertSame(STRICT, office.getHazardBands());
+        Assert.assertSame(HazardBands.CARBON_DIOXIDE,
+                untyped.getHazardBands());
+        Assert.assertEquals(100, evaluator.getMaxHazardLevel());
+    }
+
+    @Test
+    public void sensorBandsTakePrecedence() throws Exception {
+        CarbonDioxideSensor office = addRoom(101, RoomType.OFFICE, 900);
+        HazardBandEvaluator evaluator = new HazardBandEvaluator(building);
+        evaluator.applyProfile(RoomType.OFFICE, STRICT);
+        office.setHazardBands(HazardBands.CARBON_DIOXIDE);
+        evaluator.refresh();
+        Assert.assertSame(HazardBands.CARBON_DIOXIDE, office.getHazardBands());
+        Assert.assertEquals(0, levelOf(evaluator, office));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullBands() {
+        new HazardBandEvaluator(building).applyProfile(RoomType.OFFICE, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNullRoomType() {
+        new HazardBandEvaluator(building).applyProfile(null, STRICT);
+    }
+}
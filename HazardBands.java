@@ -0,0 +1,178 @@
+package bms.sensors;
+
+import java.util.Arrays;
+
+/**
+ * Maps raw sensor readings to hazard levels using a fixed set of bands.
+ *
+ * Band i covers readings from thresholds[i - 1] up to, but not including,
+ * thresholds[i], and has hazard level levels[i]; the first band starts at 0
+ * and the last has no upper limit. A reading is classified by counting the
+ * thresholds at or below it with sign-bit arithmetic rather than comparisons
+ * and branches, so classifying a whole array of readings runs at the same
+ * speed whatever the readings are.
+ *
+ * Bands are immutable and can be shared by any number of sensors.
+ */
+public class HazardBands {
+    /**
+     * The original bands for carbon dioxide: 0 below 1000 ppm, 25 below 2000
+     * ppm, 50 below 5000 ppm and 100 from 5000 ppm.
+     */
+    public static final HazardBands CARBON_DIOXIDE = new HazardBands(
+            new int[]{1000, 2000, 5000}, new int[]{0, 25, 50, 100});
+
+    private final int[] thresholds;
+    private final int[] levels;
+
+    /**
+     * Creates new hazard bands.
+     *
+     * @param thresholds lowest reading of every band but the first, in
+     *                   ascending order
+     * @param levels     hazard level of each band, one more than there are
+     *                   thresholds
+     * @throws IllegalArgumentException if either array is null; if there is
+     *                                  not one more level than thresholds;
+     *                                  if any threshold is not positive or
+     *                                  not greater than the one before it;
+     *                                  or if any level is not 0 to 100
+     */
+    public HazardBands(int[] thresholds, int[] levels)
+            throws IllegalArgumentException {
+        if (thresholds == null || levels == null ||
+                levels.length != thresholds.length + 1) {
+            throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            if (thresholds[i] <= 0 ||
+                    (i > 0 && thresholds[i] <= thresholds[i - 1])) {
+                throw new IllegalArgumentException();
+            }
+        }
+        for (int level : levels) {
+            if (level < 0 || level > 100) {
+                throw new IllegalArgumentException();
+            }
+        }
+        this.thresholds = thresholds.clone();
+        this.levels = levels.clone();
+    }
+
+    /**
+     * Creates bands based on a sensor's ideal value and acceptable variation
+     * limit: 0 while the reading is at most idealValue + variationLimit, 25
+     * up to idealValue + 2 * variationLimit, 50 up to idealValue +
+     * 4 * variationLimit and 100 above that.
+     *
+     * @param idealValue     ideal reading
+     * @param variationLimit acceptable range above the ideal reading
+     * @return new hazard bands
+     * @throws IllegalArgumentException if idealValue is negative or
+     *                                  variationLimit is not positive
+     */
+    public static HazardBands fromIdeal(int idealValue, int variationLimit)
+            throws IllegalArgumentException {
+        if (idealValue < 0 || variationLimit <= 0) {
+            throw new IllegalArgumentException();
+        }
+        long[] upper = {idealValue + (long) variationLimit,
+                idealValue + 2L * variationLimit,
+                idealValue + 4L * variationLimit};
+        int[] thresholds = new int[upper.length];
+        int count = 0;
+        for (long bound : upper) {
+            // bands that start beyond the largest reading can never apply
+            if (bound < Integer.MAX_VALUE) {
+                thresholds[count++] = (int) bound + 1;
+            }
+        }
+        return new HazardBands(Arrays.copyOf(thresholds, count),
+                Arrays.copyOf(new int[]{0, 25, 50, 100}, count + 1));
+    }
+
+    /**
+     * Returns the hazard level of the given reading.
+     *
+     * @param reading non-negative raw reading
+     * @return hazard level, 0 to 100
+     */
+    public int getLevel(int reading) {
+        int band = 0;
+        for (int threshold : thresholds) {
+            // sign bit is set exactly when threshold <= reading
+            band += (threshold - reading - 1) >>> 31;
+        }
+        return levels[band];
+    }
+
+    /**
+     * Writes the hazard level of each of the given readings into dest.
+     *
+     * @param readings non-negative raw readings
+     * @param offset   position of the first reading to classify
+     * @param count    number of readings to classify
+     * @param dest     array to write the levels into, at the same positions
+     *                 as the readings
+     * @throws IndexOutOfBoundsException if the range is out of bounds of
+     *                                   either array
+     */
+    public void getLevels(int[] readings, int offset, int count, int[] dest) {
+        if (offset < 0 || count < 0 || offset + count > readings.length ||
+                offset + count > dest.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            dest[i] = 0;
+        }
+        for (int threshold : thresholds) {
+            int limit = threshold - 1;
+            for (int i = offset; i < end; i++) {
+                dest[i] += (limit - readings[i]) >>> 31;
+            }
+        }
+        for (int i = offset; i < end; i++) {
+            dest[i] = levels[dest[i]];
+        }
+    }
+
+    /**
+     * Returns the lowest reading of every band but the first.
+     *
+     * @return new array of thresholds
+     */
+    public int[] getThresholds() {
+        return thresholds.clone();
+    }
+
+    /**
+     * Returns the hazard level of each band.
+     *
+     * @return new array of levels
+     */
+    public int[] getBandLevels() {
+        return levels.clone();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof HazardBands)) {
+            return false;
+        }
+        HazardBands other = (HazardBands) obj;
+        return Arrays.equals(thresholds, other.thresholds) &&
+                Arrays.equals(levels, other.levels);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(thresholds) + Arrays.hashCode(levels);
+    }
+
+    @Override
+    public String toString() {
+        return "HazardBands: thresholds=" + Arrays.toString(thresholds) +
+                ", levels=" + Arrays.toString(levels);
+    }
+}
@@ -0,0 +1,363 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the hazard level of every hazard sensor in a building in one grid
+ * per floor, with a row for each room and a column for each SensorKind.
+ *
+ * Each grid is a single int array, so a floor's heatmap is read or rendered
+ * without touching any Room or Sensor. After every tick only the cells of
+ * sensors whose reading changed, as reported by the ChangeFeed, are worked
+ * out again; the grids are rebuilt when floors, rooms or hazard sensors
+ * are added to or removed from the building, but not for changes to other
+ * buildings. Floors are scanned in parallel when the heatmap is built or
+ * refreshed.
+ */
+public class HazardHeatmap {
+    private static final SensorKind[] KINDS = SensorKind.values();
+
+    private Building building;
+    private Consumer<ChangeBatch> listener;
+
+    private Map<Integer, FloorGrid> grids;
+    /* per tracked hazard sensor */
+    private Map<Sensor, Integer> sensorIndexes;
+    private HazardSensor[] sensors;
+    private FloorGrid[] sensorGrids;
+    private int[] sensorCells;
+    /* the floors and rooms mapped, and the rooms' modification counts, as
+       of the last refresh */
+    private Set<Floor> floorSet;
+    private Set<Room> roomSet;
+    private Room[] rooms;
+    private int[] roomModCounts;
+
+    /**
+     * Creates a heatmap for the given building and subscribes it to the
+     * change feed.
+     *
+     * @param building building to map
+     */
+    public HazardHeatmap(Building building) {
+        this.building = building;
+        refresh();
+        listener = this::apply;
+        ChangeFeed.getInstance().subscribe(listener);
+    }
+
+    /**
+     * Rebuilds every grid from the building. Called automatically when the
+     * change feed reports floors, rooms or sensors added to or removed from
+     * the building, and
+     * should be called after changing how a sensor classifies its readings,
+     * such as with CarbonDioxideSensor.setHazardBands(HazardBands).
+     */
+    public synchronized void refresh() {
+        List<Floor> floors = building.getFloorsView();
+        FloorGrid[] built = new FloorGrid[floors.size()];
+        // each floor only writes its own grid
+        IntStream.range(0, floors.size()).parallel().forEach(i ->
+                built[i] = new FloorGrid(floors.get(i)));
+
+        grids = new LinkedHashMap<>();
+        sensorIndexes = new IdentityHashMap<>();
+        List<HazardSensor> sensorList = new ArrayList<>();
+        List<FloorGrid> gridList = new ArrayList<>();
+        List<Integer> cellList = new ArrayList<>();
+        for (FloorGrid grid : built) {
+            grids.put(grid.floorNumber, grid);
+            for (int cell = 0; cell < grid.sensors.length; cell++) {
+                if (grid.sensors[cell] != null) {
+                    sensorIndexes.put(grid.sensors[cell], sensorList.size());
+                    sensorList.add(grid.sensors[cell]);
+                    gridList.add(grid);
+                    cellList.add(cell);
+                }
+            }
+            // only the index needs the sensors
+            grid.sensors = null;
+        }
+        sensors = sensorList.toArray(new HazardSensor[0]);
+        sensorGrids = gridList.toArray(new FloorGrid[0]);
+        sensorCells = new int[cellList.size()];
+        for (int i = 0; i < sensorCells.length; i++) {
+            sensorCells[i] = cellList.get(i);
+        }
+
+        floorSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        floorSet.addAll(floors);
+        roomSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Floor floor : floors) {
+            roomSet.addAll(floor.getRoomsView());
+        }
+        rooms = roomSet.toArray(new Room[0]);
+        roomModCounts = new int[rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            roomModCounts[i] = rooms[i].getModCount();
+        }
+    }
+
+    /**
+     * Returns the room numbers of the given floor, in the order of the rows
+     * of its grid.
+     *
+     * @param floorNumber number of the floor
+     * @return new array of room numbers; null if there is no such floor
+     */
+    public synchronized int[] getRoomNumbers(int floorNumber) {
+        FloorGrid grid = grids.get(floorNumber);
+        return grid == null ? null : grid.roomNumbers.clone();
+    }
+
+    /**
+     * Returns a copy of the given floor's grid. The hazard level of the
+     * sensor of kind k in row r is at index r * SensorKind.values().length +
+     * k.ordinal(), or -1 if the room has no hazard sensor of that kind.
+     *
+     * @param floorNumber number of the floor
+     * @return new array of hazard levels; null if there is no such floor
+     */
+    public synchronized int[] getLevels(int floorNumber) {
+        FloorGrid grid = grids.get(floorNumber);
+        return grid == null ? null : grid.levels.clone();
+    }
+
+    /**
+     * Returns the hazard level of a sensor on the heatmap.
+     *
+     * @param floorNumber number of the floor
+     * @param roomNumber  number of the room
+     * @param kind        kind of sensor
+     * @return hazard level, 0 to 100; -1 if there is no hazard sensor of that
+     *         kind in the room
+     */
+    public synchronized int getLevel(int floorNumber, int roomNumber,
+                                     SensorKind kind) {
+        FloorGrid grid = grids.get(floorNumber);
+        if (grid == null) {
+            return -1;
+        }
+        for (int row = 0; row < grid.roomNumbers.length; row++) {
+            if (grid.roomNumbers[row] == roomNumber) {
+                return grid.levels[row * KINDS.length + kind.ordinal()];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the highest hazard level on the given floor.
+     *
+     * @param floorNumber number of the floor
+     * @return hazard level, 0 to 100; -1 if there is no such floor or it has
+     *         no hazard sensors
+     */
+    public synchronized int getMaxLevel(int floorNumber) {
+        FloorGrid grid = grids.get(floorNumber);
+        if (grid == null) {
+            return -1;
+        }
+        int max = -1;
+        for (int level : grid.levels) {
+            max = Math.max(max, level);
+        }
+        return max;
+    }
+
+    /**
+     * Renders the given floor's grid as text, with a header row naming each
+     * kind of sensor and a row for each room, e.g.
+     * <pre>
+     * room  CO2 NOISE OCCUPANCY TEMPERATURE
+     * 101    25     0         -           0
+     * </pre>
+     * The text is built once and reused until a level on the floor changes.
+     *
+     * @param floorNumber number of the floor
+     * @return heatmap of the floor; null if there is no such floor
+     */
+    public synchronized String render(int floorNumber) {
+        FloorGrid grid = grids.get(floorNumber);
+        if (grid == null) {
+            return null;
+        }
+        if (grid.rendered == null) {
+            grid.rendered = grid.render();
+        }
+        return grid.rendered;
+    }
+
+    /**
+     * Unsubscribes the heatmap from the change feed. The grids are still
+     * available but are no longer updated.
+     */
+    public void close() {
+        ChangeFeed.getInstance().unsubscribe(listener);
+    }
+
+    /**
+     * Applies the reading changes of one tick.
+     */
+    private synchronized void apply(ChangeBatch batch) {
+        if (batch.isStructureChanged() && isMapped(batch)) {
+            refresh();
+            return;
+        }
+        for (Sensor sensor : batch.getAdvancedSensors()) {
+            Integer index = sensorIndexes.get(sensor);
+            if (index != null) {
+                FloorGrid grid = sensorGrids[index];
+                int level = sensors[index].getHazardLevel();
+                if (grid.levels[sensorCells[index]] != level) {
+                    grid.levels[sensorCells[index]] = level;
+                    grid.rendered = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether any floor, room or hazard sensor added or removed
+     * during a tick belongs to this building, before or after the tick.
+     */
+    private boolean isMapped(ChangeBatch batch) {
+        List<Floor> floors = building.getFloorsView();
+        if (!batch.getAddedFloors().isEmpty() ||
+                !batch.getRemovedFloors().isEmpty()) {
+            if (floors.size() != floorSet.size()) {
+                return true;
+            }
+            for (Floor floor : floors) {
+                if (!floorSet.contains(floor)) {
+                    return true;
+                }
+            }
+        }
+        for (Room room : batch.getRemovedRooms()) {
+            if (roomSet.contains(room)) {
+                return true;
+            }
+        }
+        for (Room room : batch.getAddedRooms()) {
+            for (Floor floor : floors) {
+                if (floor.getRoomByNumber​(room.getRoomNumber()) == room) {
+                    return true;
+                }
+            }
+        }
+        for (Sensor sensor : batch.getRemovedSensors()) {
+            if (sensorIndexes.containsKey(sensor)) {
+                return true;
+            }
+        }
+        for (Sensor sensor : batch.getAddedSensors()) {
+            if (sensor instanceof HazardSensor &&
+                    SensorKind.of(sensor) != null) {
+                // the sensor is in one of the rooms if its count has moved
+                for (int i = 0; i < rooms.length; i++) {
+                    if (rooms[i].getModCount() != roomModCounts[i]) {
+                        return true;
+                    }
+                }
+                break;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "HazardHeatmap: floors=" + grids.size() + ", sensors=" +
+                sensors.length;
+    }
+
+    /**
+     * The hazard levels of one floor, a row per room and a column per kind
+     * of sensor.
+     */
+    private static class FloorGrid {
+        private final int floorNumber;
+        private final int[] roomNumbers;
+        private final int[] levels;
+        /* the sensor of each cell while the grid is being indexed */
+        private HazardSensor[] sensors;
+        private String rendered;
+
+        private FloorGrid(Floor floor) {
+            floorNumber = floor.getFloorNumber();
+            List<Room> rooms = floor.getRoomsView();
+            roomNumbers = new int[rooms.size()];
+            levels = new int[rooms.size() * KINDS.length];
+            sensors = new HazardSensor[levels.length];
+            Arrays.fill(levels, -1);
+            for (int row = 0; row < roomNumbers.length; row++) {
+                Room room = rooms.get(row);
+                roomNumbers[row] = room.getRoomNumber();
+                for (Sensor sensor : room.getSensorsView()) {
+                    SensorKind kind = SensorKind.of(sensor);
+                    if (kind != null && sensor instanceof HazardSensor) {
+                        int cell = row * KINDS.length + kind.ordinal();
+                        sensors[cell] = (HazardSensor) sensor;
+                        levels[cell] = sensors[cell].getHazardLevel();
+                    }
+                }
+            }
+        }
+
+        private String render() {
+            String[] names = new String[KINDS.length];
+            names[SensorKind.CARBON_DIOXIDE.ordinal()] = "CO2";
+            for (SensorKind kind : KINDS) {
+                if (names[kind.ordinal()] == null) {
+                    names[kind.ordinal()] = kind.name();
+                }
+            }
+            int roomWidth = 4;
+            for (int roomNumber : roomNumbers) {
+                roomWidth = Math.max(roomWidth,
+                        Integer.toString(roomNumber).length());
+            }
+            StringBuilder text = new StringBuilder(
+                    (roomWidth + 36) * (roomNumbers.length + 1));
+            pad(text, "room", roomWidth, false);
+            for (String name : names) {
+                text.append(' ').append(name);
+            }
+            for (int row = 0; row < roomNumbers.length; row++) {
+                text.append('\n');
+                pad(text, Integer.toString(roomNumbers[row]), roomWidth,
+                        false);
+                for (int k = 0; k < KINDS.length; k++) {
+                    int level = levels[row * KINDS.length + k];
+                    text.append(' ');
+                    pad(text, level < 0 ? "-" : Integer.toString(level),
+                            names[k].length(), true);
+                }
+            }
+            return text.toString();
+        }
+
+        private static void pad(StringBuilder text, String value, int width,
+                                boolean right) {
+            if (!right) {
+                text.append(value);
+            }
+            for (int i = value.length(); i < width; i++) {
+                text.append(' ');
+            }
+            if (right) {
+                text.append(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardBands;
+import bms.sensors.NoiseSensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class HazardHeatmapTest {
+    private TimedItemManager manager;
+    private Building building;
+    private Room room1;
+    private Room room2;
+    private NoiseSensor noise;
+    private List<TimedItem> owned;
+    private HazardHeatmap heatmap;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = TimedItemManager.getInstance();
+        building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        room1 = new Room(101, RoomType.OFFICE, 20);
+        room2 = new Room(102, RoomType.LABORATORY, 20);
+        floor.addRoom​(room1);
+        floor.addRoom​(room2);
+        noise = new NoiseSensor(new int[]{70, 75, 60}, 1);
+        room1.addSensor​(noise);
+        owned = new ArrayList<>(List.of(noise));
+        heatmap = new HazardHeatmap(building);
+    }
+
+    @After
+    public void tearDown() {
+        heatmap.close();
+        manager.deregisterTimedItems(owned);
+    }
+
+    @Test
+    public void readingChangesUpdateCells() {
+        Assert.assertEquals(noise.getHazardLevel(),
+                heatmap.getLevel(1, 101, SensorKind.NOISE));
+        String before = heatmap.render(1);
+        Assert.assertSame(before, heatmap.render(1));
+        int[] numbers = heatmap.getRoomNumbers(1);
+
+        manager.elapseOneMinute();
+        Assert.assertEquals(75, noise.getCurrentReading());
+        Assert.assertEquals(noise.getHazardLevel(),
+                heatmap.getLevel(1, 101, SensorKind.NOISE));
+        Assert.assertEquals(noise.getHazardLevel(), heatmap.getMaxLevel(1));
+        Assert.assertFalse(before.equals(heatmap.render(1)));
+        Assert.assertEquals(-1,
+                heatmap.getLevel(1, 102, SensorKind.NOISE));
+        // not rebuilt, only the changed cell is worked out again
+        Assert.assertArrayEquals(numbers, heatmap.getRoomNumbers(1));
+    }
+
+    @Test
+    public void addedSensorAppearsAfterTick() throws Exception {
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[]{20, 90});
+        owned.add(temperature);
+        room2.addSensor​(temperature);
+        Assert.assertEquals(-1,
+                heatmap.getLevel(1, 102, SensorKind.TEMPERATURE));
+
+        manager.elapseOneMinute();
+        Assert.assertEquals(temperature.getHazardLevel(),
+                heatmap.getLevel(1, 102, SensorKind.TEMPERATURE));
+        Assert.assertTrue(heatmap.toString().endsWith("sensors=2"));
+
+        // readings of the added sensor then update incrementally
+        manager.elapseOneMinute();
+        Assert.assertEquals(temperature.getHazardLevel(),
+                heatmap.getLevel(1, 102, SensorKind.TEMPERATURE));
+    }
+
+    @Test
+    public void addedSensorBatchAppearsAfterTick() {
+        TemperatureSensor temperature =
+                new TemperatureSensor(new int[]{90});
+        owned.add(temperature);
+        Assert.assertTrue(room2.addSensors(
+                new TemperatureSensor[]{temperature}).isCommitted());
+        manager.elapseOneMinute();
+        Assert.assertEquals(temperature.getHazardLevel(),
+                heatmap.getLevel(1, 102, SensorKind.TEMPERATURE));
+    }
+
+    @Test
+    public void removedSensorLeavesGrid() {
+        room1.removeSensor(noise);
+        manager.elapseOneMinute();
+        Assert.assertEquals(-1, heatmap.getLevel(1, 101, SensorKind.NOISE));
+        Assert.assertEquals(-1, heatmap.getMaxLevel(1));
+        Assert.assertTrue(heatmap.toString().endsWith("sensors=0"));
+    }
+
+    @Test
+    public void otherBuildingsIgnored() throws Exception {
+        CarbonDioxideSensor co2 =
+                new CarbonDioxideSensor(new int[]{900}, 5, 600, 100);
+        owned.add(co2);
+        room2.addSensor​(co2);
+        manager.elapseOneMinute();
+        Assert.assertEquals(0,
+                heatmap.getLevel(1, 102, SensorKind.CARBON_DIOXIDE));
+        // only seen by the heatmap once its grids are rebuilt
+        co2.setHazardBands(new HazardBands(new int[]{800}, new int[]{0, 100}));
+
+        Building other = new Building("Other");
+        Floor floor = new Floor(1, 10, 10);
+        other.addFloor(floor);
+        floor.addRoom​(new Room(101, RoomType.OFFICE, 20));
+        manager.elapseOneMinute();
+        Assert.assertEquals(0,
+                heatmap.getLevel(1, 102, SensorKind.CARBON_DIOXIDE));
+
+        building.getFloorByNumber(1).addRoom​(
+                new Room(103, RoomType.OFFICE, 20));
+        manager.elapseOneMinute();
+        Assert.assertEquals(100,
+                heatmap.getLevel(1, 102, SensorKind.CARBON_DIOXIDE));
+    }
+}
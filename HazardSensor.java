@@ -13,4 +13,20 @@ public interface HazardSensor extends Sensor {
      * @return level of hazard at sensor location, 0 to 100
      */
     int getHazardLevel();
+
+    /**
+     * Returns the level of hazard this sensor would report if its current
+     * reading were the given reading, e.g. to classify a reading that has
+     * not been published yet.
+     *
+     * Sensors which cannot classify an arbitrary reading need not override
+     * this; by default it returns the level of the current reading, as
+     * getHazardLevel() does.
+     *
+     * @param reading raw reading, as returned by getCurrentReading()
+     * @return level of hazard for the reading, 0 to 100
+     */
+    default int getHazardLevel(int reading) {
+        return getHazardLevel();
+    }
 }
\ No newline at end of file
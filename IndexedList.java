@@ -0,0 +1,225 @@
+package bms.util;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A list of distinct elements, kept in the order they were added, from which
+ * any element can be removed in O(log n) time.
+ *
+ * Removed elements leave an empty slot behind rather than shifting the
+ * elements after them, and a Fenwick tree over the slots counts the
+ * elements before each one, so the element at a position is found in
+ * O(log n) time. Each element's slot is kept in an identity map. Once there
+ * are more empty slots than elements, the slots are packed together again,
+ * which costs O(n) but happens at most once per n removals.
+ *
+ * Elements are compared by identity, and must not be added twice.
+ *
+ * @param <E> type of the elements
+ */
+public class IndexedList<E> extends AbstractList<E> {
+    /* fewest empty slots worth packing away */
+    private static final int MIN_PACK = 16;
+
+    private Object[] slots;
+    /* 1-based Fenwick tree of the number of elements in each slot */
+    private int[] counts;
+    /* slots used so far, including emptied ones */
+    private int used;
+    private int size;
+    private Map<E, Integer> positions;
+
+    /**
+     * Creates a new, empty list.
+     */
+    public IndexedList() {
+        slots = new Object[8];
+        counts = new int[slots.length + 1];
+        positions = new IdentityHashMap<>();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        // descend the tree to the slot holding the (index + 1)th element
+        int slot = 0;
+        int remaining = index + 1;
+        for (int step = Integer.highestOneBit(slots.length); step > 0;
+             step >>= 1) {
+            int next = slot + step;
+            if (next <= slots.length && counts[next] < remaining) {
+                slot = next;
+                remaining -= counts[next];
+            }
+        }
+        return (E) slots[slot];
+    }
+
+    /**
+     * Adds the given element to the end of the list.
+     *
+     * @param element element to add, not already in the list
+     * @return true
+     * @throws IllegalArgumentException if the element is already in the list
+     */
+    @Override
+    public boolean add(E element) throws IllegalArgumentException {
+        if (positions.containsKey(element)) {
+            throw new IllegalArgumentException();
+        }
+        if (used == slots.length) {
+            pack(Math.max(8, 2 * size));
+        }
+        slots[used] = element;
+        positions.put(element, used);
+        adjust(used, 1);
+        used++;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the given element from the list, in O(log n) time.
+     *
+     * @param element element to remove
+     * @return true if the element was in the list
+     */
+    @Override
+    public boolean remove(Object element) {
+        Integer slot = positions.remove(element);
+        if (slot == null) {
+            return false;
+        }
+        empty(slot);
+        packIfSparse();
+        return true;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        boolean removed = false;
+        for (int slot = 0; slot < used; slot++) {
+            @SuppressWarnings("unchecked")
+            E element = (E) slots[slot];
+            if (element != null && filter.test(element)) {
+                positions.remove(element);
+                empty(slot);
+                removed = true;
+            }
+        }
+        packIfSparse();
+        return removed;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return positions.containsKey(element);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0, used, null);
+        Arrays.fill(counts, 0);
+        positions.clear();
+        used = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int slot = nextSlot(0);
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return slot < used;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot >= used) {
+                    throw new NoSuchElementException();
+                }
+                E element = (E) slots[slot];
+                slot = nextSlot(slot + 1);
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Returns the first slot from the given one which holds an element.
+     */
+    private int nextSlot(int slot) {
+        while (slot < used && slots[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private void empty(int slot) {
+        slots[slot] = null;
+        adjust(slot, -1);
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Adds delta to the count of the given 0-based slot.
+     */
+    private void adjust(int slot, int delta) {
+        for (int i = slot + 1; i <= slots.length; i += i & -i) {
+            counts[i] += delta;
+        }
+    }
+
+    private void packIfSparse() {
+        if (used - size > size && used - size >= MIN_PACK) {
+            pack(slots.length);
+        }
+    }
+
+    /**
+     * Moves every element to the front of a new array of slots of the given
+     * capacity, in order, and rebuilds the tree and the positions.
+     */
+    @SuppressWarnings("unchecked")
+    private void pack(int capacity) {
+        Object[] packed = new Object[capacity];
+        int count = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] != null) {
+                packed[count] = slots[slot];
+                positions.put((E) slots[slot], count);
+                count++;
+            }
+        }
+        slots = packed;
+        used = count;
+        // every packed slot holds one element; build the tree in O(n)
+        counts = new int[capacity + 1];
+        for (int i = 1; i <= capacity; i++) {
+            counts[i] += i <= count ? 1 : 0;
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                counts[parent] += counts[i];
+            }
+        }
+    }
+}
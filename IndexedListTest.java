@@ -0,0 +1,74 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IndexedListTest {
+    @Test
+    public void sameAsArrayList() {
+        Random random = new Random(7);
+        IndexedList<Object> list = new IndexedList<>();
+        List<Object> expected = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                Object element = new Object();
+                list.add(element);
+                expected.add(element);
+            } else {
+                Object element = expected.remove(
+                        random.nextInt(expected.size()));
+                Assert.assertTrue(list.remove(element));
+            }
+            if (step % 250 == 0) {
+                Assert.assertEquals(expected, list);
+                for (int i = 0; i < expected.size(); i++) {
+                    Assert.assertSame(expected.get(i), list.get(i));
+                }
+            }
+        }
+        Assert.assertEquals(expected, list);
+    }
+
+    @Test
+    public void removeIf() {
+        IndexedList<String> list = new IndexedList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add("item" + i);
+        }
+        Assert.assertTrue(list.removeIf(item -> item.endsWith("5")));
+        Assert.assertEquals(90, list.size());
+        Assert.assertEquals("item6", list.get(5));
+        Assert.assertFalse(list.contains(list.get(0) + "x"));
+        Assert.assertFalse(list.removeIf(item -> item.endsWith("5")));
+    }
+
+    @Test
+    public void removeAbsent() {
+        IndexedList<String> list = new IndexedList<>();
+        list.add("a");
+        Assert.assertFalse(list.remove("b"));
+        Assert.assertTrue(list.remove("a"));
+        Assert.assertTrue(list.isEmpty());
+        list.add("a");
+        Assert.assertEquals(List.of("a"), list);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addTwice() {
+        IndexedList<String> list = new IndexedList<>();
+        String element = "a";
+        list.add(element);
+        list.add(element);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPastEnd() {
+        IndexedList<String> list = new IndexedList<>();
+        list.add("a");
+        list.get(1);
+    }
+}
@@ -0,0 +1,139 @@
+package bms.util;
+
+import java.util.PriorityQueue;
+
+/**
+ * A binary max-heap of the items 0 to size - 1, each with a priority that can
+ * be changed in O(log n) time.
+ *
+ * The heap tracks where each item sits, so updating an item's priority does
+ * not require searching for it.
+ */
+public class IndexedMaxHeap {
+    private int[] heap;
+    private int[] positions;
+    private double[] priorities;
+
+    /**
+     * Creates a new heap holding the items 0 to size - 1, all with
+     * priority 0.
+     *
+     * @param size number of items in the heap
+     */
+    public IndexedMaxHeap(int size) {
+        heap = new int[size];
+        positions = new int[size];
+        priorities = new double[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+            positions[i] = i;
+        }
+    }
+
+    /**
+     * Returns the number of items in the heap.
+     *
+     * @return number of items
+     */
+    public int size() {
+        return heap.length;
+    }
+
+    /**
+     * Returns the current priority of the given item.
+     *
+     * @param item item to look up
+     * @return priority of the item
+     */
+    public double getPriority(int item) {
+        return priorities[item];
+    }
+
+    /**
+     * Changes the priority of the given item.
+     *
+     * @param item     item to update
+     * @param priority new priority of the item
+     */
+    public void setPriority(int item, double priority) {
+        double old = priorities[item];
+        priorities[item] = priority;
+        if (priority > old) {
+            siftUp(positions[item]);
+        } else if (priority < old) {
+            siftDown(positions[item]);
+        }
+    }
+
+    /**
+     * Returns the items with the highest priority, highest first, without
+     * changing the heap. Takes O(k log k) time regardless of the heap size.
+     *
+     * @param k maximum number of items to return
+     * @return new array of at most k items
+     */
+    public int[] top(int k) {
+        int count = Math.min(k, heap.length);
+        int[] result = new int[count];
+        if (count == 0) {
+            return result;
+        }
+        // best-first walk of the heap, frontier holds heap positions
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(count * 2,
+                (a, b) -> Double.compare(priorities[heap[b]],
+                        priorities[heap[a]]));
+        frontier.add(0);
+        for (int i = 0; i < count; i++) {
+            int position = frontier.poll();
+            result[i] = heap[position];
+            int left = 2 * position + 1;
+            if (left < heap.length) {
+                frontier.add(left);
+            }
+            if (left + 1 < heap.length) {
+                frontier.add(left + 1);
+            }
+        }
+        return result;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (priorities[heap[parent]] >= priorities[heap[position]]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int largest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < heap.length &&
+                    priorities[heap[left]] > priorities[heap[largest]]) {
+                largest = left;
+            }
+            if (right < heap.length &&
+                    priorities[heap[right]] > priorities[heap[largest]]) {
+                largest = right;
+            }
+            if (largest == position) {
+                return;
+            }
+            swap(position, largest);
+            position = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int item = heap[a];
+        heap[a] = heap[b];
+        heap[b] = item;
+        positions[heap[a]] = a;
+        positions[heap[b]] = b;
+    }
+}
@@ -0,0 +1,63 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class IndexedMaxHeapTest {
+    @Test
+    public void newHeapHasZeroPriorities() {
+        IndexedMaxHeap heap = new IndexedMaxHeap(3);
+        Assert.assertEquals(3, heap.size());
+        Assert.assertEquals(0, heap.getPriority(2), 0);
+        Assert.assertEquals(3, heap.top(5).length);
+        Assert.assertEquals(0, new IndexedMaxHeap(0).top(3).length);
+    }
+
+    @Test
+    public void topAfterRaisingAndLowering() {
+        IndexedMaxHeap heap = new IndexedMaxHeap(5);
+        heap.setPriority(3, 0.5);
+        heap.setPriority(1, 0.9);
+        heap.setPriority(4, 0.7);
+        Assert.assertArrayEquals(new int[]{1, 4, 3}, heap.top(3));
+        heap.setPriority(1, 0.1);
+        Assert.assertArrayEquals(new int[]{4, 3, 1}, heap.top(3));
+        heap.setPriority(0, Double.POSITIVE_INFINITY);
+        Assert.assertArrayEquals(new int[]{0}, heap.top(1));
+    }
+
+    @Test
+    public void topMatchesSort() {
+        Random random = new Random(11);
+        int size = 200;
+        IndexedMaxHeap heap = new IndexedMaxHeap(size);
+        double[] priorities = new double[size];
+        for (int item = 0; item < size; item++) {
+            priorities[item] = -item;
+            heap.setPriority(item, priorities[item]);
+        }
+        for (int step = 0; step < 2000; step++) {
+            int item = random.nextInt(size);
+            // distinct priorities, so the order is fixed
+            priorities[item] = random.nextDouble() + step * 1e-9;
+            heap.setPriority(item, priorities[item]);
+            if (step % 100 == 0) {
+                int[] expected = IntStream.range(0, size).boxed()
+                        .sorted(Comparator.comparingDouble(
+                                (Integer i) -> priorities[i]).reversed())
+                        .mapToInt(Integer::intValue)
+                        .limit(20).toArray();
+                Assert.assertArrayEquals(expected, heap.top(20));
+                Assert.assertEquals(priorities[item], heap.getPriority(item),
+                        0);
+            }
+        }
+        Assert.assertEquals(size, Arrays.stream(heap.top(size))
+                .distinct().count());
+    }
+}
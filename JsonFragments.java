@@ -0,0 +1,351 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Caches the JSON representation of a building, its floors and its rooms.
+ *
+ * Each room's JSON is built once and reused until the room changes; a floor's
+ * JSON is put together from the cached JSON of its rooms, and is reused as
+ * long as none of them has been rebuilt. Rooms are invalidated through the
+ * ChangeFeed when one of their sensors advances. Fire drill status and
+ * structural changes (sensors, rooms or floors added or removed) are checked
+ * when the JSON is requested, so they are visible straight away, even
+ * between ticks.
+ *
+ * Each room's JSON is stamped with the last change feed tick seen when it
+ * was started. A room rendered from readings of one tick but cached only
+ * after that tick's changes were applied is then still seen to be stale,
+ * rather than served until the room next changes.
+ *
+ * Safe to use from many threads at once.
+ */
+public class JsonFragments {
+    private Building building;
+    private Consumer<ChangeBatch> listener;
+
+    private Map<Room, Fragment> rooms = new ConcurrentHashMap<>();
+    private Map<Floor, Fragment> floors = new ConcurrentHashMap<>();
+    private volatile Fragment buildingFragment;
+    /* filled in as rooms are rendered, so a changed sensor finds its room */
+    private Map<Sensor, Room> sensorRooms = new ConcurrentHashMap<>();
+    /* change feed tick at which each room last changed */
+    private Map<Room, Long> changedTicks = new ConcurrentHashMap<>();
+    /* last change feed tick applied */
+    private volatile long publishedTick = 0;
+
+    /**
+     * Creates a cache for the given building and subscribes it to the change
+     * feed.
+     *
+     * @param building building to represent
+     */
+    public JsonFragments(Building building) {
+        this.building = building;
+        listener = this::invalidate;
+        ChangeFeed.getInstance().subscribe(listener);
+    }
+
+    /**
+     * Returns the building's name and a summary of each floor.
+     *
+     * @return UTF-8 encoded JSON object
+     */
+    public byte[] getBuilding() {
+        List<Floor> floorList = building.getFloorsView();
+        Fragment fragment = buildingFragment;
+        if (fragment == null || !fragment.matches(floorList)) {
+            fragment = renderBuilding(floorList);
+            buildingFragment = fragment;
+        }
+        return fragment.getBytes();
+    }
+
+    /**
+     * Returns the given floor and every room on it.
+     *
+     * @param floorNumber number of the floor
+     * @return UTF-8 encoded JSON object; null if there is no such floor
+     */
+    public byte[] getFloor(int floorNumber) {
+        Floor floor = building.getFloorByNumber(floorNumber);
+        return floor == null ? null : floorFragment(floor).getBytes();
+    }
+
+    /**
+     * Returns the given room and the current state of its sensors.
+     *
+     * @param floorNumber number of the floor the room is on
+     * @param roomNumber  number of the room
+     * @return UTF-8 encoded JSON object; null if there is no such room
+     */
+    public byte[] getRoom(int floorNumber, int roomNumber) {
+        Floor floor = building.getFloorByNumber(floorNumber);
+        Room room = floor == null ? null : floor.getRoomByNumber​(roomNumber);
+        return room == null ? null : roomFragment(room).getBytes();
+    }
+
+    /**
+     * Unsubscribes the cache from the change feed. Cached JSON for rooms
+     * will no longer reflect new sensor readings.
+     */
+    public void close() {
+        ChangeFeed.getInstance().unsubscribe(listener);
+    }
+
+    /**
+     * Drops the JSON of every room that changed during a tick.
+     */
+    private void invalidate(ChangeBatch batch) {
+        long tick = batch.getTick();
+        for (Sensor sensor : batch.getAdvancedSensors()) {
+            Room room = sensorRooms.get(sensor);
+            if (room != null) {
+                changedTicks.put(room, tick);
+                rooms.remove(room);
+            }
+        }
+        for (Room room : batch.getDrillChangedRooms()) {
+            changedTicks.put(room, tick);
+            rooms.remove(room);
+        }
+        // forget what was removed, so it can be garbage collected
+        for (Sensor sensor : batch.getRemovedSensors()) {
+            sensorRooms.remove(sensor);
+        }
+        for (Room room : batch.getRemovedRooms()) {
+            rooms.remove(room);
+            changedTicks.remove(room);
+            for (Sensor sensor : room.getSensorsView()) {
+                sensorRooms.remove(sensor);
+            }
+        }
+        for (Floor floor : batch.getRemovedFloors()) {
+            floors.remove(floor);
+            for (Room room : floor.getRoomsView()) {
+                rooms.remove(room);
+                changedTicks.remove(room);
+                for (Sensor sensor : room.getSensorsView()) {
+                    sensorRooms.remove(sensor);
+                }
+            }
+        }
+        // only once every changed room has been marked
+        publishedTick = tick;
+    }
+
+    private Fragment roomFragment(Room room) {
+        Fragment fragment = rooms.get(room);
+        if (fragment == null || !fragment.matches(room) ||
+                fragment.tick < changedTicks.getOrDefault(room, 0L)) {
+            fragment = renderRoom(room);
+            rooms.put(room, fragment);
+        }
+        return fragment;
+    }
+
+    private Fragment floorFragment(Floor floor) {
+        List<Room> roomList = floor.getRoomsView();
+        Fragment[] parts = new Fragment[roomList.size()];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = roomFragment(roomList.get(i));
+        }
+        Fragment fragment = floors.get(floor);
+        if (fragment == null || !fragment.matches(parts)) {
+            fragment = renderFloor(floor, parts);
+            floors.put(floor, fragment);
+        }
+        return fragment;
+    }
+
+    private Fragment renderBuilding(List<Floor> floorList) {
+        StringBuilder json = new StringBuilder(64 + 80 * floorList.size());
+        int[] roomCounts = new int[floorList.size()];
+        json.append("{\"name\":");
+        appendString(json, building.getName());
+        json.append(",\"floors\":[");
+        for (int i = 0; i < floorList.size(); i++) {
+            Floor floor = floorList.get(i);
+            roomCounts[i] = floor.getRoomsView().size();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"floorNumber\":").append(floor.getFloorNumber())
+                    .append(",\"width\":").append(floor.getWidth())
+                    .append(",\"length\":").append(floor.getLength())
+                    .append(",\"rooms\":").append(roomCounts[i])
+                    .append('}');
+        }
+        json.append("]}");
+        return new Fragment(json.toString(), floorList.toArray(new Floor[0]),
+                roomCounts);
+    }
+
+    private Fragment renderFloor(Floor floor, Fragment[] parts) {
+        int length = 80;
+        for (Fragment part : parts) {
+            length += part.json.length() + 1;
+        }
+        StringBuilder json = new StringBuilder(length);
+        json.append("{\"floorNumber\":").append(floor.getFloorNumber())
+                .append(",\"width\":").append(floor.getWidth())
+                .append(",\"length\":").append(floor.getLength())
+                .append(",\"rooms\":[");
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(parts[i].json);
+        }
+        json.append("]}");
+        return new Fragment(json.toString(), parts);
+    }
+
+    private Fragment renderRoom(Room room) {
+        // taken before any reading, so older readings are never stamped newer
+        long tick = publishedTick;
+        List<Sensor> sensors = room.getSensorsView();
+        boolean drill = room.fireDrillOngoing();
+        int modCount = room.getModCount();
+        StringBuilder json = new StringBuilder(96 + 96 * sensors.size());
+        json.append("{\"roomNumber\":").append(room.getRoomNumber())
+                .append(",\"type\":");
+        if (room.getType() == null) {
+            json.append("null");
+        } else {
+            json.append('"').append(room.getType()).append('"');
+        }
+        json.append(",\"area\":").append(room.getArea())
+                .append(",\"fireDrill\":").append(drill)
+                .append(",\"sensors\":[");
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor sensor = sensors.get(i);
+            sensorRooms.put(sensor, room);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"type\":\"")
+                    .append(sensor.getClass().getSimpleName())
+                    .append("\",\"reading\":")
+                    .append(sensor.getCurrentReading());
+            if (sensor instanceof TimedSensor) {
+                json.append(",\"updateFrequency\":")
+                        .append(((TimedSensor) sensor).getUpdateFrequency());
+            }
+            if (sensor instanceof HazardSensor) {
+                json.append(",\"hazardLevel\":")
+                        .append(((HazardSensor) sensor).getHazardLevel());
+            }
+            json.append('}');
+        }
+        json.append("]}");
+        return new Fragment(json.toString(), drill, modCount, tick);
+    }
+
+    /**
+     * Appends the given text as a JSON string.
+     */
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * The JSON of one node, with what is needed to tell whether the node has
+     * changed since.
+     */
+    private static class Fragment {
+        private final String json;
+        private volatile byte[] bytes;
+        /* rooms: drill status, modification count and change feed tick
+           when rendered */
+        private boolean drill;
+        private int modCount;
+        private long tick;
+        /* floors: room fragments the JSON was put together from */
+        private Fragment[] parts;
+        /* building: floors and their number of rooms when rendered */
+        private Floor[] floorParts;
+        private int[] roomCounts;
+
+        private Fragment(String json, boolean drill, int modCount,
+                         long tick) {
+            this.json = json;
+            this.drill = drill;
+            this.modCount = modCount;
+            this.tick = tick;
+        }
+
+        private Fragment(String json, Fragment[] parts) {
+            this.json = json;
+            this.parts = parts;
+        }
+
+        private Fragment(String json, Floor[] floorParts, int[] roomCounts) {
+            this.json = json;
+            this.floorParts = floorParts;
+            this.roomCounts = roomCounts;
+        }
+
+        private byte[] getBytes() {
+            byte[] result = bytes;
+            if (result == null) {
+                result = json.getBytes(StandardCharsets.UTF_8);
+                bytes = result;
+            }
+            return result;
+        }
+
+        private boolean matches(Room room) {
+            return room.fireDrillOngoing() == drill &&
+                    room.getModCount() == modCount;
+        }
+
+        private boolean matches(Fragment[] current) {
+            if (current.length != parts.length) {
+                return false;
+            }
+            for (int i = 0; i < parts.length; i++) {
+                if (current[i] != parts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(List<Floor> floorList) {
+            if (floorList.size() != roomCounts.length) {
+                return false;
+            }
+            for (int i = 0; i < roomCounts.length; i++) {
+                if (floorList.get(i) != floorParts[i] ||
+                        floorParts[i].getRoomsView().size() != roomCounts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
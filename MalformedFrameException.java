@@ -0,0 +1,25 @@
+package bms.exceptions;
+
+/**
+ * Exception thrown when a frame of the binary reading protocol is not laid
+ * out as the protocol requires, e.g. its length does not match its contents.
+ */
+public class MalformedFrameException extends Exception {
+
+    /**
+     * Constructs a normal MalformedFrameException with no error message or
+     * cause.
+     */
+    public MalformedFrameException() {
+    }
+
+    /**
+     * Constructs a MalformedFrameException that contains a helpful message
+     * detailing why the exception occurred.
+     *
+     * @param message detail message
+     */
+    public MalformedFrameException(String message) {
+        super(message);
+    }
+}
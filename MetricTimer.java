@@ -0,0 +1,109 @@
+package bms.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how often an instrumented section of code runs and how long it
+ * takes.
+ *
+ * Usage:
+ * <pre>
+ * long start = TIMER.start();
+ * try {
+ *     ...
+ * } finally {
+ *     TIMER.stop(start);
+ * }
+ * </pre>
+ */
+public class MetricTimer {
+    private String name;
+    private LongAdder count;
+    private LongAdder totalNanos;
+    private LatencyHistogram histogram;
+
+    /**
+     * Creates a new timer with no recorded values.
+     *
+     * @param name name of the timer
+     */
+    MetricTimer(String name) {
+        this.name = name;
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        histogram = new LatencyHistogram();
+    }
+
+    /**
+     * Returns the name of the timer.
+     *
+     * @return timer name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts timing a call.
+     *
+     * @return start time to pass to stop(); 0 if metrics are disabled
+     */
+    public long start() {
+        if (!Metrics.isEnabled()) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Stops timing a call and records its duration.
+     *
+     * @param start value returned by the matching call to start()
+     */
+    public void stop(long start) {
+        if (start == 0) {
+            // metrics were disabled when the call started
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        count.increment();
+        totalNanos.add(elapsed);
+        histogram.record(elapsed);
+    }
+
+    /**
+     * Returns the number of recorded calls.
+     *
+     * @return number of calls
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the total time spent in recorded calls.
+     *
+     * @return total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Returns the latency histogram of recorded calls.
+     *
+     * @return latency histogram
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Clears all recorded values.
+     */
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        histogram.reset();
+    }
+}
@@ -0,0 +1,67 @@
+package bms.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the timers used to instrument the building model.
+ *
+ * Metrics are off by default. While off, instrumented methods only pay for
+ * a single volatile read per call.
+ */
+public class Metrics {
+    private static volatile boolean enabled = false;
+    private static final Map<String, MetricTimer> timers =
+            new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns whether metrics are currently being recorded.
+     *
+     * @return true if metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches recording of metrics on or off at runtime.
+     *
+     * @param enabled whether metrics should be recorded
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Returns the timer with the given name, creating it if it does not
+     * already exist.
+     *
+     * @param name name of the timer
+     * @return timer registered under the given name
+     */
+    public static MetricTimer timer(String name) {
+        return timers.computeIfAbsent(name, MetricTimer::new);
+    }
+
+    /**
+     * Returns all registered timers, sorted by name.
+     *
+     * @return new map of timer names to timers
+     */
+    public static Map<String, MetricTimer> getTimers() {
+        return new TreeMap<>(timers);
+    }
+
+    /**
+     * Clears the recorded values of every registered timer.
+     */
+    public static void reset() {
+        for (MetricTimer timer : timers.values()) {
+            timer.reset();
+        }
+    }
+}
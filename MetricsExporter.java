@@ -0,0 +1,113 @@
+package bms.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Dumps the current values of all registered timers as text or JSON.
+ */
+public class MetricsExporter {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private MetricsExporter() {
+    }
+
+    /**
+     * Returns all timers as human-readable text, one timer per line.
+     *
+     * @return metrics as text
+     */
+    public static String toText() {
+        StringBuilder builder = new StringBuilder();
+        writeText(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Returns all timers as a single JSON object keyed by timer name.
+     *
+     * @return metrics as JSON
+     */
+    public static String toJson() {
+        StringBuilder builder = new StringBuilder();
+        writeJson(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes all timers as human-readable text to the given output.
+     *
+     * @param out output to write to
+     * @throws UncheckedIOException if writing to the output fails
+     */
+    public static void writeText(Appendable out) {
+        try {
+            for (MetricTimer timer : Metrics.getTimers().values()) {
+                out.append(timer.getName()).append(": count=")
+                        .append(Long.toString(timer.getCount()))
+                        .append(", totalNanos=")
+                        .append(Long.toString(timer.getTotalNanos()));
+                for (double percentile : PERCENTILES) {
+                    out.append(", p").append(format(percentile)).append('=')
+                            .append(Long.toString(timer.getHistogram()
+                                    .getValueAtPercentile(percentile)));
+                }
+                out.append(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all timers as a JSON object to the given output.
+     *
+     * @param out output to write to
+     * @throws UncheckedIOException if writing to the output fails
+     */
+    public static void writeJson(Appendable out) {
+        try {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, MetricTimer> entry :
+                    Metrics.getTimers().entrySet()) {
+                MetricTimer timer = entry.getValue();
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                // timer names are plain identifiers, no escaping needed
+                out.append('"').append(entry.getKey()).append("\":{")
+                        .append("\"count\":")
+                        .append(Long.toString(timer.getCount()))
+                        .append(",\"totalNanos\":")
+                        .append(Long.toString(timer.getTotalNanos()));
+                for (double percentile : PERCENTILES) {
+                    out.append(",\"p").append(format(percentile))
+                            .append("\":")
+                            .append(Long.toString(timer.getHistogram()
+                                    .getValueAtPercentile(percentile)));
+                }
+                out.append('}');
+            }
+            out.append('}');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Formats a percentile for use in a metric name, e.g. 99.9 as "99.9"
+     * and 50 as "50".
+     *
+     * @param percentile percentile to format
+     * @return formatted percentile
+     */
+    private static String format(double percentile) {
+        if (percentile == Math.rint(percentile)) {
+            return Long.toString((long) percentile);
+        }
+        return Double.toString(percentile);
+    }
+}
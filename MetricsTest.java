@@ -0,0 +1,72 @@
+package bms.util;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsTest {
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        long median = histogram.getValueAtPercentile(50);
+        Assert.assertTrue(median >= 500000 && median <= 500000 * 17 / 16);
+        long max = histogram.getValueAtPercentile(100);
+        Assert.assertTrue(max >= 1000000 && max <= 1000000 * 17 / 16);
+    }
+
+    @Test
+    public void histogramSmallAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+        histogram.record(-5);
+        histogram.record(3);
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(3, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void timerOnlyRecordsWhileEnabled() {
+        MetricTimer timer = Metrics.timer("MetricsTest.timer");
+        Assert.assertSame(timer, Metrics.timer("MetricsTest.timer"));
+        timer.reset();
+        timer.stop(timer.start());
+        Assert.assertEquals(0, timer.getCount());
+
+        Metrics.setEnabled(true);
+        try {
+            long start = timer.start();
+            timer.stop(start);
+            Assert.assertEquals(1, timer.getCount());
+            Assert.assertEquals(1, timer.getHistogram().getCount());
+        } finally {
+            Metrics.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void floorFireDrillTimed() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        floor.addRoom​(new Room(1, RoomType.STUDY, 10));
+        MetricTimer drill = Metrics.timer("Floor.fireDrill");
+        MetricTimer cancel = Metrics.timer("Floor.cancelFireDrill");
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            floor.fireDrill(null);
+            floor.cancelFireDrill();
+        } finally {
+            Metrics.setEnabled(false);
+        }
+        Assert.assertEquals(1, drill.getCount());
+        Assert.assertEquals(1, cancel.getCount());
+    }
+}
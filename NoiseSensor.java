@@ -1,9 +1,14 @@
 package bms.sensors;
 
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+
 /**
  * A sensor that measures the noise levels in a room.
  */
 public class NoiseSensor extends TimedSensor implements HazardSensor {
+    private static final MetricTimer HAZARD_LEVEL_TIMER =
+            Metrics.timer("getHazardLevel");
 
     /**
      * Creates a new noise sensor with the given sensor readings and update
@@ -17,6 +22,29 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
         super(sensorReadings, updateFrequency);
     }
 
+    /**
+     * Creates a new noise sensor which reads directly from the given
+     * sequence of readings.
+     */
+    private NoiseSensor(SensorReadings sensorReadings, int updateFrequency) {
+        super(sensorReadings, updateFrequency);
+    }
+
+    /**
+     * Creates a new noise sensor which reads directly from the given
+     * sequence of readings, such as an EncodedReadings, without copying it
+     * into an array.
+     *
+     * @param sensorReadings  sequence of noise sensor readings in decibels
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @return the new sensor
+     */
+    public static NoiseSensor of(SensorReadings sensorReadings,
+                                 int updateFrequency) {
+        return new NoiseSensor(sensorReadings, updateFrequency);
+    }
+
     /**
      * Calculates the relative loudness level compared to a reference of 70.0
      * decibels.
@@ -24,12 +52,26 @@ public class NoiseSensor extends TimedSensor implements HazardSensor {
      * @return relative loudness of current reading to 70dB
      */
     public double calculateRelativeLoudness() {
-        return Math.pow(((getCurrentReading() - 70.0) / 10), 2);
+        return relativeLoudness(getCurrentReading());
+    }
+
+    private static double relativeLoudness(int reading) {
+        return Math.pow(((reading - 70.0) / 10), 2);
     }
 
     @Override
     public int getHazardLevel() {
-        return Math.min(((int) (calculateRelativeLoudness() * 100)), 100);
+        long start = HAZARD_LEVEL_TIMER.start();
+        try {
+            return getHazardLevel(getCurrentReading());
+        } finally {
+            HAZARD_LEVEL_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public int getHazardLevel(int reading) {
+        return Math.min(((int) (relativeLoudness(reading) * 100)), 100);
     }
 
     @Override
@@ -0,0 +1,273 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import bms.util.IndexedMaxHeap;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps live headcount and utilisation totals for the rooms of a building
+ * that contain an occupancy sensor, rolled up per room type, per floor and
+ * for the whole building.
+ *
+ * Totals are updated incrementally from the ChangeFeed: after every tick
+ * only the occupancy sensors the feed reports as advanced are read, and only
+ * those whose reading changed touch the rollups, so a tick costs time in
+ * proportion to the sensors that moved rather than to all of them. Every
+ * read is O(1). Sensors which change outside of a tick, such as when
+ * restored from a SensorStateFile, are picked up the same way. Rooms added
+ * to the building after the analytics were created are picked up by calling
+ * refresh(). Rooms with no type count towards their floor and the building,
+ * but not towards any room type.
+ */
+public class OccupancyAnalytics {
+    private Building building;
+    private Consumer<ChangeBatch> listener;
+
+    /* per tracked room, in building order */
+    private Room[] rooms;
+    private OccupancySensor[] sensors;
+    private int[] floorIndexes;
+    /* ordinal of each room's type; -1 if it has none */
+    private int[] typeIndexes;
+    private int[] headcounts;
+    private Map<Room, Integer> roomIndexes;
+    private Map<Sensor, Integer> sensorIndexes;
+
+    /* rollups */
+    private List<Floor> floors;
+    private Map<Floor, Integer> floorIndexesByFloor;
+    private long[] floorHeadcounts;
+    private long[] floorCapacities;
+    private long[] typeHeadcounts;
+    private long[] typeCapacities;
+    private long headcount;
+    private long capacity;
+
+    private IndexedMaxHeap crowdedRooms;
+
+    /**
+     * Creates analytics for the given building and subscribes them to the
+     * change feed, so they are updated after every tick.
+     *
+     * @param building building to track
+     */
+    public OccupancyAnalytics(Building building) {
+        this.building = building;
+        refresh();
+        listener = this::apply;
+        ChangeFeed.getInstance().subscribe(listener);
+    }
+
+    /**
+     * Rebuilds all totals from scratch, picking up any floors, rooms or
+     * occupancy sensors added since the analytics were last built.
+     */
+    public void refresh() {
+        floors = new ArrayList<>(building.getFloorsView());
+        floorIndexesByFloor = new IdentityHashMap<>();
+        List<Room> roomList = new ArrayList<>();
+        List<OccupancySensor> sensorList = new ArrayList<>();
+        List<Integer> floorList = new ArrayList<>();
+        for (int i = 0; i < floors.size(); i++) {
+            floorIndexesByFloor.put(floors.get(i), i);
+            for (Room room : floors.get(i).getRoomsView()) {
+                OccupancySensor sensor = (OccupancySensor)
+                        room.getSensor("OccupancySensor");
+                if (sensor != null) {
+                    roomList.add(room);
+                    sensorList.add(sensor);
+                    floorList.add(i);
+                }
+            }
+        }
+
+        rooms = roomList.toArray(new Room[0]);
+        sensors = sensorList.toArray(new OccupancySensor[0]);
+        floorIndexes = new int[rooms.length];
+        typeIndexes = new int[rooms.length];
+        headcounts = new int[rooms.length];
+        roomIndexes = new IdentityHashMap<>();
+        sensorIndexes = new IdentityHashMap<>();
+        floorHeadcounts = new long[floors.size()];
+        floorCapacities = new long[floors.size()];
+        typeHeadcounts = new long[RoomType.values().length];
+        typeCapacities = new long[RoomType.values().length];
+        headcount = 0;
+        capacity = 0;
+        crowdedRooms = new IndexedMaxHeap(rooms.length);
+
+        for (int i = 0; i < rooms.length; i++) {
+            floorIndexes[i] = floorList.get(i);
+            RoomType type = rooms[i].getType();
+            typeIndexes[i] = type == null ? -1 : type.ordinal();
+            roomIndexes.put(rooms[i], i);
+            sensorIndexes.put(sensors[i], i);
+            int roomCapacity = sensors[i].getCapacity();
+            floorCapacities[floorIndexes[i]] += roomCapacity;
+            if (typeIndexes[i] >= 0) {
+                typeCapacities[typeIndexes[i]] += roomCapacity;
+            }
+            capacity += roomCapacity;
+            update(i, sensors[i].getCurrentReading());
+        }
+    }
+
+    /**
+     * Applies the readings of the tracked sensors which advanced during a
+     * tick or were restored since the last one.
+     */
+    private void apply(ChangeBatch batch) {
+        for (Sensor sensor : batch.getAdvancedSensors()) {
+            Integer index = sensorIndexes.get(sensor);
+            if (index != null) {
+                int reading = sensors[index].getCurrentReading();
+                if (reading != headcounts[index]) {
+                    update(index, reading);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops updating the analytics, unsubscribing them from the change feed.
+     */
+    public void close() {
+        ChangeFeed.getInstance().unsubscribe(listener);
+    }
+
+    /**
+     * Returns the number of people currently in the given room.
+     *
+     * @param room room to look up
+     * @return headcount; 0 if the room has no tracked occupancy sensor
+     */
+    public int getHeadcount(Room room) {
+        Integer index = roomIndexes.get(room);
+        return index == null ? 0 : headcounts[index];
+    }
+
+    /**
+     * Returns the fraction of the given room's capacity currently in use.
+     *
+     * @param room room to look up
+     * @return utilisation, 1.0 when at capacity; 0 if the room has no
+     *         tracked occupancy sensor
+     */
+    public double getUtilisation(Room room) {
+        Integer index = roomIndexes.get(room);
+        return index == null ? 0 : crowdedRooms.getPriority(index);
+    }
+
+    /**
+     * Returns the number of people currently in rooms of the given type.
+     *
+     * @param type room type to look up
+     * @return total headcount across rooms of that type
+     */
+    public long getHeadcount(RoomType type) {
+        return typeHeadcounts[type.ordinal()];
+    }
+
+    /**
+     * Returns the fraction of capacity in use across rooms of the given type.
+     *
+     * @param type room type to look up
+     * @return utilisation; 0 if rooms of that type have no capacity
+     */
+    public double getUtilisation(RoomType type) {
+        return ratio(typeHeadcounts[type.ordinal()],
+                typeCapacities[type.ordinal()]);
+    }
+
+    /**
+     * Returns the number of people currently on the given floor.
+     *
+     * @param floor floor to look up
+     * @return total headcount on the floor; 0 if the floor is not tracked
+     */
+    public long getHeadcount(Floor floor) {
+        Integer index = floorIndexesByFloor.get(floor);
+        return index == null ? 0 : floorHeadcounts[index];
+    }
+
+    /**
+     * Returns the fraction of capacity in use on the given floor.
+     *
+     * @param floor floor to look up
+     * @return utilisation; 0 if the floor is not tracked or has no capacity
+     */
+    public double getUtilisation(Floor floor) {
+        Integer index = floorIndexesByFloor.get(floor);
+        return index == null ? 0 :
+                ratio(floorHeadcounts[index], floorCapacities[index]);
+    }
+
+    /**
+     * Returns the number of people currently in the building.
+     *
+     * @return total headcount
+     */
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    /**
+     * Returns the fraction of the building's capacity currently in use.
+     *
+     * @return utilisation; 0 if the building has no capacity
+     */
+    public double getUtilisation() {
+        return ratio(headcount, capacity);
+    }
+
+    /**
+     * Returns the rooms with the highest utilisation, most crowded first.
+     * Takes O(k log k) time.
+     *
+     * @param k maximum number of rooms to return
+     * @return new list of at most k rooms
+     */
+    public List<Room> getMostCrowdedRooms(int k) {
+        List<Room> result = new ArrayList<>();
+        for (int index : crowdedRooms.top(k)) {
+            result.add(rooms[index]);
+        }
+        return result;
+    }
+
+    /**
+     * Moves the room at the given index to a new headcount, adjusting every
+     * rollup by the difference.
+     */
+    private void update(int index, int reading) {
+        long delta = reading - headcounts[index];
+        headcounts[index] = reading;
+        floorHeadcounts[floorIndexes[index]] += delta;
+        if (typeIndexes[index] >= 0) {
+            typeHeadcounts[typeIndexes[index]] += delta;
+        }
+        headcount += delta;
+
+        int roomCapacity = sensors[index].getCapacity();
+        crowdedRooms.setPriority(index, roomCapacity == 0
+                ? (reading > 0 ? Double.POSITIVE_INFINITY : 0)
+                : (double) reading / roomCapacity);
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+
+    @Override
+    public String toString() {
+        return "OccupancyAnalytics: rooms=" + rooms.length + ", headcount=" +
+                headcount + ", capacity=" + capacity;
+    }
+}
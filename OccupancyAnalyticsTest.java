@@ -0,0 +1,135 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.OccupancySensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OccupancyAnalyticsTest {
+    @Test
+    public void seesReadingsOfTickJustEnded() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        OccupancySensor sensor = new OccupancySensor(new int[]{3, 7}, 1, 10);
+        room.addSensor​(sensor);
+
+        TimedItemManager manager = TimedItemManager.getInstance();
+        OccupancyAnalytics analytics = new OccupancyAnalytics(building);
+        try {
+            Assert.assertEquals(3, analytics.getHeadcount(room));
+            manager.elapseOneMinute();
+            Assert.assertEquals(7, sensor.getCurrentReading());
+            Assert.assertEquals(7, analytics.getHeadcount(room));
+            Assert.assertEquals(7, analytics.getHeadcount(RoomType.OFFICE));
+            Assert.assertEquals(7, analytics.getHeadcount(floor));
+            Assert.assertEquals(0.7, analytics.getUtilisation(), 1e-9);
+        } finally {
+            analytics.close();
+            manager.deregisterTimedItems(List.of(sensor));
+        }
+    }
+
+    @Test
+    public void untypedRoomsCountTowardsFloorOnly() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room untyped = new Room(101, null, 20);
+        Room office = new Room(102, RoomType.OFFICE, 20);
+        floor.addRoom​(untyped);
+        floor.addRoom​(office);
+        OccupancySensor first = new OccupancySensor(new int[]{4, 6}, 1, 10);
+        OccupancySensor second = new OccupancySensor(new int[]{2}, 1, 10);
+        untyped.addSensor​(first);
+        office.addSensor​(second);
+
+        TimedItemManager manager = TimedItemManager.getInstance();
+        OccupancyAnalytics analytics = new OccupancyAnalytics(building);
+        try {
+            Assert.assertEquals(6, analytics.getHeadcount(floor));
+            Assert.assertEquals(2, analytics.getHeadcount(RoomType.OFFICE));
+            manager.elapseOneMinute();
+            Assert.assertEquals(6, analytics.getHeadcount(untyped));
+            Assert.assertEquals(8, analytics.getHeadcount(floor));
+            Assert.assertEquals(8, analytics.getHeadcount());
+            Assert.assertEquals(0.2, analytics.getUtilisation(RoomType.OFFICE),
+                    1e-9);
+            Assert.assertEquals(0.4, analytics.getUtilisation(floor), 1e-9);
+        } finally {
+            analytics.close();
+            manager.deregisterTimedItems(List.of(first, second));
+        }
+    }
+
+    @Test
+    public void mostCrowdedRooms() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 20, 20);
+        building.addFloor(floor);
+        // utilisation before and after one tick, and every 3 minutes after
+        int[][] readings = {{1, 9}, {5, 5}, {8, 2}, {3, 3}};
+        List<Room> rooms = new ArrayList<>();
+        List<TimedItem> sensors = new ArrayList<>();
+        for (int i = 0; i < readings.length; i++) {
+            Room room = new Room(101 + i, RoomType.STUDY, 20);
+            floor.addRoom​(room);
+            OccupancySensor sensor = new OccupancySensor(readings[i],
+                    i == 3 ? 3 : 1, 10);
+            room.addSensor​(sensor);
+            rooms.add(room);
+            sensors.add(sensor);
+        }
+
+        TimedItemManager manager = TimedItemManager.getInstance();
+        OccupancyAnalytics analytics = new OccupancyAnalytics(building);
+        try {
+            Assert.assertEquals(List.of(rooms.get(2), rooms.get(1)),
+                    analytics.getMostCrowdedRooms(2));
+            manager.elapseOneMinute();
+            Assert.assertEquals(List.of(rooms.get(0), rooms.get(1),
+                    rooms.get(3), rooms.get(2)),
+                    analytics.getMostCrowdedRooms(10));
+            Assert.assertEquals(0.9, analytics.getUtilisation(rooms.get(0)),
+                    1e-9);
+            Assert.assertEquals(19, analytics.getHeadcount());
+            Assert.assertTrue(analytics.getMostCrowdedRooms(0).isEmpty());
+        } finally {
+            analytics.close();
+            manager.deregisterTimedItems(sensors);
+        }
+    }
+
+    @Test
+    public void closedAnalyticsStopUpdating() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        OccupancySensor sensor = new OccupancySensor(new int[]{3, 7}, 1, 10);
+        room.addSensor​(sensor);
+
+        TimedItemManager manager = TimedItemManager.getInstance();
+        OccupancyAnalytics analytics = new OccupancyAnalytics(building);
+        analytics.close();
+        try {
+            manager.elapseOneMinute();
+            Assert.assertEquals(7, sensor.getCurrentReading());
+            Assert.assertEquals(3, analytics.getHeadcount(room));
+            analytics.refresh();
+            Assert.assertEquals(7, analytics.getHeadcount(room));
+        } finally {
+            manager.deregisterTimedItems(List.of(sensor));
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package bms.sensors;
 
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+
 /**
  * A sensor that measures the number of people in a room.
  */
 public class OccupancySensor extends TimedSensor implements HazardSensor {
+    private static final MetricTimer HAZARD_LEVEL_TIMER =
+            Metrics.timer("getHazardLevel");
     private int capacity;
 
     /**
@@ -24,6 +29,35 @@ public class OccupancySensor extends TimedSensor implements HazardSensor {
         }
     }
 
+    /**
+     * Creates a new occupancy sensor which reads directly from the given
+     * sequence of readings.
+     */
+    private OccupancySensor(SensorReadings sensorReadings,
+                            int updateFrequency, int capacity) {
+        super(sensorReadings, updateFrequency);
+        this.capacity = capacity;
+        if (capacity < 0) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Creates a new occupancy sensor which reads directly from the given
+     * sequence of readings, such as an EncodedReadings, without copying it
+     * into an array.
+     *
+     * @param sensorReadings  a non-empty sequence of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity        maximum allowable number of people in the room
+     * @return the new sensor
+     */
+    public static OccupancySensor of(SensorReadings sensorReadings,
+                                     int updateFrequency, int capacity) {
+        return new OccupancySensor(sensorReadings, updateFrequency, capacity);
+    }
+
     /**
      * Returns the capacity of this occupancy sensor.
      *
@@ -35,10 +69,20 @@ public class OccupancySensor extends TimedSensor implements HazardSensor {
 
     @Override
     public int getHazardLevel() {
-        if (getCurrentReading() >= getCapacity()) {
+        long start = HAZARD_LEVEL_TIMER.start();
+        try {
+            return getHazardLevel(getCurrentReading());
+        } finally {
+            HAZARD_LEVEL_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public int getHazardLevel(int reading) {
+        if (reading >= getCapacity()) {
             return 100;
         } else {
-            return (getCurrentReading() / getCapacity()) * 100;
+            return reading * 100 / getCapacity();
         }
     }
 
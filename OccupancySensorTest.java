@@ -0,0 +1,51 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OccupancySensorTest {
+    private OccupancySensor sensor;
+
+    @Before
+    public void setUp() {
+        sensor = new OccupancySensor(new int[]{15, 12, 30, 0}, 1, 30);
+    }
+
+    @Test
+    public void getCapacity() {
+        Assert.assertEquals(30, sensor.getCapacity());
+    }
+
+    @Test
+    public void getHazardLevelPartial() {
+        Assert.assertEquals(50, sensor.getHazardLevel());
+        sensor.elapseOneMinute();
+        Assert.assertEquals(40, sensor.getHazardLevel());
+    }
+
+    @Test
+    public void getHazardLevelFull() {
+        sensor.elapseOneMinute();
+        sensor.elapseOneMinute();
+        Assert.assertEquals(100, sensor.getHazardLevel());
+    }
+
+    @Test
+    public void elapseOneMinuteWraps() {
+        for (int i = 0; i < 4; i++) {
+            sensor.elapseOneMinute();
+        }
+        Assert.assertEquals(15, sensor.getCurrentReading());
+        Assert.assertEquals(4, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void readingsAreCopied() {
+        int[] readings = {5, 6};
+        OccupancySensor copied = new OccupancySensor(readings, 1, 10);
+        readings[0] = 9;
+        Assert.assertEquals(5, copied.getCurrentReading());
+        Assert.assertEquals(5, copied.getReadings().get(0));
+    }
+}
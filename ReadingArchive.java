@@ -0,0 +1,592 @@
+package bms.building;
+
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * An append-only archive on disk of the reading of every sensor in a list
+ * after every tick, which can be queried over ranges of time.
+ *
+ * Each tick is archived against a minute, counted from the Unix epoch (see
+ * minuteOf(Instant)). Readings are stored in blocks of consecutive minutes,
+ * one block per sensor, so that a sensor's readings over a range of time
+ * are next to each other on disk. The blocks for the same minutes are kept
+ * together in a group, at the start of which is the smallest and largest
+ * reading of each sensor's block so far. The data file is a sequence of
+ * groups:
+ * <pre>
+ * group   sensor count * (int min, int max),
+ *         sensor count * block ticks * int reading
+ * </pre>
+ * A small index file holds the first minute of each group and how many
+ * ticks it has, so a query finds the groups it covers by binary search. A
+ * group fully inside a query's range is answered from its summary alone;
+ * only the blocks at either end are read. Groups are read through memory
+ * mapping, keeping the most recently used groups mapped.
+ *
+ * The summaries of the open group are worked out in memory while a tick is
+ * written, and copied into the group under the same lock that adds the
+ * tick to its count, so a summary always covers exactly the ticks counted.
+ *
+ * The archive registers itself as a stage of the timed item manager and
+ * archives one minute per tick. Writing a tick touches one int per sensor
+ * plus its summary, split into parallel shards, so a million sensors take
+ * tens of milliseconds, far less than a minute. A new group is started when
+ * a block fills up, when minutes are skipped with setNextMinute(long), and
+ * when the archive is opened again.
+ *
+ * Queries may run on any thread, alongside ticks. They see every tick
+ * archived before they start.
+ */
+public class ReadingArchive implements TimedItem, Closeable {
+    private static final int MAGIC = 0x424D5241;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 16;
+    /* sensors per shard when archiving a tick */
+    private static final int SHARD_SIZE = 16384;
+    /* groups kept mapped for queries */
+    private static final int MAPPED_GROUPS = 32;
+
+    private final TimedSensor[] sensors;
+    private final Map<Sensor, Integer> sensorIds;
+    private final int blockTicks;
+    private final long groupBytes;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final Map<Integer, MappedByteBuffer> mappedGroups;
+
+    /* index of every group, guarded by this */
+    private long[] firstMinutes;
+    private int[] tickCounts;
+    private int groupCount;
+    /* whether the last group can still be written to */
+    private boolean lastOpen;
+    private long nextMinute;
+
+    private MappedByteBuffer writing;
+    /* min and max of each sensor over the open group, including the tick
+       being written */
+    private final int[] summaries;
+
+    private ReadingArchive(TimedSensor[] sensors, int blockTicks,
+                           FileChannel data, FileChannel index) {
+        this.sensors = sensors;
+        this.blockTicks = blockTicks;
+        this.data = data;
+        this.index = index;
+        groupBytes = 8L * sensors.length +
+                4L * sensors.length * blockTicks;
+        sensorIds = new IdentityHashMap<>();
+        for (int i = 0; i < sensors.length; i++) {
+            sensorIds.put(sensors[i], i);
+        }
+        mappedGroups = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Integer, MappedByteBuffer> eldest) {
+                return size() > MAPPED_GROUPS;
+            }
+        };
+        firstMinutes = new long[16];
+        tickCounts = new int[16];
+        summaries = new int[2 * sensors.length];
+    }
+
+    /**
+     * Opens the archive in the given directory for the given sensors,
+     * creating it if needed, and registers it with the timed item manager
+     * as a stage. An existing archive is appended to, with its next minute
+     * just after the last one archived.
+     *
+     * @param directory  existing directory to hold the archive's files
+     * @param sensors    sensors to archive, always given in the same order;
+     *                   each sensor's id is its position in the list
+     * @param blockTicks number of minutes in each block
+     * @param startMinute minute of the first tick of a new or empty
+     *                    archive
+     * @return the open archive
+     * @throws IOException if the files cannot be opened or read
+     * @throws IllegalArgumentException if blockTicks &lt; 1, a group would
+     *                                  be larger than 2 GB, or an existing
+     *                                  archive was created for a different
+     *                                  number of sensors or block size
+     */
+    public static ReadingArchive open(Path directory,
+                                      List<? extends TimedSensor> sensors,
+                                      int blockTicks, long startMinute)
+            throws IOException, IllegalArgumentException {
+        if (blockTicks < 1 || (8L + 4L * blockTicks) * sensors.size()
+                > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        Path indexFile = directory.resolve("archive.idx");
+        boolean exists = Files.exists(indexFile) &&
+                Files.size(indexFile) >= HEADER_BYTES;
+        FileChannel index = FileChannel.open(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel data = null;
+        try {
+            data = FileChannel.open(directory.resolve("archive.dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            ReadingArchive archive = new ReadingArchive(
+                    sensors.toArray(new TimedSensor[0]), blockTicks, data,
+                    index);
+            if (exists) {
+                archive.readIndex(startMinute);
+            } else {
+                archive.writeHeader();
+                archive.nextMinute = startMinute;
+            }
+            TimedItemManager.getInstance().registerStage(archive);
+            return archive;
+        } catch (IOException | RuntimeException e) {
+            index.close();
+            if (data != null) {
+                data.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the minute, counted from the Unix epoch, that the given
+     * instant falls in.
+     *
+     * @param instant instant to convert
+     * @return minute since the epoch
+     */
+    public static long minuteOf(Instant instant) {
+        return Math.floorDiv(instant.getEpochSecond(), 60);
+    }
+
+    /**
+     * Returns the id of the given sensor within the archive, for use in
+     * queries.
+     *
+     * @param sensor sensor to look up
+     * @return position of the sensor in the archive's list; -1 if it is not
+     *         archived
+     */
+    public int getSensorId(Sensor sensor) {
+        Integer id = sensorIds.get(sensor);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the minute the next tick will be archived against.
+     *
+     * @return next minute
+     */
+    public synchronized long getNextMinute() {
+        return nextMinute;
+    }
+
+    /**
+     * Sets the minute the next tick will be archived against, skipping the
+     * minutes in between, which have no readings.
+     *
+     * @param minute minute of the next tick
+     * @throws IllegalArgumentException if minute is before the next minute
+     */
+    public synchronized void setNextMinute(long minute)
+            throws IllegalArgumentException {
+        if (minute < nextMinute) {
+            throw new IllegalArgumentException();
+        } else if (minute > nextMinute) {
+            lastOpen = false;
+            nextMinute = minute;
+        }
+    }
+
+    /**
+     * Returns the first minute with archived readings.
+     *
+     * @return first minute; -1 if nothing has been archived
+     */
+    public synchronized long getFirstMinute() {
+        return groupCount == 0 ? -1 : firstMinutes[0];
+    }
+
+    /**
+     * Returns the last minute with archived readings.
+     *
+     * @return last minute; -1 if nothing has been archived
+     */
+    public synchronized long getLastMinute() {
+        return groupCount == 0 ? -1 : firstMinutes[groupCount - 1] +
+                tickCounts[groupCount - 1] - 1;
+    }
+
+    /**
+     * Archives the current reading of every sensor against the next minute.
+     */
+    @Override
+    public void elapseOneMinute() {
+        try {
+            archive();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the largest reading of a sensor over a range of minutes.
+     *
+     * @param sensor     id of the sensor
+     * @param fromMinute first minute of the range
+     * @param toMinute   last minute of the range, inclusive
+     * @return largest reading; -1 if no readings were archived in the range
+     * @throws IOException if a group cannot be read
+     * @throws IndexOutOfBoundsException if there is no sensor with the id
+     */
+    public int getMax(int sensor, long fromMinute, long toMinute)
+            throws IOException {
+        return extreme(sensor, fromMinute, toMinute, true);
+    }
+
+    /**
+     * Returns the smallest reading of a sensor over a range of minutes.
+     *
+     * @param sensor     id of the sensor
+     * @param fromMinute first minute of the range
+     * @param toMinute   last minute of the range, inclusive
+     * @return smallest reading; -1 if no readings were archived in the range
+     * @throws IOException if a group cannot be read
+     * @throws IndexOutOfBoundsException if there is no sensor with the id
+     */
+    public int getMin(int sensor, long fromMinute, long toMinute)
+            throws IOException {
+        return extreme(sensor, fromMinute, toMinute, false);
+    }
+
+    /**
+     * Returns the readings of a sensor for each minute in a range.
+     *
+     * @param sensor     id of the sensor
+     * @param fromMinute first minute of the range
+     * @param toMinute   last minute of the range, inclusive
+     * @return new array with the reading of each minute in turn; -1 for
+     *         minutes with no archived reading
+     * @throws IOException if a group cannot be read
+     * @throws IllegalArgumentException if toMinute is before fromMinute or
+     *                                  the range is too long for an array
+     * @throws IndexOutOfBoundsException if there is no sensor with the id
+     */
+    public int[] getReadings(int sensor, long fromMinute, long toMinute)
+            throws IOException, IllegalArgumentException {
+        if (toMinute < fromMinute ||
+                toMinute - fromMinute >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        checkSensor(sensor);
+        int[] result = new int[(int) (toMinute - fromMinute + 1)];
+        Arrays.fill(result, -1);
+        int[] groups = findGroups(fromMinute, toMinute);
+        for (int i = 0; i < groups.length; i += 3) {
+            int group = groups[i];
+            long first = groupFirstMinute(group);
+            ByteBuffer buffer = group(group);
+            for (int tick = groups[i + 1]; tick < groups[i + 2]; tick++) {
+                result[(int) (first + tick - fromMinute)] =
+                        buffer.getInt(readingOffset(sensor, tick));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stops archiving after every tick and closes the archive's files.
+     *
+     * @throws IOException if closing the files fails
+     */
+    @Override
+    public void close() throws IOException {
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(this));
+        synchronized (this) {
+            mappedGroups.clear();
+            writing = null;
+            lastOpen = false;
+        }
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Writes the current readings into the open group, starting a new group
+     * if needed, and then adds the tick to the index.
+     */
+    private void archive() throws IOException {
+        int group;
+        int tick;
+        long minute;
+        synchronized (this) {
+            if (!lastOpen || tickCounts[groupCount - 1] == blockTicks) {
+                startGroup();
+            }
+            group = groupCount - 1;
+            tick = tickCounts[group];
+            minute = nextMinute;
+        }
+        int shards = (sensors.length + SHARD_SIZE - 1) / SHARD_SIZE;
+        if (shards > 1) {
+            IntStream.range(0, shards).parallel()
+                    .forEach(shard -> write(shard, tick));
+        } else if (shards == 1) {
+            write(0, tick);
+        }
+        ByteBuffer entry = ByteBuffer.allocate(4)
+                .order(ByteOrder.nativeOrder());
+        entry.putInt(0, tick + 1);
+        synchronized (this) {
+            // queries only look at ticks counted here, once fully written,
+            // and only read summaries that cover the ticks they counted
+            writing.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer()
+                    .put(summaries);
+            index.write(entry, HEADER_BYTES + (long) group * ENTRY_BYTES + 8);
+            tickCounts[group] = tick + 1;
+            nextMinute = minute + 1;
+        }
+    }
+
+    /**
+     * Writes one shard of sensors' readings into the given tick of the open
+     * group, and updates their summaries in memory.
+     */
+    private void write(int shard, int tick) {
+        MappedByteBuffer buffer = writing;
+        int[] summaries = this.summaries;
+        int end = Math.min(sensors.length, (shard + 1) * SHARD_SIZE);
+        for (int i = shard * SHARD_SIZE; i < end; i++) {
+            int reading = sensors[i].getCurrentReading();
+            buffer.putInt(readingOffset(i, tick), reading);
+            if (tick == 0) {
+                summaries[2 * i] = reading;
+                summaries[2 * i + 1] = reading;
+            } else {
+                summaries[2 * i] = Math.min(summaries[2 * i], reading);
+                summaries[2 * i + 1] = Math.max(summaries[2 * i + 1],
+                        reading);
+            }
+        }
+    }
+
+    /**
+     * Adds a new, empty group starting at the next minute to the index and
+     * maps it for writing.
+     */
+    private void startGroup() throws IOException {
+        if (groupCount == firstMinutes.length) {
+            firstMinutes = Arrays.copyOf(firstMinutes, groupCount * 2);
+            tickCounts = Arrays.copyOf(tickCounts, groupCount * 2);
+        }
+        int group = groupCount;
+        writing = data.map(FileChannel.MapMode.READ_WRITE,
+                group * groupBytes, groupBytes);
+        writing.order(ByteOrder.nativeOrder());
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES)
+                .order(ByteOrder.nativeOrder());
+        entry.putLong(0, nextMinute);
+        entry.putInt(8, 0);
+        index.write(entry, HEADER_BYTES + (long) group * ENTRY_BYTES);
+        firstMinutes[group] = nextMinute;
+        tickCounts[group] = 0;
+        mappedGroups.put(group, writing);
+        groupCount++;
+        lastOpen = true;
+    }
+
+    /**
+     * Returns the largest or smallest reading of a sensor over a range of
+     * minutes, using the summaries of groups wholly inside the range.
+     */
+    private int extreme(int sensor, long fromMinute, long toMinute,
+                        boolean max) throws IOException {
+        checkSensor(sensor);
+        int result = -1;
+        int[] groups = findGroups(fromMinute, toMinute);
+        for (int i = 0; i < groups.length; i += 3) {
+            int group = groups[i];
+            int from = groups[i + 1];
+            int to = groups[i + 2];
+            ByteBuffer buffer = group(group);
+            if (from == 0) {
+                // every tick of the group is in range, if it has no more
+                int value = summary(buffer, group, to, sensor, max);
+                if (value >= 0) {
+                    result = pick(result, value, max);
+                    continue;
+                }
+            }
+            for (int tick = from; tick < to; tick++) {
+                result = pick(result, buffer.getInt(
+                        readingOffset(sensor, tick)), max);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the largest or smallest reading of a sensor in the given
+     * group, if the group has the given number of ticks; otherwise -1.
+     */
+    private synchronized int summary(ByteBuffer buffer, int group, int ticks,
+                                     int sensor, boolean max) {
+        if (tickCounts[group] != ticks) {
+            return -1;
+        }
+        return buffer.getInt(8 * sensor + (max ? 4 : 0));
+    }
+
+    private static int pick(int current, int value, boolean max) {
+        if (current < 0) {
+            return value;
+        }
+        return max ? Math.max(current, value) : Math.min(current, value);
+    }
+
+    /**
+     * Finds the groups with archived ticks in the given range of minutes.
+     *
+     * @return for each group in turn: its index, and the first and one past
+     *         the last of its ticks in range
+     */
+    private synchronized int[] findGroups(long fromMinute, long toMinute) {
+        // last group starting at or before fromMinute
+        int low = 0;
+        int high = groupCount - 1;
+        int start = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (firstMinutes[middle] <= fromMinute) {
+                start = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int[] result = new int[0];
+        int count = 0;
+        for (int group = start; group < groupCount &&
+                firstMinutes[group] <= toMinute; group++) {
+            long first = firstMinutes[group];
+            long from = Math.max(fromMinute, first) - first;
+            long to = Math.min(toMinute - first + 1, tickCounts[group]);
+            if (from >= to) {
+                continue;
+            }
+            if (count + 3 > result.length) {
+                result = Arrays.copyOf(result, Math.max(12, count * 2));
+            }
+            result[count++] = group;
+            result[count++] = (int) from;
+            result[count++] = (int) to;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private synchronized long groupFirstMinute(int group) {
+        return firstMinutes[group];
+    }
+
+    /**
+     * Returns the given group, mapping it if it is not already mapped.
+     */
+    private synchronized ByteBuffer group(int group) throws IOException {
+        MappedByteBuffer buffer = mappedGroups.get(group);
+        if (buffer == null) {
+            buffer = data.map(FileChannel.MapMode.READ_ONLY,
+                    group * groupBytes, groupBytes);
+            buffer.order(ByteOrder.nativeOrder());
+            mappedGroups.put(group, buffer);
+        }
+        // a view, so that queries and ticks never share a position
+        return buffer.duplicate().order(ByteOrder.nativeOrder());
+    }
+
+    private int readingOffset(int sensor, int tick) {
+        return 8 * sensors.length + 4 * (sensor * blockTicks + tick);
+    }
+
+    private void checkSensor(int sensor) {
+        if (sensor < 0 || sensor >= sensors.length) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .order(ByteOrder.nativeOrder());
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, sensors.length);
+        header.putInt(12, blockTicks);
+        index.write(header, 0);
+    }
+
+    /**
+     * Reads the index of an existing archive, checking that it was created
+     * for the same number of sensors and block size.
+     */
+    private void readIndex(long startMinute) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .order(ByteOrder.nativeOrder());
+        index.read(header, 0);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION ||
+                header.getInt(8) != sensors.length ||
+                header.getInt(12) != blockTicks) {
+            throw new IllegalArgumentException();
+        }
+        int groups = (int) ((index.size() - HEADER_BYTES) / ENTRY_BYTES);
+        ByteBuffer entries = ByteBuffer.allocate(groups * ENTRY_BYTES)
+                .order(ByteOrder.nativeOrder());
+        index.read(entries, HEADER_BYTES);
+        firstMinutes = new long[Math.max(16, groups * 2)];
+        tickCounts = new int[firstMinutes.length];
+        for (int group = 0; group < groups; group++) {
+            int ticks = entries.getInt(group * ENTRY_BYTES + 8);
+            if (ticks == 0) {
+                // started just before the archive was last closed
+                break;
+            }
+            firstMinutes[group] = entries.getLong(group * ENTRY_BYTES);
+            tickCounts[group] = ticks;
+            groupCount++;
+        }
+        nextMinute = groupCount == 0 ? startMinute : getLastMinute() + 1;
+        // drop any empty group from the end of the index
+        index.truncate(HEADER_BYTES + (long) groupCount * ENTRY_BYTES);
+        lastOpen = false;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadingArchive: sensors=" + sensors.length + ", blockTicks=" +
+                blockTicks + ", minutes=" + getFirstMinute() + "-" +
+                getLastMinute();
+    }
+}
@@ -0,0 +1,160 @@
+package bms.building;
+
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ReadingArchiveTest {
+    private TimedItemManager manager;
+    private Path directory;
+    private List<TimedSensor> sensors;
+    private List<ReadingArchive> archives;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = TimedItemManager.getInstance();
+        directory = Files.createTempDirectory("archive");
+        sensors = List.of(
+                new TemperatureSensor(new int[]{5, 9, 2, 7, 4, 1, 8}),
+                new NoiseSensor(new int[]{40, 60, 50}, 1));
+        archives = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (ReadingArchive archive : archives) {
+            archive.close();
+        }
+        manager.deregisterTimedItems(new ArrayList<TimedItem>(sensors));
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) files
+                    .sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private ReadingArchive open(long startMinute) throws Exception {
+        ReadingArchive archive = ReadingArchive.open(directory, sensors, 4,
+                startMinute);
+        archives.add(archive);
+        return archive;
+    }
+
+    /**
+     * Ticks the given number of times, returning each sensor's reading after
+     * each tick.
+     */
+    private int[][] tick(int ticks) {
+        int[][] readings = new int[sensors.size()][ticks];
+        for (int tick = 0; tick < ticks; tick++) {
+            manager.elapseOneMinute();
+            for (int i = 0; i < sensors.size(); i++) {
+                readings[i][tick] = sensors.get(i).getCurrentReading();
+            }
+        }
+        return readings;
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        ReadingArchive archive = open(1000);
+        int[][] expected = tick(10);
+        Assert.assertEquals(1000, archive.getFirstMinute());
+        Assert.assertEquals(1009, archive.getLastMinute());
+        Assert.assertEquals(1010, archive.getNextMinute());
+        for (int i = 0; i < sensors.size(); i++) {
+            int id = archive.getSensorId(sensors.get(i));
+            Assert.assertEquals(i, id);
+            Assert.assertArrayEquals(expected[i],
+                    archive.getReadings(id, 1000, 1009));
+        }
+        Assert.assertArrayEquals(new int[]{-1, expected[0][0]},
+                archive.getReadings(0, 999, 1000));
+    }
+
+    @Test
+    public void skippedMinutesHaveNoReadings() throws Exception {
+        ReadingArchive archive = open(0);
+        int[][] before = tick(2);
+        archive.setNextMinute(5);
+        int[][] after = tick(2);
+        Assert.assertArrayEquals(new int[]{before[0][0], before[0][1], -1, -1,
+                        -1, after[0][0], after[0][1]},
+                archive.getReadings(0, 0, 6));
+        Assert.assertEquals(-1, archive.getMax(0, 2, 4));
+        Assert.assertEquals(Math.max(after[1][0], after[1][1]),
+                archive.getMax(1, 2, 6));
+        Assert.assertEquals(6, archive.getLastMinute());
+    }
+
+    @Test
+    public void reopenAppends() throws Exception {
+        ReadingArchive archive = open(100);
+        int[][] first = tick(5);
+        archive.close();
+        archives.remove(archive);
+
+        archive = open(0);
+        Assert.assertEquals(100, archive.getFirstMinute());
+        Assert.assertEquals(105, archive.getNextMinute());
+        int[][] second = tick(3);
+        int[] readings = archive.getReadings(0, 100, 107);
+        for (int tick = 0; tick < 5; tick++) {
+            Assert.assertEquals(first[0][tick], readings[tick]);
+        }
+        for (int tick = 0; tick < 3; tick++) {
+            Assert.assertEquals(second[0][tick], readings[5 + tick]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reopenWithOtherBlockSize() throws Exception {
+        open(0).close();
+        archives.clear();
+        archives.add(ReadingArchive.open(directory, sensors, 8, 0));
+    }
+
+    @Test
+    public void summariesMatchScan() throws Exception {
+        ReadingArchive archive = open(0);
+        for (int ticks = 0; ticks < 14; ticks++) {
+            if (ticks == 6) {
+                // leave a partly filled group behind
+                archive.setNextMinute(archive.getNextMinute() + 1);
+            }
+            tick(1);
+            long last = archive.getLastMinute();
+            for (int id = 0; id < sensors.size(); id++) {
+                for (long from = 0; from <= last; from++) {
+                    for (long to = from; to <= last + 2; to++) {
+                        int min = Integer.MAX_VALUE;
+                        int max = -1;
+                        for (int reading : archive.getReadings(id, from, to)) {
+                            if (reading >= 0) {
+                                min = Math.min(min, reading);
+                                max = Math.max(max, reading);
+                            }
+                        }
+                        Assert.assertEquals(max, archive.getMax(id, from, to));
+                        Assert.assertEquals(max < 0 ? -1 : min,
+                                archive.getMin(id, from, to));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package bms.sensors;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Singleton pool which shares a single compact copy of identical reading
+ * arrays between all the sensors that use them.
+ *
+ * The pool is keyed on the pooled sequences themselves, compared by their
+ * readings, so it holds nothing besides the compact copies. It only refers
+ * to them weakly: a sequence no sensor uses any more is dropped from the
+ * pool by the garbage collector.
+ */
+public class ReadingPool {
+    private static ReadingPool instance = null;
+
+    /* each pooled key maps to itself, so a probe can find it */
+    private Map<Object, PooledKey> pool = new ConcurrentHashMap<>();
+    private ReferenceQueue<SensorReadings> cleared = new ReferenceQueue<>();
+
+    /**
+     * Returns the singleton instance of the reading pool.
+     *
+     * @return singleton instance
+     */
+    public static synchronized ReadingPool getInstance() {
+        if (instance == null) {
+            instance = new ReadingPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the pooled compact copy of the given readings, creating it if
+     * no identical readings are in the pool.
+     *
+     * @param readings non-negative readings to intern; not modified or kept
+     * @return shared compact sequence holding the same readings
+     */
+    public SensorReadings intern(int[] readings) {
+        expunge();
+        int hash = Arrays.hashCode(readings);
+        PooledKey found = pool.get(new Probe(readings, hash));
+        SensorReadings pooled = found == null ? null : found.get();
+        if (pooled != null) {
+            return pooled;
+        }
+
+        SensorReadings created = SensorReadings.compact(readings);
+        PooledKey key = new PooledKey(created, hash, cleared);
+        PooledKey existing = pool.putIfAbsent(key, key);
+        pooled = existing == null ? null : existing.get();
+        if (pooled != null) {
+            // another thread pooled the same readings first
+            return pooled;
+        }
+        if (existing != null) {
+            pool.put(key, key);
+        }
+        return created;
+    }
+
+    /**
+     * Returns the number of distinct reading sequences in the pool.
+     *
+     * @return number of pooled sequences
+     */
+    public int size() {
+        expunge();
+        return pool.size();
+    }
+
+    /**
+     * Removes every sequence from the pool. Sensors already using pooled
+     * sequences keep them.
+     */
+    public void clear() {
+        pool.clear();
+        expunge();
+    }
+
+    /**
+     * Removes the keys of sequences which have been garbage collected.
+     */
+    private void expunge() {
+        Object key;
+        while ((key = cleared.poll()) != null) {
+            pool.remove(key, key);
+        }
+    }
+
+    /**
+     * Returns whether the given sequence holds exactly the given readings.
+     */
+    private static boolean sameReadings(SensorReadings sequence,
+                                        int[] readings) {
+        if (sequence.length() != readings.length) {
+            return false;
+        }
+        for (int i = 0; i < readings.length; i++) {
+            if (sequence.get(i) != readings[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A weak reference to a pooled sequence, compared by its readings while
+     * the sequence is reachable and by identity once it has been collected.
+     */
+    private static class PooledKey extends WeakReference<SensorReadings> {
+        private final int hash;
+
+        private PooledKey(SensorReadings readings, int hash,
+                          ReferenceQueue<SensorReadings> queue) {
+            super(readings, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof PooledKey) ||
+                    ((PooledKey) other).hash != hash) {
+                return false;
+            }
+            SensorReadings mine = get();
+            SensorReadings theirs = ((PooledKey) other).get();
+            if (mine == null || theirs == null ||
+                    mine.length() != theirs.length()) {
+                return false;
+            }
+            for (int i = 0; i < mine.length(); i++) {
+                if (mine.get(i) != theirs.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Looks up the pooled copy of a caller's array without copying it.
+     */
+    private static class Probe {
+        private final int[] readings;
+        private final int hash;
+
+        private Probe(int[] readings, int hash) {
+            this.readings = readings;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PooledKey) ||
+                    ((PooledKey) other).hash != hash) {
+                return false;
+            }
+            SensorReadings pooled = ((PooledKey) other).get();
+            return pooled != null && sameReadings(pooled, readings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReadingPoolTest {
+    private ReadingPool pool;
+
+    @Before
+    public void setUp() {
+        pool = ReadingPool.getInstance();
+        pool.clear();
+    }
+
+    @Test
+    public void internShares() {
+        SensorReadings first = pool.intern(new int[]{1, 2, 3});
+        SensorReadings second = pool.intern(new int[]{1, 2, 3});
+        SensorReadings other = pool.intern(new int[]{1, 2, 4});
+        Assert.assertSame(first, second);
+        Assert.assertFalse(first == other);
+        Assert.assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void internDoesNotKeepArray() {
+        int[] readings = {500, 600, 700};
+        SensorReadings pooled = pool.intern(readings);
+        readings[0] = 9;
+        Assert.assertArrayEquals(new int[]{500, 600, 700}, pooled.toArray());
+        Assert.assertSame(pooled, pool.intern(new int[]{500, 600, 700}));
+    }
+
+    @Test
+    public void unusedSequencesDropped() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            pool.intern(new int[]{i, i + 1});
+        }
+        SensorReadings kept = pool.intern(new int[]{1000});
+        for (int attempt = 0; attempt < 50 && pool.size() > 1; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, pool.size());
+        Assert.assertSame(kept, pool.intern(new int[]{1000}));
+    }
+
+    @Test
+    public void ofCopies() {
+        int[] readings = {10, 20, 30};
+        SensorReadings sequence = SensorReadings.of(readings);
+        Assert.assertEquals("10,20,30", sequence.render());
+        readings[1] = 99;
+        Assert.assertEquals(20, sequence.get(1));
+        Assert.assertEquals("10,20,30", sequence.render());
+    }
+
+    @Test
+    public void compactEncodings() {
+        int[][] cases = {
+                {0, 255, 7},
+                {0, 65535, 300},
+                {70000, 1, 123456},
+        };
+        int[] drifting = new int[100];
+        for (int i = 0; i < drifting.length; i++) {
+            drifting[i] = 100000 + (i % 9) * 5;
+        }
+        for (int[] readings : cases) {
+            Assert.assertArrayEquals(readings,
+                    SensorReadings.compact(readings).toArray());
+        }
+        SensorReadings delta = SensorReadings.compact(drifting);
+        Assert.assertArrayEquals(drifting, delta.toArray());
+        Assert.assertTrue(delta.estimateBytes()
+                < SensorReadings.of(drifting).estimateBytes());
+    }
+}
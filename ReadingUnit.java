@@ -0,0 +1,68 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the unit a sensor's readings are measured in.
+ *
+ * Every unit measures what one kind of sensor observes, and the first unit
+ * of each kind is the one sensors of that kind are read in, e.g. degrees
+ * Celsius for a TemperatureSensor. Readings in any other unit of the same
+ * kind can be converted with Calibration.convert(ReadingUnit, ReadingUnit).
+ */
+public enum ReadingUnit {
+    /** Parts per million, as read by a CarbonDioxideSensor. */
+    PARTS_PER_MILLION(SensorKind.CARBON_DIOXIDE, 1, 0),
+    /** Milligrams per cubic metre of carbon dioxide at 25 degrees. */
+    MILLIGRAMS_PER_CUBIC_METRE(SensorKind.CARBON_DIOXIDE, 24.45 / 44.01, 0),
+    /** Decibels, as read by a NoiseSensor. */
+    DECIBELS(SensorKind.NOISE, 1, 0),
+    /** Degrees Celsius, as read by a TemperatureSensor. */
+    CELSIUS(SensorKind.TEMPERATURE, 1, 0),
+    /** Degrees Fahrenheit. */
+    FAHRENHEIT(SensorKind.TEMPERATURE, 5.0 / 9, -32 * 5.0 / 9),
+    /** Kelvin. */
+    KELVIN(SensorKind.TEMPERATURE, 1, -273.15);
+
+    private final SensorKind kind;
+    /* a reading in this unit times scale plus offset is in the first unit */
+    private final double scale;
+    private final double offset;
+
+    ReadingUnit(SensorKind kind, double scale, double offset) {
+        this.kind = kind;
+        this.scale = scale;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the kind of sensor whose readings this unit measures.
+     *
+     * @return kind of sensor
+     */
+    public SensorKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the unit that sensors of the given kind are read in.
+     *
+     * @param kind kind of sensor
+     * @return unit of the sensor's readings; null if readings of that kind
+     *         have no unit, such as for an OccupancySensor
+     */
+    public static ReadingUnit of(SensorKind kind) {
+        for (ReadingUnit unit : values()) {
+            if (unit.kind == kind) {
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    double getScale() {
+        return scale;
+    }
+
+    double getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,351 @@
+package bms.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable array of fixed-width records held outside the Java heap, either
+ * in direct memory or in a memory-mapped file.
+ *
+ * Records are stored in chunks of at most 64 MB, each a separate buffer, so
+ * a segment can hold more than the 2 GB a single buffer can address. Finding
+ * a record takes a shift and a mask. Fields are read and written at byte
+ * offsets within a record, in native byte order.
+ *
+ * Every chunk but the last is full. The last chunk starts at 4 KB and is
+ * doubled as it fills, up to the full chunk size. A small segment therefore
+ * reserves about as much memory as its records take, not a whole chunk.
+ * Closing a segment releases its memory straight away, rather than when it
+ * is garbage collected.
+ *
+ * Records can be read from any number of threads once written; appending
+ * must be done from one thread at a time, with no concurrent reads.
+ */
+public class RecordSegment implements Closeable {
+    private static final int CHUNK_BYTES = 64 << 20;
+    /* size of a segment's first chunk before it grows */
+    private static final int FIRST_CHUNK_BYTES = 4 << 10;
+    /* frees a direct or mapped buffer; null if the JDK does not allow it */
+    private static final Cleaner CLEANER = Cleaner.find();
+
+    private final int recordBytes;
+    private final int chunkShift;
+    private final long chunkMask;
+    private List<ByteBuffer> chunks;
+    /* records the last chunk has room for */
+    private long lastCapacity;
+    private FileChannel channel;
+    private long size;
+
+    private RecordSegment(int recordBytes, FileChannel channel) {
+        if (recordBytes < 1 || recordBytes > CHUNK_BYTES) {
+            throw new IllegalArgumentException();
+        }
+        this.recordBytes = recordBytes;
+        // records per chunk, rounded down to a power of two
+        chunkShift = 31 - Integer.numberOfLeadingZeros(
+                CHUNK_BYTES / recordBytes);
+        chunkMask = (1L << chunkShift) - 1;
+        chunks = new ArrayList<>();
+        this.channel = channel;
+    }
+
+    /**
+     * Creates an empty segment in direct memory.
+     *
+     * @param recordBytes size of each record in bytes
+     * @return new segment
+     * @throws IllegalArgumentException if recordBytes is not 1 to 64 MB
+     */
+    public static RecordSegment direct(int recordBytes)
+            throws IllegalArgumentException {
+        return new RecordSegment(recordBytes, null);
+    }
+
+    /**
+     * Creates an empty segment mapped from the given file. The file is
+     * created if needed and any existing contents are discarded.
+     *
+     * @param file        file to map
+     * @param recordBytes size of each record in bytes
+     * @return new segment
+     * @throws IOException if the file cannot be opened
+     * @throws IllegalArgumentException if recordBytes is not 1 to 64 MB
+     */
+    public static RecordSegment mapped(Path file, int recordBytes)
+            throws IOException, IllegalArgumentException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new RecordSegment(recordBytes, channel);
+    }
+
+    /**
+     * Returns the number of records in the segment.
+     *
+     * @return number of records
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the size of each record in bytes.
+     *
+     * @return record size
+     */
+    public int getRecordBytes() {
+        return recordBytes;
+    }
+
+    /**
+     * Adds a new record, with every field zero, to the end of the segment.
+     *
+     * @return index of the new record
+     * @throws IOException if the segment is mapped and the file cannot grow
+     */
+    public long append() throws IOException {
+        if ((size >>> chunkShift) == chunks.size()) {
+            lastCapacity = Math.min(1L << chunkShift,
+                    Math.max(1, FIRST_CHUNK_BYTES / recordBytes));
+            chunks.add(allocate(chunks.size(), lastCapacity));
+        } else if ((size & chunkMask) == lastCapacity) {
+            lastCapacity = Math.min(1L << chunkShift, 2 * lastCapacity);
+            int last = chunks.size() - 1;
+            ByteBuffer old = chunks.get(last);
+            ByteBuffer grown = allocate(last, lastCapacity);
+            if (channel == null) {
+                // a mapped chunk already sees what was written to the file
+                grown.put(old.duplicate().clear());
+                grown.clear();
+            }
+            chunks.set(last, grown);
+            free(old);
+        }
+        return size++;
+    }
+
+    /**
+     * Returns a new buffer for the chunk at the given position, with room
+     * for the given number of records.
+     */
+    private ByteBuffer allocate(int chunk, long records) throws IOException {
+        long bytes = records * recordBytes;
+        if (channel == null) {
+            return ByteBuffer.allocateDirect((int) bytes)
+                    .order(ByteOrder.nativeOrder());
+        }
+        long chunkBytes = (long) recordBytes << chunkShift;
+        return channel.map(FileChannel.MapMode.READ_WRITE,
+                chunk * chunkBytes, bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Reads an int field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public int getInt(long record, int offset) {
+        return chunk(record).getInt(position(record, offset));
+    }
+
+    /**
+     * Writes an int field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @param value  value to write
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void putInt(long record, int offset, int value) {
+        chunk(record).putInt(position(record, offset), value);
+    }
+
+    /**
+     * Reads a short field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public short getShort(long record, int offset) {
+        return chunk(record).getShort(position(record, offset));
+    }
+
+    /**
+     * Writes a short field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @param value  value to write
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void putShort(long record, int offset, short value) {
+        chunk(record).putShort(position(record, offset), value);
+    }
+
+    /**
+     * Reads a byte field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public byte getByte(long record, int offset) {
+        return chunk(record).get(position(record, offset));
+    }
+
+    /**
+     * Writes a byte field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @param value  value to write
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void putByte(long record, int offset, byte value) {
+        chunk(record).put(position(record, offset), value);
+    }
+
+    /**
+     * Reads a long field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public long getLong(long record, int offset) {
+        return chunk(record).getLong(position(record, offset));
+    }
+
+    /**
+     * Writes a long field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @param value  value to write
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void putLong(long record, int offset, long value) {
+        chunk(record).putLong(position(record, offset), value);
+    }
+
+    /**
+     * Reads a double field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @return value of the field
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public double getDouble(long record, int offset) {
+        return chunk(record).getDouble(position(record, offset));
+    }
+
+    /**
+     * Writes a double field of a record.
+     *
+     * @param record index of the record
+     * @param offset byte offset of the field within the record
+     * @param value  value to write
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void putDouble(long record, int offset, double value) {
+        chunk(record).putDouble(position(record, offset), value);
+    }
+
+    /**
+     * Releases the segment's memory and its file, if it is mapped. The
+     * segment is empty afterwards and must not be used again.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        // no record can be reached once the buffers are freed
+        size = 0;
+        for (ByteBuffer chunk : chunks) {
+            free(chunk);
+        }
+        chunks.clear();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Releases the memory of a buffer straight away, if the JDK allows it,
+     * rather than waiting for it to be garbage collected.
+     */
+    private static void free(ByteBuffer buffer) {
+        if (CLEANER != null) {
+            CLEANER.clean(buffer);
+        }
+    }
+
+    private ByteBuffer chunk(long record) {
+        if (record < 0 || record >= size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return chunks.get((int) (record >>> chunkShift));
+    }
+
+    private int position(long record, int offset) {
+        return (int) (record & chunkMask) * recordBytes + offset;
+    }
+
+    /**
+     * Frees buffers through sun.misc.Unsafe.invokeCleaner, looked up
+     * reflectively as the JDK offers no public way to do it.
+     */
+    private static class Cleaner {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        private Cleaner(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        /**
+         * Looks up invokeCleaner.
+         *
+         * @return cleaner; null if it is not available
+         */
+        private static Cleaner find() {
+            try {
+                Class<?> type = Class.forName("sun.misc.Unsafe");
+                Field field = type.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                return new Cleaner(field.get(null), type.getMethod(
+                        "invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        private void clean(ByteBuffer buffer) {
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException e) {
+                // left to the garbage collector
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package bms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RecordSegmentTest {
+    @Test
+    public void directGrowsKeepingRecords() throws Exception {
+        try (RecordSegment segment = RecordSegment.direct(12)) {
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertEquals(i, segment.append());
+                segment.putInt(i, 0, i);
+                segment.putLong(i, 4, -i);
+            }
+            Assert.assertEquals(10000, segment.size());
+            for (int i = 0; i < 10000; i++) {
+                Assert.assertEquals(i, segment.getInt(i, 0));
+                Assert.assertEquals(-i, segment.getLong(i, 4));
+            }
+        }
+    }
+
+    @Test
+    public void mappedAcrossChunks() throws Exception {
+        Path file = Files.createTempFile("segment", ".dat");
+        // 8 MB records, so a 64 MB chunk holds eight
+        int recordBytes = 8 << 20;
+        try (RecordSegment segment = RecordSegment.mapped(file,
+                recordBytes)) {
+            for (int i = 0; i < 20; i++) {
+                segment.append();
+                segment.putDouble(i, recordBytes - 8, i + 0.5);
+                segment.putShort(i, 0, (short) i);
+            }
+            for (int i = 0; i < 20; i++) {
+                Assert.assertEquals(i + 0.5,
+                        segment.getDouble(i, recordBytes - 8), 0);
+                Assert.assertEquals(i, segment.getShort(i, 0));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void newRecordsZero() throws Exception {
+        try (RecordSegment segment = RecordSegment.direct(8)) {
+            for (int i = 0; i < 2000; i++) {
+                segment.append();
+                Assert.assertEquals(0, segment.getLong(i, 0));
+                segment.putLong(i, 0, 1);
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void closedSegmentEmpty() throws Exception {
+        RecordSegment segment = RecordSegment.direct(4);
+        segment.append();
+        segment.putByte(0, 0, (byte) 1);
+        segment.close();
+        Assert.assertEquals(0, segment.size());
+        segment.getByte(0, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void pastEnd() throws Exception {
+        try (RecordSegment segment = RecordSegment.direct(4)) {
+            segment.append();
+            segment.getInt(1, 0);
+        }
+    }
+}
@@ -2,6 +2,13 @@ package bms.room;
 
 import bms.exceptions.DuplicateSensorException;
 import bms.sensors.Sensor;
+import bms.util.BatchResult;
+import bms.util.BatchStatus;
+import bms.util.ChangeFeed;
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
 
 import java.util.*;
 import java.lang.*;
@@ -9,12 +16,20 @@ import java.lang.*;
 /**
  * Represents a room on a floor of a building.
  */
-public class Room {
+public class Room implements RoomInfo {
+    private static final MetricTimer ADD_SENSOR_TIMER =
+            Metrics.timer("Room.addSensor");
+    private static final MetricTimer ADD_SENSORS_TIMER =
+            Metrics.timer("Room.addSensors");
+
     private int roomNumber;
     private RoomType type;
     private double area;
     private List<Sensor> sensors;
     private boolean fireDrillOn;
+    private List<Sensor> sortedSensors;
+    private String description;
+    private int modCount;
 
     /**
      * Creates a room with the given room number.
@@ -82,17 +97,47 @@ public class Room {
      * @return list of all sensors in alphabetical order of class name
      */
     public List<Sensor> getSensors() {
-        List<Sensor> sortedSensors = new ArrayList<>(sensors);
-        sortedSensors.sort(Comparator.comparing((Sensor sensor) -> sensor.getClass().getSimpleName()));
+        return new ArrayList<>(getSortedSensorsView());
+    }
+
+    /**
+     * Returns a read-only view of the sensors in the room, in the same order
+     * as getSensors(). The sensors are sorted once and the view reused until
+     * a sensor is added or removed, so no copy is made.
+     *
+     * @return unmodifiable view of the sensors in the room, sorted by type
+     */
+    public List<Sensor> getSortedSensorsView() {
+        if (sortedSensors == null) {
+            List<Sensor> sorted = new ArrayList<>(sensors);
+            sorted.sort(Comparator.comparing(
+                    (Sensor sensor) -> sensor.getClass().getSimpleName()));
+            sortedSensors = Collections.unmodifiableList(sorted);
+        }
         return sortedSensors;
     }
 
+    /**
+     * Returns a read-only view of the sensors in the room, in the order they
+     * were added. Unlike getSensors(), no copy is made and no sorting is
+     * done.
+     *
+     * @return unmodifiable view of the sensors in the room
+     */
+    public List<Sensor> getSensorsView() {
+        return Collections.unmodifiableList(sensors);
+    }
+
     /**
      * Change the status of the fire drill to the given value.
      *
      * @param fireDrill whether there is a fire drill ongoing
      */
     public void setFireDrill​(boolean fireDrill) {
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (fireDrillOn != fireDrill && feed.isRecording()) {
+            feed.drillChanged(this);
+        }
         fireDrillOn = fireDrill;
     }
 
@@ -122,17 +167,134 @@ public class Room {
      *                                  type as a sensor already in this room
      */
     public void addSensor​(Sensor sensor) throws DuplicateSensorException {
-        if (getSensor​(sensor.getClass().getSimpleName()) != null) {
-            throw new DuplicateSensorException();
-        } else {
-            sensors.add(sensor);
+        long start = ADD_SENSOR_TIMER.start();
+        try {
+            if (getSensor​(sensor.getClass().getSimpleName()) != null) {
+                throw new DuplicateSensorException();
+            } else {
+                sensors.add(sensor);
+                sortedSensors = null;
+                description = null;
+                modCount++;
+                TimedItemManager.getInstance().topologyChanged();
+                ChangeFeed feed = ChangeFeed.getInstance();
+                if (feed.isRecording()) {
+                    feed.sensorAdded(sensor);
+                }
+            }
+        } finally {
+            ADD_SENSOR_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Adds a batch of sensors to the room, either all of them or none.
+     *
+     * Instead of throwing, each sensor is given a status in the returned
+     * result: INVALID if it is null, and DUPLICATE if it is of the same type
+     * as a sensor already in the room or earlier in the batch.
+     *
+     * @param newSensors sensors to add
+     * @return status of each sensor; committed only if every sensor is OK
+     */
+    public BatchResult addSensors(Sensor[] newSensors) {
+        long start = ADD_SENSORS_TIMER.start();
+        try {
+            return addSensorBatch(newSensors);
+        } finally {
+            ADD_SENSORS_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Validates and adds a batch of sensors, as described by
+     * addSensors(Sensor[]).
+     */
+    private BatchResult addSensorBatch(Sensor[] newSensors) {
+        BatchStatus[] statuses = new BatchStatus[newSensors.length];
+        Set<String> types = new HashSet<>();
+        for (Sensor sensor : sensors) {
+            types.add(sensor.getClass().getSimpleName());
+        }
+        boolean valid = true;
+
+        for (int i = 0; i < newSensors.length; i++) {
+            if (newSensors[i] == null) {
+                statuses[i] = BatchStatus.INVALID;
+                valid = false;
+            } else if (!types.add(
+                    newSensors[i].getClass().getSimpleName())) {
+                statuses[i] = BatchStatus.DUPLICATE;
+                valid = false;
+            } else {
+                statuses[i] = BatchStatus.OK;
+            }
+        }
+
+        if (valid) {
+            sensors.addAll(Arrays.asList(newSensors));
+            sortedSensors = null;
+            description = null;
+            modCount++;
+            TimedItemManager.getInstance().topologyChanged();
+            ChangeFeed feed = ChangeFeed.getInstance();
+            if (feed.isRecording()) {
+                for (Sensor sensor : newSensors) {
+                    feed.sensorAdded(sensor);
+                }
+            }
         }
+        return new BatchResult(statuses);
+    }
+
+    /**
+     * Removes the given sensor from the room. A timed sensor is no longer
+     * updated from the start of the next tick, and should not be added to
+     * another room.
+     *
+     * @param sensor the sensor to remove
+     * @return true if the sensor was in the room
+     */
+    public boolean removeSensor(Sensor sensor) {
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensors.get(i) == sensor) {
+                sensors.remove(i);
+                sortedSensors = null;
+                description = null;
+                modCount++;
+                if (sensor instanceof TimedItem) {
+                    TimedItemManager.getInstance().retireTimedItems(
+                            List.of((TimedItem) sensor));
+                }
+                ChangeFeed feed = ChangeFeed.getInstance();
+                if (feed.isRecording()) {
+                    feed.sensorRemoved(sensor);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of times sensors have been added to or removed
+     * from the room, so that anything derived from its sensors can tell
+     * whether it is out of date.
+     *
+     * @return modification count of the room
+     */
+    public int getModCount() {
+        return modCount;
     }
 
     @Override
     public String toString() {
-        return "Room #" + roomNumber + ": type=" + type + ", area=" +
-                String.format("%" + ".2f", area) + "m^2, " + "sensors=" +
-                sensors.size();
+        if (description == null) {
+            // cached until a sensor is added or removed
+            description = "Room #" + roomNumber + ": type=" + type +
+                    ", area=" + String.format("%" + ".2f", area) + "m^2, " +
+                    "sensors=" + sensors.size();
+        }
+        return description;
     }
 }
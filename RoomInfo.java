@@ -0,0 +1,46 @@
+package bms.room;
+
+import bms.sensors.Sensor;
+import java.util.List;
+
+/**
+ * The read-only view of a room shared by Room and by rooms held outside the
+ * heap in a TopologyStore.
+ */
+public interface RoomInfo {
+
+    /**
+     * Returns room number of the room.
+     *
+     * @return the room number on the floor
+     */
+    int getRoomNumber();
+
+    /**
+     * Returns the type of the room.
+     *
+     * @return the room type
+     */
+    RoomType getType();
+
+    /**
+     * Returns area of the room.
+     *
+     * @return the room area in square metres
+     */
+    double getArea();
+
+    /**
+     * Returns true if there is currently a fire drill ongoing.
+     *
+     * @return true if there is an ongoing fire drill
+     */
+    boolean fireDrillOngoing();
+
+    /**
+     * Returns the sensors in the room, in the order they were added.
+     *
+     * @return unmodifiable list of sensors
+     */
+    List<Sensor> getSensorsView();
+}
@@ -0,0 +1,84 @@
+package bms.floor;
+
+/**
+ * The rectangle occupied by a room within the bounds of its floor.
+ *
+ * Coordinates are measured in metres from the corner of the floor, with x
+ * running along the floor's width and y along its length.
+ */
+public class RoomPlacement {
+    private double x;
+    private double y;
+    private double width;
+    private double length;
+
+    /**
+     * Creates a new placement with the given position and size.
+     *
+     * @param x      distance of the room from the floor's corner along its
+     *               width
+     * @param y      distance of the room from the floor's corner along its
+     *               length
+     * @param width  width of the room in metres
+     * @param length length of the room in metres
+     */
+    public RoomPlacement(double x, double y, double width, double length) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.length = length;
+    }
+
+    /**
+     * Returns the position of the room along the floor's width.
+     *
+     * @return x coordinate in metres
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Returns the position of the room along the floor's length.
+     *
+     * @return y coordinate in metres
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Returns the width of the placed room.
+     *
+     * @return width in metres
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the length of the placed room.
+     *
+     * @return length in metres
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the area covered by the placement.
+     *
+     * @return area in square metres
+     */
+    public double getArea() {
+        return width * length;
+    }
+
+    @Override
+    public String toString() {
+        return "RoomPlacement: x=" + String.format("%.2f", x) + "m, y=" +
+                String.format("%.2f", y) + "m, width=" +
+                String.format("%.2f", width) + "m, length=" +
+                String.format("%.2f", length) + "m";
+    }
+}
@@ -0,0 +1,89 @@
+package bms.room;
+
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.BatchResult;
+import bms.util.BatchStatus;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class RoomTest {
+    private Room room;
+    private Sensor noise;
+    private Sensor temperature;
+
+    @Before
+    public void setUp() throws Exception {
+        room = new Room(1, RoomType.OFFICE, 20);
+        noise = new NoiseSensor(new int[]{40, 50}, 2);
+        temperature = new TemperatureSensor(new int[]{20, 21});
+        room.addSensor​(noise);
+    }
+
+    @Test
+    public void addSensorsCommitted() {
+        Sensor occupancy = new OccupancySensor(new int[]{1, 2}, 1, 5);
+        BatchResult result = room.addSensors(
+                new Sensor[]{temperature, occupancy});
+        Assert.assertTrue(result.isCommitted());
+        Assert.assertEquals(2, result.size());
+        Assert.assertSame(occupancy, room.getSensor​("OccupancySensor"));
+        Assert.assertEquals(3, room.getSensors().size());
+    }
+
+    @Test
+    public void addSensorsAllOrNothing() {
+        BatchResult result = room.addSensors(new Sensor[]{temperature, null,
+                new NoiseSensor(new int[]{60}, 1),
+                new TemperatureSensor(new int[]{30})});
+        Assert.assertFalse(result.isCommitted());
+        Assert.assertEquals(3, result.getFailureCount());
+        Assert.assertEquals(BatchStatus.OK, result.getStatus(0));
+        Assert.assertEquals(BatchStatus.INVALID, result.getStatus(1));
+        Assert.assertEquals(BatchStatus.DUPLICATE, result.getStatus(2));
+        Assert.assertEquals(BatchStatus.DUPLICATE, result.getStatus(3));
+        Assert.assertEquals(1, room.getSensors().size());
+        Assert.assertNull(room.getSensor​("TemperatureSensor"));
+    }
+
+    @Test
+    public void removeSensor() throws Exception {
+        room.addSensor​(temperature);
+        int modCount = room.getModCount();
+        Assert.assertTrue(room.removeSensor(noise));
+        Assert.assertNull(room.getSensor​("NoiseSensor"));
+        Assert.assertEquals(1, room.getSensors().size());
+        Assert.assertTrue(room.toString().endsWith("sensors=1"));
+        Assert.assertTrue(room.getModCount() > modCount);
+        Assert.assertFalse(room.removeSensor(noise));
+    }
+
+    @Test
+    public void removedSensorKeepsReading() {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        Assert.assertEquals(50, noise.getCurrentReading());
+        room.removeSensor(noise);
+        for (int i = 0; i < 4; i++) {
+            manager.elapseOneMinute();
+            Assert.assertEquals(50, noise.getCurrentReading());
+        }
+    }
+
+    @Test
+    public void sortedSensorsViewFollowsChanges() throws Exception {
+        room.addSensor​(temperature);
+        List<Sensor> view = room.getSortedSensorsView();
+        Assert.assertEquals(room.getSensors(), view);
+        Assert.assertSame(view, room.getSortedSensorsView());
+        room.removeSensor(noise);
+        Assert.assertEquals(List.of(temperature), room.getSortedSensorsView());
+    }
+}
@@ -0,0 +1,180 @@
+package bms.sensors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Holds the calibration of each sensor and applies it to the sensor's
+ * readings as they are loaded, so that getCurrentReading() and
+ * getHazardLevel() return corrected readings at no extra cost.
+ *
+ * calibrate(TimedSensor) corrects the whole sequence of a sensor's readings
+ * at once and replaces them, keeping the sensor at the same position, so a
+ * sensor can be calibrated at any point between ticks. Readings a sensor has
+ * already been given by this calibrator are not corrected again. Live
+ * readings, such as from a SensorUpdateSink, are corrected as they are
+ * loaded by replaceReadings(TimedSensor, int[]).
+ *
+ * Sensors are only weakly held, so a sensor removed from its room and no
+ * longer used elsewhere is dropped along with its calibration. Sensors do
+ * not override equals(Object), so they are told apart by identity.
+ */
+public class SensorCalibrator {
+    private final Map<TimedSensor, Calibration> calibrations;
+    /* the readings this calibrator last gave each sensor */
+    private final Map<TimedSensor, SensorReadings> calibrated;
+
+    /**
+     * Creates a new calibrator with no calibrations.
+     */
+    public SensorCalibrator() {
+        calibrations = Collections.synchronizedMap(new WeakHashMap<>());
+        calibrated = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    /**
+     * Sets the calibration of the given sensor. Its readings are not changed
+     * until it is next calibrated or given new readings.
+     *
+     * @param sensor      sensor to calibrate
+     * @param calibration correction for the sensor's readings, or null to
+     *                    stop correcting them
+     * @throws IllegalArgumentException if sensor is null
+     */
+    public void setCalibration(TimedSensor sensor, Calibration calibration)
+            throws IllegalArgumentException {
+        if (sensor == null) {
+            throw new IllegalArgumentException();
+        }
+        if (calibration == null) {
+            calibrations.remove(sensor);
+        } else {
+            calibrations.put(sensor, calibration);
+        }
+        calibrated.remove(sensor);
+    }
+
+    /**
+     * Returns the calibration of the given sensor.
+     *
+     * @param sensor sensor to look up
+     * @return calibration of the sensor; null if it has none
+     */
+    public Calibration getCalibration(TimedSensor sensor) {
+        return calibrations.get(sensor);
+    }
+
+    /**
+     * Corrects the current readings of the given sensor, unless they were
+     * given to it by this calibrator. The sensor carries on from the same
+     * position within its readings, as if they had always been corrected.
+     * Must not be called while the sensor is being ticked.
+     *
+     * @param sensor sensor to calibrate
+     * @return true if the sensor's readings were replaced; false if it has no
+     *         calibration or its readings are already corrected
+     */
+    public boolean calibrate(TimedSensor sensor) {
+        Calibration calibration = calibrations.get(sensor);
+        if (calibration == null ||
+                calibrated.get(sensor) == sensor.getReadings()) {
+            return false;
+        }
+        install(sensor,
+                calibration.corrected(sensor.getReadings().toArray()));
+        return true;
+    }
+
+    /**
+     * Corrects the current readings of every sensor with a calibration, as
+     * calibrate(TimedSensor) does. The readings are corrected in parallel.
+     * Must not be called while a tick is running.
+     *
+     * @return number of sensors whose readings were replaced
+     */
+    public int calibrateAll() {
+        List<TimedSensor> sensors;
+        synchronized (calibrations) {
+            sensors = List.copyOf(calibrations.keySet());
+        }
+        int[][] corrected = new int[sensors.size()][];
+        IntStream.range(0, sensors.size()).parallel().forEach(i -> {
+            TimedSensor sensor = sensors.get(i);
+            if (calibrated.get(sensor) != sensor.getReadings()) {
+                corrected[i] = calibrations.get(sensor)
+                        .corrected(sensor.getReadings().toArray());
+            }
+        });
+        int count = 0;
+        for (int i = 0; i < corrected.length; i++) {
+            if (corrected[i] != null) {
+                install(sensors.get(i), corrected[i]);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the readings of the given sensor with the corrected values of
+     * the given raw readings, as TimedSensor.replaceReadings(int[]) does.
+     *
+     * @param sensor   sensor to give new readings
+     * @param readings raw readings, which are not changed
+     * @throws IllegalArgumentException if readings is null; if readings is
+     *                                  empty; or if any value in readings is
+     *                                  less than zero
+     */
+    public void replaceReadings(TimedSensor sensor, int[] readings)
+            throws IllegalArgumentException {
+        Calibration calibration = calibrations.get(sensor);
+        if (calibration == null) {
+            sensor.replaceReadings(readings);
+            return;
+        }
+        if (readings == null || readings.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        for (int reading : readings) {
+            if (reading < 0) {
+                throw new IllegalArgumentException();
+            }
+        }
+        SensorReadings corrected = toReadings(
+                calibration.corrected(readings));
+        sensor.replaceReadings(corrected);
+        calibrated.put(sensor, corrected);
+    }
+
+    /**
+     * Gives a sensor corrected readings in place of its current ones of the
+     * same length, keeping its position.
+     */
+    private void install(TimedSensor sensor, int[] readings) {
+        int element = sensor.getCurrentElement();
+        int sinceUpdate = sensor.getMinutesSinceUpdate();
+        int elapsed = sensor.getTimeElapsed();
+        SensorReadings corrected = toReadings(readings);
+        sensor.replaceReadings(corrected);
+        sensor.restoreState(element, sinceUpdate, elapsed);
+        calibrated.put(sensor, corrected);
+    }
+
+    /**
+     * Stores corrected readings as compactly as new sensors' readings are.
+     * The array is this calibrator's own, so is not copied.
+     */
+    private static SensorReadings toReadings(int[] readings) {
+        return TimedSensor.isCompactStorage()
+                ? SensorReadings.compact(readings)
+                : SensorReadings.wrap(readings);
+    }
+
+    @Override
+    public String toString() {
+        return "SensorCalibrator: sensors=" + calibrations.size();
+    }
+}
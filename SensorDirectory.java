@@ -0,0 +1,171 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedSensor;
+import java.util.Arrays;
+
+/**
+ * Finds timed sensors by building id, floor number, room number and sensor
+ * kind, as they are addressed in the binary reading protocol.
+ *
+ * The four parts of an address are packed into a single long and looked up
+ * in an open addressing hash table, so a lookup allocates nothing. Buildings
+ * should be registered before the directory is shared between threads.
+ */
+public class SensorDirectory {
+    /* marks an empty slot; packed addresses are never negative */
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private TimedSensor[] sensors;
+    private int size;
+
+    /**
+     * Creates a new, empty directory.
+     */
+    public SensorDirectory() {
+        keys = new long[64];
+        sensors = new TimedSensor[64];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Packs the parts of a sensor address into a single key.
+     *
+     * @param buildingId  building id, 0 to 32767
+     * @param floorNumber floor number, 0 to 65535
+     * @param roomNumber  room number, 0 to 16777215
+     * @param kindId      sensor kind id, 0 to 255
+     * @return packed address; -1 if any part is out of range
+     */
+    public static long key(int buildingId, int floorNumber, int roomNumber,
+                           int kindId) {
+        if (buildingId < 0 || buildingId > 0x7FFF || floorNumber < 0 ||
+                floorNumber > 0xFFFF || roomNumber < 0 ||
+                roomNumber > 0xFFFFFF || kindId < 0 || kindId > 0xFF) {
+            return EMPTY;
+        }
+        return ((long) buildingId << 48) | ((long) floorNumber << 32) |
+                ((long) roomNumber << 8) | kindId;
+    }
+
+    /**
+     * Adds every timed sensor in the given building to the directory under
+     * the given building id. Sensors whose floor or room number cannot be
+     * addressed are skipped.
+     *
+     * @param buildingId id to address the building by, 0 to 32767
+     * @param building   building whose sensors to add
+     * @return number of sensors added
+     * @throws IllegalArgumentException if buildingId is out of range
+     */
+    public int register(int buildingId, Building building)
+            throws IllegalArgumentException {
+        if (buildingId < 0 || buildingId > 0x7FFF) {
+            throw new IllegalArgumentException();
+        }
+        int added = 0;
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    SensorKind kind = SensorKind.of(sensor);
+                    long key = kind == null ? EMPTY : key(buildingId,
+                            floor.getFloorNumber(), room.getRoomNumber(),
+                            kind.getId());
+                    if (key != EMPTY && sensor instanceof TimedSensor) {
+                        put(key, (TimedSensor) sensor);
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Returns the sensor with the given packed address.
+     *
+     * @param key address packed by key(int, int, int, int)
+     * @return sensor at the address; null if there is none
+     */
+    public TimedSensor get(long key) {
+        if (key == EMPTY) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return sensors[i];
+            } else if (keys[i] == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the sensor with the given address.
+     *
+     * @param buildingId  building id
+     * @param floorNumber floor number
+     * @param roomNumber  room number
+     * @param kind        kind of sensor
+     * @return sensor at the address; null if there is none
+     */
+    public TimedSensor get(int buildingId, int floorNumber, int roomNumber,
+                           SensorKind kind) {
+        return get(key(buildingId, floorNumber, roomNumber, kind.getId()));
+    }
+
+    /**
+     * Returns the number of sensors in the directory.
+     *
+     * @return number of sensors
+     */
+    public int size() {
+        return size;
+    }
+
+    private void put(long key, TimedSensor sensor) {
+        if (2 * (size + 1) > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            size++;
+        }
+        keys[i] = key;
+        sensors[i] = sensor;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        TimedSensor[] oldSensors = sensors;
+        keys = new long[oldKeys.length * 2];
+        sensors = new TimedSensor[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldSensors[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return "SensorDirectory: sensors=" + size;
+    }
+}
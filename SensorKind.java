@@ -0,0 +1,77 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the kind of a sensor, with a stable numeric id for use
+ * outside the program, such as in the binary reading protocol.
+ */
+public enum SensorKind {
+    CARBON_DIOXIDE(1, "CarbonDioxideSensor"),
+    NOISE(2, "NoiseSensor"),
+    OCCUPANCY(3, "OccupancySensor"),
+    TEMPERATURE(4, "TemperatureSensor");
+
+    private static final SensorKind[] BY_ID = new SensorKind[5];
+
+    static {
+        for (SensorKind kind : values()) {
+            BY_ID[kind.id] = kind;
+        }
+    }
+
+    private final int id;
+    private final String sensorType;
+
+    SensorKind(int id, String sensorType) {
+        this.id = id;
+        this.sensorType = sensorType;
+    }
+
+    /**
+     * Returns the numeric id of this kind of sensor, 1 to 255.
+     *
+     * @return sensor kind id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the simple class name of this kind of sensor, as used by
+     * Room.getSensor(String).
+     *
+     * @return sensor type name
+     */
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    /**
+     * Returns the kind of sensor with the given id.
+     *
+     * @param id sensor kind id
+     * @return kind of sensor; null if no kind has the id
+     */
+    public static SensorKind fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+    /**
+     * Returns the kind of the given sensor.
+     *
+     * @param sensor sensor to look up
+     * @return kind of sensor; null if the sensor is not one of the known
+     *         kinds
+     */
+    public static SensorKind of(Sensor sensor) {
+        if (sensor instanceof CarbonDioxideSensor) {
+            return CARBON_DIOXIDE;
+        } else if (sensor instanceof NoiseSensor) {
+            return NOISE;
+        } else if (sensor instanceof OccupancySensor) {
+            return OCCUPANCY;
+        } else if (sensor instanceof TemperatureSensor) {
+            return TEMPERATURE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,262 @@
+package bms.sensors;
+
+/**
+ * An immutable sequence of raw sensor readings.
+ *
+ * Readings can be stored as a plain int array or, using compact(int[]), in
+ * the narrowest encoding that can hold them: one byte per reading, two bytes
+ * per reading, or one byte per difference between consecutive readings.
+ */
+public abstract class SensorReadings {
+    /* header plus up to three references, with compressed oops */
+    private static final int OBJECT_BYTES = 24;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private String rendered;
+
+    /**
+     * Returns the number of readings in the sequence.
+     *
+     * @return number of readings
+     */
+    public abstract int length();
+
+    /**
+     * Returns the reading at the given position.
+     *
+     * @param index position of the reading, 0 to length() - 1
+     * @return reading at the position
+     */
+    public abstract int get(int index);
+
+    /**
+     * Returns an estimate of the heap space used by this sequence in bytes,
+     * assuming a 64-bit JVM with compressed references.
+     *
+     * @return estimated size in bytes
+     */
+    public abstract long estimateBytes();
+
+    /**
+     * Returns a new array containing every reading in the sequence.
+     *
+     * @return new array of readings
+     */
+    public int[] toArray() {
+        int[] readings = new int[length()];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = get(i);
+        }
+        return readings;
+    }
+
+    /**
+     * Returns the readings as comma separated values, e.g. "1,2,3". The text
+     * is built once and reused by every sensor sharing this sequence.
+     *
+     * @return readings separated by commas
+     */
+    public String render() {
+        String result = rendered;
+        if (result == null) {
+            StringBuilder builder = new StringBuilder(length() * 4);
+            for (int i = 0; i < length(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(get(i));
+            }
+            result = builder.toString();
+            rendered = result;
+        }
+        return result;
+    }
+
+    /**
+     * Copies the given readings into a sequence backed by a plain int array,
+     * so later changes to the given array do not affect the sequence.
+     *
+     * @param readings readings to copy
+     * @return new sequence holding the same readings
+     */
+    public static SensorReadings of(int[] readings) {
+        return new IntReadings(readings.clone());
+    }
+
+    /**
+     * Wraps the given array without copying it, for callers that own a newly
+     * filled array, such as a frame decoder. The array must not be changed
+     * afterwards.
+     *
+     * @param readings readings to wrap
+     * @return sequence backed by the array
+     */
+    public static SensorReadings wrap(int[] readings) {
+        return new IntReadings(readings);
+    }
+
+    /**
+     * Copies the given readings into the smallest of the supported
+     * encodings.
+     *
+     * @param readings non-negative readings to encode
+     * @return new compact sequence holding the same readings
+     */
+    public static SensorReadings compact(int[] readings) {
+        int max = 0;
+        boolean smallSteps = readings.length > 0;
+        for (int i = 0; i < readings.length; i++) {
+            max = Math.max(max, readings[i]);
+            if (i > 0) {
+                int step = readings[i] - readings[i - 1];
+                smallSteps &= step >= Byte.MIN_VALUE &&
+                        step <= Byte.MAX_VALUE;
+            }
+        }
+
+        if (max <= 0xFF) {
+            return new ByteReadings(readings);
+        } else if (smallSteps && readings.length > DeltaReadings.BLOCK) {
+            return new DeltaReadings(readings);
+        } else if (max <= 0xFFFF) {
+            return new ShortReadings(readings);
+        }
+        return new IntReadings(readings.clone());
+    }
+
+    /**
+     * Returns the estimated size of an array with the given number of bytes
+     * of elements, rounded up to the 8 byte alignment of the JVM.
+     */
+    static long arrayBytes(long elementBytes) {
+        return (ARRAY_HEADER_BYTES + elementBytes + 7) & ~7L;
+    }
+
+    /**
+     * Readings stored as a plain int array.
+     */
+    private static class IntReadings extends SensorReadings {
+        private final int[] readings;
+
+        private IntReadings(int[] readings) {
+            this.readings = readings;
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index];
+        }
+
+        @Override
+        public long estimateBytes() {
+            return OBJECT_BYTES + arrayBytes(4L * readings.length);
+        }
+    }
+
+    /**
+     * Readings between 0 and 255, one byte each.
+     */
+    private static class ByteReadings extends SensorReadings {
+        private final byte[] readings;
+
+        private ByteReadings(int[] source) {
+            readings = new byte[source.length];
+            for (int i = 0; i < source.length; i++) {
+                readings[i] = (byte) source[i];
+            }
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index] & 0xFF;
+        }
+
+        @Override
+        public long estimateBytes() {
+            return OBJECT_BYTES + arrayBytes(readings.length);
+        }
+    }
+
+    /**
+     * Readings between 0 and 65535, two bytes each.
+     */
+    private static class ShortReadings extends SensorReadings {
+        private final short[] readings;
+
+        private ShortReadings(int[] source) {
+            readings = new short[source.length];
+            for (int i = 0; i < source.length; i++) {
+                readings[i] = (short) source[i];
+            }
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index] & 0xFFFF;
+        }
+
+        @Override
+        public long estimateBytes() {
+            return OBJECT_BYTES + arrayBytes(2L * readings.length);
+        }
+    }
+
+    /**
+     * Readings stored as one byte differences from the previous reading,
+     * with the full value kept at the start of every block so that any
+     * reading can be found with at most BLOCK - 1 additions.
+     */
+    private static class DeltaReadings extends SensorReadings {
+        private static final int BLOCK = 32;
+
+        private final int[] blockStarts;
+        private final byte[] deltas;
+
+        private DeltaReadings(int[] source) {
+            blockStarts = new int[(source.length + BLOCK - 1) / BLOCK];
+            deltas = new byte[source.length];
+            for (int i = 0; i < source.length; i++) {
+                if (i % BLOCK == 0) {
+                    blockStarts[i / BLOCK] = source[i];
+                } else {
+                    deltas[i] = (byte) (source[i] - source[i - 1]);
+                }
+            }
+        }
+
+        @Override
+        public int length() {
+            return deltas.length;
+        }
+
+        @Override
+        public int get(int index) {
+            int value = blockStarts[index / BLOCK];
+            for (int i = index - index % BLOCK + 1; i <= index; i++) {
+                value += deltas[i];
+            }
+            return value;
+        }
+
+        @Override
+        public long estimateBytes() {
+            return OBJECT_BYTES + arrayBytes(4L * blockStarts.length) +
+                    arrayBytes(deltas.length);
+        }
+    }
+}
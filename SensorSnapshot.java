@@ -0,0 +1,53 @@
+package bms.sensors;
+
+import bms.util.TickEpoch;
+import java.util.List;
+
+/**
+ * Reads several sensors as of the same tick, without locking.
+ *
+ * A room's sensors are normally read one at a time with getCurrentReading(),
+ * so a tick published part way through can give a mix of old and new
+ * readings. A snapshot reads every sensor from the same published tick and
+ * retries in the rare case that the tick after next started overwriting that
+ * tick's state mid-read.
+ */
+public class SensorSnapshot {
+
+    private SensorSnapshot() {
+    }
+
+    /**
+     * Returns the current readings of the given sensors, all as of the same
+     * tick.
+     *
+     * @param sensors sensors to read, all sharing the same tick epoch
+     * @return new array of readings, in the same order as the sensors
+     * @throws IllegalArgumentException if the sensors are ticked by
+     *                                  different epochs
+     */
+    public static int[] read(List<? extends TimedSensor> sensors)
+            throws IllegalArgumentException {
+        int[] readings = new int[sensors.size()];
+        if (sensors.isEmpty()) {
+            return readings;
+        }
+        TickEpoch epoch = sensors.get(0).getTickEpoch();
+        for (TimedSensor sensor : sensors) {
+            if (sensor.getTickEpoch() != epoch) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        while (true) {
+            long tick = epoch.getPublished();
+            for (int i = 0; i < readings.length; i++) {
+                readings[i] = sensors.get(i).getReadingAt(tick);
+            }
+            // fences the reads above before validating them
+            if (epoch.isStillReadable(tick)) {
+                return readings;
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package bms.sensors;
+
+import bms.util.TickEpoch;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SensorSnapshotTest {
+    private TickEpoch epoch;
+    private TemperatureSensor first;
+    private TemperatureSensor second;
+
+    @Before
+    public void setUp() {
+        epoch = new TickEpoch();
+        first = new TemperatureSensor(new int[]{1, 2, 3, 4});
+        second = new TemperatureSensor(new int[]{1, 2, 3, 4});
+        // only ticked by the test itself
+        TimedItemManager.getInstance().deregisterTimedItems(
+                List.of(first, second));
+        first.setTickEpoch(epoch);
+        second.setTickEpoch(epoch);
+    }
+
+    @After
+    public void tearDown() {
+        TimedItemManager.getInstance().deregisterTimedItems(
+                List.of(first, second));
+    }
+
+    private void tick() {
+        epoch.beginTick();
+        first.elapseOneMinute();
+        second.elapseOneMinute();
+        epoch.publish();
+    }
+
+    @Test
+    public void tickHiddenUntilPublished() {
+        epoch.beginTick();
+        first.elapseOneMinute();
+        Assert.assertEquals(1, first.getCurrentReading());
+        Assert.assertEquals(0, first.getTimeElapsed());
+        epoch.publish();
+        Assert.assertEquals(2, first.getCurrentReading());
+        Assert.assertEquals(1, first.getTimeElapsed());
+    }
+
+    @Test
+    public void minutesBuffered() {
+        OccupancySensor sensor = new OccupancySensor(new int[]{5, 6}, 2, 10);
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(sensor));
+        sensor.setTickEpoch(epoch);
+        epoch.beginTick();
+        sensor.elapseOneMinute();
+        Assert.assertEquals(0, sensor.getMinutesSinceUpdate());
+        epoch.publish();
+        Assert.assertEquals(1, sensor.getMinutesSinceUpdate());
+        epoch.beginTick();
+        sensor.elapseOneMinute();
+        Assert.assertEquals(1, sensor.getMinutesSinceUpdate());
+        Assert.assertEquals(5, sensor.getCurrentReading());
+        epoch.publish();
+        Assert.assertEquals(0, sensor.getMinutesSinceUpdate());
+        Assert.assertEquals(6, sensor.getCurrentReading());
+        Assert.assertEquals(2, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void stillReadableUntilTickAfterNext() {
+        tick();
+        long tick = epoch.getPublished();
+        Assert.assertTrue(epoch.isStillReadable(tick));
+        epoch.beginTick();
+        Assert.assertTrue(epoch.isStillReadable(tick));
+        epoch.publish();
+        epoch.beginTick();
+        Assert.assertFalse(epoch.isStillReadable(tick));
+        epoch.publish();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void differentEpochs() {
+        second.setTickEpoch(new TickEpoch());
+        SensorSnapshot.read(List.of(first, second));
+    }
+
+    @Test
+    public void snapshotsNeverTorn() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread ticker = new Thread(() -> {
+            for (int i = 0; i < 20000; i++) {
+                tick();
+            }
+            done.set(true);
+        });
+        ticker.start();
+        List<TemperatureSensor> sensors = List.of(first, second);
+        while (!done.get()) {
+            int[] readings = SensorSnapshot.read(sensors);
+            Assert.assertEquals(readings[0], readings[1]);
+        }
+        ticker.join();
+        Assert.assertArrayEquals(new int[]{1, 1}, SensorSnapshot.read(sensors));
+    }
+}
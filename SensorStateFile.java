@@ -0,0 +1,260 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * A memory-mapped file holding the position of every sensor in a list
+ * within its readings, so that a simulation can carry on from where it was
+ * after the program is restarted or crashes.
+ *
+ * The file is a 32 byte header followed by one 32 byte record per sensor,
+ * in native byte order:
+ * <pre>
+ * header  int magic, int version, int sensor count, int unused,
+ *         long committed tick, long unused
+ * record  int sensor kind id, int number of readings,
+ *         two slots of: int current element, int minutes since update,
+ *                       int minutes elapsed
+ * </pre>
+ * The file registers itself as a stage of the timed item manager. After
+ * each tick it writes every sensor's state into the slot of the next tick's
+ * parity, in place, and only then advances the committed tick. The slot of
+ * the committed tick is never written, so whenever the program stops, the
+ * file holds the complete state as of the last committed tick, and opening
+ * it again restores that state without replaying any ticks.
+ *
+ * A crash of the program alone loses nothing, since the operating system
+ * still writes the mapped pages back. To also survive a crash of the
+ * operating system, enable setSyncEachTick(boolean), at the cost of waiting
+ * for the disk on every tick.
+ */
+public class SensorStateFile implements TimedItem, Closeable {
+    private static final int MAGIC = 0x424D5353;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT = 8;
+    private static final int COMMITTED = 16;
+
+    private static final int RECORD_BYTES = 32;
+    private static final int KIND = 0;
+    private static final int LENGTH = 4;
+    private static final int SLOTS = 8;
+    private static final int SLOT_BYTES = 12;
+    private static final int ELEMENT = 0;
+    private static final int SINCE_UPDATE = 4;
+    private static final int ELAPSED = 8;
+
+    /* orders the committed tick after the slot writes before it */
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class,
+                    ByteOrder.nativeOrder());
+
+    private final TimedSensor[] sensors;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long restoredTick;
+    private long committedTick;
+    private boolean syncEachTick;
+
+    private SensorStateFile(TimedSensor[] sensors, FileChannel channel,
+                            MappedByteBuffer buffer, long restoredTick) {
+        this.sensors = sensors;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.restoredTick = restoredTick;
+        committedTick = restoredTick < 0 ? 0 : restoredTick;
+    }
+
+    /**
+     * Opens the state file for the given sensors, creating it if needed,
+     * and registers it with the timed item manager as a stage.
+     *
+     * If the file holds a committed state for the same number of sensors,
+     * of the same kinds and with the same number of readings, every sensor
+     * is restored to that state and the restored readings are published
+     * with TimedItemManager.stateRestored(); otherwise the file is started
+     * afresh from the sensors' current state. Must not be called while a
+     * tick is running.
+     *
+     * @param file    file to hold the sensors' state
+     * @param sensors sensors whose state to keep, always given in the same
+     *                order
+     * @return the open state file
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if there are too many sensors for
+     *                                  one file
+     */
+    public static SensorStateFile open(Path file,
+                                       List<? extends TimedSensor> sensors)
+            throws IOException, IllegalArgumentException {
+        TimedSensor[] array = sensors.toArray(new TimedSensor[0]);
+        long bytes = HEADER_BYTES + (long) RECORD_BYTES * array.length;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        SensorStateFile stateFile;
+        try {
+            boolean restorable = channel.size() == bytes;
+            MappedByteBuffer buffer = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.nativeOrder());
+            restorable = restorable && matches(buffer, array);
+            long tick = restorable ? buffer.getLong(COMMITTED) : -1;
+            stateFile = new SensorStateFile(array, channel, buffer, tick);
+            if (restorable) {
+                stateFile.restore();
+                TimedItemManager.getInstance().stateRestored();
+            } else {
+                stateFile.initialise();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        TimedItemManager.getInstance().registerStage(stateFile);
+        return stateFile;
+    }
+
+    /**
+     * Returns the tick the sensors were restored to when the file was
+     * opened.
+     *
+     * @return restored tick; -1 if the file was started afresh
+     */
+    public long getRestoredTick() {
+        return restoredTick;
+    }
+
+    /**
+     * Returns the last tick whose state was committed to the file, counting
+     * from 1 for the state the file was started from.
+     *
+     * @return last committed tick
+     */
+    public long getCommittedTick() {
+        return committedTick;
+    }
+
+    /**
+     * Sets whether each tick's state is forced to disk before it is
+     * committed, and the commit forced to disk before the tick ends.
+     * Defaults to false.
+     *
+     * @param syncEachTick whether to wait for the disk on every tick
+     */
+    public void setSyncEachTick(boolean syncEachTick) {
+        this.syncEachTick = syncEachTick;
+    }
+
+    /**
+     * Writes every sensor's state as of the tick just published, then
+     * commits it.
+     */
+    @Override
+    public void elapseOneMinute() {
+        long tick = committedTick + 1;
+        int slot = SLOTS + (int) (tick & 1) * SLOT_BYTES;
+        for (int i = 0; i < sensors.length; i++) {
+            int record = HEADER_BYTES + i * RECORD_BYTES + slot;
+            TimedSensor sensor = sensors[i];
+            buffer.putInt(record + ELEMENT, sensor.getCurrentElement());
+            buffer.putInt(record + SINCE_UPDATE,
+                    sensor.getMinutesSinceUpdate());
+            buffer.putInt(record + ELAPSED, sensor.getTimeElapsed());
+        }
+        if (syncEachTick) {
+            buffer.force();
+        }
+        LONGS.setRelease(buffer, COMMITTED, tick);
+        if (syncEachTick) {
+            buffer.force();
+        }
+        committedTick = tick;
+    }
+
+    /**
+     * Stops writing the sensors' state after every tick and closes the
+     * file. The last committed state is kept.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        TimedItemManager.getInstance().deregisterTimedItems(List.of(this));
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Returns whether the header and records of the given file describe the
+     * given sensors.
+     */
+    private static boolean matches(MappedByteBuffer buffer,
+                                   TimedSensor[] sensors) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION ||
+                buffer.getInt(COUNT) != sensors.length ||
+                buffer.getLong(COMMITTED) < 1) {
+            return false;
+        }
+        for (int i = 0; i < sensors.length; i++) {
+            int record = HEADER_BYTES + i * RECORD_BYTES;
+            if (buffer.getInt(record + KIND) != kindId(sensors[i]) ||
+                    buffer.getInt(record + LENGTH)
+                            != sensors[i].getReadings().length()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts every sensor back into the state of the committed tick.
+     */
+    private void restore() {
+        int slot = SLOTS + (int) (committedTick & 1) * SLOT_BYTES;
+        for (int i = 0; i < sensors.length; i++) {
+            int record = HEADER_BYTES + i * RECORD_BYTES + slot;
+            sensors[i].restoreState(buffer.getInt(record + ELEMENT),
+                    buffer.getInt(record + SINCE_UPDATE),
+                    buffer.getInt(record + ELAPSED));
+        }
+    }
+
+    /**
+     * Writes a new header and records, and commits the sensors' current
+     * state as tick 1.
+     */
+    private void initialise() {
+        // an uncommitted header first, so a crash part way is not restored
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(COUNT, sensors.length);
+        buffer.putLong(COMMITTED, 0);
+        for (int i = 0; i < sensors.length; i++) {
+            int record = HEADER_BYTES + i * RECORD_BYTES;
+            buffer.putInt(record + KIND, kindId(sensors[i]));
+            buffer.putInt(record + LENGTH, sensors[i].getReadings().length());
+        }
+        committedTick = 0;
+        elapseOneMinute();
+    }
+
+    private static int kindId(TimedSensor sensor) {
+        SensorKind kind = SensorKind.of(sensor);
+        return kind == null ? 0 : kind.getId();
+    }
+}
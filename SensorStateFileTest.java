@@ -0,0 +1,169 @@
+package bms.sensors;
+
+import bms.building.Building;
+import bms.building.OccupancyAnalytics;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.util.ChangeBatch;
+import bms.util.ChangeFeed;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class SensorStateFileTest {
+    private TimedItemManager manager;
+    private Path file;
+    private List<TimedItem> owned;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = TimedItemManager.getInstance();
+        file = Files.createTempFile("state", ".dat");
+        owned = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        manager.deregisterTimedItems(owned);
+        Files.deleteIfExists(file);
+    }
+
+    private List<TimedSensor> newSensors() {
+        List<TimedSensor> sensors = List.of(
+                new TemperatureSensor(new int[]{1, 2, 3, 4, 5}),
+                new OccupancySensor(new int[]{3, 6, 9}, 2, 10));
+        owned.addAll(sensors);
+        return sensors;
+    }
+
+    @Test
+    public void reopenRestoresCommittedState() throws Exception {
+        List<TimedSensor> sensors = newSensors();
+        SensorStateFile stateFile = SensorStateFile.open(file, sensors);
+        Assert.assertEquals(-1, stateFile.getRestoredTick());
+        for (int i = 0; i < 3; i++) {
+            manager.elapseOneMinute();
+        }
+        long committed = stateFile.getCommittedTick();
+        Assert.assertEquals(4, committed);
+        stateFile.close();
+
+        List<TimedSensor> restored = newSensors();
+        SensorStateFile reopened = SensorStateFile.open(file, restored);
+        try {
+            Assert.assertEquals(committed, reopened.getRestoredTick());
+            for (int i = 0; i < sensors.size(); i++) {
+                TimedSensor before = sensors.get(i);
+                TimedSensor after = restored.get(i);
+                Assert.assertEquals(before.getCurrentReading(),
+                        after.getCurrentReading());
+                Assert.assertEquals(before.getCurrentElement(),
+                        after.getCurrentElement());
+                Assert.assertEquals(before.getMinutesSinceUpdate(),
+                        after.getMinutesSinceUpdate());
+                Assert.assertEquals(before.getTimeElapsed(),
+                        after.getTimeElapsed());
+            }
+            Assert.assertEquals(4, restored.get(0).getCurrentReading());
+            Assert.assertEquals(6, restored.get(1).getCurrentReading());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void uncommittedSlotIgnored() throws Exception {
+        List<TimedSensor> sensors = newSensors();
+        SensorStateFile stateFile = SensorStateFile.open(file, sensors);
+        manager.elapseOneMinute();
+        long committed = stateFile.getCommittedTick();
+        stateFile.close();
+
+        // a crash after writing the next tick's slot, before committing it
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                    0, channel.size()).order(ByteOrder.nativeOrder());
+            int slot = 8 + (int) ((committed + 1) & 1) * 12;
+            buffer.putInt(32 + slot, 4);
+            buffer.putInt(32 + slot + 8, 99);
+        }
+
+        List<TimedSensor> restored = newSensors();
+        SensorStateFile reopened = SensorStateFile.open(file, restored);
+        try {
+            Assert.assertEquals(committed, reopened.getRestoredTick());
+            Assert.assertEquals(2, restored.get(0).getCurrentReading());
+            Assert.assertEquals(1, restored.get(0).getTimeElapsed());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void differentSensorsStartAfresh() throws Exception {
+        SensorStateFile stateFile = SensorStateFile.open(file, newSensors());
+        manager.elapseOneMinute();
+        stateFile.close();
+
+        List<TimedSensor> other = List.of(
+                new NoiseSensor(new int[]{50, 60}, 1));
+        owned.addAll(other);
+        SensorStateFile reopened = SensorStateFile.open(file, other);
+        try {
+            Assert.assertEquals(-1, reopened.getRestoredTick());
+            Assert.assertEquals(1, reopened.getCommittedTick());
+            Assert.assertEquals(50, other.get(0).getCurrentReading());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void restoreNotifiesChangeFeed() throws Exception {
+        List<TimedSensor> sensors = newSensors();
+        SensorStateFile stateFile = SensorStateFile.open(file, sensors);
+        manager.elapseOneMinute();
+        manager.elapseOneMinute();
+        stateFile.close();
+
+        List<TimedSensor> restored = newSensors();
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        room.addSensor​(restored.get(1));
+        OccupancyAnalytics analytics = new OccupancyAnalytics(building);
+        List<ChangeBatch> batches = new ArrayList<>();
+        Consumer<ChangeBatch> subscriber = batches::add;
+        ChangeFeed.getInstance().subscribe(subscriber);
+        try {
+            Assert.assertEquals(3, analytics.getHeadcount(room));
+            SensorStateFile reopened = SensorStateFile.open(file, restored);
+            reopened.close();
+
+            Assert.assertEquals(1, batches.size());
+            Assert.assertTrue(batches.get(0).getAdvancedSensors()
+                    .containsAll(restored));
+            Assert.assertEquals(6, analytics.getHeadcount(room));
+        } finally {
+            ChangeFeed.getInstance().unsubscribe(subscriber);
+            analytics.close();
+        }
+    }
+}
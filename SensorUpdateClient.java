@@ -0,0 +1,94 @@
+package bms.server;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client which sends reading updates to a SensorUpdateServer on the same
+ * machine.
+ *
+ * Frames are pipelined: send(FrameEncoder) does not wait for the server,
+ * and awaitAcks() collects the acknowledgements of every frame sent since
+ * it was last called. Call awaitAcks() at least every few thousand frames,
+ * or the server will stop reading while its acknowledgements go unread.
+ */
+public class SensorUpdateClient implements Closeable {
+    private SocketChannel channel;
+    private ByteBuffer acks;
+    private long outstanding;
+    private long rejected;
+
+    /**
+     * Connects to the server on the given port of the loopback address.
+     *
+     * @param port port the server is listening on
+     * @throws IOException if the connection fails
+     */
+    public SensorUpdateClient(int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port));
+        channel.socket().setTcpNoDelay(true);
+        acks = ByteBuffer.allocateDirect(8 * 1024);
+    }
+
+    /**
+     * Sends every complete frame in the encoder. The encoder is not cleared.
+     *
+     * @param encoder encoder holding the frames to send
+     * @throws IOException if writing to the connection fails
+     */
+    public void send(FrameEncoder encoder) throws IOException {
+        ByteBuffer frames = encoder.getFrames();
+        while (frames.hasRemaining()) {
+            channel.write(frames);
+        }
+        outstanding += encoder.getFrameCount();
+    }
+
+    /**
+     * Waits for the acknowledgement of every frame sent so far.
+     *
+     * @return number of updates the server accepted from those frames
+     * @throws IOException if reading from the connection fails or the
+     *                     server closed it
+     */
+    public long awaitAcks() throws IOException {
+        long accepted = 0;
+        while (outstanding > 0) {
+            acks.limit((int) Math.min(acks.capacity(), 8 * outstanding));
+            while (acks.hasRemaining()) {
+                if (channel.read(acks) < 0) {
+                    throw new EOFException();
+                }
+            }
+            acks.flip();
+            while (acks.hasRemaining()) {
+                accepted += acks.getInt();
+                rejected += acks.getInt();
+                outstanding--;
+            }
+            acks.clear();
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the total number of updates the server has rejected, as of
+     * the last call to awaitAcks().
+     *
+     * @return rejected updates
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
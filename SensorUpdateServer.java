@@ -0,0 +1,152 @@
+package bms.server;
+
+import bms.exceptions.MalformedFrameException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A server which receives reading updates in the binary reading protocol
+ * (see FrameDecoder) and queues them in a SensorUpdateSink.
+ *
+ * The server only listens on the loopback address. Each connection is read
+ * into its own direct buffer and decoded in place on its own thread, and
+ * every frame is acknowledged with the number of updates accepted and
+ * rejected. A connection which sends a malformed frame is closed.
+ */
+public class SensorUpdateServer {
+    private SensorDirectory directory;
+    private SensorUpdateSink sink;
+    private ServerSocketChannel serverChannel;
+    private ExecutorService executor;
+    private Set<SocketChannel> connections;
+    private AtomicLong framesReceived;
+
+    /**
+     * Creates a server bound to the given port on the loopback address. The
+     * server does not accept connections until it is started.
+     *
+     * @param directory directory of addressable sensors
+     * @param sink      where to queue accepted updates
+     * @param port      port to listen on; 0 to pick any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SensorUpdateServer(SensorDirectory directory,
+                              SensorUpdateSink sink, int port)
+            throws IOException {
+        this.directory = directory;
+        this.sink = sink;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(
+                InetAddress.getLoopbackAddress(), port));
+        executor = Executors.newCachedThreadPool();
+        connections = ConcurrentHashMap.newKeySet();
+        framesReceived = new AtomicLong();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return port number
+     * @throws IOException if the port cannot be found
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress())
+                .getPort();
+    }
+
+    /**
+     * Returns the number of frames received on all connections.
+     *
+     * @return frames received
+     */
+    public long getFramesReceived() {
+        return framesReceived.get();
+    }
+
+    /**
+     * Starts accepting connections.
+     */
+    public void start() {
+        executor.execute(this::accept);
+    }
+
+    /**
+     * Stops accepting connections and closes every open connection.
+     *
+     * @throws IOException if closing a channel fails
+     */
+    public void stop() throws IOException {
+        serverChannel.close();
+        for (SocketChannel channel : connections) {
+            channel.close();
+        }
+        executor.shutdown();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                channel.socket().setTcpNoDelay(true);
+                connections.add(channel);
+                executor.execute(() -> serve(channel));
+            }
+        } catch (IOException e) {
+            // the server was stopped
+        }
+    }
+
+    /**
+     * Reads, decodes and acknowledges frames until the connection closes.
+     */
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocateDirect(
+                FrameDecoder.MAX_FRAME_BYTES);
+        ByteBuffer acks = ByteBuffer.allocateDirect(8 * 1024);
+        FrameDecoder decoder = new FrameDecoder(directory);
+        try (channel) {
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (FrameDecoder.frameLength(in) > 0) {
+                    decoder.decode(in, sink);
+                    framesReceived.incrementAndGet();
+                    if (acks.remaining() < 8) {
+                        write(channel, acks);
+                    }
+                    acks.putInt(decoder.getAccepted())
+                            .putInt(decoder.getRejected());
+                }
+                write(channel, acks);
+                in.compact();
+            }
+        } catch (IOException | MalformedFrameException e) {
+            // the connection is closed either way
+        } finally {
+            connections.remove(channel);
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer buffer)
+            throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "SensorUpdateServer: connections=" + connections.size() +
+                ", frames=" + framesReceived.get();
+    }
+}
@@ -0,0 +1,128 @@
+package bms.server;
+
+import bms.sensors.SensorCalibrator;
+import bms.sensors.SensorReadings;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Collects decoded reading updates from any number of connections and
+ * applies them to their sensors in bulk.
+ *
+ * Updates are queued as they arrive, one batch per frame, and applied by
+ * drain() on the thread that ticks the sensors, so that applying an update
+ * never races with the sensor being ticked. The sink registers itself with
+ * the timed item manager as a pre-tick stage, so it drains before each tick
+ * starts and every sensor then ticks on from its new readings; drain() can
+ * also be called directly between ticks. Updates to the same sensor are
+ * applied in the order they arrived, so the last one wins. If the sink is
+ * given a SensorCalibrator, updates are corrected by it as they are applied.
+ * As the sink owns the queued arrays, sensors are given them without another
+ * copy unless compact storage is on.
+ */
+public class SensorUpdateSink implements TimedItem {
+    private ConcurrentLinkedQueue<Batch> pending;
+    private long applied;
+    private SensorCalibrator calibrator;
+
+    /**
+     * Creates a new sink and registers it with the timed item manager as a
+     * pre-tick stage.
+     */
+    public SensorUpdateSink() {
+        pending = new ConcurrentLinkedQueue<>();
+        TimedItemManager.getInstance().registerPreTickStage(this);
+    }
+
+    /**
+     * Queues a batch of updates. The arrays are kept, not copied, and must
+     * not be changed afterwards.
+     *
+     * @param sensors  sensors to update
+     * @param readings new readings of each sensor
+     * @param count    number of updates in the arrays
+     */
+    public void offer(TimedSensor[] sensors, int[][] readings, int count) {
+        if (count > 0) {
+            pending.add(new Batch(sensors, readings, count));
+        }
+    }
+
+    /**
+     * Sets the calibrator that corrects updates as they are applied.
+     *
+     * @param calibrator calibrator of the updated sensors, or null to apply
+     *                   updates as they are received
+     */
+    public void setCalibrator(SensorCalibrator calibrator) {
+        this.calibrator = calibrator;
+    }
+
+    /**
+     * Applies every queued update to its sensor.
+     *
+     * @return number of updates applied
+     */
+    public int drain() {
+        boolean compact = TimedSensor.isCompactStorage();
+        SensorCalibrator calibrator = this.calibrator;
+        int count = 0;
+        Batch batch;
+        while ((batch = pending.poll()) != null) {
+            for (int i = 0; i < batch.count; i++) {
+                int[] readings = batch.readings[i];
+                if (calibrator != null) {
+                    calibrator.replaceReadings(batch.sensors[i], readings);
+                } else {
+                    batch.sensors[i].replaceReadings(compact
+                            ? SensorReadings.compact(readings)
+                            : SensorReadings.wrap(readings));
+                }
+            }
+            count += batch.count;
+        }
+        applied += count;
+        return count;
+    }
+
+    /**
+     * Returns the total number of updates applied since the sink was
+     * created.
+     *
+     * @return applied updates
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * Applies the updates received since the last tick, before the next
+     * tick starts.
+     */
+    @Override
+    public void elapseOneMinute() {
+        drain();
+    }
+
+    @Override
+    public String toString() {
+        return "SensorUpdateSink: applied=" + applied;
+    }
+
+    /**
+     * The updates decoded from a single frame.
+     */
+    private static class Batch {
+        private final TimedSensor[] sensors;
+        private final int[][] readings;
+        private final int count;
+
+        private Batch(TimedSensor[] sensors, int[][] readings, int count) {
+            this.sensors = sensors;
+            this.readings = readings;
+            this.count = count;
+        }
+    }
+}
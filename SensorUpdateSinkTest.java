@@ -0,0 +1,71 @@
+package bms.server;
+
+import bms.sensors.NoiseSensor;
+import bms.sensors.SensorReadings;
+import bms.sensors.TemperatureSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SensorUpdateSinkTest {
+    private TimedItemManager manager;
+    private SensorUpdateSink sink;
+    private TemperatureSensor temperature;
+    private NoiseSensor noise;
+
+    @Before
+    public void setUp() {
+        manager = TimedItemManager.getInstance();
+        sink = new SensorUpdateSink();
+        // registered after the sink, so ticked after it
+        temperature = new TemperatureSensor(new int[]{1, 2, 3});
+        noise = new NoiseSensor(new int[]{40, 45}, 2);
+    }
+
+    @After
+    public void tearDown() {
+        manager.deregisterTimedItems(List.of(sink, temperature, noise));
+    }
+
+    private static int[] values(SensorReadings readings) {
+        int[] values = new int[readings.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readings.get(i);
+        }
+        return values;
+    }
+
+    @Test
+    public void appliedBeforeSensorsTick() {
+        sink.offer(new TimedSensor[]{temperature, noise},
+                new int[][]{{50, 60, 70}, {55, 65}}, 2);
+        manager.elapseOneMinute();
+
+        Assert.assertEquals(2, sink.getApplied());
+        Assert.assertArrayEquals(new int[]{50, 60, 70},
+                values(temperature.getReadings()));
+        // ticked on from the first new reading
+        Assert.assertEquals(60, temperature.getCurrentReading());
+        Assert.assertArrayEquals(new int[]{55, 65},
+                values(noise.getReadings()));
+        Assert.assertEquals(55, noise.getCurrentReading());
+
+        manager.elapseOneMinute();
+        Assert.assertEquals(70, temperature.getCurrentReading());
+        Assert.assertEquals(65, noise.getCurrentReading());
+    }
+
+    @Test
+    public void lastUpdateWins() {
+        sink.offer(new TimedSensor[]{noise}, new int[][]{{10}}, 1);
+        sink.offer(new TimedSensor[]{noise}, new int[][]{{20}}, 1);
+        Assert.assertEquals(2, sink.drain());
+        Assert.assertEquals(20, noise.getCurrentReading());
+        Assert.assertEquals(0, sink.drain());
+    }
+}
@@ -17,6 +17,8 @@ import bms.sensors.*;
  * purposes and instead write JUnit tests for the majority of your testing.
  */
 public class SimpleDisplay {
+    /* reused, so its caches carry over between displays */
+    private static final BuildingRenderer RENDERER = new BuildingRenderer();
 
     /**
      * Creates a building containing floors, rooms and sensors.
@@ -144,16 +146,7 @@ public class SimpleDisplay {
      * @param building building to display
      */
     private static void displayBuilding(Building building) {
-        System.out.println(building.toString());
-        for (Floor floor : building.getFloors()) {
-            System.out.println("\t" + floor.toString());
-            for (Room room : floor.getRooms()) {
-                System.out.println("\t\t" + room.toString());
-                for (Sensor sensor : room.getSensors()) {
-                    System.out.println("\t\t\t" + sensor.toString());
-                }
-            }
-        }
+        RENDERER.render(building, System.out);
     }
 
     /**
@@ -0,0 +1,107 @@
+package bms.building;
+
+import bms.util.TimedItem;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+
+/**
+ * Ticks many building simulations in parallel, in lock-step.
+ *
+ * Every building is ticked as its own task on a work-stealing pool, and a
+ * tick of the coordinator only finishes once every building has finished
+ * its tick, so all buildings always stay on the same tick. The coordinator
+ * can be registered with the TimedItemManager to drive the simulations from
+ * the global clock.
+ */
+public class SimulationCoordinator implements TimedItem {
+    private ForkJoinPool pool;
+    private List<BuildingSimulation> simulations;
+
+    /**
+     * Creates a new coordinator which runs on the common fork-join pool.
+     */
+    public SimulationCoordinator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new coordinator which runs on the given pool.
+     *
+     * @param pool pool to run building ticks on
+     */
+    public SimulationCoordinator(ForkJoinPool pool) {
+        this.pool = pool;
+        simulations = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Creates a simulation for the given building and adds it to the
+     * coordinator.
+     *
+     * @param building building to simulate
+     * @return the new simulation
+     */
+    public BuildingSimulation addBuilding(Building building) {
+        BuildingSimulation simulation = new BuildingSimulation(building);
+        simulations.add(simulation);
+        return simulation;
+    }
+
+    /**
+     * Stops ticking the given simulation. Its timed items are not handed
+     * back to the TimedItemManager.
+     *
+     * @param simulation simulation to remove
+     */
+    public void removeSimulation(BuildingSimulation simulation) {
+        simulations.remove(simulation);
+    }
+
+    /**
+     * Returns the simulations run by this coordinator.
+     *
+     * @return new list of simulations
+     */
+    public List<BuildingSimulation> getSimulations() {
+        return List.copyOf(simulations);
+    }
+
+    /**
+     * Ticks every simulation in parallel and waits for all of them to
+     * finish. If any simulation fails, the first failure is rethrown once
+     * every other simulation has finished its tick, with the rest attached
+     * as suppressed exceptions.
+     */
+    @Override
+    public void elapseOneMinute() {
+        List<ForkJoinTask<?>> tasks = simulations.stream()
+                .map(simulation -> pool.submit(simulation::elapseOneMinute))
+                .collect(Collectors.toList());
+        Throwable failure = null;
+        for (ForkJoinTask<?> task : tasks) {
+            try {
+                task.join();
+            } catch (RuntimeException | Error e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationCoordinator: buildings=" + simulations.size() +
+                ", parallelism=" + pool.getParallelism();
+    }
+}
@@ -0,0 +1,130 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItem;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SimulationCoordinatorTest {
+    private static class FailingSensor implements Sensor, TimedItem {
+        @Override
+        public int getCurrentReading() {
+            return 0;
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static class SlowSensor implements Sensor, TimedItem {
+        private final AtomicBoolean ticked = new AtomicBoolean();
+
+        @Override
+        public int getCurrentReading() {
+            return 0;
+        }
+
+        @Override
+        public void elapseOneMinute() {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ticked.set(true);
+        }
+    }
+
+    private static Building buildingWith(Sensor sensor) throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room room = new Room(1, RoomType.OFFICE, 20);
+        floor.addRoom​(room);
+        room.addSensor​(sensor);
+        return building;
+    }
+
+    @Test
+    public void failureRethrownAfterAllFinish() throws Exception {
+        SlowSensor slow = new SlowSensor();
+        SimulationCoordinator coordinator =
+                new SimulationCoordinator(new ForkJoinPool(2));
+        coordinator.addBuilding(buildingWith(new FailingSensor()));
+        coordinator.addBuilding(buildingWith(slow));
+        try {
+            coordinator.elapseOneMinute();
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            Assert.assertTrue(slow.ticked.get());
+        }
+    }
+
+    @Test
+    public void ticksInLockStep() throws Exception {
+        SimulationCoordinator coordinator = new SimulationCoordinator();
+        BuildingSimulation first =
+                coordinator.addBuilding(buildingWith(new SlowSensor()));
+        BuildingSimulation second =
+                coordinator.addBuilding(buildingWith(new SlowSensor()));
+        coordinator.elapseOneMinute();
+        Assert.assertEquals(1, first.getTickCount());
+        Assert.assertEquals(1, second.getTickCount());
+    }
+
+    @Test
+    public void removedRoomNoLongerSimulated() throws Exception {
+        Building building = new Building("Test");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        Room kept = new Room(101, RoomType.OFFICE, 20);
+        Room removed = new Room(102, RoomType.OFFICE, 20);
+        floor.addRoom​(kept);
+        floor.addRoom​(removed);
+        TemperatureSensor moving = new TemperatureSensor(new int[]{1, 2, 3});
+        TemperatureSensor frozen =
+                new TemperatureSensor(new int[]{1, 2, 3, 4, 5, 6});
+        kept.addSensor​(moving);
+        removed.addSensor​(frozen);
+        SimulationCoordinator coordinator = new SimulationCoordinator();
+        BuildingSimulation simulation = coordinator.addBuilding(building);
+        coordinator.elapseOneMinute();
+        Assert.assertEquals(2, frozen.getCurrentReading());
+
+        floor.removeRoom(102);
+        simulation.setDrillThreshold(0);
+        for (int i = 0; i < 3; i++) {
+            coordinator.elapseOneMinute();
+        }
+        Assert.assertEquals(2, frozen.getCurrentReading());
+        Assert.assertEquals(2, moving.getCurrentReading());
+        Assert.assertTrue(kept.fireDrillOngoing());
+        Assert.assertFalse(removed.fireDrillOngoing());
+        Assert.assertTrue(simulation.toString().contains("items=1"));
+    }
+
+    @Test
+    public void addedSensorSimulated() throws Exception {
+        TemperatureSensor first = new TemperatureSensor(new int[]{1, 2});
+        Building building = buildingWith(first);
+        SimulationCoordinator coordinator = new SimulationCoordinator();
+        coordinator.addBuilding(building);
+        Room room = new Room(2, RoomType.OFFICE, 20);
+        building.getFloorByNumber(1).addRoom​(room);
+        TemperatureSensor second = new TemperatureSensor(new int[]{5, 6});
+        room.addSensor​(second);
+        coordinator.elapseOneMinute();
+        Assert.assertEquals(2, first.getCurrentReading());
+        Assert.assertEquals(6, second.getCurrentReading());
+        Assert.assertSame(second.getTickEpoch(), first.getTickEpoch());
+    }
+}
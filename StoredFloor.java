@@ -0,0 +1,181 @@
+package bms.building;
+
+import bms.floor.FloorInfo;
+import bms.room.RoomType;
+import bms.util.RecordSegment;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A floor held in a TopologyStore, read directly from its record.
+ *
+ * A stored floor is only a reference to its record, so any number of them
+ * may refer to the same floor; two stored floors are equal if they refer to
+ * the same record of the same store. Its rooms are created as they are read
+ * from getRoomsView().
+ */
+public class StoredFloor implements FloorInfo {
+    private final TopologyStore store;
+    private final long index;
+
+    /**
+     * Creates a new reference to the given floor record.
+     *
+     * @param store store holding the floor
+     * @param index index of the floor's record
+     */
+    StoredFloor(TopologyStore store, long index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Returns the index of the floor's record in its store.
+     *
+     * @return record index
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    @Override
+    public int getFloorNumber() {
+        return records().getInt(index, TopologyStore.FLOOR_NUMBER);
+    }
+
+    @Override
+    public double getWidth() {
+        return records().getDouble(index, TopologyStore.FLOOR_WIDTH);
+    }
+
+    @Override
+    public double getLength() {
+        return records().getDouble(index, TopologyStore.FLOOR_LENGTH);
+    }
+
+    @Override
+    public double calculateArea() {
+        return getWidth() * getLength();
+    }
+
+    @Override
+    public float occupiedArea() {
+        return (float) records().getDouble(index,
+                TopologyStore.FLOOR_OCCUPIED);
+    }
+
+    /**
+     * Returns the number of rooms on the floor.
+     *
+     * @return number of rooms
+     */
+    public int getRoomCount() {
+        return records().getInt(index, TopologyStore.FLOOR_ROOM_COUNT);
+    }
+
+    @Override
+    public int getRoomCount(RoomType type) {
+        RecordSegment rooms = store.getRoomRecords();
+        long first = firstRoom();
+        int count = 0;
+        for (long room = first; room < first + getRoomCount(); room++) {
+            if (rooms.getByte(room, TopologyStore.ROOM_TYPE)
+                    == type.ordinal()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<StoredRoom> getRoomsView() {
+        long first = firstRoom();
+        int count = getRoomCount();
+        return new AbstractList<>() {
+            @Override
+            public StoredRoom get(int i) {
+                if (i < 0 || i >= count) {
+                    throw new IndexOutOfBoundsException();
+                }
+                return new StoredRoom(store, first + i);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Searches for the room with the specified room number on the floor.
+     *
+     * @param roomNumber number of room to search for
+     * @return room with the given number if found; null if not found
+     */
+    public StoredRoom getRoomByNumber(int roomNumber) {
+        RecordSegment rooms = store.getRoomRecords();
+        long first = firstRoom();
+        for (long room = first; room < first + getRoomCount(); room++) {
+            if (rooms.getInt(room, TopologyStore.ROOM_NUMBER) == roomNumber) {
+                return new StoredRoom(store, room);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void fireDrill(RoomType roomType) {
+        setFireDrills(roomType, (byte) 1);
+    }
+
+    @Override
+    public void cancelFireDrill() {
+        setFireDrills(null, (byte) 0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StoredFloor)) {
+            return false;
+        }
+        StoredFloor other = (StoredFloor) obj;
+        return store == other.store && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(index);
+    }
+
+    @Override
+    public String toString() {
+        return "Floor #" + getFloorNumber() + ": width=" +
+                String.format("%.2f", getWidth()) + "m, length=" +
+                String.format("%.2f", getLength()) + "m, rooms=" +
+                getRoomCount();
+    }
+
+    /**
+     * Writes the drill flag of every room of the given type, or of every
+     * room if the type is null.
+     */
+    private void setFireDrills(RoomType roomType, byte flag) {
+        RecordSegment rooms = store.getRoomRecords();
+        long first = firstRoom();
+        for (long room = first; room < first + getRoomCount(); room++) {
+            if (roomType == null || rooms.getByte(room,
+                    TopologyStore.ROOM_TYPE) == roomType.ordinal()) {
+                rooms.putByte(room, TopologyStore.ROOM_DRILL, flag);
+            }
+        }
+    }
+
+    private long firstRoom() {
+        return records().getLong(index, TopologyStore.FLOOR_FIRST_ROOM);
+    }
+
+    private RecordSegment records() {
+        return store.getFloorRecords();
+    }
+}
@@ -0,0 +1,135 @@
+package bms.building;
+
+import bms.room.RoomInfo;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.util.RecordSegment;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A room held in a TopologyStore, read directly from its record.
+ *
+ * A stored room is only a reference to its record, so any number of them
+ * may refer to the same room; two stored rooms are equal if they refer to
+ * the same record of the same store.
+ */
+public class StoredRoom implements RoomInfo {
+    private final TopologyStore store;
+    private final long index;
+
+    /**
+     * Creates a new reference to the given room record.
+     *
+     * @param store store holding the room
+     * @param index index of the room's record
+     */
+    StoredRoom(TopologyStore store, long index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Returns the index of the room's record in its store.
+     *
+     * @return record index
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    @Override
+    public int getRoomNumber() {
+        return records().getInt(index, TopologyStore.ROOM_NUMBER);
+    }
+
+    @Override
+    public RoomType getType() {
+        return TopologyStore.getRoomType(
+                records().getByte(index, TopologyStore.ROOM_TYPE));
+    }
+
+    @Override
+    public double getArea() {
+        return records().getDouble(index, TopologyStore.ROOM_AREA);
+    }
+
+    @Override
+    public boolean fireDrillOngoing() {
+        return records().getByte(index, TopologyStore.ROOM_DRILL) != 0;
+    }
+
+    /**
+     * Change the status of the fire drill to the given value.
+     *
+     * @param fireDrill whether there is a fire drill ongoing
+     */
+    public void setFireDrill(boolean fireDrill) {
+        records().putByte(index, TopologyStore.ROOM_DRILL,
+                (byte) (fireDrill ? 1 : 0));
+    }
+
+    @Override
+    public List<Sensor> getSensorsView() {
+        long first = records().getLong(index,
+                TopologyStore.ROOM_FIRST_SENSOR);
+        int count = records().getShort(index,
+                TopologyStore.ROOM_SENSOR_COUNT);
+        return new AbstractList<>() {
+            @Override
+            public Sensor get(int i) {
+                if (i < 0 || i >= count) {
+                    throw new IndexOutOfBoundsException();
+                }
+                return store.getSensor(first + i);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Return the given type of sensor if there is one in the room; return
+     * null otherwise.
+     *
+     * @param sensorType the type of sensor which matches the class name
+     *                   returned by the getSimpleName() method
+     * @return the sensor in this room of the given type; null if none found
+     */
+    public Sensor getSensor(String sensorType) {
+        for (Sensor sensor : getSensorsView()) {
+            if (sensor.getClass().getSimpleName().equals(sensorType)) {
+                return sensor;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof StoredRoom)) {
+            return false;
+        }
+        StoredRoom other = (StoredRoom) obj;
+        return store == other.store && index == other.index;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(index);
+    }
+
+    @Override
+    public String toString() {
+        return "Room #" + getRoomNumber() + ": type=" + getType() +
+                ", area=" + String.format("%.2f", getArea()) + "m^2, " +
+                "sensors=" + getSensorsView().size();
+    }
+
+    private RecordSegment records() {
+        return store.getRoomRecords();
+    }
+}
@@ -1,9 +1,14 @@
 package bms.sensors;
 
+import bms.util.MetricTimer;
+import bms.util.Metrics;
+
 /**
  * A sensor that measures ambient temperature in a room.
  */
 public class TemperatureSensor extends TimedSensor implements HazardSensor {
+    private static final MetricTimer HAZARD_LEVEL_TIMER =
+            Metrics.timer("getHazardLevel");
 
     /**
      * Creates a new temperature sensor with the given sensor readings and
@@ -15,9 +20,39 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor {
         super(sensorReadings, 1);
     }
 
+    /**
+     * Creates a new temperature sensor which reads directly from the given
+     * sequence of readings.
+     */
+    private TemperatureSensor(SensorReadings sensorReadings) {
+        super(sensorReadings, 1);
+    }
+
+    /**
+     * Creates a new temperature sensor which reads directly from the given
+     * sequence of readings, such as an EncodedReadings, without copying it
+     * into an array.
+     *
+     * @param sensorReadings a non-empty sequence of sensor readings
+     * @return the new sensor
+     */
+    public static TemperatureSensor of(SensorReadings sensorReadings) {
+        return new TemperatureSensor(sensorReadings);
+    }
+
     @Override
     public int getHazardLevel() {
-        if (getCurrentReading() >= 68) {
+        long start = HAZARD_LEVEL_TIMER.start();
+        try {
+            return getHazardLevel(getCurrentReading());
+        } finally {
+            HAZARD_LEVEL_TIMER.stop(start);
+        }
+    }
+
+    @Override
+    public int getHazardLevel(int reading) {
+        if (reading >= 68) {
             return 100;
         } else {
             return 0;
@@ -0,0 +1,85 @@
+package bms.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Counts the ticks of a group of timed items, so that state written during a
+ * tick can be published all at once when the tick ends.
+ *
+ * Items keep two copies of their state: the front copy for the last
+ * published tick, which readers use, and the back copy, which the tick in
+ * progress writes. Publishing a tick is a single volatile write that swaps
+ * the two. Readers never lock; a reader reading several items can check with
+ * isStillReadable(long) that none of the copies it read were overwritten
+ * while it was reading.
+ *
+ * The copies themselves are plain fields, so the epoch fences them: no write
+ * to the back copy can be seen before the start of its tick, and no read of
+ * the front copy can be delayed past the check that it was still intact.
+ */
+public class TickEpoch {
+    private static final TickEpoch global = new TickEpoch();
+
+    private volatile long started;
+    private volatile long published;
+
+    /**
+     * Returns the epoch of the global TimedItemManager, used by every item
+     * that is not owned by some other tick domain.
+     *
+     * @return global epoch
+     */
+    public static TickEpoch global() {
+        return global;
+    }
+
+    /**
+     * Returns the number of the last tick that was published.
+     *
+     * @return published tick number
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * Returns whether a tick has started but not yet been published.
+     *
+     * @return true if a tick is in progress
+     */
+    public boolean isTicking() {
+        return started != published;
+    }
+
+    /**
+     * Returns whether state read from the front copy of the given published
+     * tick is still intact, which is the case until the tick after next
+     * starts writing over it.
+     *
+     * @param tick published tick number the state was read for
+     * @return true if the state read is whole-tick consistent
+     */
+    public boolean isStillReadable(long tick) {
+        // reads of the copies must finish before started is checked
+        VarHandle.acquireFence();
+        return started <= tick + 1;
+    }
+
+    /**
+     * Marks the start of a tick. State written from now on goes into the
+     * back copy.
+     */
+    public void beginTick() {
+        started = published + 1;
+        // writes to the back copies must not overtake the start of the tick
+        VarHandle.storeStoreFence();
+    }
+
+    /**
+     * Marks the end of a tick, making everything written during it visible
+     * to readers at once.
+     */
+    public void publish() {
+        published = started;
+    }
+}
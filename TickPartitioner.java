@@ -0,0 +1,45 @@
+package bms.util;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Takes over ticking some of the items registered with the TimedItemManager,
+ * such as to group them by the floor they are on.
+ *
+ * The manager calls every method but tick() while holding its own lock, and
+ * calls tick() once per tick, before it ticks the items no partitioner
+ * holds. Partitioners are registered with
+ * TimedItemManager.registerPartitioner(TickPartitioner).
+ */
+public interface TickPartitioner {
+
+    /**
+     * Regroups the partitioner's items, at the start of a tick in which
+     * items were registered, retired or moved. Items the partitioner takes
+     * are removed from the given list, and items it no longer holds are
+     * added back to it.
+     *
+     * @param unpartitioned items not held by any partitioner
+     */
+    void regroup(List<TimedItem> unpartitioned);
+
+    /**
+     * Drops any of the given items, which are no longer to be ticked.
+     *
+     * @param removed items to drop
+     */
+    void remove(Set<TimedItem> removed);
+
+    /**
+     * Ticks every item held by the partitioner, within the tick of the
+     * global TickEpoch.
+     */
+    void tick();
+
+    /**
+     * Works out any state derived from the items again, without ticking
+     * them, such as after they were restored to an earlier state.
+     */
+    void recompute();
+}
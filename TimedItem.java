@@ -11,4 +11,11 @@ public interface TimedItem {
      * provided the model is not in a paused state.
      */
     void elapseOneMinute();
+
+    /**
+     * Called by TimedItemManager when the item is retired, after which it is
+     * no longer ticked. Does nothing by default.
+     */
+    default void retire() {
+    }
 }
@@ -1,13 +1,45 @@
 package bms.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Singleton class which manages all the timed items.
+ *
+ * By default items are ticked one after another in the order they were
+ * registered, which interleaves the sensors of different rooms and floors.
+ * A TickPartitioner registered with registerPartitioner(TickPartitioner) can
+ * take items over, such as to group them by floor and tick the floors in
+ * parallel. Other items are still ticked in registration order, after the
+ * partitioners.
+ *
+ * Stages, registered with registerStage(TimedItem), run after every item has
+ * been ticked and the tick has been published, so they see every sensor's
+ * new reading. Pre-tick stages, registered with registerPreTickStage(
+ * TimedItem), run before the tick starts, so every item ticked sees what
+ * they change.
+ *
+ * Items of removed sensors, rooms and floors are retired with
+ * retireTimedItems(Collection), which only notes them; they are taken out
+ * together at the start of the next tick, when the partitioners also
+ * regroup their items.
  */
 public class TimedItemManager implements TimedItem {
+    private static final MetricTimer ELAPSE_TIMER =
+            Metrics.timer("TimedItemManager.elapseOneMinute");
+
     private List<TimedItem> timedItems = new ArrayList<>();
+    /* timedItems as an array for ticking; null once the list has changed */
+    private TimedItem[] itemArray = null;
+    private List<TimedItem> stages = new ArrayList<>();
+    private List<TimedItem> preTickStages = new ArrayList<>();
+    private List<TickPartitioner> partitioners = new ArrayList<>();
+    /* items to remove at the start of the next tick */
+    private Set<TimedItem> retired = identitySet(Collections.emptyList());
+    /* whether items were registered or retired, or floors changed, since
+       the partitioners last regrouped */
+    private boolean checkNeeded = false;
+    /* items whose registration is being held back on each thread */
+    private final ThreadLocal<List<TimedItem>> deferred = new ThreadLocal<>();
     private static TimedItemManager instance = null;
 
     /**
@@ -15,7 +47,7 @@ public class TimedItemManager implements TimedItem {
      *
      * @return singleton instance
      */
-    public static TimedItemManager getInstance() {
+    public static synchronized TimedItemManager getInstance() {
         if (instance == null) {
             instance = new TimedItemManager();
         }
@@ -25,16 +57,246 @@ public class TimedItemManager implements TimedItem {
     /**
      * Registers a timed item with the manager.
      *
+     * Sensors register themselves on construction, which may happen on
+     * several threads at once when buildings are generated in parallel.
+     * An item is only taken over by a partitioner at the start of the next
+     * tick. Between deferRegistration() and
+     * registerDeferred(), items are only collected by the calling thread.
+     *
      * @param timedItem a timed item to register with the manager
      */
     public void registerTimedItem(TimedItem timedItem) {
-        timedItems.add(timedItem);
+        List<TimedItem> batch = deferred.get();
+        if (batch != null) {
+            batch.add(timedItem);
+            return;
+        }
+        synchronized (this) {
+            timedItems.add(timedItem);
+            checkNeeded = true;
+        }
+    }
+
+    /**
+     * Registers several timed items with the manager at once.
+     *
+     * @param items timed items to register with the manager
+     */
+    public synchronized void registerTimedItems(
+            Collection<? extends TimedItem> items) {
+        timedItems.addAll(items);
+        checkNeeded = true;
+    }
+
+    /**
+     * Holds back the registration of timed items made by the calling
+     * thread, such as by sensors it constructs, until registerDeferred() is
+     * called. Lets a thread building many sensors register them in one batch
+     * rather than contending for the manager once per sensor.
+     */
+    public void deferRegistration() {
+        if (deferred.get() == null) {
+            deferred.set(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Registers every timed item held back on the calling thread since
+     * deferRegistration(), in the order they were created, and stops holding
+     * back registrations.
+     */
+    public void registerDeferred() {
+        List<TimedItem> batch = deferred.get();
+        deferred.remove();
+        if (batch != null && !batch.isEmpty()) {
+            registerTimedItems(batch);
+        }
+    }
+
+    /**
+     * Registers a stage with the manager. Stages run once per tick, in the
+     * order they were registered, after all timed items have been ticked and
+     * the tick has been published.
+     *
+     * @param stage a stage to run after every tick
+     */
+    public synchronized void registerStage(TimedItem stage) {
+        stages.add(stage);
+    }
+
+    /**
+     * Registers a stage which runs once per tick, in the order registered,
+     * before the tick starts and before any timed item is ticked, such as
+     * to apply updates received since the last tick.
+     *
+     * @param stage a stage to run before every tick
+     */
+    public synchronized void registerPreTickStage(TimedItem stage) {
+        preTickStages.add(stage);
+    }
+
+    /**
+     * Removes the given timed items or stages from the manager, so that they
+     * are no longer updated on each tick. Items which are not registered are
+     * ignored.
+     *
+     * @param items timed items to remove
+     */
+    public synchronized void deregisterTimedItems(
+            Collection<? extends TimedItem> items) {
+        removeItems(identitySet(items));
+    }
+
+    /**
+     * Notes that the given timed items, such as the sensors of a removed
+     * room, should no longer be updated. They are removed at the start of
+     * the next tick, all at once, so retiring an item costs O(1).
+     *
+     * Each item is told with TimedItem.retire(), so that it can stop
+     * depending on the ticks it will no longer take part in.
+     *
+     * @param items timed items to remove
+     */
+    public synchronized void retireTimedItems(
+            Collection<? extends TimedItem> items) {
+        retired.addAll(items);
+        for (TimedItem item : items) {
+            item.retire();
+        }
+        checkNeeded = true;
+    }
+
+    /**
+     * Notes that rooms or sensors have been moved between floors, so that
+     * the partitioners regroup their items at the start of the next tick.
+     */
+    public synchronized void topologyChanged() {
+        checkNeeded = true;
+    }
+
+    /**
+     * Notes that sensors were put back into an earlier state outside of a
+     * tick, such as by a SensorStateFile. The partitioners work out their
+     * derived state again and the change feed publishes the restored
+     * sensors straight away, rather than at the end of the next tick.
+     */
+    public void stateRestored() {
+        synchronized (this) {
+            checkPartitions(false);
+            for (TickPartitioner partitioner : partitioners) {
+                partitioner.recompute();
+            }
+        }
+        ChangeFeed.getInstance().publish();
+    }
+
+    private void removeItems(Set<TimedItem> removed) {
+        if (timedItems.removeIf(removed::contains)) {
+            itemArray = null;
+        }
+        stages.removeIf(removed::contains);
+        preTickStages.removeIf(removed::contains);
+        for (TickPartitioner partitioner : partitioners) {
+            partitioner.remove(removed);
+        }
+    }
+
+    /**
+     * Registers a partitioner with the manager and lets it take over its
+     * items straight away. Partitioners tick in the order registered.
+     *
+     * @param partitioner partitioner to tick items through
+     */
+    public synchronized void registerPartitioner(TickPartitioner partitioner) {
+        partitioners.add(partitioner);
+        checkPartitions(true);
+    }
+
+    /**
+     * Has every partitioner regroup its items straight away, rather than at
+     * the start of the next tick, such as after it was given a new building
+     * to partition.
+     */
+    public synchronized void repartition() {
+        checkPartitions(true);
+    }
+
+    /**
+     * Removes retired items, then has every partitioner regroup its items,
+     * taking from and giving back to the unpartitioned list.
+     */
+    private void checkPartitions(boolean force) {
+        if (!force && !checkNeeded) {
+            return;
+        }
+        checkNeeded = false;
+        if (!retired.isEmpty()) {
+            removeItems(retired);
+            retired = identitySet(Collections.emptyList());
+        }
+        for (TickPartitioner partitioner : partitioners) {
+            partitioner.regroup(timedItems);
+        }
+        // registrations only reach the list through here
+        itemArray = null;
     }
 
     @Override
     public void elapseOneMinute() {
-        for (TimedItem timedItem : timedItems) {
-            timedItem.elapseOneMinute();
-         }
+        long start = ELAPSE_TIMER.start();
+        TimedItem[] preTick;
+        synchronized (this) {
+            preTick = preTickStages.toArray(new TimedItem[0]);
+        }
+        for (TimedItem stage : preTick) {
+            stage.elapseOneMinute();
+        }
+        TickPartitioner[] partitioned;
+        TimedItem[] items;
+        TimedItem[] currentStages;
+        // items registered on other threads during the tick wait for the next
+        synchronized (this) {
+            checkPartitions(false);
+            partitioned = partitioners.toArray(new TickPartitioner[0]);
+            if (itemArray == null) {
+                itemArray = timedItems.toArray(new TimedItem[0]);
+            }
+            items = itemArray;
+            currentStages = stages.toArray(new TimedItem[0]);
+        }
+        TickEpoch epoch = TickEpoch.global();
+        epoch.beginTick();
+        try {
+            for (TickPartitioner partitioner : partitioned) {
+                partitioner.tick();
+            }
+            for (TimedItem timedItem : items) {
+                timedItem.elapseOneMinute();
+            }
+        } finally {
+            // readers see the whole tick at once
+            epoch.publish();
+        }
+        try {
+            for (TimedItem stage : currentStages) {
+                stage.elapseOneMinute();
+            }
+        } finally {
+            ELAPSE_TIMER.stop(start);
+        }
+        ChangeFeed.getInstance().publish();
+    }
+
+    /**
+     * Returns a new set of the given items, compared by identity.
+     *
+     * @param items items to put in the set
+     * @return new modifiable set
+     */
+    static Set<TimedItem> identitySet(Collection<? extends TimedItem> items) {
+        Set<TimedItem> set = Collections.newSetFromMap(
+                new IdentityHashMap<>());
+        set.addAll(items);
+        return set;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package bms.util;
+
+import bms.sensors.NoiseSensor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimedItemManagerTest {
+    @Test
+    public void registerOnAnotherThreadDuringTick() throws Exception {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        List<NoiseSensor> sensors = new ArrayList<>();
+        List<TimedItem> owned = new ArrayList<>();
+        TimedItem builder = () -> {
+            // constructing a sensor registers it with the manager
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    sensors.add(new NoiseSensor(new int[]{40, 50}, 1));
+                }
+            });
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        TimedItem later = () -> { };
+        owned.add(builder);
+        owned.add(later);
+        manager.registerTimedItem(builder);
+        manager.registerTimedItem(later);
+        try {
+            manager.elapseOneMinute();
+            Assert.assertEquals(100, sensors.size());
+            Assert.assertEquals(40, sensors.get(0).getCurrentReading());
+            manager.deregisterTimedItems(List.of(builder));
+            manager.elapseOneMinute();
+            Assert.assertEquals(50, sensors.get(0).getCurrentReading());
+        } finally {
+            owned.addAll(sensors);
+            manager.deregisterTimedItems(owned);
+        }
+    }
+
+    @Test
+    public void itemsFollowRegistrationChanges() {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        int[] ticks = new int[3];
+        TimedItem first = () -> ticks[0]++;
+        TimedItem second = () -> ticks[1]++;
+        TimedItem third = () -> ticks[2]++;
+        manager.registerTimedItem(first);
+        try {
+            manager.elapseOneMinute();
+            manager.elapseOneMinute();
+            manager.registerTimedItems(List.of(second, third));
+            manager.elapseOneMinute();
+            manager.deregisterTimedItems(List.of(first));
+            manager.elapseOneMinute();
+            manager.retireTimedItems(List.of(second));
+            manager.elapseOneMinute();
+            Assert.assertArrayEquals(new int[]{3, 2, 3}, ticks);
+        } finally {
+            manager.deregisterTimedItems(List.of(first, second, third));
+        }
+    }
+}
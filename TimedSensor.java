@@ -1,25 +1,44 @@
 package bms.sensors;
 
+import bms.util.ChangeFeed;
+import bms.util.TickEpoch;
 import bms.util.TimedItem;
 import bms.util.TimedItemManager;
-import java.util.Arrays;
 
 /**
  * An abstract class to represent a sensor that iterates through observed
  * values on a timer.
  */
 public abstract class TimedSensor implements TimedItem, Sensor {
-    private int[] sensorReadings;
+    private static volatile boolean compactStorage = false;
+
     private int updateFrequency;
-    private int secondsElapsed;
-    private int minutesElapsed;
-    private int currentElement;
+    /* readings, current element and minute counts of the even (0) and odd
+       (1) ticks, see TickEpoch; a slot's values are always written together
+       by writeSlot */
+    private SensorReadings readings0;
+    private SensorReadings readings1;
+    private int element0;
+    private int element1;
+    /* minutes since the current reading was moved to */
+    private int sinceUpdate0;
+    private int sinceUpdate1;
+    /* minutes since the sensor was created */
+    private int elapsed0;
+    private int elapsed1;
+    private TickEpoch tickEpoch;
 
     /**
      * Creates a new timed sensor, using the provided list of sensor
      * readings. These represent "raw" data values, and have different
      * meanings depending on the concrete sensor class used.
      *
+     * The readings are always copied, so later changes to the given array
+     * do not affect the sensor. If compact storage is enabled, they are
+     * copied into the narrowest encoding that holds them and shared with
+     * every other sensor that has identical readings; otherwise they are
+     * copied into a plain array of their own.
+     *
      * @param sensorReadings  a non-empty array of sensor readings
      * @param updateFrequency indicates how often the sensor readings updates,
      *                        in minutes
@@ -31,29 +50,346 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      */
     public TimedSensor(int[] sensorReadings, int updateFrequency)
             throws IllegalArgumentException {
-        this.sensorReadings = sensorReadings;
-        this.updateFrequency = updateFrequency;
-        secondsElapsed = 0;
-        minutesElapsed = 0;
-        currentElement = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        this(store(sensorReadings), updateFrequency, true);
+    }
+
+    /**
+     * Creates a new timed sensor which reads directly from the given
+     * sequence of readings, such as an EncodedReadings, without copying it
+     * into an array.
+     *
+     * @param sensorReadings  a non-empty sequence of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is < 1 or > 5; or
+     *                                  if sensorReadings is null; if
+     *                                  sensorReadings is empty; or if any
+     *                                  value in sensorReadings is less than
+     *                                  zero
+     */
+    public TimedSensor(SensorReadings sensorReadings, int updateFrequency)
+            throws IllegalArgumentException {
+        this(sensorReadings, updateFrequency, false);
+    }
 
+    /**
+     * Creates a new timed sensor, checking the readings only if they have
+     * not already been checked.
+     */
+    private TimedSensor(SensorReadings sensorReadings, int updateFrequency,
+                        boolean readingsChecked)
+            throws IllegalArgumentException {
         if (updateFrequency < 1 || updateFrequency > 5 ||
-                sensorReadings == null || sensorReadings.length == 0) {
+                sensorReadings == null || sensorReadings.length() == 0) {
             throw new IllegalArgumentException();
         }
 
+        // arrays are checked by store(int[]) before being wrapped
+        if (!readingsChecked) {
+            checkReadings(sensorReadings);
+        }
+
+        this.updateFrequency = updateFrequency;
+        readings0 = sensorReadings;
+        readings1 = sensorReadings;
+        tickEpoch = TickEpoch.global();
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Validates the given array and wraps it in the storage used by new
+     * sensors.
+     *
+     * @param sensorReadings readings given to a sensor's constructor
+     * @return readings to store in the sensor
+     * @throws IllegalArgumentException if sensorReadings is null, empty or
+     *                                  has a reading less than zero
+     */
+    private static SensorReadings store(int[] sensorReadings)
+            throws IllegalArgumentException {
+        checkReadings(sensorReadings);
+
+        if (compactStorage) {
+            return ReadingPool.getInstance().intern(sensorReadings);
+        }
+        return SensorReadings.of(sensorReadings);
+    }
+
+    /**
+     * Checks that the given readings could be given to a sensor.
+     *
+     * @param sensorReadings readings to check
+     * @throws IllegalArgumentException if sensorReadings is null, empty or
+     *                                  has a reading less than zero
+     */
+    private static void checkReadings(int[] sensorReadings)
+            throws IllegalArgumentException {
+        if (sensorReadings == null || sensorReadings.length == 0) {
+            throw new IllegalArgumentException();
+        }
         for (int reading : sensorReadings) {
             if (reading < 0) {
                 throw new IllegalArgumentException();
             }
         }
+    }
 
+    /**
+     * Checks that the given sequence has no readings less than zero.
+     *
+     * @param sensorReadings non-empty readings to check
+     * @throws IllegalArgumentException if any reading is less than zero
+     */
+    private static void checkReadings(SensorReadings sensorReadings)
+            throws IllegalArgumentException {
+        if (sensorReadings instanceof EncodedReadings) {
+            if (((EncodedReadings) sensorReadings).getMinimum() < 0) {
+                throw new IllegalArgumentException();
+            }
+        } else {
+            for (int i = 0; i < sensorReadings.length(); i++) {
+                if (sensorReadings.get(i) < 0) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether sensors created from now on use compact storage.
+     *
+     * @return true if compact storage is enabled
+     */
+    public static boolean isCompactStorage() {
+        return compactStorage;
+    }
+
+    /**
+     * Sets whether sensors created from now on store their readings in the
+     * narrowest encoding possible, shared through the ReadingPool. Sensors
+     * which already exist are not affected.
+     *
+     * @param enabled whether to use compact storage
+     */
+    public static void setCompactStorage(boolean enabled) {
+        compactStorage = enabled;
     }
 
     @Override
     public int getCurrentReading() {
-        return sensorReadings[currentElement];
+        return getReadingAt(tickEpoch.getPublished());
+    }
+
+    /**
+     * Returns the reading this sensor had as of the given published tick of
+     * its epoch. Only the last published tick, and the one before it until
+     * the next tick starts, can be read.
+     *
+     * @param tick published tick number of the sensor's epoch
+     * @return the reading as of that tick
+     */
+    public int getReadingAt(long tick) {
+        int slot = (int) (tick & 1);
+        SensorReadings sensorReadings = readingsIn(slot);
+        int element = elementIn(slot);
+        // a reader racing replaceReadings() may pair new readings with an
+        // old position; the value is discarded by SensorSnapshot's retry
+        return sensorReadings.get(element < sensorReadings.length()
+                ? element : 0);
+    }
+
+    /**
+     * Returns the epoch that publishes this sensor's ticks.
+     *
+     * @return the sensor's tick epoch
+     */
+    public TickEpoch getTickEpoch() {
+        return tickEpoch;
+    }
+
+    /**
+     * Moves this sensor to the given tick epoch. Called by a tick domain
+     * taking ownership of the sensor, before it first ticks the sensor.
+     *
+     * @param tickEpoch epoch of the domain that ticks this sensor
+     */
+    public void setTickEpoch(TickEpoch tickEpoch) {
+        int slot = (int) (this.tickEpoch.getPublished() & 1);
+        copySlot(slot);
+        this.tickEpoch = tickEpoch;
+    }
+
+    /**
+     * Moves the sensor onto a tick epoch of its own, which never ticks, so
+     * that it keeps the reading it has now rather than flipping between the
+     * copies of its last two ticks as its old epoch goes on.
+     */
+    @Override
+    public void retire() {
+        setTickEpoch(new TickEpoch());
+    }
+
+    /**
+     * Returns the full sequence of readings this sensor iterates through.
+     *
+     * @return the sensor's readings
+     */
+    public SensorReadings getReadings() {
+        return readingsIn((int) (tickEpoch.getPublished() & 1));
+    }
+
+    /**
+     * Replaces the sequence of readings this sensor iterates through, such
+     * as with live readings from a gateway. The sensor starts again from the
+     * first of the new readings, which becomes its current reading.
+     *
+     * As with elapseOneMinute(), the change only becomes visible when the
+     * current tick of the sensor's epoch is published if one is running, and
+     * straight away otherwise.
+     *
+     * @param sensorReadings a non-empty sequence of sensor readings
+     * @throws IllegalArgumentException if sensorReadings is null; if
+     *                                  sensorReadings is empty; or if any
+     *                                  value in sensorReadings is less than
+     *                                  zero
+     */
+    public void replaceReadings(SensorReadings sensorReadings)
+            throws IllegalArgumentException {
+        if (sensorReadings == null || sensorReadings.length() == 0) {
+            throw new IllegalArgumentException();
+        }
+        checkReadings(sensorReadings);
+
+        long tick = tickEpoch.getPublished();
+        int slot = (int) ((tickEpoch.isTicking() ? tick + 1 : tick) & 1);
+        writeSlot(slot, sensorReadings, 0, 0, elapsedIn((int) (tick & 1)));
+
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (feed.isRecording()) {
+            feed.sensorAdvanced(this);
+        }
+    }
+
+    /**
+     * Replaces the readings this sensor iterates through with a copy of the
+     * given array, stored as compactly as new sensors are. Shared storage is
+     * never used, since replaced readings are rarely repeated.
+     *
+     * @param sensorReadings a non-empty array of sensor readings
+     * @throws IllegalArgumentException if sensorReadings is null; if
+     *                                  sensorReadings is empty; or if any
+     *                                  value in sensorReadings is less than
+     *                                  zero
+     * @see #replaceReadings(SensorReadings)
+     */
+    public void replaceReadings(int[] sensorReadings)
+            throws IllegalArgumentException {
+        checkReadings(sensorReadings);
+        replaceReadings(compactStorage
+                ? SensorReadings.compact(sensorReadings)
+                : SensorReadings.of(sensorReadings));
+    }
+
+    /**
+     * Returns the position of the current reading within the readings, as
+     * of the last published tick.
+     *
+     * @return position of the current reading
+     */
+    int getCurrentElement() {
+        return elementIn((int) (tickEpoch.getPublished() & 1));
+    }
+
+    /**
+     * Returns the number of minutes since the current reading was moved to.
+     *
+     * @return minutes since the reading last changed
+     */
+    int getMinutesSinceUpdate() {
+        return sinceUpdateIn((int) (tickEpoch.getPublished() & 1));
+    }
+
+    /**
+     * Puts the sensor back into a state saved earlier, such as by a
+     * SensorStateFile. Must not be called while the sensor is being ticked.
+     * The sensor is recorded in the change feed as having advanced.
+     *
+     * @param currentElement     position of the current reading
+     * @param minutesSinceUpdate minutes since the current reading was moved
+     *                           to
+     * @param minutesElapsed     minutes since the sensor was created
+     * @throws IllegalArgumentException if currentElement is not a position in
+     *                                  the readings, minutesSinceUpdate is
+     *                                  not 0 to updateFrequency - 1 or
+     *                                  minutesElapsed is less than zero
+     */
+    void restoreState(int currentElement, int minutesSinceUpdate,
+                      int minutesElapsed) throws IllegalArgumentException {
+        if (currentElement < 0 || currentElement >= getReadings().length() ||
+                minutesSinceUpdate < 0 ||
+                minutesSinceUpdate >= updateFrequency || minutesElapsed < 0) {
+            throw new IllegalArgumentException();
+        }
+        int slot = (int) (tickEpoch.getPublished() & 1);
+        writeSlot(slot, readingsIn(slot), currentElement, minutesSinceUpdate,
+                minutesElapsed);
+        copySlot(slot);
+
+        ChangeFeed feed = ChangeFeed.getInstance();
+        if (feed.isRecording()) {
+            feed.sensorAdvanced(this);
+        }
+    }
+
+    /**
+     * Copies the state of the given slot into the other, so that the sensor
+     * reads the same whichever tick is published next.
+     *
+     * @param slot slot to copy from
+     */
+    private void copySlot(int slot) {
+        writeSlot(1 - slot, readingsIn(slot), elementIn(slot),
+                sinceUpdateIn(slot), elapsedIn(slot));
+    }
+
+    /**
+     * Writes the whole state of the given slot.
+     *
+     * @param slot        slot to write, 0 or 1
+     * @param readings    readings of the slot
+     * @param element     current element of the slot
+     * @param sinceUpdate minutes since the current reading was moved to
+     * @param elapsed     minutes since the sensor was created
+     */
+    private void writeSlot(int slot, SensorReadings readings, int element,
+                           int sinceUpdate, int elapsed) {
+        if (slot == 0) {
+            readings0 = readings;
+            element0 = element;
+            sinceUpdate0 = sinceUpdate;
+            elapsed0 = elapsed;
+        } else {
+            readings1 = readings;
+            element1 = element;
+            sinceUpdate1 = sinceUpdate;
+            elapsed1 = elapsed;
+        }
+    }
+
+    private SensorReadings readingsIn(int slot) {
+        return slot == 0 ? readings0 : readings1;
+    }
+
+    private int elementIn(int slot) {
+        return slot == 0 ? element0 : element1;
+    }
+
+    private int sinceUpdateIn(int slot) {
+        return slot == 0 ? sinceUpdate0 : sinceUpdate1;
+    }
+
+    private int elapsedIn(int slot) {
+        return slot == 0 ? elapsed0 : elapsed1;
     }
 
     /**
@@ -64,7 +400,7 @@ public abstract class TimedSensor implements TimedItem, Sensor {
      * @return the sensor's time elapsed in minutes
      */
     public int getTimeElapsed() {
-        return minutesElapsed;
+        return elapsedIn((int) (tickEpoch.getPublished() & 1));
     }
 
     /**
@@ -77,28 +413,41 @@ public abstract class TimedSensor implements TimedItem, Sensor {
         return updateFrequency;
     }
 
+    /**
+     * Moves the sensor on by one minute.
+     *
+     * During a tick of the sensor's epoch the new reading is written to the
+     * back copy and only becomes visible when the tick is published; outside
+     * of a tick it is visible immediately.
+     */
     @Override
     public void elapseOneMinute() {
-        secondsElapsed++;
+        long tick = tickEpoch.getPublished();
+        int front = (int) (tick & 1);
+        SensorReadings sensorReadings = readingsIn(front);
+        int currentElement = elementIn(front);
+        int sinceUpdate = sinceUpdateIn(front) + 1;
+        int elapsed = elapsedIn(front) + 1;
 
-        if (secondsElapsed >= 60) {
-            minutesElapsed++;
-        }
-        if ((updateFrequency % minutesElapsed) != 0) {
+        if (sinceUpdate >= updateFrequency) {
             currentElement++;
-            secondsElapsed = 0;
-            minutesElapsed = 0;
-            if (currentElement > sensorReadings.length) {
+            sinceUpdate = 0;
+            if (currentElement >= sensorReadings.length()) {
                 currentElement = 0;
             }
+            ChangeFeed feed = ChangeFeed.getInstance();
+            if (feed.isRecording()) {
+                feed.sensorAdvanced(this);
+            }
         }
+
+        int slot = (int) ((tickEpoch.isTicking() ? tick + 1 : tick) & 1);
+        writeSlot(slot, sensorReadings, currentElement, sinceUpdate, elapsed);
     }
 
     @Override
     public String toString() {
         return "TimedSensor: freq=" + updateFrequency + ", readings=" +
-                Arrays.toString(sensorReadings).replace(", ", ",")
-                        .replace("[", "")
-                        .replace("]", "");
+                getReadings().render();
     }
 }
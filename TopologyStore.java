@@ -0,0 +1,435 @@
+package bms.building;
+
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.util.RecordSegment;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Floors and rooms of any number of buildings, held in fixed-width records
+ * outside the Java heap so that a whole campus costs a few heap objects
+ * rather than a Floor, a Room and an ArrayList per floor and room.
+ *
+ * Each floor record holds the floor's number, size, occupied area and the
+ * range of its rooms; each room record holds the room's number, RoomType
+ * ordinal (-1 for none), area, fire drill flag and the range of its
+ * sensors. Sensors are objects with their own readings and timers, so they
+ * stay on the heap in a single list, and a room refers to its sensors by
+ * their position in that list. A building's floors, a floor's rooms and a
+ * room's sensors are stored next to each other, so they must be added in
+ * that order: all of a building's floors before the next building is
+ * begun, and all of a floor's rooms before the next floor is added.
+ *
+ * Floors and rooms are read through StoredFloor and StoredRoom, small
+ * flyweights which implement FloorInfo and RoomInfo by reading the records
+ * directly. Fire drills write the drill flags in place.
+ *
+ * Floors and rooms are validated with the same rules as
+ * Building.addFloor(Floor) and Floor.addRoom(Room), except that room
+ * placement is not supported. As with RecordSegment, the store may be read
+ * from any number of threads, but must only be added to from one thread,
+ * with no concurrent reads.
+ */
+public class TopologyStore implements Closeable {
+    /* floor record layout */
+    static final int FLOOR_NUMBER = 0;
+    static final int FLOOR_ROOM_COUNT = 4;
+    static final int FLOOR_FIRST_ROOM = 8;
+    static final int FLOOR_WIDTH = 16;
+    static final int FLOOR_LENGTH = 24;
+    static final int FLOOR_OCCUPIED = 32;
+    static final int FLOOR_BYTES = 40;
+
+    /* room record layout */
+    static final int ROOM_NUMBER = 0;
+    static final int ROOM_TYPE = 4;
+    static final int ROOM_DRILL = 5;
+    static final int ROOM_SENSOR_COUNT = 6;
+    static final int ROOM_AREA = 8;
+    static final int ROOM_FIRST_SENSOR = 16;
+    static final int ROOM_BYTES = 24;
+
+    private static final RoomType[] ROOM_TYPES = RoomType.values();
+    /* type ordinal of a room with no type */
+    private static final byte NO_TYPE = -1;
+
+    private final RecordSegment floors;
+    private final RecordSegment rooms;
+    private final List<Sensor> sensors;
+    private final List<StoredBuilding> buildings;
+
+    /**
+     * Creates a new, empty store in direct memory.
+     */
+    public TopologyStore() {
+        floors = RecordSegment.direct(FLOOR_BYTES);
+        rooms = RecordSegment.direct(ROOM_BYTES);
+        sensors = new ArrayList<>();
+        buildings = new ArrayList<>();
+    }
+
+    /**
+     * Creates a new, empty store whose floors and rooms are held in files
+     * mapped from the given directory, floors.dat and rooms.dat, so that the
+     * operating system can page them out. Existing files are overwritten.
+     *
+     * @param directory existing directory to hold the files
+     * @throws IOException if the files cannot be created
+     */
+    public TopologyStore(Path directory) throws IOException {
+        floors = RecordSegment.mapped(directory.resolve("floors.dat"),
+                FLOOR_BYTES);
+        try {
+            rooms = RecordSegment.mapped(directory.resolve("rooms.dat"),
+                    ROOM_BYTES);
+        } catch (IOException e) {
+            floors.close();
+            throw e;
+        }
+        sensors = new ArrayList<>();
+        buildings = new ArrayList<>();
+    }
+
+    /**
+     * Begins a new building, to which floors are added by
+     * addFloor(int, double, double).
+     *
+     * @param name name of the building
+     * @return index of the new building in the store
+     */
+    public int beginBuilding(String name) {
+        buildings.add(new StoredBuilding(name, floors.size()));
+        return buildings.size() - 1;
+    }
+
+    /**
+     * Adds a floor to the building most recently begun. Rooms are then added
+     * to it by addRoom(int, RoomType, double, Sensor...).
+     *
+     * @param floorNumber number of the floor
+     * @param width       width of the floor in metres
+     * @param length      length of the floor in metres
+     * @return the new floor
+     * @throws IllegalStateException    if no building has been begun
+     * @throws IllegalArgumentException if floor number is 0, width &lt;
+     *                                  Floor.getMinWidth(), or length &lt;
+     *                                  Floor.getMinLength()
+     * @throws DuplicateFloorException  if a floor at this level already
+     *                                  exists in the building
+     * @throws NoFloorBelowException    if this is at level 2 or above and
+     *                                  there is no floor below
+     * @throws FloorTooSmallException   if this is at level 2 or above and the
+     *                                  floor below is smaller than this floor
+     */
+    public StoredFloor addFloor(int floorNumber, double width, double length)
+            throws DuplicateFloorException, NoFloorBelowException,
+                   FloorTooSmallException {
+        StoredBuilding building = currentBuilding();
+        if (floorNumber == 0 || width < Floor.getMinWidth() ||
+                length < Floor.getMinLength()) {
+            throw new IllegalArgumentException();
+        }
+        int buildingIndex = buildings.size() - 1;
+        StoredFloor below = getFloorByNumber(buildingIndex, floorNumber - 1);
+        if (floorNumber != 1 && below == null) {
+            throw new NoFloorBelowException();
+        } else if (getFloorByNumber(buildingIndex, floorNumber) != null) {
+            throw new DuplicateFloorException();
+        } else if (floorNumber > 1 &&
+                below.calculateArea() < width * length) {
+            throw new FloorTooSmallException();
+        }
+        return appendFloor(building, floorNumber, width, length);
+    }
+
+    /**
+     * Adds a room, and the given sensors, to the floor most recently added.
+     *
+     * @param roomNumber number of the room
+     * @param type       type of the room
+     * @param area       area of the room in square metres
+     * @param roomSensors sensors in the room, of different types
+     * @return the new room
+     * @throws IllegalStateException      if no floor has been added to the
+     *                                    current building
+     * @throws IllegalArgumentException   if type is null, area is less than
+     *                                    Room.getMinArea() or there are more
+     *                                    than Short.MAX_VALUE sensors
+     * @throws DuplicateRoomException     if the room number on the floor is
+     *                                    already taken
+     * @throws InsufficientSpaceException if there is not enough space left
+     *                                    on the floor for the room
+     * @throws DuplicateSensorException   if two of the sensors are of the
+     *                                    same type
+     */
+    public StoredRoom addRoom(int roomNumber, RoomType type, double area,
+                              Sensor... roomSensors)
+            throws DuplicateRoomException, InsufficientSpaceException,
+                   DuplicateSensorException {
+        StoredBuilding building = currentBuilding();
+        if (building.floorCount == 0) {
+            throw new IllegalStateException();
+        }
+        long floor = building.firstFloor + building.floorCount - 1;
+        if (type == null || area < Room.getMinArea() ||
+                roomSensors.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException();
+        }
+        long firstRoom = floors.getLong(floor, FLOOR_FIRST_ROOM);
+        int roomCount = floors.getInt(floor, FLOOR_ROOM_COUNT);
+        for (long room = firstRoom; room < firstRoom + roomCount; room++) {
+            if (rooms.getInt(room, ROOM_NUMBER) == roomNumber) {
+                throw new DuplicateRoomException();
+            }
+        }
+        double free = floors.getDouble(floor, FLOOR_WIDTH) *
+                floors.getDouble(floor, FLOOR_LENGTH) -
+                floors.getDouble(floor, FLOOR_OCCUPIED);
+        if (free < area) {
+            throw new InsufficientSpaceException();
+        }
+        for (int i = 0; i < roomSensors.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (roomSensors[i].getClass() == roomSensors[j].getClass()) {
+                    throw new DuplicateSensorException();
+                }
+            }
+        }
+        return appendRoom(floor, roomNumber, type, area, roomSensors);
+    }
+
+    /**
+     * Copies the floors, rooms and sensors of the given building into the
+     * store, as a new building. The sensors themselves are shared, not
+     * copied. Room placements are not kept.
+     *
+     * @param building building to copy
+     * @return index of the new building in the store
+     */
+    public int addBuilding(Building building) {
+        int index = beginBuilding(building.getName());
+        StoredBuilding stored = buildings.get(index);
+        for (Floor floor : building.getFloorsView()) {
+            long floorIndex = appendFloor(stored, floor.getFloorNumber(),
+                    floor.getWidth(), floor.getLength()).getIndex();
+            for (Room room : floor.getRoomsView()) {
+                appendRoom(floorIndex, room.getRoomNumber(), room.getType(),
+                        room.getArea(),
+                        room.getSensorsView().toArray(new Sensor[0]))
+                        .setFireDrill(room.fireDrillOngoing());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of buildings in the store.
+     *
+     * @return number of buildings
+     */
+    public int getBuildingCount() {
+        return buildings.size();
+    }
+
+    /**
+     * Returns the name of the given building.
+     *
+     * @param building index of the building
+     * @return name of the building
+     * @throws IndexOutOfBoundsException if there is no such building
+     */
+    public String getBuildingName(int building) {
+        return buildings.get(building).name;
+    }
+
+    /**
+     * Returns the number of floors in the given building.
+     *
+     * @param building index of the building
+     * @return number of floors
+     * @throws IndexOutOfBoundsException if there is no such building
+     */
+    public int getFloorCount(int building) {
+        return buildings.get(building).floorCount;
+    }
+
+    /**
+     * Returns the floors of the given building, in the order they were
+     * added. Each call to get() returns a new flyweight.
+     *
+     * @param building index of the building
+     * @return unmodifiable list of floors
+     * @throws IndexOutOfBoundsException if there is no such building
+     */
+    public List<StoredFloor> getFloorsView(int building) {
+        StoredBuilding stored = buildings.get(building);
+        return new AbstractList<>() {
+            @Override
+            public StoredFloor get(int index) {
+                if (index < 0 || index >= stored.floorCount) {
+                    throw new IndexOutOfBoundsException();
+                }
+                return new StoredFloor(TopologyStore.this,
+                        stored.firstFloor + index);
+            }
+
+            @Override
+            public int size() {
+                return stored.floorCount;
+            }
+        };
+    }
+
+    /**
+     * Searches for the floor with the specified floor number in the given
+     * building.
+     *
+     * @param building    index of the building
+     * @param floorNumber floor number of floor to search for
+     * @return floor with the given number if found; null if not found
+     * @throws IndexOutOfBoundsException if there is no such building
+     */
+    public StoredFloor getFloorByNumber(int building, int floorNumber) {
+        StoredBuilding stored = buildings.get(building);
+        for (long floor = stored.firstFloor;
+                floor < stored.firstFloor + stored.floorCount; floor++) {
+            if (floors.getInt(floor, FLOOR_NUMBER) == floorNumber) {
+                return new StoredFloor(this, floor);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of floors in every building in the store.
+     *
+     * @return total number of floors
+     */
+    public long getTotalFloorCount() {
+        return floors.size();
+    }
+
+    /**
+     * Returns the number of rooms in every building in the store.
+     *
+     * @return total number of rooms
+     */
+    public long getTotalRoomCount() {
+        return rooms.size();
+    }
+
+    /**
+     * Returns the number of bytes held outside the heap by the floor and
+     * room records.
+     *
+     * @return size of the records in bytes
+     */
+    public long getRecordBytes() {
+        return floors.size() * FLOOR_BYTES + rooms.size() * ROOM_BYTES;
+    }
+
+    /**
+     * Releases the memory of the floor and room records, and the files of a
+     * mapped store. Floors and rooms must not be read once the store is
+     * closed.
+     *
+     * @throws IOException if closing the files fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            floors.close();
+        } finally {
+            rooms.close();
+        }
+    }
+
+    RecordSegment getFloorRecords() {
+        return floors;
+    }
+
+    RecordSegment getRoomRecords() {
+        return rooms;
+    }
+
+    Sensor getSensor(long index) {
+        return sensors.get((int) index);
+    }
+
+    static RoomType getRoomType(int ordinal) {
+        return ordinal == NO_TYPE ? null : ROOM_TYPES[ordinal];
+    }
+
+    private StoredBuilding currentBuilding() {
+        if (buildings.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return buildings.get(buildings.size() - 1);
+    }
+
+    private StoredFloor appendFloor(StoredBuilding building, int floorNumber,
+                                    double width, double length) {
+        long floor = append(floors);
+        floors.putInt(floor, FLOOR_NUMBER, floorNumber);
+        floors.putLong(floor, FLOOR_FIRST_ROOM, rooms.size());
+        floors.putDouble(floor, FLOOR_WIDTH, width);
+        floors.putDouble(floor, FLOOR_LENGTH, length);
+        building.floorCount++;
+        return new StoredFloor(this, floor);
+    }
+
+    private StoredRoom appendRoom(long floor, int roomNumber, RoomType type,
+                                  double area, Sensor[] roomSensors) {
+        long room = append(rooms);
+        rooms.putInt(room, ROOM_NUMBER, roomNumber);
+        rooms.putByte(room, ROOM_TYPE,
+                type == null ? NO_TYPE : (byte) type.ordinal());
+        rooms.putShort(room, ROOM_SENSOR_COUNT, (short) roomSensors.length);
+        rooms.putDouble(room, ROOM_AREA, area);
+        rooms.putLong(room, ROOM_FIRST_SENSOR, sensors.size());
+        for (Sensor sensor : roomSensors) {
+            sensors.add(sensor);
+        }
+        floors.putInt(floor, FLOOR_ROOM_COUNT,
+                floors.getInt(floor, FLOOR_ROOM_COUNT) + 1);
+        floors.putDouble(floor, FLOOR_OCCUPIED,
+                floors.getDouble(floor, FLOOR_OCCUPIED) + area);
+        return new StoredRoom(this, room);
+    }
+
+    private static long append(RecordSegment segment) {
+        try {
+            return segment.append();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The name of a building and the range of its floor records.
+     */
+    private static class StoredBuilding {
+        private final String name;
+        private final long firstFloor;
+        private int floorCount;
+
+        private StoredBuilding(String name, long firstFloor) {
+            this.name = name;
+            this.firstFloor = firstFloor;
+        }
+    }
+}
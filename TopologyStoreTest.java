@@ -0,0 +1,115 @@
+package bms.building;
+
+import bms.exceptions.DuplicateRoomException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TopologyStoreTest {
+    private Building building;
+    private NoiseSensor noise;
+    private TemperatureSensor temperature;
+
+    @Before
+    public void setUp() throws Exception {
+        building = new Building("Test");
+        Floor ground = new Floor(1, 10, 10);
+        Floor first = new Floor(2, 8, 8);
+        building.addFloor(ground);
+        building.addFloor(first);
+        Room office = new Room(101, RoomType.OFFICE, 20);
+        Room untyped = new Room(102, null, 10);
+        Room study = new Room(201, RoomType.STUDY, 15);
+        ground.addRoom​(office);
+        ground.addRoom​(untyped);
+        first.addRoom​(study);
+        noise = new NoiseSensor(new int[]{50}, 1);
+        temperature = new TemperatureSensor(new int[]{20});
+        office.addSensor​(noise);
+        office.addSensor​(temperature);
+        study.setFireDrill​(true);
+    }
+
+    @After
+    public void tearDown() {
+        TimedItemManager.getInstance().deregisterTimedItems(
+                List.of(noise, temperature));
+    }
+
+    private void checkCopy(TopologyStore store) throws Exception {
+        int index = store.addBuilding(building);
+        Assert.assertEquals("Test", store.getBuildingName(index));
+        Assert.assertEquals(2, store.getFloorCount(index));
+        Assert.assertEquals(3, store.getTotalRoomCount());
+
+        List<Floor> floors = building.getFloorsView();
+        List<StoredFloor> stored = store.getFloorsView(index);
+        for (int i = 0; i < floors.size(); i++) {
+            Assert.assertEquals(floors.get(i).toString(),
+                    stored.get(i).toString());
+            List<Room> rooms = floors.get(i).getRoomsView();
+            List<StoredRoom> storedRooms = stored.get(i).getRoomsView();
+            Assert.assertEquals(rooms.size(), storedRooms.size());
+            for (int j = 0; j < rooms.size(); j++) {
+                Assert.assertEquals(rooms.get(j).toString(),
+                        storedRooms.get(j).toString());
+                Assert.assertEquals(rooms.get(j).fireDrillOngoing(),
+                        storedRooms.get(j).fireDrillOngoing());
+            }
+        }
+
+        StoredFloor ground = store.getFloorByNumber(index, 1);
+        Assert.assertNull(ground.getRoomByNumber(102).getType());
+        Assert.assertEquals(1, ground.getRoomCount(RoomType.OFFICE));
+        StoredRoom office = ground.getRoomByNumber(101);
+        Assert.assertSame(noise, office.getSensor("NoiseSensor"));
+        Assert.assertSame(temperature,
+                office.getSensor("TemperatureSensor"));
+
+        ground.fireDrill(RoomType.OFFICE);
+        Assert.assertTrue(office.fireDrillOngoing());
+        Assert.assertFalse(ground.getRoomByNumber(102).fireDrillOngoing());
+        ground.cancelFireDrill();
+        Assert.assertFalse(office.fireDrillOngoing());
+    }
+
+    @Test
+    public void directCopy() throws Exception {
+        try (TopologyStore store = new TopologyStore()) {
+            checkCopy(store);
+        }
+    }
+
+    @Test
+    public void mappedCopy() throws Exception {
+        Path directory = Files.createTempDirectory("topology");
+        try (TopologyStore store = new TopologyStore(directory)) {
+            checkCopy(store);
+        } finally {
+            Files.delete(directory.resolve("floors.dat"));
+            Files.delete(directory.resolve("rooms.dat"));
+            Files.delete(directory);
+        }
+    }
+
+    @Test(expected = DuplicateRoomException.class)
+    public void duplicateRoom() throws Exception {
+        try (TopologyStore store = new TopologyStore()) {
+            store.beginBuilding("Test");
+            store.addFloor(1, 10, 10);
+            store.addRoom(1, RoomType.OFFICE, 10);
+            store.addRoom(1, RoomType.STUDY, 10);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package bms.server;
+
+import bms.building.Building;
+import bms.building.BuildingGenerator;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import java.io.IOException;
+
+/**
+ * Measures how fast reading updates can be sent over the binary reading
+ * protocol on the loopback interface, decoded and applied to sensors.
+ */
+public class WireBenchmark {
+    /* updates per frame */
+    private static final int FRAME_UPDATES = 256;
+
+    /**
+     * Generates a building, then repeatedly sends an update for every
+     * sensor in it and prints the rate of updates and readings received,
+     * and of updates applied.
+     *
+     * @param args optional floor count, rooms per floor, readings per update
+     *             and rounds (defaults 50, 100, 16 and 20)
+     * @throws IOException if the loopback connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        int floors = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int readings = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        Building building = new BuildingGenerator(1, floors, rooms)
+                .generate("Benchmark");
+        SensorDirectory directory = new SensorDirectory();
+        int sensors = directory.register(1, building);
+        FrameEncoder encoder = encodeAll(building, sensors, readings);
+
+        SensorUpdateSink sink = new SensorUpdateSink();
+        SensorUpdateServer server = new SensorUpdateServer(directory, sink,
+                0);
+        server.start();
+        try (SensorUpdateClient client =
+                     new SensorUpdateClient(server.getPort())) {
+            // warm up the JIT before timing
+            for (int i = 0; i < 3; i++) {
+                client.send(encoder);
+                client.awaitAcks();
+                sink.drain();
+            }
+
+            long received = 0;
+            long receiveNanos = 0;
+            long applyNanos = 0;
+            for (int i = 0; i < rounds; i++) {
+                long start = System.nanoTime();
+                client.send(encoder);
+                received += client.awaitAcks();
+                long middle = System.nanoTime();
+                sink.drain();
+                receiveNanos += middle - start;
+                applyNanos += System.nanoTime() - middle;
+            }
+            System.out.printf("%d sensors, %d readings per update, " +
+                            "%d bytes per round%n", sensors, readings,
+                    encoder.getFrames().remaining());
+            System.out.printf("received: %.0f updates/s, %.0f readings/s%n",
+                    received * 1e9 / receiveNanos,
+                    received * (double) readings * 1e9 / receiveNanos);
+            System.out.printf("applied:  %.0f updates/s%n",
+                    received * 1e9 / applyNanos);
+            System.out.println("rejected: " + client.getRejected());
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Encodes one update for every addressable sensor in the building.
+     */
+    private static FrameEncoder encodeAll(Building building, int sensors,
+                                          int readings) {
+        int[] values = new int[readings];
+        for (int i = 0; i < readings; i++) {
+            values[i] = 400 + i;
+        }
+        int frames = sensors / FRAME_UPDATES + 1;
+        FrameEncoder encoder = new FrameEncoder(frames * 8 + sensors *
+                (FrameDecoder.UPDATE_HEADER_BYTES + 4 * readings));
+        int updates = 0;
+        encoder.beginFrame(1);
+        for (Floor floor : building.getFloorsView()) {
+            for (Room room : floor.getRoomsView()) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (updates == FRAME_UPDATES) {
+                        encoder.endFrame();
+                        encoder.beginFrame(1);
+                        updates = 0;
+                    }
+                    encoder.addUpdate(floor.getFloorNumber(),
+                            room.getRoomNumber(), SensorKind.of(sensor),
+                            values, 0, readings);
+                    updates++;
+                }
+            }
+        }
+        encoder.endFrame();
+        return encoder;
+    }
+}